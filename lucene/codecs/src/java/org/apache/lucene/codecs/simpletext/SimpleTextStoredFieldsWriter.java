@@ -170,6 +170,11 @@ public class SimpleTextStoredFieldsWriter extends StoredFieldsWriter {
       out = null;
     }
   }
+
+  @Override
+  public long ramBytesUsed() {
+    return scratch.bytes().length;
+  }
   
   private void write(String s) throws IOException {
     SimpleTextUtil.write(out, s, scratch);
@@ -181,6 +181,11 @@ public class SimpleTextTermVectorsWriter extends TermVectorsWriter {
       out = null;
     }
   }
+
+  @Override
+  public long ramBytesUsed() {
+    return scratch.bytes().length;
+  }
   
   private void write(String s) throws IOException {
     SimpleTextUtil.write(out, s, scratch);
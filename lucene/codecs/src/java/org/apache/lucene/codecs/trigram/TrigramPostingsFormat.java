@@ -0,0 +1,811 @@
+package org.apache.lucene.codecs.trigram;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.codecs.FieldsConsumer;
+import org.apache.lucene.codecs.FieldsProducer;
+import org.apache.lucene.codecs.PostingsFormat;
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.Fields;
+import org.apache.lucene.index.FilterLeafReader.FilterTerms;
+import org.apache.lucene.index.IndexFileNames;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.SegmentReadState;
+import org.apache.lucene.index.SegmentWriteState;
+import org.apache.lucene.index.TermState;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.store.DataOutput;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FilterDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.Accountables;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.AttributeSource;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.InPlaceMergeSorter;
+import org.apache.lucene.util.LongValues;
+import org.apache.lucene.util.OfflineSorter;
+import org.apache.lucene.util.OfflineSorter.ByteSequencesReader;
+import org.apache.lucene.util.OfflineSorter.ByteSequencesWriter;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.automaton.Automaton;
+import org.apache.lucene.util.automaton.ByteRunAutomaton;
+import org.apache.lucene.util.automaton.CompiledAutomaton;
+import org.apache.lucene.util.automaton.Transition;
+import org.apache.lucene.util.packed.DirectReader;
+import org.apache.lucene.util.packed.DirectWriter;
+import org.apache.lucene.util.packed.PackedInts;
+import org.apache.lucene.util.packed.PackedLongValues;
+
+/**
+ * <p>
+ * A {@link PostingsFormat} that maintains a side index from the byte
+ * trigrams of the terms of a field to the terms that contain them, in order to
+ * speed up {@link Terms#intersect} for automata that do not start with a
+ * fixed prefix, such as the ones of {@link org.apache.lucene.search.WildcardQuery}
+ * or {@link org.apache.lucene.search.RegexpQuery} with a leading wildcard.
+ * Such automata would otherwise need to visit most of the terms dictionary.
+ * The trigrams that all terms accepted by the automaton must contain are
+ * computed with {@link CompiledAutomaton#getRequiredTrigrams()}, their lists of
+ * terms are intersected and only the remaining candidates are verified
+ * against the automaton. All other postings data is recorded by a choice of
+ * delegate PostingsFormat.
+ * </p>
+ * <p>
+ * The side index roughly takes as much space as the terms themselves plus a
+ * few bytes per distinct trigram of each term, so this format should only be
+ * used, through {@link org.apache.lucene.codecs.perfield.PerFieldPostingsFormat},
+ * on fields that are searched with such queries. It is built when a segment
+ * is flushed or merged; if a field has too many (trigram, term) pairs to be
+ * sorted in memory, they are sorted with {@link OfflineSorter} in temporary
+ * files of the segment's directory.
+ * </p>
+ * <p>
+ * The format of the tgm file is as follows:
+ * </p>
+ * <ul>
+ * <li>Trigrams (.tgm) --&gt; Header, DelegatePostingsFormatName,
+ * FieldData<sup>NumFields</sup>, Directory, DirectoryOffset, Footer</li>
+ * <li>FieldData --&gt; TermBytes<sup>NumTerms</sup>, TermOffsets,
+ * TrigramPostings<sup>NumTrigrams</sup></li>
+ * <li>TermOffsets --&gt; the NumTerms+1 offsets of the terms in TermBytes,
+ * written with {@link DirectWriter}</li>
+ * <li>TrigramPostings --&gt; TermOrdDelta<sup>TermCount</sup></li>
+ * <li>Directory --&gt; NumFields, FieldEntry<sup>NumFields</sup></li>
+ * <li>FieldEntry --&gt; FieldNumber, NumTerms, TermBytesOffset,
+ * TermOffsetsOffset, TermOffsetsEnd, BitsPerOffset, NumTrigrams,
+ * &lt;TrigramDelta, TermCount, TrigramPostingsOffsetDelta&gt;<sup>NumTrigrams</sup></li>
+ * <li>Header --&gt; {@link CodecUtil#writeIndexHeader IndexHeader}</li>
+ * <li>DelegatePostingsFormatName --&gt; {@link DataOutput#writeString(String)
+ * String} The name of a ServiceProvider registered {@link PostingsFormat}</li>
+ * <li>NumFields, FieldNumber, NumTerms, NumTrigrams, TrigramDelta, TermCount,
+ * TermOrdDelta --&gt; {@link DataOutput#writeVInt VInt}</li>
+ * <li>TermBytesOffset, TermOffsetsOffset, TermOffsetsEnd,
+ * TrigramPostingsOffsetDelta --&gt; {@link DataOutput#writeVLong VLong}</li>
+ * <li>BitsPerOffset --&gt; {@link DataOutput#writeByte Byte}</li>
+ * <li>DirectoryOffset --&gt; {@link DataOutput#writeLong Uint64}</li>
+ * <li>Footer --&gt; {@link CodecUtil#writeFooter CodecFooter}</li>
+ * </ul>
+ * <p>
+ * Trigrams are encoded as described in {@link CompiledAutomaton#getRequiredTrigrams()}
+ * and term ordinals only count terms that have at least one document.
+ * </p>
+ * @lucene.experimental
+ */
+public final class TrigramPostingsFormat extends PostingsFormat {
+
+  public static final String TRIGRAM_CODEC_NAME = "Trigram";
+  public static final int VERSION_START = 0;
+  public static final int VERSION_CURRENT = VERSION_START;
+
+  /** Extension of trigrams file */
+  static final String TRIGRAM_EXTENSION = "tgm";
+
+  /** Extension of the temporary files used to sort the trigrams of large fields */
+  static final String TRIGRAM_TMP_EXTENSION = "tgm_tmp";
+
+  /** Default maximum number of (trigram, term) pairs that are sorted in memory. */
+  static final int DEFAULT_MAX_BUFFERED_TRIGRAM_ORDS = 1 << 20;
+
+  private final PostingsFormat delegatePostingsFormat;
+  private final int maxBufferedTrigramOrds;
+
+  /**
+   * Creates a trigram side index for all fields that are written with this
+   * format. This PostingsFormat delegates to a choice of delegate
+   * PostingsFormat for encoding all other postings data.
+   *
+   * @param delegatePostingsFormat
+   *          The PostingsFormat that records all the non-trigram data i.e.
+   *          postings info.
+   */
+  public TrigramPostingsFormat(PostingsFormat delegatePostingsFormat) {
+    this(delegatePostingsFormat, DEFAULT_MAX_BUFFERED_TRIGRAM_ORDS);
+  }
+
+  /** Expert: also sets how many (trigram, term) pairs of a field are sorted in memory. */
+  TrigramPostingsFormat(PostingsFormat delegatePostingsFormat, int maxBufferedTrigramOrds) {
+    super(TRIGRAM_CODEC_NAME);
+    if (maxBufferedTrigramOrds < 1) {
+      throw new IllegalArgumentException("maxBufferedTrigramOrds must be >= 1; got " + maxBufferedTrigramOrds);
+    }
+    this.delegatePostingsFormat = delegatePostingsFormat;
+    this.maxBufferedTrigramOrds = maxBufferedTrigramOrds;
+  }
+
+  // Used only by core Lucene at read-time via Service Provider instantiation -
+  // do not use at Write-time in application code.
+  public TrigramPostingsFormat() {
+    super(TRIGRAM_CODEC_NAME);
+    this.delegatePostingsFormat = null;
+    this.maxBufferedTrigramOrds = DEFAULT_MAX_BUFFERED_TRIGRAM_ORDS;
+  }
+
+  @Override
+  public FieldsConsumer fieldsConsumer(SegmentWriteState state) throws IOException {
+    if (delegatePostingsFormat == null) {
+      throw new UnsupportedOperationException("Error - " + getClass().getName()
+          + " has been constructed without a choice of PostingsFormat");
+    }
+    FieldsConsumer delegateFieldsConsumer = delegatePostingsFormat.fieldsConsumer(state);
+    boolean success = false;
+    try {
+      FieldsConsumer ret = new TrigramFieldsConsumer(delegateFieldsConsumer, state, delegatePostingsFormat.getName(), maxBufferedTrigramOrds);
+      success = true;
+      return ret;
+    } finally {
+      if (!success) {
+        IOUtils.closeWhileHandlingException(delegateFieldsConsumer);
+      }
+    }
+  }
+
+  @Override
+  public FieldsProducer fieldsProducer(SegmentReadState state) throws IOException {
+    return new TrigramFieldsProducer(state);
+  }
+
+  @Override
+  public String toString() {
+    return getName() + "(delegate=" + delegatePostingsFormat + ")";
+  }
+
+  /** Returns the trigram of the 3 bytes that start at the given offset. */
+  static int trigram(byte[] bytes, int offset) {
+    return ((bytes[offset] & 0xFF) << 16) | ((bytes[offset + 1] & 0xFF) << 8) | (bytes[offset + 2] & 0xFF);
+  }
+
+  /** Trigram index of a single field. */
+  static final class FieldEntry implements Accountable {
+    int fieldNumber;
+    int numTerms;
+    long termBytesOffset;
+    long termOffsetsOffset;
+    long termOffsetsEnd;
+    int bitsPerOffset;
+    int[] trigrams;
+    int[] termCounts;
+    long[] postingsOffsets;
+
+    @Override
+    public long ramBytesUsed() {
+      return RamUsageEstimator.sizeOf(trigrams) + RamUsageEstimator.sizeOf(termCounts) + RamUsageEstimator.sizeOf(postingsOffsets);
+    }
+
+    @Override
+    public Collection<Accountable> getChildResources() {
+      return Collections.emptyList();
+    }
+
+    @Override
+    public String toString() {
+      return "FieldEntry(terms=" + numTerms + ",trigrams=" + trigrams.length + ")";
+    }
+  }
+
+  static final class TrigramFieldsProducer extends FieldsProducer {
+    private final IndexInput trigramIn;
+    private final FieldsProducer delegateFieldsProducer;
+    private final Map<String,FieldEntry> fields = new HashMap<>();
+
+    TrigramFieldsProducer(SegmentReadState state) throws IOException {
+      String trigramFileName = IndexFileNames.segmentFileName(
+          state.segmentInfo.name, state.segmentSuffix, TRIGRAM_EXTENSION);
+      IndexInput in = null;
+      FieldsProducer delegateFieldsProducer = null;
+      boolean success = false;
+      try {
+        in = state.directory.openInput(trigramFileName, state.context);
+        CodecUtil.checkIndexHeader(in, TRIGRAM_CODEC_NAME, VERSION_START, VERSION_CURRENT, state.segmentInfo.getId(), state.segmentSuffix);
+        PostingsFormat delegatePostingsFormat = PostingsFormat.forName(in.readString());
+        // checks the footer structure, the checksum is only verified by checkIntegrity
+        CodecUtil.retrieveChecksum(in);
+
+        delegateFieldsProducer = delegatePostingsFormat.fieldsProducer(state);
+
+        in.seek(in.length() - CodecUtil.footerLength() - Long.BYTES);
+        in.seek(in.readLong());
+        final int numFields = in.readVInt();
+        for (int i = 0; i < numFields; i++) {
+          FieldEntry entry = new FieldEntry();
+          entry.fieldNumber = in.readVInt();
+          FieldInfo fieldInfo = state.fieldInfos.fieldInfo(entry.fieldNumber);
+          if (fieldInfo == null) {
+            throw new CorruptIndexException("invalid field number: " + entry.fieldNumber, in);
+          }
+          entry.numTerms = in.readVInt();
+          entry.termBytesOffset = in.readVLong();
+          entry.termOffsetsOffset = in.readVLong();
+          entry.termOffsetsEnd = in.readVLong();
+          entry.bitsPerOffset = in.readByte();
+          final int numTrigrams = in.readVInt();
+          entry.trigrams = new int[numTrigrams];
+          entry.termCounts = new int[numTrigrams];
+          entry.postingsOffsets = new long[numTrigrams];
+          int trigram = 0;
+          long postingsOffset = 0;
+          for (int j = 0; j < numTrigrams; j++) {
+            trigram += in.readVInt();
+            postingsOffset += in.readVLong();
+            entry.trigrams[j] = trigram;
+            entry.termCounts[j] = in.readVInt();
+            entry.postingsOffsets[j] = postingsOffset;
+          }
+          if (fields.put(fieldInfo.name, entry) != null) {
+            throw new CorruptIndexException("duplicate field: " + fieldInfo.name, in);
+          }
+        }
+        this.trigramIn = in;
+        this.delegateFieldsProducer = delegateFieldsProducer;
+        success = true;
+      } finally {
+        if (!success) {
+          IOUtils.closeWhileHandlingException(in, delegateFieldsProducer);
+        }
+      }
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+      return delegateFieldsProducer.iterator();
+    }
+
+    @Override
+    public Terms terms(String field) throws IOException {
+      Terms terms = delegateFieldsProducer.terms(field);
+      FieldEntry entry = fields.get(field);
+      if (terms == null || entry == null) {
+        return terms;
+      }
+      return new TrigramTerms(terms, entry);
+    }
+
+    @Override
+    public int size() {
+      return delegateFieldsProducer.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+      IOUtils.close(trigramIn, delegateFieldsProducer);
+    }
+
+    @Override
+    public long ramBytesUsed() {
+      long sizeInBytes = delegateFieldsProducer.ramBytesUsed();
+      for (Map.Entry<String,FieldEntry> entry : fields.entrySet()) {
+        sizeInBytes += entry.getKey().length() * RamUsageEstimator.NUM_BYTES_CHAR;
+        sizeInBytes += entry.getValue().ramBytesUsed();
+      }
+      return sizeInBytes;
+    }
+
+    @Override
+    public Collection<Accountable> getChildResources() {
+      List<Accountable> resources = new ArrayList<>();
+      resources.addAll(Accountables.namedAccountables("field", fields));
+      resources.add(Accountables.namedAccountable("delegate", delegateFieldsProducer));
+      return Collections.unmodifiableList(resources);
+    }
+
+    @Override
+    public void checkIntegrity() throws IOException {
+      delegateFieldsProducer.checkIntegrity();
+      CodecUtil.checksumEntireFile(trigramIn);
+    }
+
+    @Override
+    public String toString() {
+      return getClass().getSimpleName() + "(fields=" + fields.size() + ",delegate=" + delegateFieldsProducer + ")";
+    }
+
+    final class TrigramTerms extends FilterTerms {
+      private final FieldEntry entry;
+
+      TrigramTerms(Terms in, FieldEntry entry) {
+        super(in);
+        this.entry = entry;
+      }
+
+      @Override
+      public TermsEnum intersect(CompiledAutomaton compiled, BytesRef startTerm) throws IOException {
+        if (compiled.type != CompiledAutomaton.AUTOMATON_TYPE.NORMAL || hasLeadingLabel(compiled.automaton)) {
+          // the delegate can seek directly to the terms that start with the leading label
+          return in.intersect(compiled, startTerm);
+        }
+        final int[] required = compiled.getRequiredTrigrams();
+        if (required.length == 0) {
+          return in.intersect(compiled, startTerm);
+        }
+        final int[] slots = new int[required.length];
+        for (int i = 0; i < required.length; i++) {
+          final int slot = Arrays.binarySearch(entry.trigrams, required[i]);
+          if (slot < 0) {
+            // no term contains this trigram
+            return TermsEnum.EMPTY;
+          }
+          slots[i] = slot;
+        }
+        // intersect the shortest lists first
+        new InPlaceMergeSorter() {
+          @Override
+          protected void swap(int i, int j) {
+            final int tmp = slots[i];
+            slots[i] = slots[j];
+            slots[j] = tmp;
+          }
+
+          @Override
+          protected int compare(int i, int j) {
+            return Integer.compare(entry.termCounts[slots[i]], entry.termCounts[slots[j]]);
+          }
+        }.sort(0, slots.length);
+
+        final IndexInput postingsIn = trigramIn.clone();
+        int[] ords = readPostings(postingsIn, slots[0], null);
+        int numOrds = entry.termCounts[slots[0]];
+        int[] other = null;
+        for (int i = 1; i < slots.length && numOrds > 0; i++) {
+          other = readPostings(postingsIn, slots[i], other);
+          numOrds = intersectOrds(ords, numOrds, other, entry.termCounts[slots[i]]);
+        }
+        return new TrigramIntersectTermsEnum(in.iterator(), entry, postingsIn, ords, numOrds, compiled.runAutomaton, startTerm);
+      }
+
+      private int[] readPostings(IndexInput postingsIn, int slot, int[] reuse) throws IOException {
+        final int count = entry.termCounts[slot];
+        final int[] ords = reuse == null ? new int[count] : ArrayUtil.grow(reuse, count);
+        postingsIn.seek(entry.postingsOffsets[slot]);
+        int ord = 0;
+        for (int i = 0; i < count; i++) {
+          ord += postingsIn.readVInt();
+          ords[i] = ord;
+        }
+        return ords;
+      }
+    }
+  }
+
+  /** Returns true if the automaton can only accept terms that start with the same byte. */
+  static boolean hasLeadingLabel(Automaton automaton) {
+    if (automaton.isAccept(0)) {
+      return false;
+    }
+    final Transition t = new Transition();
+    final int numTransitions = automaton.initTransition(0, t);
+    if (numTransitions != 1) {
+      return false;
+    }
+    automaton.getNextTransition(t);
+    return t.min == t.max;
+  }
+
+  /** Intersects two sorted lists of ordinals into the first one and returns
+   *  the number of ordinals they have in common. */
+  static int intersectOrds(int[] ords, int numOrds, int[] other, int numOther) {
+    int count = 0;
+    for (int i = 0, j = 0; i < numOrds && j < numOther; ) {
+      if (ords[i] < other[j]) {
+        i++;
+      } else if (ords[i] > other[j]) {
+        j++;
+      } else {
+        ords[count++] = ords[i];
+        i++;
+        j++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Enumerates the candidate terms that contain all required trigrams and
+   * returns the ones that are accepted by the automaton. Like the terms enums
+   * that {@link Terms#intersect} usually returns, this enum can't seek.
+   */
+  static final class TrigramIntersectTermsEnum extends TermsEnum {
+    private final TermsEnum in;
+    private final IndexInput termsIn;
+    private final LongValues termOffsets;
+    private final long termBytesOffset;
+    private final int[] ords;
+    private final int numOrds;
+    private final ByteRunAutomaton runAutomaton;
+    private final BytesRefBuilder scratch = new BytesRefBuilder();
+    private int upto;
+    private BytesRef term;
+
+    TrigramIntersectTermsEnum(TermsEnum in, FieldEntry entry, IndexInput termsIn, int[] ords, int numOrds,
+        ByteRunAutomaton runAutomaton, BytesRef startTerm) throws IOException {
+      this.in = in;
+      this.termsIn = termsIn;
+      this.termOffsets = DirectReader.getInstance(
+          termsIn.randomAccessSlice(entry.termOffsetsOffset, entry.termOffsetsEnd - entry.termOffsetsOffset), entry.bitsPerOffset);
+      this.termBytesOffset = entry.termBytesOffset;
+      this.ords = ords;
+      this.numOrds = numOrds;
+      this.runAutomaton = runAutomaton;
+      if (startTerm != null) {
+        // find the first candidate that is after startTerm
+        int lo = 0, hi = numOrds - 1;
+        while (lo <= hi) {
+          final int mid = (lo + hi) >>> 1;
+          if (readTerm(ords[mid]).compareTo(startTerm) <= 0) {
+            lo = mid + 1;
+          } else {
+            hi = mid - 1;
+          }
+        }
+        upto = lo;
+      }
+    }
+
+    private BytesRef readTerm(int ord) throws IOException {
+      final long start = termOffsets.get(ord);
+      final int length = (int) (termOffsets.get(ord + 1) - start);
+      scratch.grow(length);
+      termsIn.seek(termBytesOffset + start);
+      termsIn.readBytes(scratch.bytes(), 0, length);
+      scratch.setLength(length);
+      return scratch.get();
+    }
+
+    @Override
+    public BytesRef next() throws IOException {
+      while (upto < numOrds) {
+        final BytesRef candidate = readTerm(ords[upto++]);
+        if (runAutomaton.run(candidate.bytes, candidate.offset, candidate.length) && in.seekExact(candidate)) {
+          return term = candidate;
+        }
+      }
+      return term = null;
+    }
+
+    @Override
+    public BytesRef term() throws IOException {
+      return term;
+    }
+
+    @Override
+    public AttributeSource attributes() {
+      return in.attributes();
+    }
+
+    @Override
+    public int docFreq() throws IOException {
+      return in.docFreq();
+    }
+
+    @Override
+    public long totalTermFreq() throws IOException {
+      return in.totalTermFreq();
+    }
+
+    @Override
+    public PostingsEnum postings(Bits liveDocs, PostingsEnum reuse, int flags) throws IOException {
+      return in.postings(liveDocs, reuse, flags);
+    }
+
+    @Override
+    public TermState termState() throws IOException {
+      return in.termState();
+    }
+
+    @Override
+    public SeekStatus seekCeil(BytesRef text) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void seekExact(long ord) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public long ord() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  static final class TrigramFieldsConsumer extends FieldsConsumer {
+    private final FieldsConsumer delegateFieldsConsumer;
+    private final SegmentWriteState state;
+    private final List<FieldEntry> entries = new ArrayList<>();
+    private final int maxBufferedTrigramOrds;
+    // directory for the temporary files used to sort large fields
+    private final Directory tempDir;
+    private IndexOutput out;
+    private long[] trigramOrds = new long[16];
+
+    TrigramFieldsConsumer(FieldsConsumer delegateFieldsConsumer, SegmentWriteState state, String delegatePostingsFormatName,
+        int maxBufferedTrigramOrds) throws IOException {
+      this.delegateFieldsConsumer = delegateFieldsConsumer;
+      this.state = state;
+      this.maxBufferedTrigramOrds = maxBufferedTrigramOrds;
+      this.tempDir = new FilterDirectory(state.directory) {
+        @Override
+        public IndexOutput createOutput(String name, IOContext context) throws IOException {
+          // temporary files are written in the context of the flush or merge
+          return in.createOutput(name, state.context);
+        }
+      };
+      String trigramFileName = IndexFileNames.segmentFileName(
+          state.segmentInfo.name, state.segmentSuffix, TRIGRAM_EXTENSION);
+      boolean success = false;
+      try {
+        out = state.directory.createOutput(trigramFileName, state.context);
+        CodecUtil.writeIndexHeader(out, TRIGRAM_CODEC_NAME, VERSION_CURRENT, state.segmentInfo.getId(), state.segmentSuffix);
+        out.writeString(delegatePostingsFormatName);
+        success = true;
+      } finally {
+        if (!success) {
+          IOUtils.closeWhileHandlingException(out);
+        }
+      }
+    }
+
+    @Override
+    public void write(Fields fields) throws IOException {
+      // Delegate must write first: it may have opened files
+      // on creating the class, and write() will close them
+      delegateFieldsConsumer.write(fields);
+
+      for (String field : fields) {
+        Terms terms = fields.terms(field);
+        if (terms != null) {
+          writeField(state.fieldInfos.fieldInfo(field), terms);
+        }
+      }
+    }
+
+    private void writeField(FieldInfo fieldInfo, Terms terms) throws IOException {
+      final FieldEntry entry = new FieldEntry();
+      entry.fieldNumber = fieldInfo.number;
+      entry.termBytesOffset = out.getFilePointer();
+
+      // write the terms and collect (trigram, ord) pairs, which are spilled
+      // to a temporary file if there are too many of them to sort in memory
+      final PackedLongValues.Builder termOffsets = PackedLongValues.monotonicBuilder(PackedInts.COMPACT);
+      termOffsets.add(0);
+      long termBytes = 0;
+      int numTrigramOrds = 0;
+      int ord = 0;
+      final String spillFileName = IndexFileNames.segmentFileName(state.segmentInfo.name, state.segmentSuffix, TRIGRAM_TMP_EXTENSION);
+      ByteSequencesWriter spill = null;
+      boolean spilled = false;
+      try {
+        TermsEnum termsEnum = terms.iterator();
+        PostingsEnum postingsEnum = null;
+        for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+          // Make sure there's at least one doc for this term:
+          postingsEnum = termsEnum.postings(null, postingsEnum, PostingsEnum.NONE);
+          if (postingsEnum.nextDoc() == PostingsEnum.NO_MORE_DOCS) {
+            continue;
+          }
+          if (ord == Integer.MAX_VALUE) {
+            throw new IllegalStateException("field \"" + fieldInfo.name + "\" has too many terms for a trigram index");
+          }
+          out.writeBytes(term.bytes, term.offset, term.length);
+          termBytes += term.length;
+          termOffsets.add(termBytes);
+          for (int i = 0; i + 2 < term.length; i++) {
+            if (numTrigramOrds == maxBufferedTrigramOrds) {
+              if (spill == null) {
+                spill = new ByteSequencesWriter(tempDir, spillFileName);
+                spilled = true;
+              }
+              spill(spill, numTrigramOrds);
+              numTrigramOrds = 0;
+            }
+            trigramOrds = ArrayUtil.grow(trigramOrds, numTrigramOrds + 1);
+            trigramOrds[numTrigramOrds++] = ((long) trigram(term.bytes, term.offset + i) << 32) | ord;
+          }
+          ord++;
+        }
+        entry.numTerms = ord;
+
+        entry.termOffsetsOffset = out.getFilePointer();
+        entry.bitsPerOffset = DirectWriter.bitsRequired(termBytes);
+        final DirectWriter offsetsWriter = DirectWriter.getInstance(out, entry.numTerms + 1, entry.bitsPerOffset);
+        for (PackedLongValues.Iterator it = termOffsets.build().iterator(); it.hasNext(); ) {
+          offsetsWriter.add(it.next());
+        }
+        offsetsWriter.finish();
+        entry.termOffsetsEnd = out.getFilePointer();
+
+        // write the sorted ords of the terms that contain each trigram
+        final TrigramPostingsWriter postingsWriter = new TrigramPostingsWriter();
+        if (spill == null) {
+          Arrays.sort(trigramOrds, 0, numTrigramOrds);
+          for (int i = 0; i < numTrigramOrds; i++) {
+            postingsWriter.add(trigramOrds[i]);
+          }
+        } else {
+          spill(spill, numTrigramOrds);
+          spill.close();
+          spill = null;
+          writeSortedSpill(spillFileName, postingsWriter);
+        }
+        postingsWriter.finish(entry);
+        entries.add(entry);
+      } finally {
+        if (spill != null) {
+          IOUtils.closeWhileHandlingException(spill);
+        }
+        if (spilled) {
+          IOUtils.deleteFilesIgnoringExceptions(tempDir, spillFileName);
+        }
+      }
+
+      // don't hold on to the buffer of a large field
+      if (trigramOrds.length > 1 << 16) {
+        trigramOrds = new long[16];
+      }
+    }
+
+    /** Appends the first <code>count</code> buffered pairs to <code>spill</code>. */
+    private void spill(ByteSequencesWriter spill, int count) throws IOException {
+      final byte[] bytes = new byte[Long.BYTES];
+      for (int i = 0; i < count; i++) {
+        final long trigramOrd = trigramOrds[i];
+        for (int j = 0; j < Long.BYTES; j++) {
+          bytes[j] = (byte) (trigramOrd >>> (56 - 8 * j));
+        }
+        spill.write(bytes);
+      }
+    }
+
+    /** Sorts the spilled pairs offline and feeds them to <code>postingsWriter</code>. */
+    private void writeSortedSpill(String spillFileName, TrigramPostingsWriter postingsWriter) throws IOException {
+      // pairs are written as big-endian positive longs, so that byte order is numeric order
+      final OfflineSorter sorter = new OfflineSorter(OfflineSorter.DEFAULT_COMPARATOR,
+          OfflineSorter.BufferSize.megabytes(OfflineSorter.MIN_BUFFER_SIZE_MB), tempDir, spillFileName,
+          OfflineSorter.MAX_TEMPFILES, null, 1);
+      final String sortedFileName = sorter.sort(spillFileName);
+      try (ByteSequencesReader reader = new ByteSequencesReader(tempDir, sortedFileName)) {
+        final BytesRefBuilder scratch = new BytesRefBuilder();
+        while (reader.read(scratch)) {
+          assert scratch.length() == Long.BYTES;
+          long trigramOrd = 0;
+          for (int j = 0; j < Long.BYTES; j++) {
+            trigramOrd = (trigramOrd << 8) | (scratch.byteAt(j) & 0xFF);
+          }
+          postingsWriter.add(trigramOrd);
+        }
+      } finally {
+        IOUtils.deleteFilesIgnoringExceptions(tempDir, sortedFileName);
+      }
+    }
+
+    /** Writes the postings of each trigram from (trigram, ord) pairs in sorted order. */
+    private class TrigramPostingsWriter {
+      private int numTrigrams = 0;
+      private int[] trigrams = new int[16];
+      private int[] termCounts = new int[16];
+      private long[] postingsOffsets = new long[16];
+      private int previousOrd = -1;
+
+      void add(long trigramOrd) throws IOException {
+        final int trigram = (int) (trigramOrd >>> 32);
+        final int termOrd = (int) trigramOrd;
+        if (numTrigrams == 0 || trigrams[numTrigrams - 1] != trigram) {
+          trigrams = ArrayUtil.grow(trigrams, numTrigrams + 1);
+          termCounts = ArrayUtil.grow(termCounts, numTrigrams + 1);
+          postingsOffsets = ArrayUtil.grow(postingsOffsets, numTrigrams + 1);
+          trigrams[numTrigrams] = trigram;
+          postingsOffsets[numTrigrams] = out.getFilePointer();
+          numTrigrams++;
+          previousOrd = 0;
+        } else if (termOrd == previousOrd) {
+          // the term contains this trigram several times
+          return;
+        }
+        out.writeVInt(termOrd - previousOrd);
+        termCounts[numTrigrams - 1]++;
+        previousOrd = termOrd;
+      }
+
+      void finish(FieldEntry entry) {
+        entry.trigrams = Arrays.copyOf(trigrams, numTrigrams);
+        entry.termCounts = Arrays.copyOf(termCounts, numTrigrams);
+        entry.postingsOffsets = Arrays.copyOf(postingsOffsets, numTrigrams);
+      }
+    }
+
+    private boolean closed;
+
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      boolean success = false;
+      try {
+        final long directoryOffset = out.getFilePointer();
+        out.writeVInt(entries.size());
+        for (FieldEntry entry : entries) {
+          out.writeVInt(entry.fieldNumber);
+          out.writeVInt(entry.numTerms);
+          out.writeVLong(entry.termBytesOffset);
+          out.writeVLong(entry.termOffsetsOffset);
+          out.writeVLong(entry.termOffsetsEnd);
+          out.writeByte((byte) entry.bitsPerOffset);
+          out.writeVInt(entry.trigrams.length);
+          int previousTrigram = 0;
+          long previousPostingsOffset = 0;
+          for (int i = 0; i < entry.trigrams.length; i++) {
+            out.writeVInt(entry.trigrams[i] - previousTrigram);
+            out.writeVLong(entry.postingsOffsets[i] - previousPostingsOffset);
+            out.writeVInt(entry.termCounts[i]);
+            previousTrigram = entry.trigrams[i];
+            previousPostingsOffset = entry.postingsOffsets[i];
+          }
+        }
+        out.writeLong(directoryOffset);
+        CodecUtil.writeFooter(out);
+        success = true;
+      } finally {
+        if (success) {
+          IOUtils.close(out, delegateFieldsConsumer);
+        } else {
+          IOUtils.closeWhileHandlingException(out, delegateFieldsConsumer);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,196 @@
+package org.apache.lucene.codecs.trigram;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.PostingsFormat;
+import org.apache.lucene.codecs.asserting.AssertingCodec;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.BasePostingsFormatTestCase;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.RegexpQuery;
+import org.apache.lucene.search.WildcardQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MockDirectoryWrapper;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.TestUtil;
+import org.apache.lucene.util.automaton.CompiledAutomaton;
+import org.apache.lucene.util.automaton.RegExp;
+
+/**
+ * Tests for TrigramPostingsFormat
+ */
+public class TestTrigramPostingsFormat extends BasePostingsFormatTestCase {
+  private final Codec codec = TestUtil.alwaysPostingsFormat(new TrigramPostingsFormat(TestUtil.getDefaultPostingsFormat()));
+
+  @Override
+  protected Codec getCodec() {
+    return codec;
+  }
+
+  private Directory indexValues(List<String> values) throws IOException {
+    return indexValues(values, new TrigramPostingsFormat(TestUtil.getDefaultPostingsFormat()), true);
+  }
+
+  /**
+   * Index the same values in a field that has a trigram index and in a field that doesn't,
+   * randomly deleting some of the documents if <code>deletes</code> is true.
+   */
+  private Directory indexValues(List<String> values, final PostingsFormat trigramFormat, boolean deletes) throws IOException {
+    final PostingsFormat defaultFormat = TestUtil.getDefaultPostingsFormat();
+    IndexWriterConfig iwc = newIndexWriterConfig(new MockAnalyzer(random()));
+    iwc.setCodec(new AssertingCodec() {
+      @Override
+      public PostingsFormat getPostingsFormatForField(String field) {
+        return "trigram".equals(field) ? trigramFormat : defaultFormat;
+      }
+    });
+    MockDirectoryWrapper dir = newMockDirectory();
+    dir.setEnableVirusScanner(false); // we check that temporary files are removed
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir, iwc);
+    for (String value : values) {
+      Document doc = new Document();
+      doc.add(new StringField("trigram", value, Field.Store.NO));
+      doc.add(new StringField("plain", value, Field.Store.NO));
+      w.addDocument(doc);
+      if (deletes && random().nextInt(50) == 0) {
+        w.deleteDocuments(new Term("trigram", values.get(random().nextInt(values.size()))));
+      }
+    }
+    if (random().nextBoolean()) {
+      w.forceMerge(1);
+    }
+    w.close();
+    return dir;
+  }
+
+  private static List<String> randomValues() {
+    final int numValues = atLeast(500);
+    List<String> values = new ArrayList<>();
+    for (int i = 0; i < numValues; i++) {
+      values.add(TestUtil.randomSimpleStringRange(random(), 'a', 'e', 12));
+    }
+    return values;
+  }
+
+  private static void assertSameHits(IndexSearcher searcher, Query trigramQuery, Query plainQuery) throws IOException {
+    assertEquals(trigramQuery.toString(), searcher.count(plainQuery), searcher.count(trigramQuery));
+  }
+
+  public void testWildcardAndRegexpQueries() throws IOException {
+    doTestWildcardAndRegexpQueries(new TrigramPostingsFormat(TestUtil.getDefaultPostingsFormat()));
+  }
+
+  public void testSpillTrigrams() throws IOException {
+    // sort the (trigram, term) pairs offline
+    doTestWildcardAndRegexpQueries(new TrigramPostingsFormat(TestUtil.getDefaultPostingsFormat(), TestUtil.nextInt(random(), 1, 100)));
+  }
+
+  private void doTestWildcardAndRegexpQueries(PostingsFormat trigramFormat) throws IOException {
+    List<String> values = randomValues();
+    try (Directory dir = indexValues(values, trigramFormat, true);
+         IndexReader reader = DirectoryReader.open(dir)) {
+      for (String file : dir.listAll()) {
+        assertFalse(file, file.contains(TrigramPostingsFormat.TRIGRAM_TMP_EXTENSION));
+      }
+      IndexSearcher searcher = newSearcher(reader);
+      int iters = atLeast(50);
+      for (int i = 0; i < iters; i++) {
+        String infix = TestUtil.randomSimpleStringRange(random(), 'a', 'e', 5);
+        String suffix = random().nextBoolean() ? "*" : TestUtil.randomSimpleStringRange(random(), 'a', 'e', 2);
+        String wildcard = "*" + infix + "*" + suffix;
+        assertSameHits(searcher, new WildcardQuery(new Term("trigram", wildcard)), new WildcardQuery(new Term("plain", wildcard)));
+        String regexp = ".*" + infix + "[a-c]" + (random().nextBoolean() ? "" : ".*");
+        assertSameHits(searcher, new RegexpQuery(new Term("trigram", regexp)), new RegexpQuery(new Term("plain", regexp)));
+      }
+    }
+  }
+
+  public void testIntersect() throws IOException {
+    List<String> values = randomValues();
+    try (Directory dir = indexValues(values);
+         IndexReader reader = DirectoryReader.open(dir)) {
+      int iters = atLeast(50);
+      for (int i = 0; i < iters; i++) {
+        String regexp = ".*" + TestUtil.randomSimpleStringRange(random(), 'a', 'e', 5) + ".*";
+        CompiledAutomaton compiled = new CompiledAutomaton(new RegExp(regexp, RegExp.NONE).toAutomaton());
+        if (compiled.type != CompiledAutomaton.AUTOMATON_TYPE.NORMAL) {
+          continue;
+        }
+        BytesRef startTerm = random().nextBoolean() ? null : new BytesRef(TestUtil.randomSimpleStringRange(random(), 'a', 'e', 4));
+        for (LeafReaderContext context : reader.leaves()) {
+          LeafReader leaf = context.reader();
+          Terms trigramTerms = leaf.terms("trigram");
+          Terms plainTerms = leaf.terms("plain");
+          if (trigramTerms == null) {
+            assertNull(plainTerms);
+            continue;
+          }
+          TermsEnum expected = plainTerms.intersect(compiled, startTerm);
+          TermsEnum actual = trigramTerms.intersect(compiled, startTerm);
+          for (BytesRef term = expected.next(); term != null; term = expected.next()) {
+            assertEquals(regexp, term, actual.next());
+            assertEquals(expected.docFreq(), actual.docFreq());
+          }
+          assertNull(actual.next());
+        }
+      }
+    }
+  }
+
+  public void testRequiredTrigramMissing() throws IOException {
+    List<String> values = new ArrayList<>();
+    values.add("abcdef");
+    values.add("bcdefg");
+    try (Directory dir = indexValues(values, new TrigramPostingsFormat(TestUtil.getDefaultPostingsFormat()), false);
+         IndexReader reader = DirectoryReader.open(dir)) {
+      CompiledAutomaton missing = new CompiledAutomaton(new RegExp(".*xyz.*").toAutomaton());
+      CompiledAutomaton present = new CompiledAutomaton(new RegExp(".*cde.*").toAutomaton());
+      List<BytesRef> matches = new ArrayList<>();
+      for (LeafReaderContext context : reader.leaves()) {
+        Terms terms = context.reader().terms("trigram");
+        assertSame(TermsEnum.EMPTY, terms.intersect(missing, null));
+        TermsEnum termsEnum = terms.intersect(present, null);
+        for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+          matches.add(BytesRef.deepCopyOf(term));
+        }
+      }
+      Collections.sort(matches);
+      assertEquals(Arrays.asList(new BytesRef("abcdef"), new BytesRef("bcdefg")), matches);
+    }
+  }
+}
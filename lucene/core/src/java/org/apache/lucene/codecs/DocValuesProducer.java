@@ -21,6 +21,7 @@ import java.io.Closeable;
 import java.io.IOException;
 
 import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.DocValuesSkipper;
 import org.apache.lucene.index.FieldInfo;
 import org.apache.lucene.index.NumericDocValues;
 import org.apache.lucene.index.SortedDocValues;
@@ -70,6 +71,15 @@ public abstract class DocValuesProducer implements Closeable, Accountable {
    *  The returned instance need not be thread-safe: it will only be
    *  used by a single thread. */
   public abstract Bits getDocsWithField(FieldInfo field) throws IOException;
+
+  /** Returns a {@link DocValuesSkipper} for this numeric field, or null if
+   *  this producer has no skip index for it, which is the default.
+   *  The returned instance need not be thread-safe: it will only be
+   *  used by a single thread.
+   *  @lucene.experimental */
+  public DocValuesSkipper getNumericSkipper(FieldInfo field) throws IOException {
+    return null;
+  }
   
   /** 
    * Checks consistency of this producer
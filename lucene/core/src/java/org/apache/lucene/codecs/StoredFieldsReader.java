@@ -39,6 +39,21 @@ public abstract class StoredFieldsReader implements Cloneable, Closeable, Accoun
   /** Visit the stored fields for document <code>docID</code> */
   public abstract void visitDocument(int docID, StoredFieldVisitor visitor) throws IOException;
 
+  /**
+   * Visit the stored fields of the first <code>count</code> documents of
+   * <code>docIDs</code>, calling <code>visitors[i]</code> for
+   * <code>docIDs[i]</code>. Implementations may load documents that are stored
+   * close to each other more efficiently than with separate calls to
+   * {@link #visitDocument}, especially if <code>docIDs</code> are sorted.
+   * <p>
+   * The default implementation calls {@link #visitDocument} for every document.
+   */
+  public void visitDocuments(int[] docIDs, StoredFieldVisitor[] visitors, int count) throws IOException {
+    for (int i = 0; i < count; ++i) {
+      visitDocument(docIDs[i], visitors[i]);
+    }
+  }
+
   @Override
   public abstract StoredFieldsReader clone();
   
@@ -28,6 +28,7 @@ import org.apache.lucene.index.IndexableFieldType;
 import org.apache.lucene.index.MergeState;
 import org.apache.lucene.index.StorableField;
 import org.apache.lucene.index.StoredFieldVisitor;
+import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 
@@ -43,9 +44,14 @@ import org.apache.lucene.util.BytesRef;
  *   <li>Finally the writer is closed ({@link #close()})
  * </ol>
  * 
+ * <p>
+ * {@link #ramBytesUsed()} returns the memory that the writer uses to buffer
+ * documents that have not been written to disk yet. It is taken into account
+ * by {@link org.apache.lucene.index.IndexWriter} to decide when to flush.
+ * 
  * @lucene.experimental
  */
-public abstract class StoredFieldsWriter implements Closeable {
+public abstract class StoredFieldsWriter implements Closeable, Accountable {
   
   /** Sole constructor. (For invocation by subclass 
    *  constructors, typically implicit.) */
@@ -30,6 +30,7 @@ import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.store.DataInput;
+import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
@@ -53,9 +54,14 @@ import org.apache.lucene.util.BytesRefBuilder;
  *   <li>Finally the writer is closed ({@link #close()})
  * </ol>
  * 
+ * <p>
+ * {@link #ramBytesUsed()} returns the memory that the writer uses to buffer
+ * documents that have not been written to disk yet. It is taken into account
+ * by {@link org.apache.lucene.index.IndexWriter} to decide when to flush.
+ * 
  * @lucene.experimental
  */
-public abstract class TermVectorsWriter implements Closeable {
+public abstract class TermVectorsWriter implements Closeable, Accountable {
   
   /** Sole constructor. (For invocation by subclass 
    *  constructors, typically implicit.) */
@@ -90,6 +90,9 @@ public final class CompressingStoredFieldsReader extends StoredFieldsReader {
   private final BlockState state;
   private final long numChunks; // number of compressed blocks written
   private final long numDirtyChunks; // number of incomplete compressed blocks written
+  private final StoredFieldsChunkCache chunkCache; // null if chunks are not cached
+  private final Object chunkCacheKey; // identifies this segment in the cache, shared by clones
+  private final boolean isClone;
   private boolean closed;
 
   // used by clone
@@ -107,6 +110,10 @@ public final class CompressingStoredFieldsReader extends StoredFieldsReader {
     this.numChunks = reader.numChunks;
     this.numDirtyChunks = reader.numDirtyChunks;
     this.merging = merging;
+    // merges read every chunk exactly once, caching would only evict useful entries
+    this.chunkCache = merging ? null : reader.chunkCache;
+    this.chunkCacheKey = reader.chunkCacheKey;
+    this.isClone = true;
     this.state = new BlockState();
     this.closed = false;
   }
@@ -160,6 +167,9 @@ public final class CompressingStoredFieldsReader extends StoredFieldsReader {
       packedIntsVersion = fieldsStream.readVInt();
       decompressor = compressionMode.newDecompressor();
       this.merging = false;
+      this.chunkCache = StoredFieldsChunkCache.getDefault();
+      this.chunkCacheKey = new Object();
+      this.isClone = false;
       this.state = new BlockState();
       
       if (version >= VERSION_CHUNK_STATS) {
@@ -202,8 +212,11 @@ public final class CompressingStoredFieldsReader extends StoredFieldsReader {
   @Override
   public void close() throws IOException {
     if (!closed) {
-      IOUtils.close(fieldsStream);
       closed = true;
+      if (chunkCache != null && isClone == false) {
+        chunkCache.invalidate(chunkCacheKey);
+      }
+      IOUtils.close(fieldsStream);
     }
   }
 
@@ -380,6 +393,10 @@ public final class CompressingStoredFieldsReader extends StoredFieldsReader {
     private final BytesRef spare = new BytesRef();
     private final BytesRef bytes = new BytesRef();
 
+    // if not null, the whole chunk is decompressed in this buffer, which
+    // might be shared with other readers through the chunk cache
+    private BytesRef chunkBytes;
+
     boolean contains(int docID) {
       return docID >= docBase && docID < docBase + chunkDocs;
     }
@@ -405,7 +422,61 @@ public final class CompressingStoredFieldsReader extends StoredFieldsReader {
       }
     }
 
+    /**
+     * Reset this block so that it stores state for the given
+     * decompressed chunk.
+     */
+    void reset(StoredFieldsChunkCache.Chunk chunk) {
+      docBase = chunk.docBase;
+      chunkDocs = chunk.chunkDocs;
+      sliced = false;
+      // copy since these arrays are modified in place by doReset
+      offsets = ArrayUtil.grow(offsets, chunkDocs + 1);
+      System.arraycopy(chunk.offsets, 0, offsets, 0, chunkDocs + 1);
+      numStoredFields = ArrayUtil.grow(numStoredFields, chunkDocs);
+      System.arraycopy(chunk.numStoredFields, 0, numStoredFields, 0, chunkDocs);
+      chunkBytes = new BytesRef(chunk.bytes);
+    }
+
+    /** Whether the whole chunk can be decompressed at once. */
+    boolean canDecompressChunk() {
+      return sliced == false;
+    }
+
+    /**
+     * Decompress the whole chunk so that all its documents can be read without
+     * decompressing data again. This is a no-op if the chunk is already
+     * decompressed.
+     */
+    void decompressChunk() throws IOException {
+      assert canDecompressChunk();
+      if (chunkBytes != null) {
+        return;
+      }
+      final int totalLength = offsets[chunkDocs];
+      fieldsStream.seek(startPointer);
+      decompressor.decompress(fieldsStream, totalLength, 0, totalLength, bytes);
+      if (bytes.length != totalLength) {
+        throw new CorruptIndexException("Corrupted: expected chunk size = " + totalLength + ", got " + bytes.length, fieldsStream);
+      }
+      chunkBytes = bytes;
+    }
+
+    /**
+     * Return a copy of the decompressed chunk that can be shared with other
+     * readers.
+     */
+    StoredFieldsChunkCache.Chunk toChunk() {
+      assert chunkBytes != null;
+      final byte[] copy = Arrays.copyOfRange(chunkBytes.bytes, chunkBytes.offset, chunkBytes.offset + chunkBytes.length);
+      final StoredFieldsChunkCache.Chunk chunk = new StoredFieldsChunkCache.Chunk(docBase, chunkDocs,
+          Arrays.copyOf(offsets, chunkDocs + 1), Arrays.copyOf(numStoredFields, chunkDocs), copy);
+      chunkBytes = new BytesRef(copy);
+      return chunk;
+    }
+
     private void doReset(int docID) throws IOException {
+      chunkBytes = null;
       docBase = fieldsStream.readVInt();
       final int token = fieldsStream.readVInt();
       chunkDocs = token >>> 1;
@@ -490,6 +561,7 @@ public final class CompressingStoredFieldsReader extends StoredFieldsReader {
         if (bytes.length != totalLength) {
           throw new CorruptIndexException("Corrupted: expected chunk size = " + totalLength + ", got " + bytes.length, fieldsStream);
         }
+        chunkBytes = bytes;
       }
     }
 
@@ -512,9 +584,9 @@ public final class CompressingStoredFieldsReader extends StoredFieldsReader {
       if (length == 0) {
         // empty
         documentInput = new ByteArrayDataInput();
-      } else if (merging) {
+      } else if (chunkBytes != null) {
         // already decompressed
-        documentInput = new ByteArrayDataInput(bytes.bytes, bytes.offset + offset, length);
+        documentInput = new ByteArrayDataInput(chunkBytes.bytes, chunkBytes.offset + offset, length);
       } else if (sliced) {
         fieldsStream.seek(startPointer);
         decompressor.decompress(fieldsStream, chunkSize, offset, Math.min(length, chunkSize - offset), bytes);
@@ -568,19 +640,57 @@ public final class CompressingStoredFieldsReader extends StoredFieldsReader {
   }
 
   SerializedDocument document(int docID) throws IOException {
+    return document(docID, -1);
+  }
+
+  /**
+   * Get the serialized representation of <code>docID</code>. If
+   * <code>nextDocID</code> is not -1, it is the next document that is going
+   * to be loaded: if it is in the same chunk, the whole chunk is decompressed
+   * at once so that it does not need to be decompressed again.
+   */
+  private SerializedDocument document(int docID, int nextDocID) throws IOException {
     if (state.contains(docID) == false) {
-      fieldsStream.seek(indexReader.getStartPointer(docID));
-      state.reset(docID);
+      final long startPointer = indexReader.getStartPointer(docID);
+      final StoredFieldsChunkCache.Chunk cached = chunkCache == null ? null : chunkCache.get(chunkCacheKey, startPointer);
+      if (cached != null) {
+        state.reset(cached);
+      } else {
+        fieldsStream.seek(startPointer);
+        state.reset(docID);
+        if (chunkCache != null && state.canDecompressChunk() && chunkCache.accept(state.offsets[state.chunkDocs])) {
+          state.decompressChunk();
+          chunkCache.put(chunkCacheKey, startPointer, state.toChunk());
+        }
+      }
     }
     assert state.contains(docID);
+    if (nextDocID != -1 && state.contains(nextDocID) && state.canDecompressChunk()) {
+      state.decompressChunk();
+    }
     return state.document(docID);
   }
 
   @Override
   public void visitDocument(int docID, StoredFieldVisitor visitor)
       throws IOException {
+    visitDocument(document(docID), visitor);
+  }
+
+  /**
+   * Visit several documents. Documents that are in the same chunk are read
+   * from a single decompression of the chunk, so this is most efficient if
+   * <code>docIDs</code> are sorted.
+   */
+  @Override
+  public void visitDocuments(int[] docIDs, StoredFieldVisitor[] visitors, int count) throws IOException {
+    for (int i = 0; i < count; ++i) {
+      final int nextDocID = i + 1 < count ? docIDs[i + 1] : -1;
+      visitDocument(document(docIDs[i], nextDocID), visitors[i]);
+    }
+  }
 
-    final SerializedDocument doc = document(docID);
+  private void visitDocument(SerializedDocument doc, StoredFieldVisitor visitor) throws IOException {
 
     for (int fieldIDX = 0; fieldIDX < doc.numStoredFields; fieldIDX++) {
       final long infoAndBits = doc.in.readVLong();
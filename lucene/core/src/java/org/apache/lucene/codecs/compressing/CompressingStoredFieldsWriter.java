@@ -42,6 +42,7 @@ import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.GrowableByteArrayDataOutput;
 import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.RamUsageEstimator;
 import org.apache.lucene.util.UnicodeUtil;
 import org.apache.lucene.util.packed.PackedInts;
 
@@ -242,8 +243,20 @@ public final class CompressingStoredFieldsWriter extends StoredFieldsWriter {
     docBase += numBufferedDocs;
     numBufferedDocs = 0;
     bufferedDocs.length = 0;
+    if (sliced) {
+      // the buffer grew to hold a very large document, don't retain it
+      bufferedDocs.bytes = new byte[ArrayUtil.oversize(chunkSize, 1)];
+    }
     numChunks++;
   }
+
+  @Override
+  public long ramBytesUsed() {
+    return RamUsageEstimator.sizeOf(bufferedDocs.bytes)
+        + RamUsageEstimator.sizeOf(numStoredFields)
+        + RamUsageEstimator.sizeOf(endOffsets)
+        + RamUsageEstimator.sizeOf(scratchBytes);
+  }
   
   byte scratchBytes[] = new byte[16];
 
@@ -47,6 +47,7 @@ import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.GrowableByteArrayDataOutput;
 import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.RamUsageEstimator;
 import org.apache.lucene.util.StringHelper;
 import org.apache.lucene.util.packed.BlockPackedWriter;
 import org.apache.lucene.util.packed.PackedInts;
@@ -157,6 +158,7 @@ public final class CompressingTermVectorsWriter extends TermVectorsWriter {
       this.freqs = new int[numTerms];
       this.prefixLengths = new int[numTerms];
       this.suffixLengths = new int[numTerms];
+      pendingFieldsBytesUsed += 3 * RamUsageEstimator.sizeOf(freqs);
       this.posStart = posStart;
       this.offStart = offStart;
       this.payStart = payStart;
@@ -204,6 +206,7 @@ public final class CompressingTermVectorsWriter extends TermVectorsWriter {
   private final GrowableByteArrayDataOutput termSuffixes; // buffered term suffixes
   private final GrowableByteArrayDataOutput payloadBytes; // buffered term payloads
   private final BlockPackedWriter writer;
+  private long pendingFieldsBytesUsed; // memory used by the term lengths and freqs of pending fields
 
   /** Sole constructor. */
   public CompressingTermVectorsWriter(Directory directory, SegmentInfo si, String segmentSuffix, IOContext context,
@@ -241,10 +244,7 @@ public final class CompressingTermVectorsWriter extends TermVectorsWriter {
       vectorsStream.writeVInt(chunkSize);
       writer = new BlockPackedWriter(vectorsStream, PACKED_BLOCK_SIZE);
 
-      positionsBuf = new int[1024];
-      startOffsetsBuf = new int[1024];
-      lengthsBuf = new int[1024];
-      payloadLengthsBuf = new int[1024];
+      resetPositionsBuffers();
 
       success = true;
     } finally {
@@ -363,12 +363,38 @@ public final class CompressingTermVectorsWriter extends TermVectorsWriter {
 
     // reset
     pendingDocs.clear();
+    pendingFieldsBytesUsed = 0;
     curDoc = null;
     curField = null;
+    if (termSuffixes.length >= 2 * chunkSize) {
+      // buffers grew to hold a very large document, don't retain them
+      termSuffixes.bytes = new byte[ArrayUtil.oversize(chunkSize, 1)];
+      payloadBytes.bytes = new byte[ArrayUtil.oversize(1, 1)];
+      resetPositionsBuffers();
+    }
     termSuffixes.length = 0;
     numChunks++;
   }
 
+  private void resetPositionsBuffers() {
+    positionsBuf = new int[1024];
+    startOffsetsBuf = new int[1024];
+    lengthsBuf = new int[1024];
+    payloadLengthsBuf = new int[1024];
+  }
+
+  @Override
+  public long ramBytesUsed() {
+    return RamUsageEstimator.sizeOf(termSuffixes.bytes)
+        + RamUsageEstimator.sizeOf(payloadBytes.bytes)
+        + RamUsageEstimator.sizeOf(lastTerm.bytes)
+        + RamUsageEstimator.sizeOf(positionsBuf)
+        + RamUsageEstimator.sizeOf(startOffsetsBuf)
+        + RamUsageEstimator.sizeOf(lengthsBuf)
+        + RamUsageEstimator.sizeOf(payloadLengthsBuf)
+        + pendingFieldsBytesUsed;
+  }
+
   private int flushNumFields(int chunkDocs) throws IOException {
     if (chunkDocs == 1) {
       final int numFields = pendingDocs.getFirst().numFields;
@@ -113,6 +113,23 @@ public abstract class CompressionMode {
 
   };
 
+  /**
+   * A compression mode for chunks of many small documents. Chunks are split
+   * into several small blocks that are compressed with LZ4 against a preset
+   * dictionary which is sampled from the chunk and stored once per chunk.
+   * Loading a single document only decompresses the dictionary and the block
+   * that contains the document, so this mode is meant to be used with larger
+   * chunks than {@link #FAST}, which improves the compression ratio without
+   * making random access to documents slower.
+   */
+  public static final CompressionMode FAST_PRESET_DICT = PresetDictCompressionMode.LZ4_WITH_PRESET_DICT;
+
+  /**
+   * Same as {@link #FAST_PRESET_DICT} but blocks are compressed with deflate,
+   * like {@link #HIGH_COMPRESSION}.
+   */
+  public static final CompressionMode HIGH_COMPRESSION_PRESET_DICT = PresetDictCompressionMode.DEFLATE_WITH_PRESET_DICT;
+
   /** Sole constructor. */
   protected CompressionMode() {}
 
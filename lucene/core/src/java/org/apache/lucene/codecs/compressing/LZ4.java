@@ -252,6 +252,69 @@ final class LZ4 {
     encodeLastLiterals(bytes, anchor, end - anchor, out);
   }
 
+  /**
+   * Compress <code>bytes[dictLen:dictLen+len]</code> into <code>out</code>,
+   * allowing matches to refer to the preset dictionary that is stored in
+   * <code>bytes[0:dictLen]</code>. The dictionary itself is not written to
+   * <code>out</code>: {@link #decompress} must be called on an array that
+   * holds the same dictionary, with <code>dOff=dictLen</code>.
+   */
+  public static void compressWithDictionary(byte[] bytes, int dictLen, int len, DataOutput out, HashTable ht) throws IOException {
+
+    final int base = 0;
+    final int end = dictLen + len;
+
+    int off = dictLen;
+    int anchor = off;
+
+    if (len > LAST_LITERALS + MIN_MATCH) {
+
+      final int limit = end - LAST_LITERALS;
+      final int matchLimit = limit - MIN_MATCH;
+      ht.reset(end);
+      final int hashLog = ht.hashLog;
+      final PackedInts.Mutable hashTable = ht.hashTable;
+
+      // index the dictionary, only the last occurrence of a hash is kept
+      // since it is the closest one to the data to compress
+      for (int i = Math.max(base, dictLen - MAX_DISTANCE + 1); i + MIN_MATCH <= dictLen; ++i) {
+        hashTable.set(hash(readInt(bytes, i), hashLog), i - base);
+      }
+
+      main:
+      while (off <= limit) {
+        // find a match
+        int ref;
+        while (true) {
+          if (off >= matchLimit) {
+            break main;
+          }
+          final int v = readInt(bytes, off);
+          final int h = hash(v, hashLog);
+          ref = base + (int) hashTable.get(h);
+          assert PackedInts.bitsRequired(off - base) <= hashTable.getBitsPerValue();
+          hashTable.set(h, off - base);
+          if (ref < off && off - ref < MAX_DISTANCE && readInt(bytes, ref) == v) {
+            break;
+          }
+          ++off;
+        }
+
+        // compute match length
+        final int matchLen = MIN_MATCH + commonBytes(bytes, ref + MIN_MATCH, off + MIN_MATCH, limit);
+
+        encodeSequence(bytes, anchor, ref, off, matchLen, out);
+        off += matchLen;
+        anchor = off;
+      }
+    }
+
+    // last literals
+    final int literalLen = end - anchor;
+    assert literalLen >= LAST_LITERALS || literalLen == len;
+    encodeLastLiterals(bytes, anchor, literalLen, out);
+  }
+
   private static class Match {
     int start, ref, len;
 
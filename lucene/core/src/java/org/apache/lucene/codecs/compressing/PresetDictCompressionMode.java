@@ -0,0 +1,330 @@
+package org.apache.lucene.codecs.compressing;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.store.DataInput;
+import org.apache.lucene.store.DataOutput;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.GrowableByteArrayDataOutput;
+
+/**
+ * A {@link CompressionMode} that splits the data to compress into
+ * {@link #NUM_SUB_BLOCKS} blocks that are compressed independently, all of
+ * them using the same preset dictionary. The dictionary is built by sampling
+ * the beginning of every block and is stored once, compressed, in front of the
+ * blocks. Decompressing a slice of the data only requires to decompress the
+ * dictionary and the blocks that intersect with the slice, so large chunks of
+ * small documents can be used to get good compression ratios while random
+ * access to a single document stays cheap.
+ * <p>
+ * The compressed format is:
+ * <ul>
+ *   <li>Data --&gt; DictLength, CompressedLength<sup>NumBlocks+1</sup>,
+ *       CompressedDict, CompressedBlock<sup>NumBlocks</sup></li>
+ *   <li>DictLength, CompressedLength --&gt; {@link DataOutput#writeVInt VInt}</li>
+ * </ul>
+ * where the number of blocks and their length are computed from the length of
+ * the original data.
+ */
+abstract class PresetDictCompressionMode extends CompressionMode {
+
+  /** Number of blocks the data is split into. */
+  static final int NUM_SUB_BLOCKS = 10;
+  /** The dictionary is at most 1/DICT_SIZE_FACTOR of the length of the data. */
+  static final int DICT_SIZE_FACTOR = 16;
+  /** Data shorter than this is compressed as a single block, without a dictionary. */
+  static final int MIN_LENGTH_FOR_DICT = 1024;
+  /** Maximum length of the dictionary: both LZ4 and deflate only look back 32KB or more. */
+  static final int MAX_DICT_LENGTH = 1 << 15;
+
+  /** LZ4-based implementation. */
+  static final CompressionMode LZ4_WITH_PRESET_DICT = new PresetDictCompressionMode() {
+
+    @Override
+    public Compressor newCompressor() {
+      return new PresetDictCompressor() {
+        final LZ4.HashTable ht = new LZ4.HashTable();
+
+        @Override
+        void compressBlock(byte[] buffer, int dictLength, int length, DataOutput out) throws IOException {
+          LZ4.compressWithDictionary(buffer, dictLength, length, out, ht);
+        }
+      };
+    }
+
+    @Override
+    public Decompressor newDecompressor() {
+      return new PresetDictDecompressor() {
+        @Override
+        void decompressBlock(DataInput in, int compressedLength, byte[] buffer, int dictLength, int length) throws IOException {
+          final int end = LZ4.decompress(in, dictLength + length, buffer, dictLength);
+          if (end != dictLength + length) {
+            throw new CorruptIndexException("Corrupted: lengths mismatch: " + (end - dictLength) + " != " + length, in);
+          }
+        }
+
+        @Override
+        int padding() {
+          // see CompressionMode.LZ4_DECOMPRESSOR
+          return 7;
+        }
+
+        @Override
+        public Decompressor clone() {
+          return newDecompressor();
+        }
+      };
+    }
+
+    @Override
+    public String toString() {
+      return "FAST_PRESET_DICT";
+    }
+  };
+
+  /** Deflate-based implementation. */
+  static final CompressionMode DEFLATE_WITH_PRESET_DICT = new PresetDictCompressionMode() {
+
+    @Override
+    public Compressor newCompressor() {
+      return new PresetDictCompressor() {
+        final Deflater deflater = new Deflater(6, true);
+        byte[] compressed = new byte[64];
+
+        @Override
+        void compressBlock(byte[] buffer, int dictLength, int length, DataOutput out) throws IOException {
+          deflater.reset();
+          if (dictLength > 0) {
+            deflater.setDictionary(buffer, 0, dictLength);
+          }
+          deflater.setInput(buffer, dictLength, length);
+          deflater.finish();
+          int totalCount = 0;
+          for (;;) {
+            final int count = deflater.deflate(compressed, totalCount, compressed.length - totalCount);
+            totalCount += count;
+            assert totalCount <= compressed.length;
+            if (deflater.finished()) {
+              break;
+            } else {
+              compressed = ArrayUtil.grow(compressed);
+            }
+          }
+          out.writeBytes(compressed, totalCount);
+        }
+      };
+    }
+
+    @Override
+    public Decompressor newDecompressor() {
+      return new PresetDictDecompressor() {
+        final Inflater inflater = new Inflater(true);
+        byte[] compressed = new byte[0];
+
+        @Override
+        void decompressBlock(DataInput in, int compressedLength, byte[] buffer, int dictLength, int length) throws IOException {
+          // pad with extra "dummy byte": see javadocs for using Inflater(true)
+          compressed = ArrayUtil.grow(compressed, compressedLength + 1);
+          in.readBytes(compressed, 0, compressedLength);
+          compressed[compressedLength] = 0;
+
+          inflater.reset();
+          if (dictLength > 0) {
+            inflater.setDictionary(buffer, 0, dictLength);
+          }
+          inflater.setInput(compressed, 0, compressedLength + 1);
+          final int inflated;
+          try {
+            inflated = inflater.inflate(buffer, dictLength, length);
+          } catch (DataFormatException e) {
+            throw new IOException(e);
+          }
+          if (length > 0 && !inflater.finished()) {
+            throw new CorruptIndexException("Invalid decoder state: needsInput=" + inflater.needsInput()
+                                                                + ", needsDict=" + inflater.needsDictionary(), in);
+          }
+          if (inflated != length) {
+            throw new CorruptIndexException("Lengths mismatch: " + inflated + " != " + length, in);
+          }
+        }
+
+        @Override
+        int padding() {
+          return 0;
+        }
+
+        @Override
+        public Decompressor clone() {
+          return newDecompressor();
+        }
+      };
+    }
+
+    @Override
+    public String toString() {
+      return "HIGH_COMPRESSION_PRESET_DICT";
+    }
+  };
+
+  private PresetDictCompressionMode() {}
+
+  /** Returns the length of the blocks for data of the given length. Short data
+   *  is compressed as a single block since splitting it would only add overhead. */
+  static int blockLength(int length) {
+    if (length < MIN_LENGTH_FOR_DICT) {
+      return length;
+    }
+    return (length + NUM_SUB_BLOCKS - 1) / NUM_SUB_BLOCKS;
+  }
+
+  /** Returns the number of blocks for data of the given length. */
+  static int numBlocks(int length, int blockLength) {
+    return blockLength == 0 ? 0 : (length + blockLength - 1) / blockLength;
+  }
+
+  private static abstract class PresetDictCompressor extends Compressor {
+
+    final GrowableByteArrayDataOutput compressed = new GrowableByteArrayDataOutput(64);
+    int[] compressedLengths = new int[NUM_SUB_BLOCKS + 1];
+    byte[] buffer = BytesRef.EMPTY_BYTES;
+
+    /** Compress <code>buffer[dictLength:dictLength+length]</code> using
+     *  <code>buffer[0:dictLength]</code> as a preset dictionary. */
+    abstract void compressBlock(byte[] buffer, int dictLength, int length, DataOutput out) throws IOException;
+
+    @Override
+    public void compress(byte[] bytes, int off, int len, DataOutput out) throws IOException {
+      final int blockLength = blockLength(len);
+      final int numBlocks = numBlocks(len, blockLength);
+
+      // sample the beginning of every block to build the dictionary
+      int dictLength = 0;
+      if (len >= MIN_LENGTH_FOR_DICT) {
+        final int sampleLength = Math.min(MAX_DICT_LENGTH, len / DICT_SIZE_FACTOR) / numBlocks;
+        buffer = ArrayUtil.grow(buffer, sampleLength * numBlocks + blockLength);
+        for (int i = 0; i < numBlocks; ++i) {
+          final int blockStart = i * blockLength;
+          final int sample = Math.min(sampleLength, len - blockStart);
+          System.arraycopy(bytes, off + blockStart, buffer, dictLength, sample);
+          dictLength += sample;
+        }
+      } else {
+        buffer = ArrayUtil.grow(buffer, blockLength);
+      }
+
+      compressed.length = 0;
+      compressedLengths = ArrayUtil.grow(compressedLengths, numBlocks + 1);
+
+      // the dictionary itself is compressed without a dictionary
+      compressBlock(buffer, 0, dictLength, compressed);
+      compressedLengths[0] = compressed.length;
+
+      for (int i = 0; i < numBlocks; ++i) {
+        final int blockStart = i * blockLength;
+        final int length = Math.min(blockLength, len - blockStart);
+        System.arraycopy(bytes, off + blockStart, buffer, dictLength, length);
+        final int start = compressed.length;
+        compressBlock(buffer, dictLength, length, compressed);
+        compressedLengths[i + 1] = compressed.length - start;
+      }
+
+      out.writeVInt(dictLength);
+      for (int i = 0; i <= numBlocks; ++i) {
+        out.writeVInt(compressedLengths[i]);
+      }
+      out.writeBytes(compressed.bytes, compressed.length);
+    }
+  }
+
+  private static abstract class PresetDictDecompressor extends Decompressor {
+
+    int[] compressedLengths = new int[NUM_SUB_BLOCKS + 1];
+    byte[] buffer = BytesRef.EMPTY_BYTES;
+
+    /** Decompress exactly <code>compressedLength</code> bytes from <code>in</code>
+     *  into <code>buffer[dictLength:dictLength+length]</code>, using
+     *  <code>buffer[0:dictLength]</code> as a preset dictionary. */
+    abstract void decompressBlock(DataInput in, int compressedLength, byte[] buffer, int dictLength, int length) throws IOException;
+
+    /** Number of extra bytes that the decompression buffer should have. */
+    abstract int padding();
+
+    @Override
+    public void decompress(DataInput in, int originalLength, int offset, int length, BytesRef bytes) throws IOException {
+      assert offset + length <= originalLength;
+      final int blockLength = blockLength(originalLength);
+      final int numBlocks = numBlocks(originalLength, blockLength);
+
+      final int dictLength = in.readVInt();
+      if (dictLength < 0 || dictLength > originalLength) {
+        throw new CorruptIndexException("Invalid dictionary length: " + dictLength, in);
+      }
+      compressedLengths = ArrayUtil.grow(compressedLengths, numBlocks + 1);
+      for (int i = 0; i <= numBlocks; ++i) {
+        compressedLengths[i] = in.readVInt();
+      }
+
+      bytes.offset = bytes.length = 0;
+      if (length == 0) {
+        long toSkip = 0;
+        for (int i = 0; i <= numBlocks; ++i) {
+          toSkip += compressedLengths[i];
+        }
+        in.skipBytes(toSkip);
+        return;
+      }
+
+      buffer = ArrayUtil.grow(buffer, dictLength + blockLength + padding());
+      decompressBlock(in, compressedLengths[0], buffer, 0, dictLength);
+
+      final int firstBlock = offset / blockLength;
+      final int lastBlock = (offset + length - 1) / blockLength;
+
+      long toSkip = 0;
+      for (int i = 0; i < firstBlock; ++i) {
+        toSkip += compressedLengths[i + 1];
+      }
+      in.skipBytes(toSkip);
+
+      bytes.bytes = ArrayUtil.grow(bytes.bytes, (lastBlock - firstBlock + 1) * blockLength);
+      for (int i = firstBlock; i <= lastBlock; ++i) {
+        final int blockStart = i * blockLength;
+        final int blockLen = Math.min(blockLength, originalLength - blockStart);
+        decompressBlock(in, compressedLengths[i + 1], buffer, dictLength, blockLen);
+        System.arraycopy(buffer, dictLength, bytes.bytes, bytes.length, blockLen);
+        bytes.length += blockLen;
+      }
+
+      toSkip = 0;
+      for (int i = lastBlock + 1; i < numBlocks; ++i) {
+        toSkip += compressedLengths[i + 1];
+      }
+      in.skipBytes(toSkip);
+
+      bytes.offset = offset - firstBlock * blockLength;
+      bytes.length = length;
+    }
+  }
+}
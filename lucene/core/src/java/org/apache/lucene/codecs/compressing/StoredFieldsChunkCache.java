@@ -0,0 +1,260 @@
+package org.apache.lucene.codecs.compressing;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.RamUsageEstimator;
+
+/**
+ * A bounded cache of decompressed chunks of documents for
+ * {@link CompressingStoredFieldsReader}.
+ * <p>
+ * Entries are keyed by segment and by the start pointer of the chunk, and are
+ * shared by all clones of the stored fields reader of a segment, meaning all
+ * threads that read stored fields from the same segment core. Entries of a
+ * segment are invalidated when its core is closed. The least recently used
+ * entries are evicted when the cache grows larger than its maximum size. The
+ * cache is split into several independently-locked stripes in order to
+ * reduce contention.
+ * <p>
+ * Only segments that are opened after a cache has been registered with
+ * {@link #setDefault} use it. This cache is most useful when the same
+ * documents, or documents that are stored close to each other, are loaded
+ * again and again, for instance when paging through results.
+ * @lucene.experimental
+ */
+public final class StoredFieldsChunkCache implements Accountable {
+
+  private static volatile StoredFieldsChunkCache defaultCache;
+
+  /** Set the cache to use for segments that are opened from now on, or
+   *  {@code null} to not cache decompressed chunks, which is the default. */
+  public static void setDefault(StoredFieldsChunkCache cache) {
+    defaultCache = cache;
+  }
+
+  /** Return the cache that new segments use, or {@code null} if caching is disabled.
+   *  @see #setDefault */
+  public static StoredFieldsChunkCache getDefault() {
+    return defaultCache;
+  }
+
+  /** A decompressed chunk of documents. Instances are shared and must not be modified. */
+  static final class Chunk {
+    static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(Chunk.class);
+
+    final int docBase;
+    final int chunkDocs;
+    final int[] offsets;
+    final int[] numStoredFields;
+    final byte[] bytes;
+
+    Chunk(int docBase, int chunkDocs, int[] offsets, int[] numStoredFields, byte[] bytes) {
+      this.docBase = docBase;
+      this.chunkDocs = chunkDocs;
+      this.offsets = offsets;
+      this.numStoredFields = numStoredFields;
+      this.bytes = bytes;
+    }
+
+    long ramBytesUsed() {
+      return BASE_RAM_BYTES_USED
+          + RamUsageEstimator.sizeOf(offsets)
+          + RamUsageEstimator.sizeOf(numStoredFields)
+          + RamUsageEstimator.sizeOf(bytes);
+    }
+  }
+
+  private static final class Key {
+    final Object segmentKey;
+    final long startPointer;
+
+    Key(Object segmentKey, long startPointer) {
+      this.segmentKey = segmentKey;
+      this.startPointer = startPointer;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(segmentKey) + Long.hashCode(startPointer);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj instanceof Key == false) {
+        return false;
+      }
+      final Key that = (Key) obj;
+      return segmentKey == that.segmentKey && startPointer == that.startPointer;
+    }
+  }
+
+  // rough estimation of the cost of a map entry
+  private static final long ENTRY_RAM_BYTES_USED = 2 * RamUsageEstimator.NUM_BYTES_OBJECT_HEADER
+      + 5 * RamUsageEstimator.NUM_BYTES_OBJECT_REF + RamUsageEstimator.NUM_BYTES_LONG;
+
+  private static final class Stripe {
+    final LinkedHashMap<Key,Chunk> chunks = new LinkedHashMap<>(16, 0.75f, true);
+    long ramBytesUsed;
+  }
+
+  private final Stripe[] stripes;
+  private final long maxRamBytesPerStripe;
+  private final int maxChunkBytes;
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+
+  /**
+   * Create a new cache that uses at most <code>maxRamBytes</code> of memory and
+   * is split into <code>numStripes</code> independently-locked stripes. Chunks
+   * that are larger than a stripe are never cached.
+   */
+  public StoredFieldsChunkCache(long maxRamBytes, int numStripes) {
+    if (maxRamBytes <= 0) {
+      throw new IllegalArgumentException("maxRamBytes must be > 0, got " + maxRamBytes);
+    }
+    if (numStripes <= 0) {
+      throw new IllegalArgumentException("numStripes must be > 0, got " + numStripes);
+    }
+    stripes = new Stripe[numStripes];
+    for (int i = 0; i < numStripes; ++i) {
+      stripes[i] = new Stripe();
+    }
+    maxRamBytesPerStripe = Math.max(1, maxRamBytes / numStripes);
+    maxChunkBytes = (int) Math.min(Integer.MAX_VALUE, maxRamBytesPerStripe);
+  }
+
+  /** Create a new cache that uses at most <code>maxRamBytes</code> of memory. */
+  public StoredFieldsChunkCache(long maxRamBytes) {
+    this(maxRamBytes, 16);
+  }
+
+  private Stripe stripe(Key key) {
+    final int h = key.hashCode();
+    return stripes[((h ^ (h >>> 16)) & 0x7FFFFFFF) % stripes.length];
+  }
+
+  Chunk get(Object segmentKey, long startPointer) {
+    final Key key = new Key(segmentKey, startPointer);
+    final Stripe stripe = stripe(key);
+    final Chunk chunk;
+    synchronized (stripe) {
+      chunk = stripe.chunks.get(key);
+    }
+    if (chunk == null) {
+      missCount.incrementAndGet();
+    } else {
+      hitCount.incrementAndGet();
+    }
+    return chunk;
+  }
+
+  /** Returns true if a chunk of the given length may be cached. */
+  boolean accept(int chunkLength) {
+    return chunkLength <= maxChunkBytes;
+  }
+
+  void put(Object segmentKey, long startPointer, Chunk chunk) {
+    final Key key = new Key(segmentKey, startPointer);
+    final long chunkRamBytesUsed = ENTRY_RAM_BYTES_USED + chunk.ramBytesUsed();
+    if (chunkRamBytesUsed > maxRamBytesPerStripe) {
+      return;
+    }
+    final Stripe stripe = stripe(key);
+    synchronized (stripe) {
+      final Chunk previous = stripe.chunks.put(key, chunk);
+      if (previous != null) {
+        stripe.ramBytesUsed -= ENTRY_RAM_BYTES_USED + previous.ramBytesUsed();
+      }
+      stripe.ramBytesUsed += chunkRamBytesUsed;
+      for (Iterator<Chunk> it = stripe.chunks.values().iterator(); stripe.ramBytesUsed > maxRamBytesPerStripe && it.hasNext(); ) {
+        final Chunk eldest = it.next();
+        it.remove();
+        stripe.ramBytesUsed -= ENTRY_RAM_BYTES_USED + eldest.ramBytesUsed();
+      }
+    }
+  }
+
+  /** Remove all entries of the given segment. */
+  void invalidate(Object segmentKey) {
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        for (Iterator<Map.Entry<Key,Chunk>> it = stripe.chunks.entrySet().iterator(); it.hasNext(); ) {
+          final Map.Entry<Key,Chunk> entry = it.next();
+          if (entry.getKey().segmentKey == segmentKey) {
+            it.remove();
+            stripe.ramBytesUsed -= ENTRY_RAM_BYTES_USED + entry.getValue().ramBytesUsed();
+          }
+        }
+      }
+    }
+  }
+
+  /** Remove all entries from this cache. */
+  public void clear() {
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        stripe.chunks.clear();
+        stripe.ramBytesUsed = 0;
+      }
+    }
+  }
+
+  /** Return the number of cached chunks. */
+  public int size() {
+    int size = 0;
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        size += stripe.chunks.size();
+      }
+    }
+    return size;
+  }
+
+  /** Return the number of lookups that found a cached chunk. */
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  /** Return the number of lookups that did not find a cached chunk. */
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  @Override
+  public long ramBytesUsed() {
+    long ramBytesUsed = 0;
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        ramBytesUsed += stripe.ramBytesUsed;
+      }
+    }
+    return ramBytesUsed;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "(size=" + size() + ",ramBytesUsed=" + ramBytesUsed()
+        + ",hits=" + getHitCount() + ",misses=" + getMissCount() + ")";
+  }
+}
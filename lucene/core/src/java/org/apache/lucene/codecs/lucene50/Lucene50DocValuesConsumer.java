@@ -62,6 +62,11 @@ class Lucene50DocValuesConsumer extends DocValuesConsumer implements Closeable {
   static final int BLOCK_INTERVAL_COUNT = 1 << BLOCK_INTERVAL_SHIFT;
   static final int BLOCK_INTERVAL_MASK = BLOCK_INTERVAL_COUNT - 1;
 
+  // skip index over numeric fields: min/max values for every 4096 docs,
+  // then for every 8 blocks of the previous level
+  static final int SKIP_BLOCK_SHIFT = 12;
+  static final int SKIP_LEVEL_SHIFT = 3;
+
   /** Compressed using packed blocks of ints. */
   public static final int DELTA_COMPRESSED = 0;
   /** Compressed by computing the GCD. */
@@ -117,6 +122,64 @@ class Lucene50DocValuesConsumer extends DocValuesConsumer implements Closeable {
   @Override
   public void addNumericField(FieldInfo field, Iterable<Number> values) throws IOException {
     addNumericField(field, values, true);
+    addSkipIndex(values);
+  }
+
+  /** Number of blocks of the skip index on each level for the given number of documents. */
+  static int[] skipIndexBlockCounts(long count) {
+    int numLevels = 1;
+    long numBlocks = (count + (1 << SKIP_BLOCK_SHIFT) - 1) >>> SKIP_BLOCK_SHIFT;
+    for (long n = numBlocks; n > 1; n = (n + (1 << SKIP_LEVEL_SHIFT) - 1) >>> SKIP_LEVEL_SHIFT) {
+      numLevels++;
+    }
+    final int[] blockCounts = new int[numLevels];
+    for (int level = 0; level < numLevels; ++level) {
+      blockCounts[level] = (int) numBlocks;
+      numBlocks = (numBlocks + (1 << SKIP_LEVEL_SHIFT) - 1) >>> SKIP_LEVEL_SHIFT;
+    }
+    return blockCounts;
+  }
+
+  // writes the min and max values of every block of docs, level by level
+  private void addSkipIndex(Iterable<Number> values) throws IOException {
+    long count = 0;
+    for (Number nv : values) {
+      count++;
+    }
+    final int[] blockCounts = skipIndexBlockCounts(count);
+    final long[][] mins = new long[blockCounts.length][];
+    final long[][] maxs = new long[blockCounts.length][];
+    for (int level = 0; level < blockCounts.length; ++level) {
+      mins[level] = new long[blockCounts[level]];
+      maxs[level] = new long[blockCounts[level]];
+      Arrays.fill(mins[level], Long.MAX_VALUE);
+      Arrays.fill(maxs[level], Long.MIN_VALUE);
+    }
+    int doc = 0;
+    for (Number nv : values) {
+      if (nv != null) {
+        final long v = nv.longValue();
+        final int block = doc >>> SKIP_BLOCK_SHIFT;
+        mins[0][block] = Math.min(mins[0][block], v);
+        maxs[0][block] = Math.max(maxs[0][block], v);
+      }
+      doc++;
+    }
+    for (int level = 1; level < blockCounts.length; ++level) {
+      for (int block = 0; block < blockCounts[level - 1]; ++block) {
+        final int parent = block >>> SKIP_LEVEL_SHIFT;
+        mins[level][parent] = Math.min(mins[level][parent], mins[level - 1][block]);
+        maxs[level][parent] = Math.max(maxs[level][parent], maxs[level - 1][block]);
+      }
+    }
+
+    meta.writeLong(data.getFilePointer());
+    for (int level = 0; level < blockCounts.length; ++level) {
+      for (int block = 0; block < blockCounts[level]; ++block) {
+        data.writeLong(mins[level][block]);
+        data.writeLong(maxs[level][block]);
+      }
+    }
   }
 
   void addNumericField(FieldInfo field, Iterable<Number> values, boolean optimizeStorage) throws IOException {
@@ -506,7 +569,7 @@ class Lucene50DocValuesConsumer extends DocValuesConsumer implements Closeable {
     if (isSingleValued(docToValueCount)) {
       meta.writeVInt(SORTED_SINGLE_VALUED);
       // The field is single-valued, we can encode it as NUMERIC
-      addNumericField(field, singletonView(docToValueCount, values, null));
+      addNumericField(field, singletonView(docToValueCount, values, null), true);
     } else {
       meta.writeVInt(SORTED_WITH_ADDRESSES);
       // write the stream of values as a numeric field
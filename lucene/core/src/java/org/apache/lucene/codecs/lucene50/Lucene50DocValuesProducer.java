@@ -20,6 +20,7 @@ package org.apache.lucene.codecs.lucene50;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -32,6 +33,7 @@ import org.apache.lucene.codecs.DocValuesProducer;
 import org.apache.lucene.index.BinaryDocValues;
 import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.DocValuesSkipper;
 import org.apache.lucene.index.PostingsEnum;
 import org.apache.lucene.index.FieldInfo;
 import org.apache.lucene.index.FieldInfos;
@@ -43,6 +45,7 @@ import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.index.SortedNumericDocValues;
 import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.store.ChecksumIndexInput;
 import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.RandomAccessInput;
@@ -85,6 +88,7 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
   private final Map<String,SortedSetEntry> sortedNumerics = new HashMap<>();
   private final Map<String,NumericEntry> ords = new HashMap<>();
   private final Map<String,NumericEntry> ordIndexes = new HashMap<>();
+  private final Map<String,Long> skipIndexOffsets = new HashMap<>();
   private final int numFields;
   private final AtomicLong ramBytesUsed;
   private final IndexInput data;
@@ -106,6 +110,7 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
     sortedNumerics.putAll(original.sortedNumerics);
     ords.putAll(original.ords);
     ordIndexes.putAll(original.ordIndexes);
+    skipIndexOffsets.putAll(original.skipIndexOffsets);
     numFields = original.numFields;
     ramBytesUsed = new AtomicLong(original.ramBytesUsed.get());
     data = original.data.clone();
@@ -135,7 +140,7 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
                                         Lucene50DocValuesFormat.VERSION_CURRENT,
                                         state.segmentInfo.getId(),
                                         state.segmentSuffix);
-        numFields = readFields(in, state.fieldInfos);
+        numFields = readFields(in, state.fieldInfos, version);
       } catch (Throwable exception) {
         priorE = exception;
       } finally {
@@ -224,7 +229,7 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
     ordIndexes.put(info.name, n2);
   }
 
-  private int readFields(IndexInput meta, FieldInfos infos) throws IOException {
+  private int readFields(IndexInput meta, FieldInfos infos, int version) throws IOException {
     int numFields = 0;
     int fieldNumber = meta.readVInt();
     while (fieldNumber != -1) {
@@ -237,6 +242,9 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
       byte type = meta.readByte();
       if (type == Lucene50DocValuesFormat.NUMERIC) {
         numerics.put(info.name, readNumericEntry(meta));
+        if (version >= Lucene50DocValuesFormat.VERSION_SKIP_INDEX) {
+          skipIndexOffsets.put(info.name, meta.readLong());
+        }
       } else if (type == Lucene50DocValuesFormat.BINARY) {
         BinaryEntry b = readBinaryEntry(meta);
         binaries.put(info.name, b);
@@ -787,6 +795,115 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
     }
   }
 
+  @Override
+  public DocValuesSkipper getNumericSkipper(FieldInfo field) throws IOException {
+    final Long offset = skipIndexOffsets.get(field.name);
+    if (offset == null) {
+      // written before skip indexes were added
+      return null;
+    }
+    final NumericEntry entry = numerics.get(field.name);
+    final int[] blockCounts = Lucene50DocValuesConsumer.skipIndexBlockCounts(entry.count);
+    long numBlocks = 0;
+    for (int blockCount : blockCounts) {
+      numBlocks += blockCount;
+    }
+    if (numBlocks == 0) {
+      return null;
+    }
+    final RandomAccessInput slice = data.randomAccessSlice(offset, numBlocks * 2 * Long.BYTES);
+    return new SkipIndex(slice, blockCounts, (int) entry.count);
+  }
+
+  /** Reads the min and max values that are written for every block and level of a numeric field. */
+  private static final class SkipIndex extends DocValuesSkipper {
+    private final RandomAccessInput slice;
+    private final int maxDoc;
+    private final long[] levelOffsets;
+    private final int[] blocks;
+    private final int[] minDocIDs, maxDocIDs;
+    private final long[] minValues, maxValues;
+    private final long globalMinValue, globalMaxValue;
+
+    SkipIndex(RandomAccessInput slice, int[] blockCounts, int maxDoc) throws IOException {
+      this.slice = slice;
+      this.maxDoc = maxDoc;
+      final int numLevels = blockCounts.length;
+      levelOffsets = new long[numLevels];
+      for (int level = 1; level < numLevels; ++level) {
+        levelOffsets[level] = levelOffsets[level - 1] + blockCounts[level - 1] * 2L * Long.BYTES;
+      }
+      blocks = new int[numLevels];
+      Arrays.fill(blocks, -1);
+      minDocIDs = new int[numLevels];
+      maxDocIDs = new int[numLevels];
+      Arrays.fill(minDocIDs, -1);
+      Arrays.fill(maxDocIDs, -1);
+      minValues = new long[numLevels];
+      maxValues = new long[numLevels];
+      // the last level has a single block that covers all documents
+      globalMinValue = slice.readLong(levelOffsets[numLevels - 1]);
+      globalMaxValue = slice.readLong(levelOffsets[numLevels - 1] + Long.BYTES);
+    }
+
+    @Override
+    public void advance(int target) throws IOException {
+      if (target >= maxDoc) {
+        Arrays.fill(blocks, -1);
+        Arrays.fill(minDocIDs, DocIdSetIterator.NO_MORE_DOCS);
+        Arrays.fill(maxDocIDs, DocIdSetIterator.NO_MORE_DOCS);
+        return;
+      }
+      for (int level = 0; level < blocks.length; ++level) {
+        final int shift = Lucene50DocValuesConsumer.SKIP_BLOCK_SHIFT + level * Lucene50DocValuesConsumer.SKIP_LEVEL_SHIFT;
+        final int block = target >>> shift;
+        if (block != blocks[level]) {
+          blocks[level] = block;
+          minDocIDs[level] = block << shift;
+          maxDocIDs[level] = (int) Math.min(maxDoc, ((long) block + 1) << shift) - 1;
+          final long offset = levelOffsets[level] + block * 2L * Long.BYTES;
+          minValues[level] = slice.readLong(offset);
+          maxValues[level] = slice.readLong(offset + Long.BYTES);
+        }
+      }
+    }
+
+    @Override
+    public int numLevels() {
+      return blocks.length;
+    }
+
+    @Override
+    public int minDocID(int level) {
+      return minDocIDs[level];
+    }
+
+    @Override
+    public int maxDocID(int level) {
+      return maxDocIDs[level];
+    }
+
+    @Override
+    public long minValue(int level) {
+      return minValues[level];
+    }
+
+    @Override
+    public long maxValue(int level) {
+      return maxValues[level];
+    }
+
+    @Override
+    public long minValue() {
+      return globalMinValue;
+    }
+
+    @Override
+    public long maxValue() {
+      return globalMaxValue;
+    }
+  }
+
   @Override
   public synchronized DocValuesProducer getMergeInstance() throws IOException {
     return new Lucene50DocValuesProducer(this);
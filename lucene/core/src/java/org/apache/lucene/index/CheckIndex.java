@@ -17,9 +17,13 @@ package org.apache.lucene.index;
  * limitations under the License.
  */
 
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.NumberFormat;
@@ -31,6 +35,13 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.lucene.codecs.Codec;
 import org.apache.lucene.codecs.DocValuesProducer;
@@ -55,8 +66,10 @@ import org.apache.lucene.util.CommandLineUtil;
 import org.apache.lucene.util.FixedBitSet;
 import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.LongBitSet;
+import org.apache.lucene.util.NamedThreadFactory;
 import org.apache.lucene.util.StringHelper;
 import org.apache.lucene.util.SuppressForbidden;
+import org.apache.lucene.util.ThreadInterruptedException;
 import org.apache.lucene.util.Version;
 import org.apache.lucene.util.automaton.Automata;
 import org.apache.lucene.util.automaton.CompiledAutomaton;
@@ -148,6 +161,167 @@ public class CheckIndex implements Closeable {
     /** Holds the userData of the last commit in the index */
     public Map<String, String> userData;
 
+    /** Returns a machine-readable report of this status as a JSON object, with one
+     *  entry per checked segment.  Failures are reported as the exception's string
+     *  representation, and checks that did not run are reported as {@code null}. */
+    public String toJSON() {
+      StringBuilder sb = new StringBuilder();
+      sb.append('{');
+      field(sb, "clean", clean).append(',');
+      field(sb, "segmentsFileName", segmentsFileName).append(',');
+      field(sb, "numSegments", numSegments).append(',');
+      field(sb, "numBadSegments", numBadSegments).append(',');
+      field(sb, "totLoseDocCount", totLoseDocCount).append(',');
+      field(sb, "partial", partial).append(',');
+      field(sb, "validCounter", validCounter).append(',');
+      field(sb, "missingSegments", missingSegments).append(',');
+      field(sb, "toolOutOfDate", toolOutOfDate).append(',');
+      field(sb, "userData", userData).append(',');
+      key(sb, "segments").append('[');
+      for (int i = 0; i < segmentInfos.size(); i++) {
+        if (i > 0) {
+          sb.append(',');
+        }
+        SegmentInfoStatus seg = segmentInfos.get(i);
+        sb.append('{');
+        field(sb, "name", seg.name).append(',');
+        field(sb, "codec", seg.codec == null ? null : seg.codec.getName()).append(',');
+        field(sb, "maxDoc", seg.maxDoc).append(',');
+        field(sb, "compound", seg.compound).append(',');
+        field(sb, "numFiles", seg.numFiles).append(',');
+        field(sb, "sizeMB", seg.sizeMB).append(',');
+        field(sb, "hasDeletions", seg.hasDeletions).append(',');
+        field(sb, "deletionsGen", seg.deletionsGen).append(',');
+        field(sb, "openReaderPassed", seg.openReaderPassed).append(',');
+        field(sb, "error", seg.error).append(',');
+        field(sb, "diagnostics", seg.diagnostics).append(',');
+        key(sb, "liveDocs");
+        if (seg.liveDocStatus == null) {
+          sb.append("null");
+        } else {
+          sb.append('{');
+          field(sb, "numDeleted", seg.liveDocStatus.numDeleted).append(',');
+          field(sb, "error", seg.liveDocStatus.error).append('}');
+        }
+        sb.append(',');
+        key(sb, "fieldInfos");
+        if (seg.fieldInfoStatus == null) {
+          sb.append("null");
+        } else {
+          sb.append('{');
+          field(sb, "totFields", seg.fieldInfoStatus.totFields).append(',');
+          field(sb, "error", seg.fieldInfoStatus.error).append('}');
+        }
+        sb.append(',');
+        key(sb, "norms");
+        if (seg.fieldNormStatus == null) {
+          sb.append("null");
+        } else {
+          sb.append('{');
+          field(sb, "totFields", seg.fieldNormStatus.totFields).append(',');
+          field(sb, "error", seg.fieldNormStatus.error).append('}');
+        }
+        sb.append(',');
+        key(sb, "postings");
+        if (seg.termIndexStatus == null) {
+          sb.append("null");
+        } else {
+          sb.append('{');
+          field(sb, "termCount", seg.termIndexStatus.termCount).append(',');
+          field(sb, "delTermCount", seg.termIndexStatus.delTermCount).append(',');
+          field(sb, "totFreq", seg.termIndexStatus.totFreq).append(',');
+          field(sb, "totPos", seg.termIndexStatus.totPos).append(',');
+          field(sb, "error", seg.termIndexStatus.error).append('}');
+        }
+        sb.append(',');
+        key(sb, "storedFields");
+        if (seg.storedFieldStatus == null) {
+          sb.append("null");
+        } else {
+          sb.append('{');
+          field(sb, "docCount", seg.storedFieldStatus.docCount).append(',');
+          field(sb, "totFields", seg.storedFieldStatus.totFields).append(',');
+          field(sb, "error", seg.storedFieldStatus.error).append('}');
+        }
+        sb.append(',');
+        key(sb, "termVectors");
+        if (seg.termVectorStatus == null) {
+          sb.append("null");
+        } else {
+          sb.append('{');
+          field(sb, "docCount", seg.termVectorStatus.docCount).append(',');
+          field(sb, "totVectors", seg.termVectorStatus.totVectors).append(',');
+          field(sb, "error", seg.termVectorStatus.error).append('}');
+        }
+        sb.append(',');
+        key(sb, "docValues");
+        if (seg.docValuesStatus == null) {
+          sb.append("null");
+        } else {
+          sb.append('{');
+          field(sb, "totalValueFields", seg.docValuesStatus.totalValueFields).append(',');
+          field(sb, "totalNumericFields", seg.docValuesStatus.totalNumericFields).append(',');
+          field(sb, "totalBinaryFields", seg.docValuesStatus.totalBinaryFields).append(',');
+          field(sb, "totalSortedFields", seg.docValuesStatus.totalSortedFields).append(',');
+          field(sb, "totalSortedNumericFields", seg.docValuesStatus.totalSortedNumericFields).append(',');
+          field(sb, "totalSortedSetFields", seg.docValuesStatus.totalSortedSetFields).append(',');
+          field(sb, "error", seg.docValuesStatus.error).append('}');
+        }
+        sb.append('}');
+      }
+      sb.append("]}");
+      return sb.toString();
+    }
+
+    private static StringBuilder key(StringBuilder sb, String key) {
+      return quote(sb, key).append(':');
+    }
+
+    private static StringBuilder field(StringBuilder sb, String key, Object value) {
+      key(sb, key);
+      if (value == null) {
+        return sb.append("null");
+      } else if (value instanceof Boolean || value instanceof Integer || value instanceof Long) {
+        return sb.append(value);
+      } else if (value instanceof Double) {
+        return sb.append(String.format(Locale.ROOT, "%.3f", (Double) value));
+      } else if (value instanceof Map) {
+        sb.append('{');
+        boolean first = true;
+        for (Map.Entry<?,?> ent : ((Map<?,?>) value).entrySet()) {
+          if (first == false) {
+            sb.append(',');
+          }
+          first = false;
+          field(sb, String.valueOf(ent.getKey()), String.valueOf(ent.getValue()));
+        }
+        return sb.append('}');
+      } else {
+        return quote(sb, value.toString());
+      }
+    }
+
+    private static StringBuilder quote(StringBuilder sb, String s) {
+      sb.append('"');
+      for (int i = 0; i < s.length(); i++) {
+        char c = s.charAt(i);
+        switch (c) {
+          case '"': sb.append("\\\""); break;
+          case '\\': sb.append("\\\\"); break;
+          case '\n': sb.append("\\n"); break;
+          case '\r': sb.append("\\r"); break;
+          case '\t': sb.append("\\t"); break;
+          default:
+            if (c < 0x20) {
+              sb.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+              sb.append(c);
+            }
+        }
+      }
+      return sb.append('"');
+    }
+
     /** Holds the status of each segment in the index.
      *  See {@link #segmentInfos}.
      *
@@ -212,6 +386,9 @@ public class CheckIndex implements Closeable {
       
       /** Status for testing of DocValues (null if DocValues could not be tested). */
       public DocValuesStatus docValuesStatus;
+
+      /** Exception that caused this segment to fail the check (null on success). */
+      public Throwable error;
     }
     
     /**
@@ -411,6 +588,27 @@ public class CheckIndex implements Closeable {
     return failFast;
   }
 
+  private int threadCount = 1;
+
+  /** Sets the number of threads used to check the index.  With more than one
+   *  thread, segments are checked concurrently, and so are the postings, stored
+   *  fields, term vectors, doc values and norms of each segment.  At most
+   *  {@code threadCount} segments are open at the same time, which bounds the
+   *  memory used by the check.  The output of each segment is buffered and
+   *  written to the infoStream once the segment is done.  The default is 1,
+   *  which checks everything on the calling thread. */
+  public void setThreadCount(int threadCount) {
+    if (threadCount < 1) {
+      throw new IllegalArgumentException("threadCount must be >= 1; got " + threadCount);
+    }
+    this.threadCount = threadCount;
+  }
+
+  /** See {@link #setThreadCount}. */
+  public int getThreadCount() {
+    return threadCount;
+  }
+
   private boolean verbose;
   
   /** See {@link #getChecksumsOnly}. */
@@ -469,7 +667,6 @@ public class CheckIndex implements Closeable {
   public Status checkIndex(List<String> onlySegments) throws IOException {
     ensureOpen();
     long startNS = System.nanoTime();
-    NumberFormat nf = NumberFormat.getInstance(Locale.ROOT);
     SegmentInfos sis = null;
     Status result = new Status();
     result.dir = dir;
@@ -595,6 +792,7 @@ public class CheckIndex implements Closeable {
     result.newSegments.clear();
     result.maxSegmentName = -1;
 
+    final List<SegmentCheck> checks = new ArrayList<>();
     for(int i=0;i<numSegments;i++) {
       final SegmentCommitInfo info = sis.info(i);
       int segmentName = Integer.parseInt(info.info.name.substring(1), Character.MAX_RADIX);
@@ -604,92 +802,213 @@ public class CheckIndex implements Closeable {
       if (onlySegments != null && !onlySegments.contains(info.info.name)) {
         continue;
       }
-      Status.SegmentInfoStatus segInfoStat = new Status.SegmentInfoStatus();
-      result.segmentInfos.add(segInfoStat);
-      msg(infoStream, "  " + (1+i) + " of " + numSegments + ": name=" + info.info.name + " maxDoc=" + info.info.maxDoc());
-      segInfoStat.name = info.info.name;
-      segInfoStat.maxDoc = info.info.maxDoc();
-      
-      final Version version = info.info.getVersion();
-      if (info.info.maxDoc() <= 0) {
-        throw new RuntimeException("illegal number of documents: maxDoc=" + info.info.maxDoc());
+      SegmentCheck check = new SegmentCheck(info, i);
+      result.segmentInfos.add(check.status);
+      checks.add(check);
+    }
+
+    if (threadCount <= 1) {
+      for (SegmentCheck check : checks) {
+        checkSegment(check, numSegments, infoStream, null);
       }
+    } else {
+      checkSegmentsConcurrently(checks, numSegments);
+    }
+
+    for (SegmentCheck check : checks) {
+      if (check.status.error != null) {
+        result.totLoseDocCount += check.toLoseDocCount;
+        result.numBadSegments++;
+      } else {
+        // Keeper
+        result.newSegments.add(check.info.clone());
+      }
+    }
 
-      int toLoseDocCount = info.info.maxDoc();
+    if (0 == result.numBadSegments) {
+      result.clean = true;
+    } else
+      msg(infoStream, "WARNING: " + result.numBadSegments + " broken segments (containing " + result.totLoseDocCount + " documents) detected");
 
-      SegmentReader reader = null;
+    if ( ! (result.validCounter = (result.maxSegmentName < sis.counter))) {
+      result.clean = false;
+      result.newSegments.counter = result.maxSegmentName + 1; 
+      msg(infoStream, "ERROR: Next segment name counter " + sis.counter + " is not greater than max segment name " + result.maxSegmentName);
+    }
+    
+    if (result.clean) {
+      msg(infoStream, "No problems were detected with this index.\n");
+    }
 
-      try {
-        msg(infoStream, "    version=" + (version == null ? "3.0" : version));
-        msg(infoStream, "    id=" + StringHelper.idToString(info.info.getId()));
-        final Codec codec = info.info.getCodec();
-        msg(infoStream, "    codec=" + codec);
-        segInfoStat.codec = codec;
-        msg(infoStream, "    compound=" + info.info.getUseCompoundFile());
-        segInfoStat.compound = info.info.getUseCompoundFile();
-        msg(infoStream, "    numFiles=" + info.files().size());
-        segInfoStat.numFiles = info.files().size();
-        segInfoStat.sizeMB = info.sizeInBytes()/(1024.*1024.);
-        msg(infoStream, "    size (MB)=" + nf.format(segInfoStat.sizeMB));
-        Map<String,String> diagnostics = info.info.getDiagnostics();
-        segInfoStat.diagnostics = diagnostics;
-        if (diagnostics.size() > 0) {
-          msg(infoStream, "    diagnostics = " + diagnostics);
-        }
-
-        if (!info.hasDeletions()) {
-          msg(infoStream, "    no deletions");
-          segInfoStat.hasDeletions = false;
-        } else {
-          msg(infoStream, "    has deletions [delGen=" + info.getDelGen() + "]");
-          segInfoStat.hasDeletions = true;
-          segInfoStat.deletionsGen = info.getDelGen();
-        }
-        
-        long startOpenReaderNS = System.nanoTime();
-        if (infoStream != null)
-          infoStream.print("    test: open reader.........");
-        reader = new SegmentReader(info, IOContext.DEFAULT);
-        msg(infoStream, String.format(Locale.ROOT, "OK [took %.3f sec]", nsToSec(System.nanoTime()-startOpenReaderNS)));
+    msg(infoStream, String.format(Locale.ROOT, "Took %.3f sec total.", nsToSec(System.nanoTime()-startNS)));
 
-        segInfoStat.openReaderPassed = true;
-        
-        long startIntegrityNS = System.nanoTime();
-        if (infoStream != null)
-          infoStream.print("    test: check integrity.....");
-        reader.checkIntegrity();
-        msg(infoStream, String.format(Locale.ROOT, "OK [took %.3f sec]", nsToSec(System.nanoTime()-startIntegrityNS)));
+    return result;
+  }
+  
+  /** Holds the state of checking a single segment. */
+  private static final class SegmentCheck {
+    final SegmentCommitInfo info;
+    final int ord;
+    final Status.SegmentInfoStatus status = new Status.SegmentInfoStatus();
+    int toLoseDocCount;
+
+    SegmentCheck(SegmentCommitInfo info, int ord) {
+      this.info = info;
+      this.ord = ord;
+      this.toLoseDocCount = info.info.maxDoc();
+    }
+  }
 
-        if (reader.maxDoc() != info.info.maxDoc()) {
-          throw new RuntimeException("SegmentReader.maxDoc() " + reader.maxDoc() + " != SegmentInfo.maxDoc " + info.info.maxDoc());
-        }
-        
-        final int numDocs = reader.numDocs();
-        toLoseDocCount = numDocs;
-        
-        if (reader.hasDeletions()) {
-          if (reader.numDocs() != info.info.maxDoc() - info.getDelCount()) {
-            throw new RuntimeException("delete count mismatch: info=" + (info.info.maxDoc() - info.getDelCount()) + " vs reader=" + reader.numDocs());
-          }
-          if ((info.info.maxDoc() - reader.numDocs()) > reader.maxDoc()) {
-            throw new RuntimeException("too many deleted docs: maxDoc()=" + reader.maxDoc() + " vs del count=" + (info.info.maxDoc() - reader.numDocs()));
-          }
-          if (info.info.maxDoc() - reader.numDocs() != info.getDelCount()) {
-            throw new RuntimeException("delete count mismatch: info=" + info.getDelCount() + " vs reader=" + (info.info.maxDoc() - reader.numDocs()));
-          }
-        } else {
-          if (info.getDelCount() != 0) {
-            throw new RuntimeException("delete count mismatch: info=" + info.getDelCount() + " vs reader=" + (info.info.maxDoc() - reader.numDocs()));
+  /** Checks the segments with {@link #getThreadCount()} threads.  The output of
+   *  each segment is buffered and written to the infoStream as soon as that
+   *  segment is done, so that progress is reported while bigger segments are
+   *  still being checked. */
+  private void checkSegmentsConcurrently(List<SegmentCheck> checks, final int numSegments) throws IOException {
+    final ExecutorService segmentExecutor = Executors.newFixedThreadPool(Math.max(1, Math.min(threadCount, checks.size())), new NamedThreadFactory("CheckIndex-segment"));
+    final ExecutorService componentExecutor = Executors.newFixedThreadPool(threadCount, new NamedThreadFactory("CheckIndex-component"));
+    try {
+      final CompletionService<SegmentCheck> completionService = new ExecutorCompletionService<>(segmentExecutor);
+      for (final SegmentCheck check : checks) {
+        completionService.submit(new Callable<SegmentCheck>() {
+          @Override
+          public SegmentCheck call() throws Exception {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            PrintStream segmentInfoStream = infoStream == null ? null : new PrintStream(bytes, true, IOUtils.UTF_8);
+            try {
+              checkSegment(check, numSegments, segmentInfoStream, componentExecutor);
+            } finally {
+              if (segmentInfoStream != null) {
+                segmentInfoStream.flush();
+                printBuffered(bytes);
+              }
+            }
+            return check;
           }
+        });
+      }
+      for (int done = 1; done <= checks.size(); done++) {
+        SegmentCheck check = await(completionService.take());
+        msg(infoStream, "  [progress: " + done + " of " + checks.size() + " segments checked; last=" + check.info.info.name
+            + (check.status.error == null ? "" : " FAILED") + "]");
+        msg(infoStream, "");
+      }
+    } catch (InterruptedException ie) {
+      throw new ThreadInterruptedException(ie);
+    } finally {
+      segmentExecutor.shutdownNow();
+      componentExecutor.shutdownNow();
+    }
+  }
+
+  private synchronized void printBuffered(ByteArrayOutputStream bytes) throws UnsupportedEncodingException {
+    if (infoStream != null) {
+      infoStream.print(bytes.toString(IOUtils.UTF_8));
+      infoStream.flush();
+    }
+  }
+
+  /** Returns the result of the future, rethrowing the original exception if it failed. */
+  private static <T> T await(Future<T> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException ie) {
+      throw new ThreadInterruptedException(ie);
+    } catch (ExecutionException ee) {
+      IOUtils.reThrow(ee.getCause());
+      throw new AssertionError("unreachable");
+    }
+  }
+
+  /** Checks a single segment, recording the outcome in {@link SegmentCheck#status}.
+   *  If {@code componentExecutor} is not null, postings, stored fields, term vectors,
+   *  doc values and norms are checked concurrently on it. */
+  private void checkSegment(SegmentCheck check, int numSegments, PrintStream infoStream, ExecutorService componentExecutor) throws IOException {
+    final SegmentCommitInfo info = check.info;
+    final Status.SegmentInfoStatus segInfoStat = check.status;
+    final NumberFormat nf = NumberFormat.getInstance(Locale.ROOT);
+    msg(infoStream, "  " + (1+check.ord) + " of " + numSegments + ": name=" + info.info.name + " maxDoc=" + info.info.maxDoc());
+    segInfoStat.name = info.info.name;
+    segInfoStat.maxDoc = info.info.maxDoc();
+
+    final Version version = info.info.getVersion();
+    if (info.info.maxDoc() <= 0) {
+      throw new RuntimeException("illegal number of documents: maxDoc=" + info.info.maxDoc());
+    }
+
+    SegmentReader reader = null;
+
+    try {
+      msg(infoStream, "    version=" + (version == null ? "3.0" : version));
+      msg(infoStream, "    id=" + StringHelper.idToString(info.info.getId()));
+      final Codec codec = info.info.getCodec();
+      msg(infoStream, "    codec=" + codec);
+      segInfoStat.codec = codec;
+      msg(infoStream, "    compound=" + info.info.getUseCompoundFile());
+      segInfoStat.compound = info.info.getUseCompoundFile();
+      msg(infoStream, "    numFiles=" + info.files().size());
+      segInfoStat.numFiles = info.files().size();
+      segInfoStat.sizeMB = info.sizeInBytes()/(1024.*1024.);
+      msg(infoStream, "    size (MB)=" + nf.format(segInfoStat.sizeMB));
+      Map<String,String> diagnostics = info.info.getDiagnostics();
+      segInfoStat.diagnostics = diagnostics;
+      if (diagnostics.size() > 0) {
+        msg(infoStream, "    diagnostics = " + diagnostics);
+      }
+
+      if (!info.hasDeletions()) {
+        msg(infoStream, "    no deletions");
+        segInfoStat.hasDeletions = false;
+      } else {
+        msg(infoStream, "    has deletions [delGen=" + info.getDelGen() + "]");
+        segInfoStat.hasDeletions = true;
+        segInfoStat.deletionsGen = info.getDelGen();
+      }
+
+      long startOpenReaderNS = System.nanoTime();
+      if (infoStream != null)
+        infoStream.print("    test: open reader.........");
+      reader = new SegmentReader(info, IOContext.DEFAULT);
+      msg(infoStream, String.format(Locale.ROOT, "OK [took %.3f sec]", nsToSec(System.nanoTime()-startOpenReaderNS)));
+
+      segInfoStat.openReaderPassed = true;
+
+      long startIntegrityNS = System.nanoTime();
+      if (infoStream != null)
+        infoStream.print("    test: check integrity.....");
+      reader.checkIntegrity();
+      msg(infoStream, String.format(Locale.ROOT, "OK [took %.3f sec]", nsToSec(System.nanoTime()-startIntegrityNS)));
+
+      if (reader.maxDoc() != info.info.maxDoc()) {
+        throw new RuntimeException("SegmentReader.maxDoc() " + reader.maxDoc() + " != SegmentInfo.maxDoc " + info.info.maxDoc());
+      }
+
+      final int numDocs = reader.numDocs();
+      check.toLoseDocCount = numDocs;
+
+      if (reader.hasDeletions()) {
+        if (reader.numDocs() != info.info.maxDoc() - info.getDelCount()) {
+          throw new RuntimeException("delete count mismatch: info=" + (info.info.maxDoc() - info.getDelCount()) + " vs reader=" + reader.numDocs());
         }
-        
-        if (checksumsOnly == false) {
-          // Test Livedocs
-          segInfoStat.liveDocStatus = testLiveDocs(reader, infoStream, failFast);
+        if ((info.info.maxDoc() - reader.numDocs()) > reader.maxDoc()) {
+          throw new RuntimeException("too many deleted docs: maxDoc()=" + reader.maxDoc() + " vs del count=" + (info.info.maxDoc() - reader.numDocs()));
+        }
+        if (info.info.maxDoc() - reader.numDocs() != info.getDelCount()) {
+          throw new RuntimeException("delete count mismatch: info=" + info.getDelCount() + " vs reader=" + (info.info.maxDoc() - reader.numDocs()));
+        }
+      } else {
+        if (info.getDelCount() != 0) {
+          throw new RuntimeException("delete count mismatch: info=" + info.getDelCount() + " vs reader=" + (info.info.maxDoc() - reader.numDocs()));
+        }
+      }
 
-          // Test Fieldinfos
-          segInfoStat.fieldInfoStatus = testFieldInfos(reader, infoStream, failFast);
-        
+      if (checksumsOnly == false) {
+        // Test Livedocs
+        segInfoStat.liveDocStatus = testLiveDocs(reader, infoStream, failFast);
+
+        // Test Fieldinfos
+        segInfoStat.fieldInfoStatus = testFieldInfos(reader, infoStream, failFast);
+
+        if (componentExecutor == null) {
           // Test Field Norms
           segInfoStat.fieldNormStatus = testFieldNorms(reader, infoStream, failFast);
 
@@ -704,76 +1023,130 @@ public class CheckIndex implements Closeable {
 
           // Test Docvalues
           segInfoStat.docValuesStatus = testDocValues(reader, infoStream, failFast);
-
-          // Rethrow the first exception we encountered
-          //  This will cause stats for failed segments to be incremented properly
-          if (segInfoStat.liveDocStatus.error != null) {
-            throw new RuntimeException("Live docs test failed");
-          } else if (segInfoStat.fieldInfoStatus.error != null) {
-            throw new RuntimeException("Field Info test failed");
-          } else if (segInfoStat.fieldNormStatus.error != null) {
-            throw new RuntimeException("Field Norm test failed");
-          } else if (segInfoStat.termIndexStatus.error != null) {
-            throw new RuntimeException("Term Index test failed");
-          } else if (segInfoStat.storedFieldStatus.error != null) {
-            throw new RuntimeException("Stored Field test failed");
-          } else if (segInfoStat.termVectorStatus.error != null) {
-            throw new RuntimeException("Term Vector test failed");
-          }  else if (segInfoStat.docValuesStatus.error != null) {
-            throw new RuntimeException("DocValues test failed");
-          }
+        } else {
+          testComponentsConcurrently(reader, segInfoStat, infoStream, componentExecutor);
         }
 
-        msg(infoStream, "");
-        
-        if (verbose) {
-          msg(infoStream, "detailed segment RAM usage: ");
-          msg(infoStream, Accountables.toString(reader));
+        // Rethrow the first exception we encountered
+        //  This will cause stats for failed segments to be incremented properly
+        if (segInfoStat.liveDocStatus.error != null) {
+          throw new RuntimeException("Live docs test failed");
+        } else if (segInfoStat.fieldInfoStatus.error != null) {
+          throw new RuntimeException("Field Info test failed");
+        } else if (segInfoStat.fieldNormStatus.error != null) {
+          throw new RuntimeException("Field Norm test failed");
+        } else if (segInfoStat.termIndexStatus.error != null) {
+          throw new RuntimeException("Term Index test failed");
+        } else if (segInfoStat.storedFieldStatus.error != null) {
+          throw new RuntimeException("Stored Field test failed");
+        } else if (segInfoStat.termVectorStatus.error != null) {
+          throw new RuntimeException("Term Vector test failed");
+        }  else if (segInfoStat.docValuesStatus.error != null) {
+          throw new RuntimeException("DocValues test failed");
         }
+      }
 
-      } catch (Throwable t) {
-        if (failFast) {
-          IOUtils.reThrow(t);
-        }
-        msg(infoStream, "FAILED");
-        String comment;
-        comment = "exorciseIndex() would remove reference to this segment";
-        msg(infoStream, "    WARNING: " + comment + "; full exception:");
-        if (infoStream != null)
-          t.printStackTrace(infoStream);
-        msg(infoStream, "");
-        result.totLoseDocCount += toLoseDocCount;
-        result.numBadSegments++;
-        continue;
-      } finally {
-        if (reader != null)
-          reader.close();
+      msg(infoStream, "");
+
+      if (verbose) {
+        msg(infoStream, "detailed segment RAM usage: ");
+        msg(infoStream, Accountables.toString(reader));
       }
 
-      // Keeper
-      result.newSegments.add(info.clone());
+    } catch (Throwable t) {
+      if (failFast) {
+        IOUtils.reThrow(t);
+      }
+      segInfoStat.error = t;
+      msg(infoStream, "FAILED");
+      String comment;
+      comment = "exorciseIndex() would remove reference to this segment";
+      msg(infoStream, "    WARNING: " + comment + "; full exception:");
+      if (infoStream != null)
+        t.printStackTrace(infoStream);
+      msg(infoStream, "");
+    } finally {
+      if (reader != null)
+        reader.close();
     }
+  }
 
-    if (0 == result.numBadSegments) {
-      result.clean = true;
-    } else
-      msg(infoStream, "WARNING: " + result.numBadSegments + " broken segments (containing " + result.totLoseDocCount + " documents) detected");
-
-    if ( ! (result.validCounter = (result.maxSegmentName < sis.counter))) {
-      result.clean = false;
-      result.newSegments.counter = result.maxSegmentName + 1; 
-      msg(infoStream, "ERROR: Next segment name counter " + sis.counter + " is not greater than max segment name " + result.maxSegmentName);
+  /** Runs the norms, postings, stored fields, term vectors and doc values checks of
+   *  one segment concurrently.  Each check writes to its own buffer, and the buffers
+   *  are appended to {@code infoStream} in the same order as the serial check. */
+  private void testComponentsConcurrently(final CodecReader reader, Status.SegmentInfoStatus segInfoStat,
+                                          PrintStream infoStream, ExecutorService executor) throws IOException {
+    final int numComponents = 5;
+    final ByteArrayOutputStream[] buffers = new ByteArrayOutputStream[numComponents];
+    final PrintStream[] streams = new PrintStream[numComponents];
+    for (int i = 0; i < numComponents; i++) {
+      buffers[i] = new ByteArrayOutputStream();
+      streams[i] = infoStream == null ? null : new PrintStream(buffers[i], true, IOUtils.UTF_8);
     }
-    
-    if (result.clean) {
-      msg(infoStream, "No problems were detected with this index.\n");
+
+    final List<Future<?>> futures = new ArrayList<>();
+    final Future<Status.FieldNormStatus> norms = executor.submit(new Callable<Status.FieldNormStatus>() {
+      @Override
+      public Status.FieldNormStatus call() throws IOException {
+        return testFieldNorms(reader, streams[0], failFast);
+      }
+    });
+    futures.add(norms);
+    final Future<Status.TermIndexStatus> postings = executor.submit(new Callable<Status.TermIndexStatus>() {
+      @Override
+      public Status.TermIndexStatus call() throws IOException {
+        return testPostings(reader, streams[1], verbose, failFast);
+      }
+    });
+    futures.add(postings);
+    final Future<Status.StoredFieldStatus> storedFields = executor.submit(new Callable<Status.StoredFieldStatus>() {
+      @Override
+      public Status.StoredFieldStatus call() throws IOException {
+        return testStoredFields(reader, streams[2], failFast);
+      }
+    });
+    futures.add(storedFields);
+    final Future<Status.TermVectorStatus> termVectors = executor.submit(new Callable<Status.TermVectorStatus>() {
+      @Override
+      public Status.TermVectorStatus call() throws IOException {
+        return testTermVectors(reader, streams[3], verbose, crossCheckTermVectors, failFast);
+      }
+    });
+    futures.add(termVectors);
+    final Future<Status.DocValuesStatus> docValues = executor.submit(new Callable<Status.DocValuesStatus>() {
+      @Override
+      public Status.DocValuesStatus call() throws IOException {
+        return testDocValues(reader, streams[4], failFast);
+      }
+    });
+    futures.add(docValues);
+
+    // wait for all checks before looking at any result: the reader must not be
+    // closed while some of them are still running
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (ExecutionException ee) {
+        // rethrown below
+      } catch (InterruptedException ie) {
+        throw new ThreadInterruptedException(ie);
+      }
     }
 
-    msg(infoStream, String.format(Locale.ROOT, "Took %.3f sec total.", nsToSec(System.nanoTime()-startNS)));
+    if (infoStream != null) {
+      for (int i = 0; i < numComponents; i++) {
+        streams[i].flush();
+        infoStream.print(buffers[i].toString(IOUtils.UTF_8));
+      }
+    }
 
-    return result;
+    segInfoStat.fieldNormStatus = await(norms);
+    segInfoStat.termIndexStatus = await(postings);
+    segInfoStat.storedFieldStatus = await(storedFields);
+    segInfoStat.termVectorStatus = await(termVectors);
+    segInfoStat.docValuesStatus = await(docValues);
   }
-  
+
   /**
    * Test live docs.
    * @lucene.experimental
@@ -2251,11 +2624,17 @@ public class CheckIndex implements Closeable {
     <p>
     Run it like this:
     <pre>
-    java -ea:org.apache.lucene... org.apache.lucene.index.CheckIndex pathToIndex [-exorcise] [-verbose] [-segment X] [-segment Y]
+    java -ea:org.apache.lucene... org.apache.lucene.index.CheckIndex pathToIndex [-exorcise] [-verbose] [-threadCount N] [-report file] [-segment X] [-segment Y]
     </pre>
     <ul>
     <li><code>-exorcise</code>: actually write a new segments_N file, removing any problematic segments. *LOSES DATA*
 
+    <li><code>-threadCount N</code>: check segments, and the components of each
+    segment, with <code>N</code> threads.
+
+    <li><code>-report file</code>: write a JSON report of the check (see {@link Status#toJSON()})
+    to the given file.
+
     <li><code>-segment X</code>: only check the specified
     segment(s).  This can be specified multiple times,
     to check more than one segment, eg <code>-segment _2
@@ -2291,6 +2670,8 @@ public class CheckIndex implements Closeable {
     boolean doCrossCheckTermVectors = false;
     boolean verbose = false;
     boolean doChecksumsOnly = false;
+    int threadCount = 1;
+    String reportPath = null;
     List<String> onlySegments = new ArrayList<>();
     String indexPath = null;
     String dirImpl = null;
@@ -2312,6 +2693,28 @@ public class CheckIndex implements Closeable {
         }
         i++;
         onlySegments.add(args[i]);
+      } else if ("-threadCount".equals(arg)) {
+        if (i == args.length - 1) {
+          System.out.println("ERROR: missing value for -threadCount option");
+          return 1;
+        }
+        i++;
+        try {
+          threadCount = Integer.parseInt(args[i]);
+        } catch (NumberFormatException nfe) {
+          threadCount = 0;
+        }
+        if (threadCount < 1) {
+          System.out.println("ERROR: -threadCount must be a positive integer; got '" + args[i] + "'");
+          return 1;
+        }
+      } else if ("-report".equals(arg)) {
+        if (i == args.length - 1) {
+          System.out.println("ERROR: missing file for -report option");
+          return 1;
+        }
+        i++;
+        reportPath = args[i];
       } else if ("-dir-impl".equals(arg)) {
         if (i == args.length - 1) {
           System.out.println("ERROR: missing value for -dir-impl option");
@@ -2331,13 +2734,15 @@ public class CheckIndex implements Closeable {
 
     if (indexPath == null) {
       System.out.println("\nERROR: index path not specified");
-      System.out.println("\nUsage: java org.apache.lucene.index.CheckIndex pathToIndex [-exorcise] [-crossCheckTermVectors] [-segment X] [-segment Y] [-dir-impl X]\n" +
+      System.out.println("\nUsage: java org.apache.lucene.index.CheckIndex pathToIndex [-exorcise] [-crossCheckTermVectors] [-threadCount N] [-report file] [-segment X] [-segment Y] [-dir-impl X]\n" +
                          "\n" +
                          "  -exorcise: actually write a new segments_N file, removing any problematic segments\n" +
                          "  -fast: just verify file checksums, omitting logical integrity checks\n" + 
                          "  -crossCheckTermVectors: verifies that term vectors match postings; THIS IS VERY SLOW!\n" +
                          "  -codec X: when exorcising, codec to write the new segments_N file with\n" +
                          "  -verbose: print additional details\n" +
+                         "  -threadCount N: check segments and their components concurrently with N threads\n" +
+                         "  -report file: write a machine-readable (JSON) report of the check to the given file\n" +
                          "  -segment X: only check the specified segments.  This can be specified multiple\n" + 
                          "              times, to check more than one segment, eg '-segment _2 -segment _a'.\n" +
                          "              You can't use this with the -exorcise option\n" +
@@ -2394,9 +2799,14 @@ public class CheckIndex implements Closeable {
          CheckIndex checker = new CheckIndex(dir)) {
       checker.setCrossCheckTermVectors(doCrossCheckTermVectors);
       checker.setChecksumsOnly(doChecksumsOnly);
+      checker.setThreadCount(threadCount);
       checker.setInfoStream(System.out, verbose);
       
       Status result = checker.checkIndex(onlySegments);
+      if (reportPath != null) {
+        Files.write(Paths.get(reportPath), result.toJSON().getBytes(StandardCharsets.UTF_8));
+        System.out.println("Wrote report to " + reportPath);
+      }
       if (result.missingSegments) {
         return 1;
       }
@@ -80,6 +80,14 @@ public abstract class CodecReader extends LeafReader implements Accountable {
     checkBounds(docID);
     getFieldsReader().visitDocument(docID, visitor);
   }
+
+  @Override
+  public final void documents(int[] docIDs, StoredFieldVisitor[] visitors, int count) throws IOException {
+    for (int i = 0; i < count; ++i) {
+      checkBounds(docIDs[i]);
+    }
+    getFieldsReader().visitDocuments(docIDs, visitors, count);
+  }
   
   @Override
   public final Fields getTermVectors(int docID) throws IOException {
@@ -156,6 +164,16 @@ public abstract class CodecReader extends LeafReader implements Accountable {
     }
   }
 
+  @Override
+  public final DocValuesSkipper getNumericDocValuesSkipper(String field) throws IOException {
+    ensureOpen();
+    FieldInfo fi = getDVField(field, DocValuesType.NUMERIC);
+    if (fi == null) {
+      return null;
+    }
+    return getDocValuesReader().getNumericSkipper(fi);
+  }
+
   @Override
   public final Bits getDocsWithField(String field) throws IOException {
     ensureOpen();
@@ -51,6 +51,8 @@ final class DefaultIndexingChain extends DocConsumer {
 
   // lazy init:
   private StoredFieldsWriter storedFieldsWriter;
+  // RAM used by storedFieldsWriter to buffer docs, as last added to bytesUsed
+  private long storedFieldsBytesUsed;
   private int lastStoredDocID; 
 
   // NOTE: I tried using Hash Map<String,PerField>
@@ -97,6 +99,8 @@ final class DefaultIndexingChain extends DocConsumer {
     fillStoredFields(maxDoc);
     storedFieldsWriter.finish(state.fieldInfos, maxDoc);
     storedFieldsWriter.close();
+    bytesUsed.addAndGet(-storedFieldsBytesUsed);
+    storedFieldsBytesUsed = 0;
 
     Map<String,TermsHashPerField> fieldsToFlush = new HashMap<>();
     for (int i=0;i<fieldHash.length;i++) {
@@ -218,6 +222,8 @@ final class DefaultIndexingChain extends DocConsumer {
   @Override
   public void abort() {
     IOUtils.closeWhileHandlingException(storedFieldsWriter);
+    bytesUsed.addAndGet(-storedFieldsBytesUsed);
+    storedFieldsBytesUsed = 0;
 
     try {
       // E.g. close any open files in the term vectors writer:
@@ -271,6 +277,11 @@ final class DefaultIndexingChain extends DocConsumer {
     } catch (Throwable th) {
       throw AbortingException.wrap(th);
     }
+    // the writer streams chunks to disk, but buffers the current one:
+    // account for it so that flushing by RAM stays accurate
+    final long newBytesUsed = storedFieldsWriter.ramBytesUsed();
+    bytesUsed.addAndGet(newBytesUsed - storedFieldsBytesUsed);
+    storedFieldsBytesUsed = newBytesUsed;
   }
 
   @Override
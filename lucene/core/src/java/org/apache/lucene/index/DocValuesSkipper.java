@@ -0,0 +1,111 @@
+package org.apache.lucene.index;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+
+import org.apache.lucene.search.DocIdSetIterator;
+
+/**
+ * Skip index over the values of a {@link DocValuesType#NUMERIC} field.
+ * <p>
+ * Documents are grouped into blocks of consecutive doc IDs which record the
+ * minimum and maximum values of their documents that have a value. Blocks
+ * are grouped into bigger blocks on the next level, up to a single block that
+ * covers the whole segment, so that queries can quickly skip over ranges of
+ * documents whose values cannot match. Level 0 has the smallest blocks.
+ * <p>
+ * Instances are positioned with {@link #advance(int)} and should only be used
+ * by a single thread.
+ * @lucene.experimental
+ */
+public abstract class DocValuesSkipper {
+
+  /** Sole constructor. (For invocation by subclass 
+   * constructors, typically implicit.) */
+  protected DocValuesSkipper() {}
+
+  /**
+   * Move to the blocks that contain <code>target</code> on every level.
+   * If <code>target</code> is greater than or equal to the number of
+   * documents of the segment, {@link #minDocID(int)} and {@link #maxDocID(int)}
+   * return {@link DocIdSetIterator#NO_MORE_DOCS} on every level.
+   */
+  public abstract void advance(int target) throws IOException;
+
+  /** Return the number of levels. */
+  public abstract int numLevels();
+
+  /** Return the first doc ID of the current block on the given level, -1 if
+   *  this skipper is not positioned yet, or {@link DocIdSetIterator#NO_MORE_DOCS}
+   *  if it is exhausted. */
+  public abstract int minDocID(int level);
+
+  /** Return the last doc ID of the current block on the given level, inclusive,
+   *  -1 if this skipper is not positioned yet, or
+   *  {@link DocIdSetIterator#NO_MORE_DOCS} if it is exhausted. */
+  public abstract int maxDocID(int level);
+
+  /** Return the minimum value of the current block on the given level. This is
+   *  greater than {@link #maxValue(int)} if no document of the block has a value. */
+  public abstract long minValue(int level);
+
+  /** Return the maximum value of the current block on the given level. This is
+   *  less than {@link #minValue(int)} if no document of the block has a value. */
+  public abstract long maxValue(int level);
+
+  /** Return the minimum value of the segment. This is greater than
+   *  {@link #maxValue()} if no document has a value. */
+  public abstract long minValue();
+
+  /** Return the maximum value of the segment. This is less than
+   *  {@link #minValue()} if no document has a value. */
+  public abstract long maxValue();
+
+  /**
+   * Return the first doc ID that is greater than or equal to
+   * <code>target</code> and whose block, on level 0, may have a value between
+   * <code>minValue</code> and <code>maxValue</code> inclusive, or
+   * {@link DocIdSetIterator#NO_MORE_DOCS} if there is no such document. Blocks
+   * that can't have such a value are skipped, on the highest possible level.
+   */
+  public int skipToCandidate(int target, long minValue, long maxValue) throws IOException {
+    while (true) {
+      advance(target);
+      if (minDocID(0) == DocIdSetIterator.NO_MORE_DOCS) {
+        return DocIdSetIterator.NO_MORE_DOCS;
+      }
+      // find the highest level whose block can't match
+      int nonMatchingLevel = -1;
+      for (int level = numLevels() - 1; level >= 0; --level) {
+        if (minValue(level) > maxValue || maxValue(level) < minValue) {
+          nonMatchingLevel = level;
+          break;
+        }
+      }
+      if (nonMatchingLevel == -1) {
+        return target;
+      }
+      final int next = maxDocID(nonMatchingLevel);
+      if (next == DocIdSetIterator.NO_MORE_DOCS || next == Integer.MAX_VALUE - 1) {
+        return DocIdSetIterator.NO_MORE_DOCS;
+      }
+      target = next + 1;
+    }
+  }
+}
@@ -83,6 +83,12 @@ public class ExitableDirectoryReader extends FilterDirectoryReader {
       return new ExitableFields(super.fields(), queryTimeout);
     }
     
+    @Override
+    public void documents(int[] docIDs, StoredFieldVisitor[] visitors, int count) throws IOException {
+      // stored fields are not filtered, so they can be loaded in batches
+      in.documents(docIDs, visitors, count);
+    }
+
     @Override
     public Object getCoreCacheKey() {
       return in.getCoreCacheKey();  
@@ -273,6 +273,15 @@ public abstract class LeafReader extends IndexReader {
    *  returned instance should only be used by a single thread */
   public abstract Bits getDocsWithField(String field) throws IOException;
 
+  /** Returns a {@link DocValuesSkipper} for this {@link DocValuesType#NUMERIC}
+   *  field, or null if the field has no numeric doc values or if they were
+   *  indexed without a skip index. The returned instance should only be used
+   *  by a single thread.
+   *  @lucene.experimental */
+  public DocValuesSkipper getNumericDocValuesSkipper(String field) throws IOException {
+    return null;
+  }
+
   /** Returns {@link NumericDocValues} representing norms
    *  for this field, or null if no {@link NumericDocValues}
    *  were indexed. The returned instance should only be
@@ -298,6 +307,21 @@ public abstract class LeafReader extends IndexReader {
    */
   public abstract Bits getLiveDocs();
 
+  /**
+   * Expert: visit the stored fields of the first <code>count</code> documents
+   * of <code>docIDs</code>, calling <code>visitors[i]</code> for
+   * <code>docIDs[i]</code>. This is equivalent to calling
+   * {@link #document(int, StoredFieldVisitor)} for every document, but
+   * implementations may load documents that are stored close to each other
+   * more efficiently, especially if <code>docIDs</code> are sorted.
+   * @lucene.experimental
+   */
+  public void documents(int[] docIDs, StoredFieldVisitor[] visitors, int count) throws IOException {
+    for (int i = 0; i < count; ++i) {
+      document(docIDs[i], visitors[i]);
+    }
+  }
+
   /**
    * Checks consistency of this reader.
    * <p>
@@ -21,7 +21,11 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.lucene.index.MultiTermsEnum.TermsEnumIndex;
 import org.apache.lucene.index.MultiTermsEnum.TermsEnumWithSlice;
@@ -30,9 +34,11 @@ import org.apache.lucene.util.Accountables;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.InPlaceMergeSorter;
+import org.apache.lucene.util.LongBitSet;
 import org.apache.lucene.util.LongValues;
 import org.apache.lucene.util.RamUsageEstimator;
 import org.apache.lucene.util.packed.PackedInts;
+import org.apache.lucene.util.packed.PagedGrowableWriter;
 import org.apache.lucene.util.packed.PackedLongValues;
 
 /**
@@ -296,6 +302,10 @@ public class MultiDocValues {
    * This is an extremely slow way to access sorted values. Instead, access them per-segment
    * with {@link LeafReader#getSortedDocValues(String)}
    * </p>  
+   * <p>
+   * The mapping to global ordinals is cached by the
+   * {@link OrdinalMapCache#getDefault() default ordinal map cache}, if any.
+   * </p>
    */
   public static SortedDocValues getSortedValues(final IndexReader r, final String field) throws IOException {
     final List<LeafReaderContext> leaves = r.leaves();
@@ -326,7 +336,13 @@ public class MultiDocValues {
     if (!anyReal) {
       return null;
     } else {
-      OrdinalMap mapping = OrdinalMap.build(r.getCoreCacheKey(), values, PackedInts.DEFAULT);
+      final OrdinalMapCache cache = OrdinalMapCache.getDefault();
+      final OrdinalMap mapping;
+      if (cache == null) {
+        mapping = OrdinalMap.build(r.getCoreCacheKey(), values, PackedInts.DEFAULT);
+      } else {
+        mapping = cache.getOrdinalMap(r, field, values);
+      }
       return new MultiSortedDocValues(values, starts, mapping);
     }
   }
@@ -336,6 +352,10 @@ public class MultiDocValues {
    * This is an extremely slow way to access sorted values. Instead, access them per-segment
    * with {@link LeafReader#getSortedSetDocValues(String)}
    * </p>  
+   * <p>
+   * The mapping to global ordinals is cached by the
+   * {@link OrdinalMapCache#getDefault() default ordinal map cache}, if any.
+   * </p>
    */
   public static SortedSetDocValues getSortedSetValues(final IndexReader r, final String field) throws IOException {
     final List<LeafReaderContext> leaves = r.leaves();
@@ -366,7 +386,13 @@ public class MultiDocValues {
     if (!anyReal) {
       return null;
     } else {
-      OrdinalMap mapping = OrdinalMap.build(r.getCoreCacheKey(), values, PackedInts.DEFAULT);
+      final OrdinalMapCache cache = OrdinalMapCache.getDefault();
+      final OrdinalMap mapping;
+      if (cache == null) {
+        mapping = OrdinalMap.build(r.getCoreCacheKey(), values, PackedInts.DEFAULT);
+      } else {
+        mapping = cache.getOrdinalMap(r, field, values);
+      }
       return new MultiSortedSetDocValues(values, starts, mapping);
     }
   }
@@ -463,6 +489,48 @@ public class MultiDocValues {
       return build(owner, subs, weights, acceptableOverheadRatio);
     }
 
+    /**
+     * Create an ordinal map over <code>values</code> that reuses the work that
+     * has been done to build <code>previous</code>: the term dictionaries of
+     * the segments that both have in common are not merged again, only the
+     * terms of the new segments are merged into the global ordinals of
+     * <code>previous</code>. This is typically useful to compute the global
+     * ordinals of a near-real-time reader from those of the previous reader.
+     * @param owner a cache key
+     * @param values the values of each segment
+     * @param segmentKeys a key for each segment, which must be equal to the
+     *             key of the segment in <code>previous</code> if and only if
+     *             their values are the same, typically the core cache key of
+     *             the segment
+     * @param previous an ordinal map that has been built with this method, or
+     *             {@code null}
+     * @see #build(Object, SortedDocValues[], float)
+     */
+    public static OrdinalMap build(Object owner, SortedDocValues[] values, Object[] segmentKeys, OrdinalMap previous, float acceptableOverheadRatio) throws IOException {
+      final TermsEnum[] subs = new TermsEnum[values.length];
+      final long[] valueCounts = new long[values.length];
+      for (int i = 0; i < values.length; ++i) {
+        subs[i] = values[i].termsEnum();
+        valueCounts[i] = values[i].getValueCount();
+      }
+      return build(owner, subs, valueCounts, segmentKeys, previous, acceptableOverheadRatio);
+    }
+
+    /**
+     * Create an ordinal map over <code>values</code> that reuses the work that
+     * has been done to build <code>previous</code>.
+     * @see #build(Object, SortedDocValues[], Object[], OrdinalMap, float)
+     */
+    public static OrdinalMap build(Object owner, SortedSetDocValues[] values, Object[] segmentKeys, OrdinalMap previous, float acceptableOverheadRatio) throws IOException {
+      final TermsEnum[] subs = new TermsEnum[values.length];
+      final long[] valueCounts = new long[values.length];
+      for (int i = 0; i < values.length; ++i) {
+        subs[i] = values[i].termsEnum();
+        valueCounts[i] = values[i].getValueCount();
+      }
+      return build(owner, subs, valueCounts, segmentKeys, previous, acceptableOverheadRatio);
+    }
+
     /** 
      * Creates an ordinal map that allows mapping ords to/from a merged
      * space from <code>subs</code>.
@@ -481,7 +549,249 @@ public class MultiDocValues {
 
       // enums are not sorted, so let's sort to save memory
       final SegmentMap segmentMap = new SegmentMap(weights);
-      return new OrdinalMap(owner, subs, segmentMap, acceptableOverheadRatio);
+      final OrdinalMapBuilder builder = new OrdinalMapBuilder(subs.length, acceptableOverheadRatio);
+      builder.mergeTerms(subs, segmentMap);
+      return new OrdinalMap(owner, segmentMap, builder, null, null, acceptableOverheadRatio);
+    }
+
+    private static OrdinalMap build(Object owner, TermsEnum[] subs, long[] valueCounts, Object[] segmentKeys,
+        OrdinalMap previous, float acceptableOverheadRatio) throws IOException {
+      if (subs.length != segmentKeys.length) {
+        throw new IllegalArgumentException("values and segmentKeys must have the same length");
+      }
+      final SegmentMap segmentMap = new SegmentMap(valueCounts);
+      final OrdinalMapBuilder builder = new OrdinalMapBuilder(subs.length, acceptableOverheadRatio);
+      final int[] previousSegments = previous == null ? null : previous.matchSegments(segmentKeys, valueCounts);
+      if (previousSegments == null) {
+        builder.mergeTerms(subs, segmentMap);
+      } else {
+        builder.mergeTerms(subs, valueCounts, segmentMap, previous, previousSegments);
+      }
+      return new OrdinalMap(owner, segmentMap, builder, segmentKeys.clone(), valueCounts.clone(), acceptableOverheadRatio);
+    }
+
+    /** Accumulates the mappings of an ordinal map while global ordinals are
+     *  assigned in order. Segments are identified by their index in the
+     *  {@link SegmentMap} order. */
+    private static class OrdinalMapBuilder {
+
+      final float acceptableOverheadRatio;
+      // even though we accept an overhead ratio, we keep these ones with COMPACT
+      // since they are only used to resolve values given a global ord, which is
+      // slow anyway
+      final PackedLongValues.Builder globalOrdDeltas = PackedLongValues.monotonicBuilder(PackedInts.COMPACT);
+      final PackedLongValues.Builder firstSegments = PackedLongValues.packedBuilder(PackedInts.COMPACT);
+      final PackedLongValues.Builder[] ordDeltas;
+      final long[] ordDeltaBits;
+      final long[] segmentOrds;
+      long globalOrd;
+
+      OrdinalMapBuilder(int numSegments, float acceptableOverheadRatio) {
+        this.acceptableOverheadRatio = acceptableOverheadRatio;
+        ordDeltas = new PackedLongValues.Builder[numSegments];
+        for (int i = 0; i < ordDeltas.length; i++) {
+          ordDeltas[i] = PackedLongValues.monotonicBuilder(acceptableOverheadRatio);
+        }
+        ordDeltaBits = new long[numSegments];
+        segmentOrds = new long[numSegments];
+      }
+
+      /** Map <code>segmentOrd</code>, and the previous ordinals of the segment
+       *  that have not been mapped yet, to <code>globalOrd</code>. */
+      void map(int segmentIndex, long segmentOrd, long globalOrd) {
+        final long delta = globalOrd - segmentOrd;
+        while (segmentOrds[segmentIndex] <= segmentOrd) {
+          ordDeltaBits[segmentIndex] |= delta;
+          ordDeltas[segmentIndex].add(delta);
+          segmentOrds[segmentIndex]++;
+        }
+      }
+
+      /** Record the first segment that contains the current global ordinal, and
+       *  move to the next global ordinal. */
+      void nextGlobalOrd(int firstSegmentIndex, long firstSegmentOrd) {
+        firstSegments.add(firstSegmentIndex);
+        globalOrdDeltas.add(globalOrd - firstSegmentOrd);
+        globalOrd++;
+      }
+
+      /** Assign global ordinals by merging the terms of all segments. */
+      void mergeTerms(TermsEnum[] subs, SegmentMap segmentMap) throws IOException {
+        // create the ordinal mappings by pulling a termsenum over each sub's 
+        // unique terms, and walking a multitermsenum over those
+        ReaderSlice slices[] = new ReaderSlice[subs.length];
+        TermsEnumIndex indexes[] = new TermsEnumIndex[slices.length];
+        for (int i = 0; i < slices.length; i++) {
+          slices[i] = new ReaderSlice(0, 0, i);
+          indexes[i] = new TermsEnumIndex(subs[segmentMap.newToOld(i)], i);
+        }
+        MultiTermsEnum mte = new MultiTermsEnum(slices);
+        mte.reset(indexes);
+        while (mte.next() != null) {        
+          TermsEnumWithSlice matches[] = mte.getMatchArray();
+          int firstSegmentIndex = Integer.MAX_VALUE;
+          long firstSegmentOrd = -1;
+          for (int i = 0; i < mte.getMatchCount(); i++) {
+            int segmentIndex = matches[i].index;
+            long segmentOrd = matches[i].terms.ord();
+            // We compute the least segment where the term occurs. In case the
+            // first segment contains most (or better all) values, this will
+            // help save significant memory
+            if (segmentIndex < firstSegmentIndex) {
+              firstSegmentIndex = segmentIndex;
+              firstSegmentOrd = segmentOrd;
+            }
+            // for each per-segment ord, map it back to the global term.
+            map(segmentIndex, segmentOrd, globalOrd);
+          }
+          // for each unique term, just mark the first segment index/delta where it occurs
+          assert firstSegmentIndex < segmentOrds.length;
+          nextGlobalOrd(firstSegmentIndex, firstSegmentOrd);
+        }
+      }
+
+      /**
+       * Assign global ordinals by merging the terms of the new segments into
+       * the global ordinals of <code>previous</code>. Global ordinals of
+       * <code>previous</code> that are only used by segments that are gone are
+       * dropped. The term of a global ordinal of <code>previous</code> is read
+       * from its first segment, or from another segment that has been reused
+       * if the first segment is gone. This only needs to read the terms of
+       * <code>previous</code> if there are new segments.
+       */
+      void mergeTerms(TermsEnum[] subs, long[] valueCounts, SegmentMap segmentMap,
+          OrdinalMap previous, int[] previousSegments) throws IOException {
+        final int numSegments = subs.length;
+        // index of the reused segments in previous, in SegmentMap order
+        final int[] reusedSegments = new int[numSegments];
+        // SegmentMap index of the segments of previous, or -1 if they are gone
+        final int[] previousToNew = new int[previous.segmentKeys.length];
+        Arrays.fill(previousToNew, -1);
+        int numNewSegments = 0;
+        for (int i = 0; i < numSegments; ++i) {
+          reusedSegments[i] = previousSegments[segmentMap.newToOld(i)];
+          if (reusedSegments[i] == -1) {
+            numNewSegments++;
+          } else {
+            previousToNew[reusedSegments[i]] = i;
+          }
+        }
+        boolean hasDroppedSegments = false;
+        for (int i = 0; i < previousToNew.length; ++i) {
+          if (previousToNew[i] == -1) {
+            hasDroppedSegments = true;
+            break;
+          }
+        }
+
+        // global ordinals of previous that are still used, and where to read
+        // their terms from when their first segment is gone
+        final long previousValueCount = previous.getValueCount();
+        final LongBitSet liveOrds = new LongBitSet(previousValueCount);
+        PagedGrowableWriter orphanSegments = null;
+        PagedGrowableWriter orphanOrds = null;
+        if (hasDroppedSegments && previousValueCount > 0) {
+          orphanSegments = new PagedGrowableWriter(previousValueCount, 1 << 15, 1, PackedInts.COMPACT);
+          orphanOrds = new PagedGrowableWriter(previousValueCount, 1 << 15, 1, PackedInts.COMPACT);
+        }
+        for (int i = 0; i < numSegments; ++i) {
+          if (reusedSegments[i] != -1) {
+            final LongValues globalOrds = previous.getGlobalOrds(reusedSegments[i]);
+            final long valueCount = valueCounts[segmentMap.newToOld(i)];
+            for (long segmentOrd = 0; segmentOrd < valueCount; ++segmentOrd) {
+              final long previousOrd = globalOrds.get(segmentOrd);
+              liveOrds.set(previousOrd);
+              if (orphanSegments != null
+                  && previousToNew[previous.getFirstSegmentNumber(previousOrd)] == -1
+                  && orphanSegments.get(previousOrd) == 0) {
+                orphanSegments.set(previousOrd, i + 1);
+                orphanOrds.set(previousOrd, segmentOrd);
+              }
+            }
+          }
+        }
+
+        // terms of the new segments
+        MultiTermsEnum newTerms = null;
+        BytesRef newTerm = null;
+        if (numNewSegments > 0) {
+          final ReaderSlice slices[] = new ReaderSlice[numSegments];
+          final TermsEnumIndex indexes[] = new TermsEnumIndex[numNewSegments];
+          for (int i = 0, j = 0; i < numSegments; ++i) {
+            slices[i] = new ReaderSlice(0, 0, i);
+            if (reusedSegments[i] == -1) {
+              indexes[j++] = new TermsEnumIndex(subs[segmentMap.newToOld(i)], i);
+            }
+          }
+          newTerms = new MultiTermsEnum(slices);
+          newTerms.reset(indexes);
+          newTerm = newTerms.next();
+        }
+
+        // previous global ord -> new global ord
+        final PackedLongValues.Builder previousToNewOrds = PackedLongValues.monotonicBuilder(PackedInts.COMPACT);
+        long previousOrd = previousValueCount == 0 ? -1 : liveOrds.nextSetBit(0);
+        long nextUnmappedOrd = 0;
+        while (previousOrd != -1 || newTerm != null) {
+          int firstSegmentIndex = Integer.MAX_VALUE;
+          long firstSegmentOrd = -1;
+          if (previousOrd != -1) {
+            int segmentIndex = previousToNew[previous.getFirstSegmentNumber(previousOrd)];
+            long segmentOrd;
+            if (segmentIndex != -1) {
+              segmentOrd = previous.getFirstSegmentOrd(previousOrd);
+            } else {
+              segmentIndex = (int) orphanSegments.get(previousOrd) - 1;
+              segmentOrd = orphanOrds.get(previousOrd);
+            }
+            int cmp = -1;
+            if (newTerm != null) {
+              final TermsEnum termsEnum = subs[segmentMap.newToOld(segmentIndex)];
+              termsEnum.seekExact(segmentOrd);
+              cmp = termsEnum.term().compareTo(newTerm);
+            }
+            if (cmp <= 0) {
+              firstSegmentIndex = segmentIndex;
+              firstSegmentOrd = segmentOrd;
+              for (; nextUnmappedOrd <= previousOrd; ++nextUnmappedOrd) {
+                previousToNewOrds.add(globalOrd);
+              }
+              previousOrd = previousOrd + 1 == previousValueCount ? -1 : liveOrds.nextSetBit(previousOrd + 1);
+            }
+            if (cmp < 0) {
+              nextGlobalOrd(firstSegmentIndex, firstSegmentOrd);
+              continue;
+            }
+          }
+          final TermsEnumWithSlice matches[] = newTerms.getMatchArray();
+          for (int i = 0; i < newTerms.getMatchCount(); i++) {
+            final int segmentIndex = matches[i].index;
+            final long segmentOrd = matches[i].terms.ord();
+            if (segmentIndex < firstSegmentIndex) {
+              firstSegmentIndex = segmentIndex;
+              firstSegmentOrd = segmentOrd;
+            }
+            map(segmentIndex, segmentOrd, globalOrd);
+          }
+          nextGlobalOrd(firstSegmentIndex, firstSegmentOrd);
+          newTerm = newTerms.next();
+        }
+        for (; nextUnmappedOrd < previousValueCount; ++nextUnmappedOrd) {
+          previousToNewOrds.add(globalOrd);
+        }
+
+        // remap the global ordinals of the reused segments
+        final PackedLongValues newOrds = previousToNewOrds.build();
+        for (int i = 0; i < numSegments; ++i) {
+          if (reusedSegments[i] != -1) {
+            final LongValues globalOrds = previous.getGlobalOrds(reusedSegments[i]);
+            final long valueCount = valueCounts[segmentMap.newToOld(i)];
+            for (long segmentOrd = 0; segmentOrd < valueCount; ++segmentOrd) {
+              map(i, segmentOrd, newOrds.get(globalOrds.get(segmentOrd)));
+            }
+          }
+        }
+      }
     }
 
     private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(OrdinalMap.class);
@@ -496,69 +806,30 @@ public class MultiDocValues {
     final LongValues segmentToGlobalOrds[];
     // the map from/to segment ids
     final SegmentMap segmentMap;
+    // keys and value counts of the segments, only set if this map may be reused to build another map
+    final Object[] segmentKeys;
+    final long[] valueCounts;
     // ram usage
     final long ramBytesUsed;
     
-    OrdinalMap(Object owner, TermsEnum subs[], SegmentMap segmentMap, float acceptableOverheadRatio) throws IOException {
-      // create the ordinal mappings by pulling a termsenum over each sub's 
-      // unique terms, and walking a multitermsenum over those
+    private OrdinalMap(Object owner, SegmentMap segmentMap, OrdinalMapBuilder builder,
+        Object[] segmentKeys, long[] valueCounts, float acceptableOverheadRatio) {
       this.owner = owner;
       this.segmentMap = segmentMap;
-      // even though we accept an overhead ratio, we keep these ones with COMPACT
-      // since they are only used to resolve values given a global ord, which is
-      // slow anyway
-      PackedLongValues.Builder globalOrdDeltas = PackedLongValues.monotonicBuilder(PackedInts.COMPACT);
-      PackedLongValues.Builder firstSegments = PackedLongValues.packedBuilder(PackedInts.COMPACT);
-      final PackedLongValues.Builder[] ordDeltas = new PackedLongValues.Builder[subs.length];
-      for (int i = 0; i < ordDeltas.length; i++) {
-        ordDeltas[i] = PackedLongValues.monotonicBuilder(acceptableOverheadRatio);
-      }
-      long[] ordDeltaBits = new long[subs.length];
-      long segmentOrds[] = new long[subs.length];
-      ReaderSlice slices[] = new ReaderSlice[subs.length];
-      TermsEnumIndex indexes[] = new TermsEnumIndex[slices.length];
-      for (int i = 0; i < slices.length; i++) {
-        slices[i] = new ReaderSlice(0, 0, i);
-        indexes[i] = new TermsEnumIndex(subs[segmentMap.newToOld(i)], i);
-      }
-      MultiTermsEnum mte = new MultiTermsEnum(slices);
-      mte.reset(indexes);
-      long globalOrd = 0;
-      while (mte.next() != null) {        
-        TermsEnumWithSlice matches[] = mte.getMatchArray();
-        int firstSegmentIndex = Integer.MAX_VALUE;
-        long globalOrdDelta = Long.MAX_VALUE;
-        for (int i = 0; i < mte.getMatchCount(); i++) {
-          int segmentIndex = matches[i].index;
-          long segmentOrd = matches[i].terms.ord();
-          long delta = globalOrd - segmentOrd;
-          // We compute the least segment where the term occurs. In case the
-          // first segment contains most (or better all) values, this will
-          // help save significant memory
-          if (segmentIndex < firstSegmentIndex) {
-            firstSegmentIndex = segmentIndex;
-            globalOrdDelta = delta;
-          }
-          // for each per-segment ord, map it back to the global term.
-          while (segmentOrds[segmentIndex] <= segmentOrd) {
-            ordDeltaBits[segmentIndex] |= delta;
-            ordDeltas[segmentIndex].add(delta);
-            segmentOrds[segmentIndex]++;
-          }
-        }
-        // for each unique term, just mark the first segment index/delta where it occurs
-        assert firstSegmentIndex < segmentOrds.length;
-        firstSegments.add(firstSegmentIndex);
-        globalOrdDeltas.add(globalOrdDelta);
-        globalOrd++;
-      }
-      this.firstSegments = firstSegments.build();
-      this.globalOrdDeltas = globalOrdDeltas.build();
+      this.segmentKeys = segmentKeys;
+      this.valueCounts = valueCounts;
+      this.firstSegments = builder.firstSegments.build();
+      this.globalOrdDeltas = builder.globalOrdDeltas.build();
+      final PackedLongValues.Builder[] ordDeltas = builder.ordDeltas;
+      final long[] ordDeltaBits = builder.ordDeltaBits;
       // ordDeltas is typically the bottleneck, so let's see what we can do to make it faster
-      segmentToGlobalOrds = new LongValues[subs.length];
+      segmentToGlobalOrds = new LongValues[ordDeltas.length];
       long ramBytesUsed = BASE_RAM_BYTES_USED + this.globalOrdDeltas.ramBytesUsed()
           + this.firstSegments.ramBytesUsed() + RamUsageEstimator.shallowSizeOf(segmentToGlobalOrds)
           + segmentMap.ramBytesUsed();
+      if (segmentKeys != null) {
+        ramBytesUsed += RamUsageEstimator.shallowSizeOf(segmentKeys) + RamUsageEstimator.sizeOf(valueCounts);
+      }
       for (int i = 0; i < ordDeltas.length; ++i) {
         final PackedLongValues deltas = ordDeltas[i].build();
         if (ordDeltaBits[i] == 0L) {
@@ -601,6 +872,73 @@ public class MultiDocValues {
       this.ramBytesUsed = ramBytesUsed;
     }
 
+    /** Create a copy of <code>other</code> that belongs to another owner. */
+    private OrdinalMap(OrdinalMap other, Object owner) {
+      this.owner = owner;
+      this.globalOrdDeltas = other.globalOrdDeltas;
+      this.firstSegments = other.firstSegments;
+      this.segmentToGlobalOrds = other.segmentToGlobalOrds;
+      this.segmentMap = other.segmentMap;
+      this.segmentKeys = other.segmentKeys;
+      this.valueCounts = other.valueCounts;
+      this.ramBytesUsed = other.ramBytesUsed;
+    }
+
+    /** Return a view of this map that belongs to <code>owner</code>. */
+    OrdinalMap withOwner(Object owner) {
+      return owner == this.owner ? this : new OrdinalMap(this, owner);
+    }
+
+    /** Return true if this map has been built over the given segments. */
+    boolean hasSegments(Object[] segmentKeys) {
+      if (this.segmentKeys == null || this.segmentKeys.length != segmentKeys.length) {
+        return false;
+      }
+      for (int i = 0; i < segmentKeys.length; ++i) {
+        if (this.segmentKeys[i] != segmentKeys[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /** Return true if the segments of this map have the given value counts. */
+    boolean hasValueCounts(long[] valueCounts) {
+      return this.valueCounts != null && Arrays.equals(this.valueCounts, valueCounts);
+    }
+
+    /** For every segment, return the index of the segment of this map that
+     *  has the same key and value count, or -1 if there is none. Returns
+     *  {@code null} if no segment can be reused. */
+    private int[] matchSegments(Object[] segmentKeys, long[] valueCounts) {
+      if (this.segmentKeys == null) {
+        return null;
+      }
+      final Map<Object,Integer> previousSegments = new IdentityHashMap<>();
+      for (int i = 0; i < this.segmentKeys.length; ++i) {
+        if (this.segmentKeys[i] == null || previousSegments.put(this.segmentKeys[i], i) != null) {
+          // ambiguous
+          return null;
+        }
+      }
+      final Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+      final int[] matches = new int[segmentKeys.length];
+      boolean reusesSegments = false;
+      for (int i = 0; i < segmentKeys.length; ++i) {
+        if (segmentKeys[i] == null || seen.add(segmentKeys[i]) == false) {
+          return null;
+        }
+        final Integer previous = previousSegments.get(segmentKeys[i]);
+        if (previous != null && this.valueCounts[previous] == valueCounts[i]) {
+          matches[i] = previous;
+          reusesSegments = true;
+        } else {
+          matches[i] = -1;
+        }
+      }
+      return reusesSegments ? matches : null;
+    }
+
     /** 
      * Given a segment number, return a {@link LongValues} instance that maps
      * segment ordinals to global ordinals.
@@ -0,0 +1,210 @@
+package org.apache.lucene.index;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.lucene.index.LeafReader.CoreClosedListener;
+import org.apache.lucene.index.MultiDocValues.OrdinalMap;
+import org.apache.lucene.util.packed.PackedInts;
+
+/**
+ * A cache of the {@link OrdinalMap}s that map the ordinals of the segments of
+ * a composite reader to global ordinals.
+ * <p>
+ * Maps are cached per field and per segment core. Asking for the ordinal map
+ * of a reader returns the cached map if it has been built over the same
+ * segments. Otherwise the map is built incrementally from a cached map that
+ * has segments in common with the reader, typically the map of the previous
+ * near-real-time reader, so that only the term dictionaries of the new
+ * segments need to be merged. Maps that have been built over a segment are
+ * evicted when the core of this segment is closed.
+ * <p>
+ * {@link MultiDocValues#getSortedValues} and
+ * {@link MultiDocValues#getSortedSetValues} use the {@link #getDefault()
+ * default cache}, so that all consumers of top-level sorted doc values share
+ * their ordinal maps.
+ * @lucene.experimental
+ */
+public final class OrdinalMapCache {
+
+  private static volatile OrdinalMapCache defaultCache = new OrdinalMapCache();
+
+  /** Set the cache that {@link MultiDocValues} uses, or {@code null} to build
+   *  ordinal maps from scratch every time. */
+  public static void setDefault(OrdinalMapCache cache) {
+    defaultCache = cache;
+  }
+
+  /** Return the cache that {@link MultiDocValues} uses, or {@code null} if
+   *  caching is disabled.
+   *  @see #setDefault */
+  public static OrdinalMapCache getDefault() {
+    return defaultCache;
+  }
+
+  // segment core key -> field -> the most recent ordinal map over this segment
+  private final Map<Object,Map<String,OrdinalMap>> cache = new IdentityHashMap<>();
+  private final CoreClosedListener evictionListener = new CoreClosedListener() {
+    @Override
+    public void onClose(Object ownerCoreCacheKey) {
+      evict(ownerCoreCacheKey);
+    }
+  };
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+
+  /** Sole constructor. */
+  public OrdinalMapCache() {}
+
+  /** Return an ordinal map over the given values of the segments of
+   *  <code>reader</code>. */
+  OrdinalMap getOrdinalMap(IndexReader reader, String field, SortedDocValues[] values) throws IOException {
+    final long[] valueCounts = new long[values.length];
+    for (int i = 0; i < values.length; ++i) {
+      valueCounts[i] = values[i].getValueCount();
+    }
+    return getOrdinalMap(reader, field, valueCounts, values, null);
+  }
+
+  /** Return an ordinal map over the given values of the segments of
+   *  <code>reader</code>. */
+  OrdinalMap getOrdinalMap(IndexReader reader, String field, SortedSetDocValues[] values) throws IOException {
+    final long[] valueCounts = new long[values.length];
+    for (int i = 0; i < values.length; ++i) {
+      valueCounts[i] = values[i].getValueCount();
+    }
+    return getOrdinalMap(reader, field, valueCounts, null, values);
+  }
+
+  /** Return the cached ordinal map if any, or build it from either
+   *  <code>sortedValues</code> or <code>sortedSetValues</code>. */
+  private OrdinalMap getOrdinalMap(IndexReader reader, String field, long[] valueCounts,
+      SortedDocValues[] sortedValues, SortedSetDocValues[] sortedSetValues) throws IOException {
+    final Object[] segmentKeys = segmentKeys(reader);
+    final OrdinalMap previous = get(field, segmentKeys, valueCounts);
+    if (previous != null && previous.hasSegments(segmentKeys) && previous.hasValueCounts(valueCounts)) {
+      hitCount.incrementAndGet();
+      return previous.withOwner(reader.getCoreCacheKey());
+    }
+    missCount.incrementAndGet();
+    final OrdinalMap map = sortedValues != null
+        ? OrdinalMap.build(reader.getCoreCacheKey(), sortedValues, segmentKeys, previous, PackedInts.DEFAULT)
+        : OrdinalMap.build(reader.getCoreCacheKey(), sortedSetValues, segmentKeys, previous, PackedInts.DEFAULT);
+    put(reader, field, map);
+    return map;
+  }
+
+  private static Object[] segmentKeys(IndexReader reader) {
+    final List<LeafReaderContext> leaves = reader.leaves();
+    final Object[] segmentKeys = new Object[leaves.size()];
+    for (int i = 0; i < segmentKeys.length; ++i) {
+      segmentKeys[i] = leaves.get(i).reader().getCoreCacheKey();
+    }
+    return segmentKeys;
+  }
+
+  /** Return the cached map that the new map should be built from: the exact
+   *  same map if any, or otherwise the map of the first segment that has one. */
+  private synchronized OrdinalMap get(String field, Object[] segmentKeys, long[] valueCounts) {
+    OrdinalMap previous = null;
+    for (Object segmentKey : segmentKeys) {
+      final Map<String,OrdinalMap> maps = cache.get(segmentKey);
+      final OrdinalMap map = maps == null ? null : maps.get(field);
+      if (map != null) {
+        if (map.hasSegments(segmentKeys) && map.hasValueCounts(valueCounts)) {
+          return map;
+        }
+        if (previous == null) {
+          previous = map;
+        }
+      }
+    }
+    return previous;
+  }
+
+  private synchronized void put(IndexReader reader, String field, OrdinalMap map) {
+    // do not hold a reference to the top-level reader
+    final OrdinalMap cached = map.withOwner(null);
+    for (LeafReaderContext context : reader.leaves()) {
+      final Object segmentKey = context.reader().getCoreCacheKey();
+      Map<String,OrdinalMap> maps = cache.get(segmentKey);
+      if (maps == null) {
+        maps = new HashMap<>();
+        cache.put(segmentKey, maps);
+        context.reader().addCoreClosedListener(evictionListener);
+      }
+      maps.put(field, cached);
+    }
+  }
+
+  /** Remove all maps that have been built over the given segment. */
+  private synchronized void evict(Object segmentKey) {
+    final Map<String,OrdinalMap> maps = cache.remove(segmentKey);
+    if (maps == null) {
+      return;
+    }
+    for (Map.Entry<String,OrdinalMap> entry : maps.entrySet()) {
+      final OrdinalMap map = entry.getValue();
+      for (Object otherKey : map.segmentKeys) {
+        final Map<String,OrdinalMap> otherMaps = cache.get(otherKey);
+        if (otherMaps != null && otherMaps.get(entry.getKey()) == map) {
+          otherMaps.remove(entry.getKey());
+        }
+      }
+    }
+  }
+
+  /** Remove all entries from this cache. */
+  public synchronized void clear() {
+    for (Map<String,OrdinalMap> maps : cache.values()) {
+      maps.clear();
+    }
+  }
+
+  /** Return the number of distinct ordinal maps that are cached. */
+  public synchronized int size() {
+    final Map<OrdinalMap,Boolean> maps = new IdentityHashMap<>();
+    for (Map<String,OrdinalMap> segmentMaps : cache.values()) {
+      for (OrdinalMap map : segmentMaps.values()) {
+        maps.put(map, Boolean.TRUE);
+      }
+    }
+    return maps.size();
+  }
+
+  /** Return the number of lookups that found a map over the same segments. */
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  /** Return the number of lookups that had to build a new map. */
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "(size=" + size() + ",hits=" + getHitCount() + ",misses=" + getMissCount() + ")";
+  }
+}
@@ -128,6 +128,13 @@ class SegmentDocValuesProducer extends DocValuesProducer {
     return dvProducer.getSortedSet(field);
   }
 
+  @Override
+  public DocValuesSkipper getNumericSkipper(FieldInfo field) throws IOException {
+    DocValuesProducer dvProducer = dvProducersByField.get(field.name);
+    assert dvProducer != null;
+    return dvProducer.getNumericSkipper(field);
+  }
+
   @Override
   public Bits getDocsWithField(FieldInfo field) throws IOException {
     DocValuesProducer dvProducer = dvProducersByField.get(field.name);
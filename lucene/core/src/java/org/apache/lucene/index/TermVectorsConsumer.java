@@ -32,6 +32,8 @@ import org.apache.lucene.util.RamUsageEstimator;
 final class TermVectorsConsumer extends TermsHash {
 
   TermVectorsWriter writer;
+  // RAM used by writer to buffer docs, as last added to bytesUsed
+  private long writerBytesUsed;
 
   /** Scratch term used by TermVectorsConsumerPerField.finishDocument. */
   final BytesRef flushTerm = new BytesRef();
@@ -66,6 +68,7 @@ final class TermVectorsConsumer extends TermsHash {
       } finally {
         IOUtils.close(writer);
         writer = null;
+        releaseWriterBytesUsed();
         lastDocID = 0;
         hasVectors = false;
       }
@@ -110,6 +113,7 @@ final class TermVectorsConsumer extends TermsHash {
       perFields[i].finishDocument();
     }
     writer.finishDocument();
+    updateWriterBytesUsed();
 
     assert lastDocID == docState.docID: "lastDocID=" + lastDocID + " docState.docID=" + docState.docID;
 
@@ -128,6 +132,7 @@ final class TermVectorsConsumer extends TermsHash {
       if (writer != null) {
         IOUtils.closeWhileHandlingException(writer);
         writer = null;
+        releaseWriterBytesUsed();
       }
 
       lastDocID = 0;
@@ -135,6 +140,18 @@ final class TermVectorsConsumer extends TermsHash {
     }
   }
 
+  /** Accounts for the RAM that the writer uses to buffer the current chunk. */
+  private void updateWriterBytesUsed() {
+    final long newBytesUsed = writer.ramBytesUsed();
+    docWriter.bytesUsed.addAndGet(newBytesUsed - writerBytesUsed);
+    writerBytesUsed = newBytesUsed;
+  }
+
+  private void releaseWriterBytesUsed() {
+    docWriter.bytesUsed.addAndGet(-writerBytesUsed);
+    writerBytesUsed = 0;
+  }
+
   void resetFields() {
     Arrays.fill(perFields, null); // don't hang onto stuff from previous doc
     numVectorFields = 0;
@@ -22,6 +22,7 @@ import java.io.IOException;
 
 import org.apache.lucene.index.BinaryDocValues;
 import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.DocValuesSkipper;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.NumericDocValues;
 import org.apache.lucene.index.SortedDocValues;
@@ -389,16 +390,56 @@ public abstract class FieldComparator<T> {
    *  org.apache.lucene.index.LeafReader#getNumericDocValues(String)} and sorts by ascending value */
   public static class LongComparator extends NumericComparator<Long> {
     private final long[] values;
+    private final boolean reverse;
+    private final boolean skipNonCompetitive;
     private long bottom;
+    private boolean bottomSet;
     private long topValue;
+    private CompetitiveIterator competitiveIterator;
 
     /** 
      * Creates a new comparator based on {@link Long#compare} for {@code numHits}.
      * When a document has no value for the field, {@code missingValue} is substituted. 
      */
     public LongComparator(int numHits, String field, Long missingValue) {
+      this(numHits, field, missingValue, false, false);
+    }
+
+    /**
+     * Creates a new comparator based on {@link Long#compare} for {@code numHits}
+     * that can skip documents whose value is not competitive, using the
+     * {@link DocValuesSkipper} of the field if it has one.
+     * When a document has no value for the field, {@code missingValue} is substituted.
+     * {@code reverse} must be {@code true} if documents are sorted by descending value.
+     * @see LeafFieldComparator#competitiveIterator()
+     */
+    public LongComparator(int numHits, String field, Long missingValue, boolean reverse) {
+      this(numHits, field, missingValue, reverse, true);
+    }
+
+    private LongComparator(int numHits, String field, Long missingValue, boolean reverse, boolean skipNonCompetitive) {
       super(field, missingValue);
       values = new long[numHits];
+      this.reverse = reverse;
+      this.skipNonCompetitive = skipNonCompetitive;
+    }
+
+    @Override
+    protected void doSetNextReader(LeafReaderContext context) throws IOException {
+      super.doSetNextReader(context);
+      competitiveIterator = null;
+      if (skipNonCompetitive) {
+        final DocValuesSkipper skipper = context.reader().getNumericDocValuesSkipper(field);
+        if (skipper != null) {
+          final boolean hasMissingValues = DocValues.getDocsWithField(context.reader(), field) instanceof Bits.MatchAllBits == false;
+          competitiveIterator = new CompetitiveIterator(skipper, context.reader().maxDoc(), hasMissingValues);
+        }
+      }
+    }
+
+    @Override
+    public DocIdSetIterator competitiveIterator() {
+      return competitiveIterator;
     }
 
     @Override
@@ -435,6 +476,7 @@ public abstract class FieldComparator<T> {
     @Override
     public void setBottom(final int bottom) {
       this.bottom = values[bottom];
+      bottomSet = true;
     }
 
     @Override
@@ -457,6 +499,62 @@ public abstract class FieldComparator<T> {
       }
       return Long.compare(topValue, docValue);
     }
+
+    /** Iterates over the documents of a segment, skipping blocks of the skip
+     *  index whose values are all worse than the bottom of the queue. */
+    private final class CompetitiveIterator extends DocIdSetIterator {
+      private final DocValuesSkipper skipper;
+      private final int maxDoc;
+      private final boolean hasMissingValues;
+      private int doc = -1;
+      // last doc of the block that was last found to be competitive
+      private int upTo = -1;
+
+      CompetitiveIterator(DocValuesSkipper skipper, int maxDoc, boolean hasMissingValues) {
+        this.skipper = skipper;
+        this.maxDoc = maxDoc;
+        this.hasMissingValues = hasMissingValues;
+      }
+
+      @Override
+      public int docID() {
+        return doc;
+      }
+
+      @Override
+      public int nextDoc() throws IOException {
+        return advance(doc + 1);
+      }
+
+      @Override
+      public int advance(int target) throws IOException {
+        if (target >= maxDoc) {
+          return doc = NO_MORE_DOCS;
+        }
+        if (target <= upTo || bottomSet == false) {
+          return doc = target;
+        }
+        final long minValue = reverse ? bottom : Long.MIN_VALUE;
+        final long maxValue = reverse ? Long.MAX_VALUE : bottom;
+        if (hasMissingValues) {
+          // documents without a value are not recorded in the skip index
+          final long missing = missingValue == null ? 0L : missingValue;
+          if (missing >= minValue && missing <= maxValue) {
+            return doc = target;
+          }
+        }
+        doc = skipper.skipToCandidate(target, minValue, maxValue);
+        if (doc != NO_MORE_DOCS) {
+          upTo = skipper.maxDocID(0);
+        }
+        return doc;
+      }
+
+      @Override
+      public long cost() {
+        return maxDoc;
+      }
+    }
   }
 
   /** Sorts by descending relevance.  NOTE: if you are
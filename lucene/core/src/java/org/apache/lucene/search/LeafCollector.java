@@ -93,4 +93,19 @@ public interface LeafCollector {
    */
   void collect(int doc) throws IOException;
 
+  /**
+   * Optionally return an iterator over the documents of the current segment
+   * that may still be competitive, or {@code null} (the default) if all
+   * matching documents need to be collected. Bulk scorers may use it in order
+   * to skip over documents that this collector would discard anyway.
+   * <p>
+   * The returned iterator may narrow as documents get collected, but it must
+   * never exclude a document that would be accepted by {@link #collect(int)}.
+   * It may however match documents that are not competitive. This method is
+   * called after {@link #setScorer(Scorer)}.
+   */
+  default DocIdSetIterator competitiveIterator() throws IOException {
+    return null;
+  }
+
 }
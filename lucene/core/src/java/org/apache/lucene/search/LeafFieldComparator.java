@@ -119,4 +119,19 @@ public interface LeafFieldComparator {
    * obtain the current hit's score, if necessary. */
   void setScorer(Scorer scorer);
 
+  /**
+   * Optionally return an iterator over the documents of the current segment
+   * whose value may be competitive with the bottom of the queue, or
+   * {@code null} (the default) if this comparator can't skip documents.
+   * The iterator may narrow every time the bottom changes, and may also match
+   * documents that end up not being competitive, so callers must still call
+   * {@link #compareBottom}. This is only consulted for the primary sort
+   * criterion, by collectors that do not need to count all hits.
+   *
+   * @see LeafCollector#competitiveIterator()
+   */
+  default DocIdSetIterator competitiveIterator() throws IOException {
+    return null;
+  }
+
 }
@@ -338,7 +338,7 @@ public class SortField {
       return new FieldComparator.FloatComparator(numHits, field, (Float) missingValue);
 
     case LONG:
-      return new FieldComparator.LongComparator(numHits, field, (Long) missingValue);
+      return new FieldComparator.LongComparator(numHits, field, (Long) missingValue, reverse);
 
     case DOUBLE:
       return new FieldComparator.DoubleComparator(numHits, field, (Double) missingValue);
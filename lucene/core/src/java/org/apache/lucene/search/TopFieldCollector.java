@@ -43,11 +43,13 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
 
     final LeafFieldComparator comparator;
     final int reverseMul;
+    final boolean skipNonCompetitive;
     Scorer scorer;
 
-    OneComparatorLeafCollector(LeafFieldComparator comparator, int reverseMul) {
+    OneComparatorLeafCollector(LeafFieldComparator comparator, int reverseMul, boolean skipNonCompetitive) {
       this.comparator = comparator;
       this.reverseMul = reverseMul;
+      this.skipNonCompetitive = skipNonCompetitive;
     }
 
     @Override
@@ -55,6 +57,11 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
       this.scorer = scorer;
       comparator.setScorer(scorer);
     }
+
+    @Override
+    public DocIdSetIterator competitiveIterator() throws IOException {
+      return skipNonCompetitive ? comparator.competitiveIterator() : null;
+    }
   }
 
   private static abstract class MultiComparatorLeafCollector implements LeafCollector {
@@ -63,11 +70,13 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
     final int[] reverseMul;
     final LeafFieldComparator firstComparator;
     final int firstReverseMul;
+    final boolean skipNonCompetitive;
     Scorer scorer;
 
-    MultiComparatorLeafCollector(LeafFieldComparator[] comparators, int[] reverseMul) {
+    MultiComparatorLeafCollector(LeafFieldComparator[] comparators, int[] reverseMul, boolean skipNonCompetitive) {
       this.comparators = comparators;
       this.reverseMul = reverseMul;
+      this.skipNonCompetitive = skipNonCompetitive;
       firstComparator = comparators[0];
       firstReverseMul = reverseMul[0];
     }
@@ -119,6 +128,13 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
         comparator.setScorer(scorer);
       }
     }
+
+    @Override
+    public DocIdSetIterator competitiveIterator() throws IOException {
+      // documents that tie on the first criterion may still be competitive,
+      // which the iterator of the first comparator accounts for
+      return skipNonCompetitive ? firstComparator.competitiveIterator() : null;
+    }
   }
 
   /*
@@ -129,9 +145,12 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
 
     final FieldValueHitQueue<Entry> queue;
 
-    public NonScoringCollector(Sort sort, FieldValueHitQueue<Entry> queue, int numHits, boolean fillFields) {
+    final boolean trackTotalHits;
+
+    public NonScoringCollector(Sort sort, FieldValueHitQueue<Entry> queue, int numHits, boolean fillFields, boolean trackTotalHits) {
       super(queue, numHits, fillFields, sort.needsScores());
       this.queue = queue;
+      this.trackTotalHits = trackTotalHits;
     }
 
     @Override
@@ -142,7 +161,7 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
       final int[] reverseMul = queue.getReverseMul();
 
       if (comparators.length == 1) {
-        return new OneComparatorLeafCollector(comparators[0], reverseMul[0]) {
+        return new OneComparatorLeafCollector(comparators[0], reverseMul[0], trackTotalHits == false) {
 
           @Override
           public void collect(int doc) throws IOException {
@@ -173,7 +192,7 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
 
         };
       } else {
-        return new MultiComparatorLeafCollector(comparators, reverseMul) {
+        return new MultiComparatorLeafCollector(comparators, reverseMul, trackTotalHits == false) {
 
           @Override
           public void collect(int doc) throws IOException {
@@ -216,9 +235,12 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
 
     final FieldValueHitQueue<Entry> queue;
 
-    public ScoringNoMaxScoreCollector(Sort sort, FieldValueHitQueue<Entry> queue, int numHits, boolean fillFields) {
+    final boolean trackTotalHits;
+
+    public ScoringNoMaxScoreCollector(Sort sort, FieldValueHitQueue<Entry> queue, int numHits, boolean fillFields, boolean trackTotalHits) {
       super(queue, numHits, fillFields, true);
       this.queue = queue;
+      this.trackTotalHits = trackTotalHits;
     }
 
     @Override
@@ -229,7 +251,7 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
       final int[] reverseMul = queue.getReverseMul();
 
       if (comparators.length == 1) {
-        return new OneComparatorLeafCollector(comparators[0], reverseMul[0]) {
+        return new OneComparatorLeafCollector(comparators[0], reverseMul[0], trackTotalHits == false) {
 
           @Override
           public void collect(int doc) throws IOException {
@@ -266,7 +288,7 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
 
         };
       } else {
-        return new MultiComparatorLeafCollector(comparators, reverseMul) {
+        return new MultiComparatorLeafCollector(comparators, reverseMul, trackTotalHits == false) {
 
           @Override
           public void collect(int doc) throws IOException {
@@ -329,7 +351,7 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
       final int[] reverseMul = queue.getReverseMul();
 
       if (comparators.length == 1) {
-        return new OneComparatorLeafCollector(comparators[0], reverseMul[0]) {
+        return new OneComparatorLeafCollector(comparators[0], reverseMul[0], false) {
 
           @Override
           public void collect(int doc) throws IOException {
@@ -364,7 +386,7 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
 
         };
       } else {
-        return new MultiComparatorLeafCollector(comparators, reverseMul) {
+        return new MultiComparatorLeafCollector(comparators, reverseMul, false) {
 
           @Override
           public void collect(int doc) throws IOException {
@@ -438,7 +460,7 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
     public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
       docBase = context.docBase;
       final int afterDoc = after.doc - docBase;
-      return new MultiComparatorLeafCollector(queue.getComparators(context), queue.getReverseMul()) {
+      return new MultiComparatorLeafCollector(queue.getComparators(context), queue.getReverseMul(), false) {
 
         @Override
         public void collect(int doc) throws IOException {
@@ -616,6 +638,47 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
   public static TopFieldCollector create(Sort sort, int numHits, FieldDoc after,
       boolean fillFields, boolean trackDocScores, boolean trackMaxScore)
       throws IOException {
+    return create(sort, numHits, after, fillFields, trackDocScores, trackMaxScore, true);
+  }
+
+  /**
+   * Creates a new {@link TopFieldCollector} from the given
+   * arguments.
+   *
+   * <p><b>NOTE</b>: The instances returned by this method
+   * pre-allocate a full array of length
+   * <code>numHits</code>.
+   *
+   * @param sort
+   *          the sort criteria (SortFields).
+   * @param numHits
+   *          the number of results to collect.
+   * @param after
+   *          only hits after this FieldDoc will be collected
+   * @param fillFields
+   *          specifies whether the actual field values should be returned on
+   *          the results (FieldDoc).
+   * @param trackDocScores
+   *          specifies whether document scores should be tracked and set on the
+   *          results.
+   * @param trackMaxScore
+   *          specifies whether the query's maxScore should be tracked and set
+   *          on the resulting {@link TopDocs}.
+   * @param trackTotalHits
+   *          specifies whether all matching documents should be counted. If set
+   *          to false, the collector lets the comparator of the first sort
+   *          criterion skip documents that can't compete with the bottom of the
+   *          queue once it is full, see {@link LeafCollector#competitiveIterator()},
+   *          and {@link TopDocs#totalHits} is then only a lower bound of the
+   *          number of matches. This has no effect when <code>after</code> is
+   *          not null or when <code>trackMaxScore</code> is true.
+   * @return a {@link TopFieldCollector} instance which will sort the results by
+   *         the sort criteria.
+   * @throws IOException if there is a low-level I/O error
+   */
+  public static TopFieldCollector create(Sort sort, int numHits, FieldDoc after,
+      boolean fillFields, boolean trackDocScores, boolean trackMaxScore, boolean trackTotalHits)
+      throws IOException {
 
     if (sort.fields.length == 0) {
       throw new IllegalArgumentException("Sort must contain at least one field");
@@ -631,9 +694,9 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
       if (trackMaxScore) {
         return new ScoringMaxScoreCollector(sort, queue, numHits, fillFields);
       } else if (trackDocScores) {
-        return new ScoringNoMaxScoreCollector(sort, queue, numHits, fillFields);
+        return new ScoringNoMaxScoreCollector(sort, queue, numHits, fillFields, trackTotalHits);
       } else {
-        return new NonScoringCollector(sort, queue, numHits, fillFields);
+        return new NonScoringCollector(sort, queue, numHits, fillFields, trackTotalHits);
       }
     } else {
       if (after.fields == null) {
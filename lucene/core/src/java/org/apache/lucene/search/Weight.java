@@ -172,7 +172,14 @@ public abstract class Weight {
       // Collector doing something "interesting" in
       // setScorer will be forced to use BS2 anyways:
       collector.setScorer(scorer);
-      if (scorer.docID() == -1 && min == 0 && max == DocIdSetIterator.NO_MORE_DOCS) {
+      final DocIdSetIterator competitiveIterator = collector.competitiveIterator();
+      if (competitiveIterator != null) {
+        int doc = scorer.docID();
+        if (doc < min) {
+          doc = scorer.advance(min);
+        }
+        return scoreCompetitive(collector, scorer, competitiveIterator, doc, max);
+      } else if (scorer.docID() == -1 && min == 0 && max == DocIdSetIterator.NO_MORE_DOCS) {
         scoreAll(collector, scorer);
         return DocIdSetIterator.NO_MORE_DOCS;
       } else {
@@ -196,6 +203,28 @@ public abstract class Weight {
       return currentDoc;
     }
     
+    /** Bulk-score a range of hits, leap-frogging between the scorer and the
+     *  iterator of competitive documents of the collector.
+     *  @see LeafCollector#competitiveIterator() */
+    static int scoreCompetitive(LeafCollector collector, Scorer scorer, DocIdSetIterator competitiveIterator, int currentDoc, int end) throws IOException {
+      while (currentDoc < end) {
+        int competitiveDoc = competitiveIterator.docID();
+        if (competitiveDoc < currentDoc) {
+          competitiveDoc = competitiveIterator.advance(currentDoc);
+        }
+        if (competitiveDoc == currentDoc) {
+          collector.collect(currentDoc);
+          currentDoc = scorer.nextDoc();
+        } else if (competitiveDoc == DocIdSetIterator.NO_MORE_DOCS) {
+          // no other document can compete
+          return DocIdSetIterator.NO_MORE_DOCS;
+        } else {
+          currentDoc = scorer.advance(competitiveDoc);
+        }
+      }
+      return currentDoc;
+    }
+
     /** Specialized method to bulk-score all hits; we
      *  separate this from {@link #scoreRange} to help out
      *  hotspot.
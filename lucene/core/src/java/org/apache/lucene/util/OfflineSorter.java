@@ -26,14 +26,30 @@ import java.io.DataOutput;
 import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.store.ChecksumIndexInput;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexOutput;
 
 /**
  * On-disk sorting of byte arrays. Each byte array (entry) is a composed of the following
@@ -42,6 +58,9 @@ import java.util.Locale;
  *   <li>(two bytes) length of the following byte array,
  *   <li>exactly the above count of bytes for the sequence to be sorted.
  * </ul>
+ * <p>
+ * Temporary files are written to a {@link Directory}, and partitions may be
+ * sorted and merged concurrently on an {@link ExecutorService}.
  * 
  * @see #sort(Path, Path)
  * @lucene.experimental
@@ -165,10 +184,14 @@ public final class OfflineSorter {
   }
 
   private final BufferSize ramBufferSize;
+  private final int partitionBufferSize;
   private final Path tempDirectory;
+  private final Directory tempDir;
+  private final String tempFileNamePrefix;
+  private long tempFileCounter;
+  private final ExecutorService executor;
+  private final int maxPartitionsInRAM;
   
-  private final Counter bufferBytesUsed = Counter.newCounter();
-  private final BytesRefArray buffer = new BytesRefArray(bufferBytesUsed);
   private SortInfo sortInfo;
   private int maxTempFiles;
   private final Comparator<BytesRef> comparator;
@@ -197,9 +220,53 @@ public final class OfflineSorter {
   }
 
   /**
-   * All-details constructor.
+   * All-details constructor, that sorts on the current thread.
    */
   public OfflineSorter(Comparator<BytesRef> comparator, BufferSize ramBufferSize, Path tempDirectory, int maxTempfiles) {
+    this(comparator, ramBufferSize, tempDirectory, maxTempfiles, null, 1);
+  }
+
+  /**
+   * All-details constructor, that writes temporary files to an
+   * {@link FSDirectory} over <code>tempDirectory</code>.
+   * 
+   * @see #OfflineSorter(Comparator, BufferSize, Directory, String, int, ExecutorService, int)
+   */
+  public OfflineSorter(Comparator<BytesRef> comparator, BufferSize ramBufferSize, Path tempDirectory, int maxTempfiles,
+      ExecutorService executor, int maxPartitionsInRAM) {
+    this(comparator, ramBufferSize, null, Objects.requireNonNull(tempDirectory), "sort", maxTempfiles, executor, maxPartitionsInRAM);
+  }
+
+  /**
+   * All-details constructor, that writes temporary files to a {@link Directory}.
+   * <p>
+   * Temporary files are written with {@link IOContext#DEFAULT} and end with a
+   * checksum footer, which is verified when they are read back. A wrapping
+   * directory may be used to rate-limit or to track temporary files.
+   * <p>
+   * If <code>executor</code> is not null, partitions are sorted and written
+   * to temporary files on the executor while the next partitions are read, and
+   * intermediate merges run on the executor while the input is still being
+   * read. The comparator must then be thread-safe. At most
+   * <code>maxPartitionsInRAM</code> partitions are buffered at the same time,
+   * each of them using at most <code>ramBufferSize / maxPartitionsInRAM</code>
+   * bytes.
+   * 
+   * @param comparator the order to sort entries in
+   * @param ramBufferSize the total amount of RAM to use for buffering partitions
+   * @param tempDir the directory to write temporary files to
+   * @param tempFileNamePrefix the prefix of the names of temporary files
+   * @param maxTempfiles the maximum number of files to merge at once
+   * @param executor the executor to sort and merge partitions on, or null to sort on the current thread
+   * @param maxPartitionsInRAM the maximum number of partitions that are buffered at the same time
+   */
+  public OfflineSorter(Comparator<BytesRef> comparator, BufferSize ramBufferSize, Directory tempDir, String tempFileNamePrefix,
+      int maxTempfiles, ExecutorService executor, int maxPartitionsInRAM) {
+    this(comparator, ramBufferSize, Objects.requireNonNull(tempDir), null, tempFileNamePrefix, maxTempfiles, executor, maxPartitionsInRAM);
+  }
+
+  private OfflineSorter(Comparator<BytesRef> comparator, BufferSize ramBufferSize, Directory tempDir, Path tempDirectory,
+      String tempFileNamePrefix, int maxTempfiles, ExecutorService executor, int maxPartitionsInRAM) {
     if (ramBufferSize.bytes < ABSOLUTE_MIN_SORT_BUFFER_SIZE) {
       throw new IllegalArgumentException(MIN_BUFFER_SIZE_MSG + ": " + ramBufferSize.bytes);
     }
@@ -208,10 +275,20 @@ public final class OfflineSorter {
       throw new IllegalArgumentException("maxTempFiles must be >= 2");
     }
 
+    if (maxPartitionsInRAM < 1) {
+      throw new IllegalArgumentException("maxPartitionsInRAM must be >= 1");
+    }
+
     this.ramBufferSize = ramBufferSize;
+    this.tempDir = tempDir;
     this.tempDirectory = tempDirectory;
+    // make temp file names unique across sorters that share a directory
+    this.tempFileNamePrefix = tempFileNamePrefix + "_" + StringHelper.idToString(StringHelper.randomId());
     this.maxTempFiles = maxTempfiles;
     this.comparator = comparator;
+    this.executor = executor;
+    this.maxPartitionsInRAM = executor == null ? 1 : maxPartitionsInRAM;
+    this.partitionBufferSize = (int) Math.max(ABSOLUTE_MIN_SORT_BUFFER_SIZE, ramBufferSize.bytes / this.maxPartitionsInRAM);
   }
 
   /** 
@@ -219,78 +296,194 @@ public final class OfflineSorter {
    * memory may deviate from the hint (may be smaller or larger).  
    */
   public SortInfo sort(Path input, Path output) throws IOException {
+    Files.deleteIfExists(output);
+    final Directory dir = tempDir != null ? tempDir : FSDirectory.open(tempDirectory);
+    try (ByteSequencesReader is = new ByteSequencesReader(input)) {
+      return sort(dir, is, output, null);
+    } finally {
+      if (tempDir == null) {
+        dir.close();
+      }
+    }
+  }
+
+  /**
+   * Sorts the file <code>inputFileName</code> of the temporary directory into
+   * a new file of that directory, and returns the name of the new file. The
+   * input must have been written with
+   * {@link ByteSequencesWriter#ByteSequencesWriter(Directory, String)}, and can
+   * be read back with {@link ByteSequencesReader#ByteSequencesReader(Directory, String)}.
+   * Neither the input nor the output are deleted by this method.
+   * <p>
+   * This method is only available if the temporary files are written to a
+   * {@link Directory}.
+   */
+  public String sort(String inputFileName) throws IOException {
+    if (tempDir == null) {
+      throw new IllegalStateException("this sorter does not write temporary files to a Directory");
+    }
+    final String output = tempFileNamePrefix + "_sorted_" + Long.toString(tempFileCounter++, Character.MAX_RADIX);
+    try (ByteSequencesReader is = new ByteSequencesReader(tempDir, inputFileName)) {
+      sort(tempDir, is, null, output);
+    }
+    return output;
+  }
+
+  /** Sorts <code>is</code> to either the <code>output</code> path or the <code>outputName</code> file of <code>dir</code>. */
+  private SortInfo sort(final Directory dir, ByteSequencesReader is, Path output, String outputName) throws IOException {
     sortInfo = new SortInfo();
     sortInfo.totalTime = System.currentTimeMillis();
 
-    Files.deleteIfExists(output);
-
-    ArrayList<Path> merges = new ArrayList<>();
-    boolean success3 = false;
+    final Semaphore partitionsInRAM = new Semaphore(maxPartitionsInRAM);
+    // sorted partitions and intermediate merges, by the name of their temporary file
+    final List<Future<String>> partitions = new ArrayList<>();
+    final List<String> tempFiles = new ArrayList<>();
+    boolean success = false;
     try {
-      ByteSequencesReader is = new ByteSequencesReader(input);
-      boolean success = false;
-      try {
-        int lines = 0;
-        while ((lines = readPartition(is)) > 0) {
-          merges.add(sortPartition(lines));
-          sortInfo.tempMergeFiles++;
-          sortInfo.lines += lines;
-
-          // Handle intermediate merges.
-          if (merges.size() == maxTempFiles) {
-            Path intermediate = Files.createTempFile(tempDirectory, "sort", "intermediate");
-            boolean success2 = false;
-            try {
-              mergePartitions(merges, intermediate);
-              success2 = true;
+      while (true) {
+        acquire(partitionsInRAM);
+        final BytesRefArray buffer;
+        final boolean exhausted;
+        try {
+          final Counter bufferBytesUsed = Counter.newCounter();
+          buffer = new BytesRefArray(bufferBytesUsed);
+          exhausted = readPartition(is, buffer, bufferBytesUsed);
+        } catch (Throwable t) {
+          partitionsInRAM.release();
+          throw t;
+        }
+        if (buffer.size() == 0) {
+          partitionsInRAM.release();
+          break;
+        }
+        sortInfo.lines += buffer.size();
+
+        if (partitions.isEmpty() && exhausted) {
+          // the whole input fits in a single partition: no need for temporary files
+          try (ByteSequencesWriter out = newOutput(dir, output, outputName)) {
+            sortPartition(buffer, out);
+          } finally {
+            partitionsInRAM.release();
+          }
+          break;
+        }
+
+        final String partition = newTempFileName("partition", tempFiles);
+        partitions.add(submit(new Callable<String>() {
+          @Override
+          public String call() throws IOException {
+            try (ByteSequencesWriter out = new ByteSequencesWriter(dir, partition)) {
+              sortPartition(buffer, out);
             } finally {
-              if (success2) {
-                IOUtils.deleteFilesIfExist(merges);
-              } else {
-                IOUtils.deleteFilesIgnoringExceptions(merges);
-              }
-              merges.clear();
-              merges.add(intermediate);
+              partitionsInRAM.release();
             }
-            sortInfo.tempMergeFiles++;
+            return partition;
           }
+        }));
+        sortInfo.tempMergeFiles++;
+
+        // Handle intermediate merges.
+        if (partitions.size() == maxTempFiles) {
+          final List<String> merges = get(partitions);
+          partitions.clear();
+          final String intermediate = newTempFileName("intermediate", tempFiles);
+          partitions.add(submit(new Callable<String>() {
+            @Override
+            public String call() throws IOException {
+              mergePartitions(dir, merges, new ByteSequencesWriter(dir, intermediate));
+              IOUtils.deleteFilesIgnoringExceptions(dir, merges.toArray(new String[merges.size()]));
+              return intermediate;
+            }
+          }));
+          sortInfo.tempMergeFiles++;
         }
-        success = true;
-      } finally {
-        if (success)
-          IOUtils.close(is);
-        else
-          IOUtils.closeWhileHandlingException(is);
-      }
 
-      // One partition, try to rename or copy if unsuccessful.
-      if (merges.size() == 1) {     
-        Path single = merges.get(0);
-        // If simple rename doesn't work this means the output is
-        // on a different volume or something. Copy the input then.
-        try {
-          Files.move(single, output, StandardCopyOption.ATOMIC_MOVE);
-        } catch (IOException | UnsupportedOperationException e) {
-          Files.copy(single, output);
+        if (exhausted) {
+          break;
         }
-      } else { 
-        // otherwise merge the partitions with a priority queue.
-        mergePartitions(merges, output);
       }
-      success3 = true;
+
+      if (partitions.isEmpty() == false || sortInfo.lines == 0) {
+        // merge the partitions with a priority queue
+        mergePartitions(dir, get(partitions), newOutput(dir, output, outputName));
+      }
+      success = true;
     } finally {
-      if (success3) {
-        IOUtils.deleteFilesIfExist(merges);
-      } else {
-        IOUtils.deleteFilesIgnoringExceptions(merges);
-        IOUtils.deleteFilesIgnoringExceptions(output);
+      if (success == false) {
+        // wait for pending tasks so that they don't create files after cleanup
+        for (Future<String> partition : partitions) {
+          try {
+            partition.get();
+          } catch (Throwable t) {
+            // ignore, the original exception is rethrown
+          }
+        }
+        if (output != null) {
+          IOUtils.deleteFilesIgnoringExceptions(output);
+        } else {
+          IOUtils.deleteFilesIgnoringExceptions(dir, outputName);
+        }
       }
+      IOUtils.deleteFilesIgnoringExceptions(dir, tempFiles.toArray(new String[tempFiles.size()]));
     }
 
     sortInfo.totalTime = (System.currentTimeMillis() - sortInfo.totalTime); 
     return sortInfo;
   }
 
+  private static ByteSequencesWriter newOutput(Directory dir, Path output, String outputName) throws IOException {
+    return output != null ? new ByteSequencesWriter(output) : new ByteSequencesWriter(dir, outputName);
+  }
+
+  private String newTempFileName(String kind, List<String> tempFiles) {
+    final String name = tempFileNamePrefix + "_" + kind + "_" + Long.toString(tempFileCounter++, Character.MAX_RADIX);
+    tempFiles.add(name);
+    return name;
+  }
+
+  private Future<String> submit(Callable<String> task) throws IOException {
+    if (executor != null) {
+      return executor.submit(task);
+    }
+    try {
+      return CompletableFuture.completedFuture(task.call());
+    } catch (IOException | RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static void acquire(Semaphore semaphore) {
+    try {
+      semaphore.acquire();
+    } catch (InterruptedException e) {
+      throw new ThreadInterruptedException(e);
+    }
+  }
+
+  private static List<String> get(List<Future<String>> futures) throws IOException {
+    final List<String> names = new ArrayList<>(futures.size());
+    for (Future<String> future : futures) {
+      try {
+        names.add(future.get());
+      } catch (InterruptedException e) {
+        throw new ThreadInterruptedException(e);
+      } catch (ExecutionException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+          throw (IOException) cause;
+        } else if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw new RuntimeException(cause);
+      }
+    }
+    return names;
+  }
+
   /**
    * Returns the default temporary directory. By default, java.io.tmpdir. If not accessible
    * or not available, an IOException is thrown
@@ -308,39 +501,25 @@ public final class OfflineSorter {
     return tempDirectory;
   }
 
-  /** Sort a single partition in-memory. */
-  protected Path sortPartition(int len) throws IOException {
-    BytesRefArray data = this.buffer;
-    Path tempFile = Files.createTempFile(tempDirectory, "sort", "partition");
-
+  /** Sort a single partition in-memory, and write it to <code>out</code>. */
+  private void sortPartition(BytesRefArray buffer, ByteSequencesWriter out) throws IOException {
     long start = System.currentTimeMillis();
-    sortInfo.sortTime += (System.currentTimeMillis() - start);
-    
-    final ByteSequencesWriter out = new ByteSequencesWriter(tempFile);
-    BytesRef spare;
-    try {
-      BytesRefIterator iter = buffer.iterator(comparator);
-      while((spare = iter.next()) != null) {
-        assert spare.length <= Short.MAX_VALUE;
-        out.write(spare);
-      }
-      
-      out.close();
+    BytesRefIterator iter = buffer.iterator(comparator);
+    synchronized (sortInfo) {
+      sortInfo.sortTime += (System.currentTimeMillis() - start);
+    }
 
-      // Clean up the buffer for the next partition.
-      data.clear();
-      return tempFile;
-    } finally {
-      IOUtils.close(out);
+    BytesRef spare;
+    while((spare = iter.next()) != null) {
+      assert spare.length <= Short.MAX_VALUE;
+      out.write(spare);
     }
   }
 
-  /** Merge a list of sorted temporary files (partitions) into an output file */
-  void mergePartitions(List<Path> merges, Path outputFile) throws IOException {
+  /** Merge a list of sorted temporary files (partitions) into <code>out</code>, and close it. */
+  private void mergePartitions(Directory dir, List<String> merges, ByteSequencesWriter out) throws IOException {
     long start = System.currentTimeMillis();
 
-    ByteSequencesWriter out = new ByteSequencesWriter(outputFile);
-
     PriorityQueue<FileAndTop> queue = new PriorityQueue<FileAndTop>(merges.size()) {
       @Override
       protected boolean lessThan(FileAndTop a, FileAndTop b) {
@@ -352,7 +531,7 @@ public final class OfflineSorter {
     try {
       // Open streams and read the top for each file
       for (int i = 0; i < merges.size(); i++) {
-        streams[i] = new ByteSequencesReader(merges.get(i));
+        streams[i] = new ByteSequencesReader(dir, merges.get(i));
         byte line[] = streams[i].read();
         if (line != null) {
           queue.insertWithOverflow(new FileAndTop(i, line));
@@ -373,8 +552,10 @@ public final class OfflineSorter {
         }
       }
   
-      sortInfo.mergeTime += System.currentTimeMillis() - start;
-      sortInfo.mergeRounds++;
+      synchronized (sortInfo) {
+        sortInfo.mergeTime += System.currentTimeMillis() - start;
+        sortInfo.mergeRounds++;
+      }
     } finally {
       // The logic below is: if an exception occurs in closing out, it has a priority over exceptions
       // happening in closing streams.
@@ -386,21 +567,23 @@ public final class OfflineSorter {
     }
   }
 
-  /** Read in a single partition of data */
-  int readPartition(ByteSequencesReader reader) throws IOException {
+  /** Read in a single partition of data, and return true if the input is exhausted. */
+  private boolean readPartition(ByteSequencesReader reader, BytesRefArray buffer, Counter bufferBytesUsed) throws IOException {
     long start = System.currentTimeMillis();
     final BytesRef scratch = new BytesRef();
+    boolean exhausted = true;
     while ((scratch.bytes = reader.read()) != null) {
       scratch.length = scratch.bytes.length; 
       buffer.append(scratch);
       // Account for the created objects.
       // (buffer slots do not account to buffer size.) 
-      if (ramBufferSize.bytes < bufferBytesUsed.get()) {
+      if (partitionBufferSize < bufferBytesUsed.get()) {
+        exhausted = false;
         break;
       }
     }
     sortInfo.readTime += (System.currentTimeMillis() - start);
-    return buffer.size();
+    return exhausted;
   }
 
   static class FileAndTop {
@@ -428,6 +611,15 @@ public final class OfflineSorter {
               Files.newOutputStream(path))));
     }
 
+    /**
+     * Constructs a ByteSequencesWriter to a new file of the provided
+     * {@link Directory}. A checksum footer is written when the writer is
+     * closed.
+     */
+    public ByteSequencesWriter(Directory dir, String name) throws IOException {
+      this(new DataOutputStream(new IndexOutputStream(dir.createOutput(name, IOContext.DEFAULT))));
+    }
+
     /** Constructs a ByteSequencesWriter to the provided DataOutput */
     public ByteSequencesWriter(DataOutput os) {
       this.os = os;
@@ -492,6 +684,16 @@ public final class OfflineSorter {
               Files.newInputStream(path))));
     }
 
+    /**
+     * Constructs a ByteSequencesReader from a file of the provided
+     * {@link Directory} that has been written with
+     * {@link ByteSequencesWriter#ByteSequencesWriter(Directory, String)}.
+     * The checksum footer is verified when the end of the file is reached.
+     */
+    public ByteSequencesReader(Directory dir, String name) throws IOException {
+      this(new DataInputStream(new IndexInputStream(dir.openChecksumInput(name, IOContext.READONCE))));
+    }
+
     /** Constructs a ByteSequencesReader from the provided DataInput */
     public ByteSequencesReader(DataInput is) {
       this.is = is;
@@ -553,6 +755,95 @@ public final class OfflineSorter {
     }
   }
 
+  /** Exposes an {@link IndexOutput} as an {@link OutputStream}, and writes a
+   *  checksum footer on close. */
+  private static class IndexOutputStream extends OutputStream {
+    private final IndexOutput out;
+
+    IndexOutputStream(IndexOutput out) {
+      this.out = out;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.writeByte((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.writeBytes(b, off, len);
+    }
+
+    @Override
+    public void close() throws IOException {
+      boolean success = false;
+      try {
+        CodecUtil.writeFooter(out);
+        success = true;
+      } finally {
+        if (success) {
+          out.close();
+        } else {
+          IOUtils.closeWhileHandlingException(out);
+        }
+      }
+    }
+  }
+
+  /** Exposes a {@link ChecksumIndexInput} as an {@link InputStream}, and
+   *  verifies the checksum footer when the end of the data is reached. */
+  private static class IndexInputStream extends InputStream {
+    private final ChecksumIndexInput in;
+    private final long end;
+    private boolean footerChecked;
+
+    IndexInputStream(ChecksumIndexInput in) throws IOException {
+      this.in = in;
+      this.end = in.length() - CodecUtil.footerLength();
+      if (end < 0) {
+        IOUtils.closeWhileHandlingException(in);
+        throw new CorruptIndexException("file is too short to have a footer: length=" + in.length(), in);
+      }
+    }
+
+    private boolean atEnd() throws IOException {
+      if (in.getFilePointer() < end) {
+        return false;
+      }
+      if (footerChecked == false) {
+        CodecUtil.checkFooter(in);
+        footerChecked = true;
+      }
+      return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (atEnd()) {
+        return -1;
+      }
+      return in.readByte() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (atEnd()) {
+        return -1;
+      }
+      final int toRead = (int) Math.min(len, end - in.getFilePointer());
+      in.readBytes(b, off, toRead);
+      return toRead;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+
   /** Returns the comparator in use to sort entries */
   public Comparator<BytesRef> getComparator() {
     return comparator;
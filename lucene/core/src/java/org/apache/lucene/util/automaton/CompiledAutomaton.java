@@ -19,11 +19,15 @@ package org.apache.lucene.util.automaton;
   
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.lucene.index.SingleTermsEnum;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
 import org.apache.lucene.util.IntsRef;
@@ -253,6 +257,166 @@ public class CompiledAutomaton {
     sinkState = findSinkState(this.automaton);
   }
 
+  /** Maximum number of distinct trigrams that {@link #getRequiredTrigrams} verifies. */
+  private static final int MAX_CANDIDATE_TRIGRAMS = 128;
+
+  /** Maximum number of transition paths that are visited to find candidate trigrams. */
+  private static final int MAX_CANDIDATE_PATHS = 1 << 14;
+
+  private volatile int[] requiredTrigrams;
+
+  /**
+   * Returns byte trigrams that every term accepted by this automaton
+   * contains, sorted in ascending order. A trigram made of the bytes
+   * <code>b0</code>, <code>b1</code> and <code>b2</code> is encoded as
+   * <code>(b0 &lt;&lt; 16) | (b1 &lt;&lt; 8) | b2</code>, bytes being
+   * unsigned. Candidate trigrams are read from paths of single-byte
+   * transitions and are only returned if no accepted term can avoid them,
+   * so the result may not be exhaustive, and is empty if no such trigram was
+   * found. Terms that do not contain all of these trigrams can be rejected
+   * without running the automaton. The result is computed on the first call
+   * and then cached.
+   * Only valid for {@link AUTOMATON_TYPE#NORMAL}.
+   */
+  public int[] getRequiredTrigrams() {
+    if (type != AUTOMATON_TYPE.NORMAL) {
+      throw new IllegalStateException("required trigrams are only available for NORMAL automata, got " + type);
+    }
+    int[] trigrams = requiredTrigrams;
+    if (trigrams == null) {
+      requiredTrigrams = trigrams = computeRequiredTrigrams(automaton);
+    }
+    return trigrams;
+  }
+
+  private static int[] computeRequiredTrigrams(Automaton automaton) {
+    final Set<Integer> candidates = new HashSet<>();
+    final Transition t1 = new Transition();
+    final Transition t2 = new Transition();
+    final Transition t3 = new Transition();
+    int paths = 0;
+    collect:
+    for (int state = 0; state < automaton.getNumStates(); state++) {
+      final int count1 = automaton.initTransition(state, t1);
+      for (int i = 0; i < count1; i++) {
+        automaton.getNextTransition(t1);
+        if (t1.min != t1.max) {
+          continue;
+        }
+        final int count2 = automaton.initTransition(t1.dest, t2);
+        for (int j = 0; j < count2; j++) {
+          automaton.getNextTransition(t2);
+          if (t2.min != t2.max) {
+            continue;
+          }
+          final int count3 = automaton.initTransition(t2.dest, t3);
+          for (int k = 0; k < count3; k++) {
+            automaton.getNextTransition(t3);
+            if (t3.min == t3.max) {
+              candidates.add((t1.min << 16) | (t2.min << 8) | t3.min);
+            }
+            if (candidates.size() >= MAX_CANDIDATE_TRIGRAMS || ++paths >= MAX_CANDIDATE_PATHS) {
+              break collect;
+            }
+          }
+        }
+      }
+    }
+
+    final int[] required = new int[candidates.size()];
+    int numRequired = 0;
+    for (int trigram : candidates) {
+      if (isRequired(automaton, trigram)) {
+        required[numRequired++] = trigram;
+      }
+    }
+    Arrays.sort(required, 0, numRequired);
+    return Arrays.copyOf(required, numRequired);
+  }
+
+  /** Returns true if no accepted string of the automaton can avoid the given
+   *  trigram, by looking for an accept state in the product of the automaton
+   *  with a matcher for the trigram. */
+  private static boolean isRequired(Automaton automaton, int trigram) {
+    final int[] bytes = new int[] { trigram >>> 16, (trigram >>> 8) & 0xFF, trigram & 0xFF };
+    // next[k][i] is the number of matched bytes after reading bytes[i] when k bytes were matched
+    final int[][] next = new int[3][3];
+    for (int k = 0; k < 3; k++) {
+      for (int i = 0; i < 3; i++) {
+        final int[] read = Arrays.copyOf(bytes, k + 1);
+        read[k] = bytes[i];
+        int matched = k + 1;
+        for (; matched > 0; matched--) {
+          boolean match = true;
+          for (int l = 0; l < matched; l++) {
+            if (read[k + 1 - matched + l] != bytes[l]) {
+              match = false;
+              break;
+            }
+          }
+          if (match) {
+            break;
+          }
+        }
+        next[k][i] = matched;
+      }
+    }
+
+    final int numStates = automaton.getNumStates();
+    final boolean[] visited = new boolean[3 * numStates];
+    int[] stack = new int[16];
+    int upto = 0;
+    stack[upto++] = 0;
+    visited[0] = true;
+    final Transition t = new Transition();
+    while (upto > 0) {
+      final int node = stack[--upto];
+      final int state = node / 3;
+      final int matched = node % 3;
+      if (automaton.isAccept(state)) {
+        return false;
+      }
+      final int numTransitions = automaton.initTransition(state, t);
+      for (int i = 0; i < numTransitions; i++) {
+        automaton.getNextTransition(t);
+        int labelsInTrigram = 0;
+        for (int j = 0; j < 3; j++) {
+          final int label = bytes[j];
+          if (label < t.min || label > t.max) {
+            continue;
+          }
+          boolean seen = false;
+          for (int l = 0; l < j; l++) {
+            seen |= bytes[l] == label;
+          }
+          if (seen) {
+            continue;
+          }
+          labelsInTrigram++;
+          final int nextMatched = next[matched][j];
+          if (nextMatched < 3) {
+            final int nextNode = t.dest * 3 + nextMatched;
+            if (visited[nextNode] == false) {
+              visited[nextNode] = true;
+              stack = ArrayUtil.grow(stack, upto + 1);
+              stack[upto++] = nextNode;
+            }
+          }
+        }
+        if (t.max - t.min + 1 > labelsInTrigram) {
+          // some labels of this transition do not appear in the trigram
+          final int nextNode = t.dest * 3;
+          if (visited[nextNode] == false) {
+            visited[nextNode] = true;
+            stack = ArrayUtil.grow(stack, upto + 1);
+            stack[upto++] = nextNode;
+          }
+        }
+      }
+    }
+    return true;
+  }
+
   private Transition transition = new Transition();
   
   //private static final boolean DEBUG = BlockTreeTermsWriter.DEBUG;
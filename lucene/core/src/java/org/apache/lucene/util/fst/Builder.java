@@ -19,6 +19,7 @@ package org.apache.lucene.util.fst;
 
 import java.io.IOException;
 
+import org.apache.lucene.store.DataOutput;
 import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.IntsRef;
 import org.apache.lucene.util.IntsRefBuilder;
@@ -26,9 +27,6 @@ import org.apache.lucene.util.RamUsageEstimator;
 import org.apache.lucene.util.fst.FST.INPUT_TYPE; // javadoc
 import org.apache.lucene.util.packed.PackedInts;
 
-// TODO: could we somehow stream an FST to disk while we
-// build it?
-
 /**
  * Builds a minimal FST (maps an IntsRef term to an arbitrary
  * output) from pre-sorted terms with outputs.  The FST
@@ -47,6 +45,12 @@ import org.apache.lucene.util.packed.PackedInts;
  * 4.2).  FSTs containing more than 2.1B nodes are also now
  * possible, however they cannot be packed.
  *
+ * <p>To build very large FSTs with bounded memory, use {@link
+ * #Builder(FST.INPUT_TYPE, int, int, boolean, boolean, int,
+ * Outputs, boolean, int, int, DataOutput)}, which streams
+ * frozen nodes to an output and bounds the number of nodes
+ * that are remembered for suffix sharing.
+ *
  * @lucene.experimental
  */
 
@@ -146,15 +150,65 @@ public class Builder<T> {
                  boolean doShareNonSingletonNodes, int shareMaxTailLength, Outputs<T> outputs,
                  boolean doPackFST, float acceptableOverheadRatio, boolean allowArrayArcs,
                  int bytesPageBits) {
+    this(inputType, minSuffixCount1, minSuffixCount2, doShareSuffix, doShareNonSingletonNodes, shareMaxTailLength,
+        outputs, doPackFST, acceptableOverheadRatio, allowArrayArcs, bytesPageBits, 0, null);
+  }
+
+  /**
+   * Instantiates an FST/FSA builder that uses bounded memory. Only
+   * the parameters that differ from {@link #Builder(FST.INPUT_TYPE,
+   * int, int, boolean, boolean, int, Outputs, boolean, float, boolean,
+   * int)} are documented here. Such FSTs cannot be packed.
+   *
+   * @param maxSuffixHashSize
+   *    Only used if doShareSuffix is true. The maximum number of
+   *    frozen nodes that are remembered for suffix sharing; nodes are
+   *    forgotten in approximately least-recently-used order. The
+   *    resulting FST is minimal if this is larger than its number of
+   *    nodes, and gets larger as this gets smaller. Must be &gt;= 1.
+   *
+   * @param out
+   *    If not null, the bytes of the FST are streamed to this output
+   *    while it is being built, and only the node being frozen is
+   *    held in memory. The FST that {@link #finish()} returns can
+   *    not be read then: save its {@link FST#saveMetadata metadata},
+   *    and load the FST with {@link
+   *    FST#FST(org.apache.lucene.store.DataInput,
+   *    org.apache.lucene.store.IndexInput, Outputs)}. If null, the
+   *    bytes of the FST are kept in memory.
+   */
+  public Builder(FST.INPUT_TYPE inputType, int minSuffixCount1, int minSuffixCount2, boolean doShareSuffix,
+                 boolean doShareNonSingletonNodes, int shareMaxTailLength, Outputs<T> outputs,
+                 boolean allowArrayArcs, int bytesPageBits, int maxSuffixHashSize, DataOutput out) {
+    this(inputType, minSuffixCount1, minSuffixCount2, doShareSuffix, doShareNonSingletonNodes, shareMaxTailLength,
+        outputs, false, PackedInts.COMPACT, allowArrayArcs, bytesPageBits, checkMaxSuffixHashSize(maxSuffixHashSize), out);
+  }
+
+  private static int checkMaxSuffixHashSize(int maxSuffixHashSize) {
+    if (maxSuffixHashSize < 1) {
+      throw new IllegalArgumentException("maxSuffixHashSize must be >= 1; got " + maxSuffixHashSize);
+    }
+    return maxSuffixHashSize;
+  }
+
+  // maxSuffixHashSize == 0 means unbounded
+  private Builder(FST.INPUT_TYPE inputType, int minSuffixCount1, int minSuffixCount2, boolean doShareSuffix,
+                  boolean doShareNonSingletonNodes, int shareMaxTailLength, Outputs<T> outputs,
+                  boolean doPackFST, float acceptableOverheadRatio, boolean allowArrayArcs,
+                  int bytesPageBits, int maxSuffixHashSize, DataOutput out) {
     this.minSuffixCount1 = minSuffixCount1;
     this.minSuffixCount2 = minSuffixCount2;
     this.doShareNonSingletonNodes = doShareNonSingletonNodes;
     this.shareMaxTailLength = shareMaxTailLength;
     this.doPackFST = doPackFST;
     this.acceptableOverheadRatio = acceptableOverheadRatio;
-    fst = new FST<>(inputType, outputs, doPackFST, acceptableOverheadRatio, allowArrayArcs, bytesPageBits);
+    fst = new FST<>(inputType, outputs, doPackFST, acceptableOverheadRatio, allowArrayArcs, bytesPageBits, out);
     if (doShareSuffix) {
-      dedupHash = new NodeHash<>(fst, fst.bytes.getReverseReader(false));
+      if (maxSuffixHashSize == 0) {
+        dedupHash = new NodeHash<>(fst, fst.bytes.getReverseReader(false));
+      } else {
+        dedupHash = new NodeHash<>(fst, maxSuffixHashSize);
+      }
     } else {
       dedupHash = null;
     }
@@ -351,6 +351,27 @@ class BytesStore extends DataOutput implements Accountable {
     }
   }
 
+  /** Writes all bytes written so far to the target {@link
+   *  DataOutput}, and then rewinds to position 0.  Unlike
+   *  {@link #writeTo}, this does not require {@link #finish}
+   *  to be called first, and it keeps the first block so
+   *  that it can be reused for the next bytes. */
+  void flushTo(DataOutput out) throws IOException {
+    if (blocks.isEmpty()) {
+      return;
+    }
+    final int lastBlock = blocks.size()-1;
+    for(int i=0;i<lastBlock;i++) {
+      final byte[] block = blocks.get(i);
+      out.writeBytes(block, 0, block.length);
+    }
+    out.writeBytes(blocks.get(lastBlock), 0, nextWrite);
+    blocks.subList(1, blocks.size()).clear();
+    current = blocks.get(0);
+    nextWrite = 0;
+    assert getPosition() == 0;
+  }
+
   public FST.BytesReader getForwardReader() {
     if (blocks.size() == 1) {
       return new ForwardBytesReader(blocks.get(0));
@@ -34,9 +34,11 @@ import org.apache.lucene.codecs.CodecUtil;
 import org.apache.lucene.store.ByteArrayDataOutput;
 import org.apache.lucene.store.DataInput;
 import org.apache.lucene.store.DataOutput;
+import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.InputStreamDataInput;
 import org.apache.lucene.store.OutputStreamDataOutput;
 import org.apache.lucene.store.RAMOutputStream;
+import org.apache.lucene.store.RandomAccessInput;
 import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.Accountables;
 import org.apache.lucene.util.ArrayUtil;
@@ -157,8 +159,22 @@ public final class FST<T> implements Accountable {
   // produces this output
   T emptyOutput;
 
+  // null if the bytes are read off-heap
   final BytesStore bytes;
 
+  // if non-null, the bytes of this FST are read from this
+  // input rather than from the heap
+  private final RandomAccessInput bytesInput;
+
+  // if non-null, the bytes of each node are streamed to this
+  // output as soon as the node is frozen, and the BytesStore
+  // only holds the node that is being written
+  private final DataOutput bytesOut;
+
+  // number of bytes of an FST whose bytes are streamed or
+  // read off-heap
+  private long numBytes;
+
   private long startNode = -1;
 
   public final Outputs<T> outputs;
@@ -294,11 +310,22 @@ public final class FST<T> implements Accountable {
   // make a new empty FST, for building; Builder invokes
   // this ctor
   FST(INPUT_TYPE inputType, Outputs<T> outputs, boolean willPackFST, float acceptableOverheadRatio, boolean allowArrayArcs, int bytesPageBits) {
+    this(inputType, outputs, willPackFST, acceptableOverheadRatio, allowArrayArcs, bytesPageBits, null);
+  }
+
+  // make a new empty FST, for building, whose bytes are streamed
+  // to bytesOut if it is not null
+  FST(INPUT_TYPE inputType, Outputs<T> outputs, boolean willPackFST, float acceptableOverheadRatio, boolean allowArrayArcs, int bytesPageBits, DataOutput bytesOut) {
+    if (willPackFST && bytesOut != null) {
+      throw new IllegalArgumentException("cannot pack an FST whose bytes are streamed to an output");
+    }
     this.inputType = inputType;
     this.outputs = outputs;
     this.allowArrayArcs = allowArrayArcs;
     version = VERSION_CURRENT;
     bytes = new BytesStore(bytesPageBits);
+    bytesInput = null;
+    this.bytesOut = bytesOut;
     // pad: ensure no node gets address 0 which is reserved to mean
     // the stop state w/ no arcs
     bytes.writeByte((byte) 0);
@@ -326,7 +353,29 @@ public final class FST<T> implements Accountable {
   /** Load a previously saved FST; maxBlockBits allows you to
    *  control the size of the byte[] pages used to hold the FST bytes. */
   public FST(DataInput in, Outputs<T> outputs, int maxBlockBits) throws IOException {
+    this(in, outputs, maxBlockBits, null);
+  }
+
+  /** Load a previously saved FST, and read its bytes off-heap.
+   *  The metadata of the FST, as written by {@link #saveMetadata},
+   *  is read from <code>metaIn</code>, and its bytes are then read
+   *  on demand from <code>in</code>, starting at the current
+   *  position of <code>in</code>.  This FST uses little heap, and
+   *  if <code>in</code> is memory-mapped then so is the FST.
+   *  <code>metaIn</code> may be the same as <code>in</code>, in
+   *  order to read an FST that has been written with {@link
+   *  #save(DataOutput)}; in all cases <code>in</code> is positioned
+   *  after the bytes of the FST on return.
+   *
+   *  <p><b>NOTE</b>: <code>in</code> must not be closed while this
+   *  FST is in use. */
+  public FST(DataInput metaIn, IndexInput in, Outputs<T> outputs) throws IOException {
+    this(metaIn, outputs, DEFAULT_MAX_BLOCK_BITS, in);
+  }
+
+  private FST(DataInput in, Outputs<T> outputs, int maxBlockBits, IndexInput bytesIn) throws IOException {
     this.outputs = outputs;
+    this.bytesOut = null;
 
     if (maxBlockBits < 1 || maxBlockBits > 30) {
       throw new IllegalArgumentException("maxBlockBits should be 1 .. 30; got " + maxBlockBits);
@@ -385,7 +434,16 @@ public final class FST<T> implements Accountable {
     arcWithOutputCount = in.readVLong();
 
     long numBytes = in.readVLong();
-    bytes = new BytesStore(in, numBytes, 1<<maxBlockBits);
+    if (bytesIn == null) {
+      bytes = new BytesStore(in, numBytes, 1<<maxBlockBits);
+      bytesInput = null;
+    } else {
+      final long start = bytesIn.getFilePointer();
+      bytes = null;
+      bytesInput = bytesIn.randomAccessSlice(start, numBytes);
+      bytesIn.seek(start + numBytes);
+      this.numBytes = numBytes;
+    }
     
     NO_OUTPUT = outputs.getNoOutput();
 
@@ -434,7 +492,9 @@ public final class FST<T> implements Accountable {
   @Override
   public long ramBytesUsed() {
     long size = BASE_RAM_BYTES_USED;
-    size += bytes.ramBytesUsed();
+    if (bytes != null) {
+      size += bytes.ramBytesUsed();
+    }
     if (packed) {
       size += nodeRefToAddress.ramBytesUsed();
     } else if (nodeAddress != null) {
@@ -471,6 +531,13 @@ public final class FST<T> implements Accountable {
       newStartNode = 0;
     }
     startNode = newStartNode;
+    if (bytesOut != null) {
+      numBytes += bytes.getPosition();
+      bytes.flushTo(bytesOut);
+      // the bytes cannot be read back: the FST must be
+      // loaded from the output in order to be used
+      return;
+    }
     bytes.finish();
 
     cacheRootArcs();
@@ -536,6 +603,31 @@ public final class FST<T> implements Accountable {
   }
 
   public void save(DataOutput out) throws IOException {
+    if (bytesOut != null) {
+      throw new IllegalStateException("the bytes of this FST have been streamed to an output; call saveMetadata instead");
+    }
+    saveMetadata(out);
+    if (bytesInput != null) {
+      final byte[] buffer = new byte[1024];
+      for (long pos = 0; pos < numBytes; ) {
+        final int chunk = (int) Math.min(buffer.length, numBytes - pos);
+        for (int i = 0; i < chunk; ++i) {
+          buffer[i] = bytesInput.readByte(pos++);
+        }
+        out.writeBytes(buffer, 0, chunk);
+      }
+    } else {
+      bytes.writeTo(out);
+    }
+  }
+
+  /** Saves everything but the bytes of this FST.  The metadata,
+   *  followed by the bytes, is the same as what {@link
+   *  #save(DataOutput)} writes, so an FST whose bytes have been
+   *  streamed to an output by the {@link Builder} can be loaded
+   *  by reading its metadata and then its bytes.
+   *  @see #FST(DataInput, IndexInput, Outputs) */
+  public void saveMetadata(DataOutput out) throws IOException {
     if (startNode == -1) {
       throw new IllegalStateException("call finish first");
     }
@@ -596,9 +688,16 @@ public final class FST<T> implements Accountable {
     out.writeVLong(nodeCount);
     out.writeVLong(arcCount);
     out.writeVLong(arcWithOutputCount);
-    long numBytes = bytes.getPosition();
-    out.writeVLong(numBytes);
-    bytes.writeTo(out);
+    out.writeVLong(getNumBytes());
+  }
+
+  /** Returns the number of bytes of this FST. */
+  private long getNumBytes() {
+    if (bytesOut != null || bytesInput != null) {
+      return numBytes;
+    } else {
+      return bytes.getPosition();
+    }
   }
   
   /**
@@ -815,10 +914,17 @@ public final class FST<T> implements Accountable {
       bytes.writeBytes(startAddress, header, 0, headerLen);
     }
 
-    final long thisNodeAddress = bytes.getPosition()-1;
+    long thisNodeAddress = bytes.getPosition()-1;
 
     bytes.reverse(startAddress, thisNodeAddress);
 
+    if (bytesOut != null) {
+      // this node is final: stream it out
+      thisNodeAddress += numBytes;
+      numBytes += bytes.getPosition();
+      bytes.flushTo(bytesOut);
+    }
+
     // PackedInts uses int as the index, so we cannot handle
     // > 2.1B nodes when packing:
     if (nodeAddress != null && nodeCount == Integer.MAX_VALUE) {
@@ -1362,8 +1468,13 @@ public final class FST<T> implements Accountable {
   /** Returns a {@link BytesReader} for this FST, positioned at
    *  position 0. */
   public BytesReader getBytesReader() {
+    if (bytesOut != null) {
+      throw new IllegalStateException("the bytes of this FST have been streamed to an output; load the FST in order to read it");
+    }
     BytesReader in;
-    if (packed) {
+    if (bytesInput != null) {
+      in = new RandomAccessBytesReader(bytesInput, packed == false);
+    } else if (packed) {
       in = bytes.getForwardReader();
     } else {
       in = bytes.getReverseReader();
@@ -1498,6 +1609,8 @@ public final class FST<T> implements Accountable {
     packed = true;
     this.inputType = inputType;
     bytes = new BytesStore(bytesPageBits);
+    bytesInput = null;
+    bytesOut = null;
     this.outputs = outputs;
     NO_OUTPUT = outputs.getNoOutput();
     
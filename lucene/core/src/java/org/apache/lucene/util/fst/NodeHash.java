@@ -19,12 +19,21 @@ package org.apache.lucene.util.fst;
 
 import java.io.IOException;
 
+import org.apache.lucene.store.DataOutput;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.ByteBlockPool;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.BytesRefHash;
 import org.apache.lucene.util.packed.PackedInts;
 import org.apache.lucene.util.packed.PagedGrowableWriter;
 
 // Used to dedup states (lookup already-frozen states)
 final class NodeHash<T> {
 
+  // Longest key that a BytesRefHash can store
+  private static final int MAX_KEY_LENGTH = ByteBlockPool.BYTE_BLOCK_SIZE - 2;
+
   private PagedGrowableWriter table;
   private long count;
   private long mask;
@@ -32,11 +41,44 @@ final class NodeHash<T> {
   private final FST.Arc<T> scratchArc = new FST.Arc<>();
   private final FST.BytesReader in;
 
+  // Bounded mode: frozen nodes are looked up by a key that
+  // encodes their arcs, so that frozen nodes never need to
+  // be read back from the FST.  Nodes are remembered in two
+  // generations: when the current generation is full, it
+  // becomes the previous generation and the previous one is
+  // dropped.  Nodes that are found in the previous
+  // generation move to the current one, so this evicts
+  // nodes in approximately least-recently-used order:
+  private final int generationSize;
+  private BytesRefHash current, previous;
+  private long[] currentNodes, previousNodes;
+  private final KeyOutput key;
+
+  /** Unbounded hash, which reads frozen nodes back from the
+   *  FST with the provided reader. */
   public NodeHash(FST<T> fst, FST.BytesReader in) {
     table = new PagedGrowableWriter(16, 1<<27, 8, PackedInts.COMPACT);
     mask = 15;
     this.fst = fst;
     this.in = in;
+    generationSize = 0;
+    key = null;
+  }
+
+  /** Bounded hash, which remembers at most about
+   *  <code>maxSize</code> frozen nodes. */
+  public NodeHash(FST<T> fst, int maxSize) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("maxSize must be >= 1; got " + maxSize);
+    }
+    this.fst = fst;
+    this.in = null;
+    generationSize = Math.max(1, maxSize / 2);
+    current = new BytesRefHash();
+    previous = new BytesRefHash();
+    currentNodes = new long[16];
+    previousNodes = new long[16];
+    key = new KeyOutput();
   }
 
   private boolean nodesEqual(Builder.UnCompiledNode<T> node, long address) throws IOException {
@@ -115,6 +157,9 @@ final class NodeHash<T> {
   }
 
   public long add(Builder.UnCompiledNode<T> nodeIn) throws IOException {
+    if (table == null) {
+      return addBounded(nodeIn);
+    }
     //System.out.println("hash: add count=" + count + " vs " + table.size() + " mask=" + mask);
     final long h = hash(nodeIn);
     long pos = h & mask;
@@ -170,4 +215,87 @@ final class NodeHash<T> {
       }
     }
   }
+
+  private long addBounded(Builder.UnCompiledNode<T> nodeIn) throws IOException {
+    final BytesRef bytes = key(nodeIn);
+    if (bytes.length > MAX_KEY_LENGTH) {
+      // too large to be remembered
+      return fst.addNode(nodeIn);
+    }
+
+    int id = current.find(bytes);
+    if (id >= 0) {
+      return currentNodes[id];
+    }
+
+    final long node;
+    id = previous.find(bytes);
+    if (id >= 0) {
+      node = previousNodes[id];
+    } else {
+      node = fst.addNode(nodeIn);
+    }
+
+    if (current.size() >= generationSize) {
+      // start a new generation
+      final BytesRefHash tmpHash = previous;
+      previous = current;
+      current = tmpHash;
+      current.clear();
+      current.reinit();
+      final long[] tmpNodes = previousNodes;
+      previousNodes = currentNodes;
+      currentNodes = tmpNodes;
+    }
+    id = current.add(bytes);
+    assert id >= 0;
+    currentNodes = ArrayUtil.grow(currentNodes, id+1);
+    currentNodes[id] = node;
+    return node;
+  }
+
+  // Encodes all arcs of an unfrozen node.  Unlike the
+  // serialized node, this encoding does not depend on which
+  // node was frozen last, so equal nodes have equal keys:
+  private BytesRef key(Builder.UnCompiledNode<T> node) throws IOException {
+    final T NO_OUTPUT = fst.outputs.getNoOutput();
+    key.bytes.clear();
+    for(int arcIdx=0;arcIdx<node.numArcs;arcIdx++) {
+      final Builder.Arc<T> arc = node.arcs[arcIdx];
+      int flags = 0;
+      if (arc.isFinal) {
+        flags |= 1;
+      }
+      if (arc.output != NO_OUTPUT) {
+        flags |= 2;
+      }
+      if (arc.nextFinalOutput != NO_OUTPUT) {
+        flags |= 4;
+      }
+      key.writeByte((byte) flags);
+      key.writeVInt(arc.label);
+      key.writeZLong(((Builder.CompiledNode) arc.target).node);
+      if (arc.output != NO_OUTPUT) {
+        fst.outputs.write(arc.output, key);
+      }
+      if (arc.nextFinalOutput != NO_OUTPUT) {
+        fst.outputs.writeFinalOutput(arc.nextFinalOutput, key);
+      }
+    }
+    return key.bytes.get();
+  }
+
+  private static final class KeyOutput extends DataOutput {
+    final BytesRefBuilder bytes = new BytesRefBuilder();
+
+    @Override
+    public void writeByte(byte b) {
+      bytes.append(b);
+    }
+
+    @Override
+    public void writeBytes(byte[] b, int offset, int length) {
+      bytes.append(b, offset, length);
+    }
+  }
 }
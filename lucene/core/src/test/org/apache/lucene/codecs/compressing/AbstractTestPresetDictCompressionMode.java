@@ -0,0 +1,61 @@
+package org.apache.lucene.codecs.compressing;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.TestUtil;
+
+public abstract class AbstractTestPresetDictCompressionMode extends AbstractTestCompressionMode {
+
+  public void testManySmallDocuments() throws IOException {
+    StringBuilder sb = new StringBuilder();
+    final int numDocs = TestUtil.nextInt(random(), 100, 1000);
+    final int[] starts = new int[numDocs + 1];
+    for (int i = 0; i < numDocs; ++i) {
+      starts[i] = sb.length();
+      sb.append("{\"id\":").append(i)
+        .append(",\"title\":\"").append(TestUtil.randomSimpleString(random(), 5, 20))
+        .append("\",\"category\":\"category").append(random().nextInt(10)).append("\"}");
+    }
+    final byte[] decompressed = sb.toString().getBytes(StandardCharsets.UTF_8);
+    starts[numDocs] = decompressed.length;
+    final byte[] compressed = compress(decompressed, 0, decompressed.length);
+    assertTrue(compressed.length < decompressed.length);
+
+    // the same decompressor is reused across documents, as in a stored fields reader
+    final Decompressor decompressor = mode.newDecompressor();
+    final BytesRef bytes = new BytesRef();
+    for (int iter = 0; iter < 100; ++iter) {
+      final int doc = random().nextInt(numDocs);
+      final int offset = starts[doc];
+      final int length = starts[doc + 1] - offset;
+      final ByteArrayDataInput in = new ByteArrayDataInput(compressed);
+      decompressor.decompress(in, decompressed.length, offset, length, bytes);
+      assertEquals(length, bytes.length);
+      assertArrayEquals(Arrays.copyOfRange(decompressed, offset, offset + length),
+          Arrays.copyOfRange(bytes.bytes, bytes.offset, bytes.offset + bytes.length));
+      // the whole compressed stream must have been consumed
+      assertTrue(in.eof());
+    }
+  }
+}
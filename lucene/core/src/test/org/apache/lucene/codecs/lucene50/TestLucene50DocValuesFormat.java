@@ -28,13 +28,16 @@ import org.apache.lucene.codecs.PostingsFormat;
 import org.apache.lucene.codecs.asserting.AssertingCodec;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.document.SortedSetDocValuesField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.BaseCompressingDocValuesFormatTestCase;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValuesSkipper;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.index.SerialMergeScheduler;
 import org.apache.lucene.index.SortedSetDocValues;
@@ -42,7 +45,9 @@ import org.apache.lucene.index.Term;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.index.TermsEnum.SeekStatus;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.TestUtil;
 
@@ -60,6 +65,90 @@ public class TestLucene50DocValuesFormat extends BaseCompressingDocValuesFormatT
   // TODO: these big methods can easily blow up some of the other ram-hungry codecs...
   // for now just keep them here, as we want to test this for this format.
   
+  public void testNumericSkipIndex() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriterConfig iwc = newIndexWriterConfig(new MockAnalyzer(random()));
+    iwc.setCodec(codec);
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir, iwc);
+    final int numDocs = atLeast(10000);
+    final boolean sparse = random().nextBoolean();
+    long value = random().nextInt(1000);
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      if (sparse == false || random().nextInt(10) == 0) {
+        // mostly increasing values
+        value += random().nextInt(10) - 2;
+        doc.add(new NumericDocValuesField("dv", value));
+      }
+      w.addDocument(doc);
+    }
+    if (random().nextBoolean()) {
+      w.forceMerge(1);
+    }
+    DirectoryReader reader = w.getReader();
+    w.close();
+    for (LeafReaderContext context : reader.leaves()) {
+      LeafReader leaf = context.reader();
+      DocValuesSkipper skipper = leaf.getNumericDocValuesSkipper("dv");
+      if (leaf.getFieldInfos().fieldInfo("dv") == null) {
+        assertNull(skipper);
+        continue;
+      }
+      assertNotNull(skipper);
+      NumericDocValues values = leaf.getNumericDocValues("dv");
+      Bits docsWithField = leaf.getDocsWithField("dv");
+      long segmentMin = Long.MAX_VALUE, segmentMax = Long.MIN_VALUE;
+      for (int doc = 0; doc < leaf.maxDoc(); doc++) {
+        if (docsWithField.get(doc)) {
+          segmentMin = Math.min(segmentMin, values.get(doc));
+          segmentMax = Math.max(segmentMax, values.get(doc));
+        }
+      }
+      assertEquals(segmentMin, skipper.minValue());
+      assertEquals(segmentMax, skipper.maxValue());
+
+      for (int target = 0; target < leaf.maxDoc(); target += TestUtil.nextInt(random(), 1, 2000)) {
+        skipper.advance(target);
+        int previousLength = 0;
+        for (int level = 0; level < skipper.numLevels(); level++) {
+          final int minDocID = skipper.minDocID(level);
+          final int maxDocID = skipper.maxDocID(level);
+          assertTrue(minDocID <= target && target <= maxDocID);
+          assertTrue(maxDocID - minDocID + 1 >= previousLength);
+          previousLength = maxDocID - minDocID + 1;
+          long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+          for (int doc = minDocID; doc <= maxDocID; doc++) {
+            if (docsWithField.get(doc)) {
+              min = Math.min(min, values.get(doc));
+              max = Math.max(max, values.get(doc));
+            }
+          }
+          assertEquals(min, skipper.minValue(level));
+          assertEquals(max, skipper.maxValue(level));
+        }
+        assertEquals(0, skipper.minDocID(skipper.numLevels() - 1));
+        assertEquals(leaf.maxDoc() - 1, skipper.maxDocID(skipper.numLevels() - 1));
+
+        // no document with a value in the range may be skipped
+        final long rangeMin = TestUtil.nextLong(random(), segmentMin - 10, segmentMax + 10);
+        final long rangeMax = rangeMin + random().nextInt(100);
+        final int candidate = skipper.skipToCandidate(target, rangeMin, rangeMax);
+        assertTrue(candidate >= target);
+        for (int doc = target; doc < Math.min(candidate, leaf.maxDoc()); doc++) {
+          if (docsWithField.get(doc)) {
+            final long v = values.get(doc);
+            assertFalse(v >= rangeMin && v <= rangeMax);
+          }
+        }
+      }
+      skipper.advance(leaf.maxDoc());
+      assertEquals(DocIdSetIterator.NO_MORE_DOCS, skipper.minDocID(0));
+      assertEquals(DocIdSetIterator.NO_MORE_DOCS, skipper.maxDocID(0));
+    }
+    reader.close();
+    dir.close();
+  }
+
   @Slow
   public void testSortedSetVariableLengthBigVsStoredFields() throws Exception {
     int numIterations = atLeast(1);
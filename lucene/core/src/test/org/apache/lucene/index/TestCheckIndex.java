@@ -23,9 +23,11 @@ import java.io.PrintStream;
 import java.util.List;
 import java.util.ArrayList;
 
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.LineFileDocs;
 import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.LockObtainFailedException;
 import org.apache.lucene.analysis.Analyzer;
@@ -35,6 +37,8 @@ import org.apache.lucene.analysis.Token;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
 import org.apache.lucene.document.TextField;
 
 public class TestCheckIndex extends LuceneTestCase {
@@ -171,6 +175,86 @@ public class TestCheckIndex extends LuceneTestCase {
     analyzer.close();
   }
   
+  public void testMultiThreaded() throws IOException {
+    Directory dir = newDirectory();
+    IndexWriter iw = new IndexWriter(dir, newIndexWriterConfig(new MockAnalyzer(random()))
+                                            .setMaxBufferedDocs(7)
+                                            .setMergePolicy(NoMergePolicy.INSTANCE));
+    FieldType tvType = new FieldType(TextField.TYPE_STORED);
+    tvType.setStoreTermVectors(true);
+    tvType.setStoreTermVectorPositions(true);
+    for (int i = 0; i < 50; i++) {
+      Document doc = new Document();
+      doc.add(newStringField("id", Integer.toString(i), Field.Store.YES));
+      doc.add(newField("body", "aaa" + i + " bbb ccc" + (i % 3), tvType));
+      doc.add(new NumericDocValuesField("num", i));
+      doc.add(new SortedDocValuesField("sorted", new BytesRef("v" + (i % 5))));
+      iw.addDocument(doc);
+      if (i % 10 == 3) {
+        iw.deleteDocuments(new Term("id", Integer.toString(i - 2)));
+      }
+    }
+    iw.close();
+
+    CheckIndex checker = new CheckIndex(dir);
+    if (VERBOSE) checker.setInfoStream(System.out);
+    CheckIndex.Status serial = checker.checkIndex();
+    assertTrue(serial.clean);
+
+    ByteArrayOutputStream bos = new ByteArrayOutputStream(1024);
+    checker.setInfoStream(new PrintStream(bos, true, IOUtils.UTF_8));
+    checker.setThreadCount(TestUtil.nextInt(random(), 2, 4));
+    CheckIndex.Status concurrent = checker.checkIndex();
+    assertTrue(concurrent.clean);
+    checker.close();
+
+    String output = bos.toString(IOUtils.UTF_8);
+    assertTrue(output, output.contains("segments checked"));
+    assertTrue(output, output.contains("No problems were detected"));
+
+    assertEquals(serial.segmentInfos.size(), concurrent.segmentInfos.size());
+    assertEquals(serial.newSegments.size(), concurrent.newSegments.size());
+    for (int i = 0; i < serial.segmentInfos.size(); i++) {
+      CheckIndex.Status.SegmentInfoStatus expected = serial.segmentInfos.get(i);
+      CheckIndex.Status.SegmentInfoStatus actual = concurrent.segmentInfos.get(i);
+      assertEquals(expected.name, actual.name);
+      assertEquals(serial.newSegments.info(i).info.name, concurrent.newSegments.info(i).info.name);
+      assertNull(actual.error);
+      assertEquals(expected.liveDocStatus.numDeleted, actual.liveDocStatus.numDeleted);
+      assertEquals(expected.fieldNormStatus.totFields, actual.fieldNormStatus.totFields);
+      assertEquals(expected.termIndexStatus.termCount, actual.termIndexStatus.termCount);
+      assertEquals(expected.termIndexStatus.totPos, actual.termIndexStatus.totPos);
+      assertEquals(expected.storedFieldStatus.docCount, actual.storedFieldStatus.docCount);
+      assertEquals(expected.storedFieldStatus.totFields, actual.storedFieldStatus.totFields);
+      assertEquals(expected.termVectorStatus.totVectors, actual.termVectorStatus.totVectors);
+      assertEquals(expected.docValuesStatus.totalValueFields, actual.docValuesStatus.totalValueFields);
+    }
+    dir.close();
+  }
+
+  public void testJSONReport() throws IOException {
+    Directory dir = newDirectory();
+    IndexWriter iw = new IndexWriter(dir, newIndexWriterConfig(new MockAnalyzer(random())));
+    Document doc = new Document();
+    doc.add(newTextField("body", "some \"quoted\" text", Field.Store.YES));
+    iw.addDocument(doc);
+    iw.commit();
+    iw.close();
+
+    CheckIndex checker = new CheckIndex(dir);
+    checker.setChecksumsOnly(random().nextBoolean());
+    CheckIndex.Status status = checker.checkIndex();
+    checker.close();
+    assertTrue(status.clean);
+
+    String json = status.toJSON();
+    assertTrue(json, json.startsWith("{\"clean\":true,"));
+    assertTrue(json, json.contains("\"name\":\"" + status.segmentInfos.get(0).name + "\""));
+    assertTrue(json, json.contains("\"numBadSegments\":0"));
+    assertTrue(json, json.contains("\"error\":null"));
+    dir.close();
+  }
+
   public void testObtainsLock() throws IOException {
     Directory dir = newDirectory();
     IndexWriter iw = new IndexWriter(dir, newIndexWriterConfig(null));
@@ -20,9 +20,12 @@ package org.apache.lucene.index;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.util.HashMap;
+import java.util.List;
 
 import org.apache.lucene.analysis.MockAnalyzer;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.SortedDocValuesField;
 import org.apache.lucene.document.SortedSetDocValuesField;
 import org.apache.lucene.index.MultiDocValues.MultiSortedDocValues;
@@ -32,15 +35,19 @@ import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.LongValues;
 import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.RamUsageEstimator;
 import org.apache.lucene.util.RamUsageTester;
 import org.apache.lucene.util.TestUtil;
+import org.apache.lucene.util.packed.PackedInts;
 
 public class TestOrdinalMap extends LuceneTestCase {
 
   private static final Field ORDINAL_MAP_OWNER_FIELD;
+  private static final Field ORDINAL_MAP_SEGMENT_KEYS_FIELD;
   static {
     try {
       ORDINAL_MAP_OWNER_FIELD = OrdinalMap.class.getDeclaredField("owner");
+      ORDINAL_MAP_SEGMENT_KEYS_FIELD = OrdinalMap.class.getDeclaredField("segmentKeys");
     } catch (Exception e) {
       throw new Error();
     }
@@ -52,11 +59,17 @@ public class TestOrdinalMap extends LuceneTestCase {
       if (o == LongValues.IDENTITY) {
         return 0L;
       }
+      long segmentKeysBytes = 0;
       if (o instanceof OrdinalMap) {
         fieldValues = new HashMap<>(fieldValues);
         fieldValues.remove(ORDINAL_MAP_OWNER_FIELD);
+        // segment keys are not owned by the map
+        final Object[] segmentKeys = (Object[]) fieldValues.remove(ORDINAL_MAP_SEGMENT_KEYS_FIELD);
+        if (segmentKeys != null) {
+          segmentKeysBytes = RamUsageEstimator.shallowSizeOf(segmentKeys);
+        }
       }
-      return super.accumulateObject(o, shallowSize, fieldValues, queue);
+      return segmentKeysBytes + super.accumulateObject(o, shallowSize, fieldValues, queue);
     }
 
   };
@@ -99,4 +112,124 @@ public class TestOrdinalMap extends LuceneTestCase {
     dir.close();
   }
 
+  private static Document randomDocument(int maxTermLength) {
+    Document d = new Document();
+    d.add(new StringField("id", TestUtil.randomSimpleString(random(), 1, 2), Store.NO));
+    if (random().nextBoolean()) {
+      d.add(new SortedDocValuesField("sdv", new BytesRef(TestUtil.randomSimpleString(random(), maxTermLength))));
+    }
+    final int numSortedSet = random().nextInt(3);
+    for (int j = 0; j < numSortedSet; ++j) {
+      d.add(new SortedSetDocValuesField("ssdv", new BytesRef(TestUtil.randomSimpleString(random(), maxTermLength))));
+    }
+    return d;
+  }
+
+  private static void assertSameOrdinals(OrdinalMap expected, OrdinalMap actual, SortedSetDocValues[] values) {
+    assertEquals(expected.getValueCount(), actual.getValueCount());
+    for (int i = 0; i < values.length; ++i) {
+      final LongValues expectedGlobalOrds = expected.getGlobalOrds(i);
+      final LongValues actualGlobalOrds = actual.getGlobalOrds(i);
+      for (long ord = 0; ord < values[i].getValueCount(); ++ord) {
+        assertEquals(expectedGlobalOrds.get(ord), actualGlobalOrds.get(ord));
+      }
+    }
+    for (long globalOrd = 0; globalOrd < actual.getValueCount(); ++globalOrd) {
+      final BytesRef expectedTerm = BytesRef.deepCopyOf(values[expected.getFirstSegmentNumber(globalOrd)].lookupOrd(expected.getFirstSegmentOrd(globalOrd)));
+      final int segment = actual.getFirstSegmentNumber(globalOrd);
+      final long segmentOrd = actual.getFirstSegmentOrd(globalOrd);
+      assertEquals(expectedTerm, values[segment].lookupOrd(segmentOrd));
+      assertEquals(globalOrd, actual.getGlobalOrds(segment).get(segmentOrd));
+    }
+  }
+
+  public void testIncrementalBuild() throws IOException {
+    Directory dir = newDirectory();
+    RandomIndexWriter iw = new RandomIndexWriter(random(), dir);
+    final int maxTermLength = TestUtil.nextInt(random(), 1, 4);
+    OrdinalMap previous = null;
+    DirectoryReader previousReader = null;
+    for (int iter = 0; iter < 20; ++iter) {
+      final int numDocs = random().nextInt(200);
+      for (int i = 0; i < numDocs; ++i) {
+        iw.addDocument(randomDocument(maxTermLength));
+      }
+      if (random().nextInt(3) == 0) {
+        iw.deleteDocuments(new Term("id", TestUtil.randomSimpleString(random(), 1, 2)));
+      }
+      if (random().nextInt(5) == 0) {
+        iw.forceMerge(TestUtil.nextInt(random(), 1, 3));
+      }
+      final DirectoryReader reader = iw.getReader();
+      final List<LeafReaderContext> leaves = reader.leaves();
+      final SortedSetDocValues[] values = new SortedSetDocValues[leaves.size()];
+      final Object[] segmentKeys = new Object[leaves.size()];
+      for (int i = 0; i < values.length; ++i) {
+        values[i] = DocValues.getSortedSet(leaves.get(i).reader(), "ssdv");
+        segmentKeys[i] = leaves.get(i).reader().getCoreCacheKey();
+      }
+      final OrdinalMap expected = OrdinalMap.build(null, values, PackedInts.DEFAULT);
+      final OrdinalMap actual = OrdinalMap.build(null, values, segmentKeys, previous, PackedInts.DEFAULT);
+      assertSameOrdinals(expected, actual, values);
+      previous = actual;
+      if (previousReader != null) {
+        previousReader.close();
+      }
+      previousReader = reader;
+    }
+    previousReader.close();
+    iw.close();
+    dir.close();
+  }
+
+  public void testCache() throws IOException {
+    final OrdinalMapCache defaultCache = OrdinalMapCache.getDefault();
+    final OrdinalMapCache cache = new OrdinalMapCache();
+    OrdinalMapCache.setDefault(cache);
+    try {
+      Directory dir = newDirectory();
+      IndexWriterConfig cfg = newIndexWriterConfig(new MockAnalyzer(random())).setMergePolicy(newLogMergePolicy());
+      RandomIndexWriter iw = new RandomIndexWriter(random(), dir, cfg);
+      final int maxTermLength = TestUtil.nextInt(random(), 1, 4);
+      for (int i = 0; i < 100; ++i) {
+        iw.addDocument(randomDocument(maxTermLength));
+        if (i % 20 == 0) {
+          iw.commit();
+        }
+      }
+      DirectoryReader r1 = iw.getReader();
+      final SortedSetDocValues ssdv1 = MultiDocValues.getSortedSetValues(r1, "ssdv");
+      final long misses = cache.getMissCount();
+      // another consumer of the same reader reuses the map
+      final SortedSetDocValues ssdv2 = SlowCompositeReaderWrapper.wrap(r1).getSortedSetDocValues("ssdv");
+      if (ssdv1 instanceof MultiSortedSetDocValues) {
+        assertEquals(misses, cache.getMissCount());
+        assertTrue(cache.getHitCount() > 0);
+        assertSame(((MultiSortedSetDocValues) ssdv1).mapping.globalOrdDeltas, ((MultiSortedSetDocValues) ssdv2).mapping.globalOrdDeltas);
+        assertSame(r1.getCoreCacheKey(), ((MultiSortedSetDocValues) ssdv2).mapping.owner);
+      }
+
+      // the map of a new point-in-time view is built incrementally
+      for (int i = 0; i < 50; ++i) {
+        iw.addDocument(randomDocument(maxTermLength));
+      }
+      DirectoryReader r2 = iw.getReader();
+      final SortedSetDocValues ssdv3 = MultiDocValues.getSortedSetValues(r2, "ssdv");
+      if (ssdv3 instanceof MultiSortedSetDocValues) {
+        final MultiSortedSetDocValues multi = (MultiSortedSetDocValues) ssdv3;
+        final OrdinalMap expected = OrdinalMap.build(null, multi.values, PackedInts.DEFAULT);
+        assertSameOrdinals(expected, multi.mapping, multi.values);
+      }
+
+      r1.close();
+      r2.close();
+      iw.close();
+      // all maps are evicted when segments are closed
+      assertEquals(0, cache.size());
+      dir.close();
+    } finally {
+      OrdinalMapCache.setDefault(defaultCache);
+    }
+  }
+
 }
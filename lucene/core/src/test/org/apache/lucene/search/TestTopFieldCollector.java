@@ -17,13 +17,21 @@ package org.apache.lucene.search;
  * limitations under the License.
  */
 
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.codecs.lucene50.Lucene50DocValuesFormat;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BooleanClause.Occur;
 import org.apache.lucene.search.FieldValueHitQueue.Entry;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
 
 public class TestTopFieldCollector extends LuceneTestCase {
   private IndexSearcher is;
@@ -167,4 +175,92 @@ public class TestTopFieldCollector extends LuceneTestCase {
       assertTrue(Float.isNaN(td.getMaxScore()));
     }
   }  
+
+  public void testSkipNonCompetitiveDocs() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    final int numDocs = atLeast(10000);
+    long value = 0;
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      if (random().nextInt(10) != 0) {
+        // mostly increasing values, like timestamps
+        value += random().nextInt(10) - 1;
+        doc.add(new NumericDocValuesField("dv", value));
+      }
+      doc.add(new StringField("even", Boolean.toString(i % 2 == 0), Store.NO));
+      w.addDocument(doc);
+    }
+    final IndexReader reader = w.getReader();
+    w.close();
+    final IndexSearcher searcher = newSearcher(reader);
+
+    for (int iter = 0; iter < 20; ++iter) {
+      final SortField sortField = new SortField("dv", SortField.Type.LONG, random().nextBoolean());
+      switch (random().nextInt(3)) {
+        case 0:
+          sortField.setMissingValue(Long.MIN_VALUE);
+          break;
+        case 1:
+          sortField.setMissingValue(Long.MAX_VALUE);
+          break;
+      }
+      final Sort sort = random().nextBoolean() ? new Sort(sortField) : new Sort(sortField, SortField.FIELD_DOC);
+      final Query query = random().nextBoolean() ? new MatchAllDocsQuery() : new TermQuery(new Term("even", "true"));
+      final int numHits = TestUtil.nextInt(random(), 1, 100);
+      final boolean trackDocScores = random().nextBoolean();
+
+      final TopFieldCollector expectedCollector = TopFieldCollector.create(sort, numHits, null, true, trackDocScores, false, true);
+      searcher.search(query, expectedCollector);
+      final TopDocs expected = expectedCollector.topDocs();
+      final TopFieldCollector actualCollector = TopFieldCollector.create(sort, numHits, null, true, trackDocScores, false, false);
+      searcher.search(query, actualCollector);
+      final TopDocs actual = actualCollector.topDocs();
+
+      assertTrue(actual.totalHits <= expected.totalHits);
+      assertEquals(expected.scoreDocs.length, actual.scoreDocs.length);
+      for (int i = 0; i < expected.scoreDocs.length; ++i) {
+        final FieldDoc expectedDoc = (FieldDoc) expected.scoreDocs[i];
+        final FieldDoc actualDoc = (FieldDoc) actual.scoreDocs[i];
+        assertEquals(expectedDoc.doc, actualDoc.doc);
+        assertEquals(expectedDoc.score, actualDoc.score, 0f);
+        assertArrayEquals(expectedDoc.fields, actualDoc.fields);
+      }
+    }
+
+    reader.close();
+    dir.close();
+  }
+
+  public void testSkipNonCompetitiveBlocks() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriterConfig iwc = newIndexWriterConfig(new MockAnalyzer(random()));
+    iwc.setCodec(TestUtil.alwaysDocValuesFormat(new Lucene50DocValuesFormat()));
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir, iwc);
+    final int numDocs = atLeast(20000);
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      doc.add(new NumericDocValuesField("dv", i));
+      w.addDocument(doc);
+    }
+    w.forceMerge(1);
+    final IndexReader reader = w.getReader();
+    w.close();
+    final IndexSearcher searcher = new IndexSearcher(reader);
+
+    // the oldest documents are at the beginning of the segment
+    final Sort sort = new Sort(new SortField("dv", SortField.Type.LONG));
+    final TopFieldCollector collector = TopFieldCollector.create(sort, 10, null, true, false, false, false);
+    searcher.search(new MatchAllDocsQuery(), collector);
+    final TopDocs topDocs = collector.topDocs();
+    assertEquals(10, topDocs.scoreDocs.length);
+    for (int i = 0; i < 10; ++i) {
+      assertEquals(Long.valueOf(i), ((FieldDoc) topDocs.scoreDocs[i]).fields[0]);
+    }
+    // whole blocks of documents were skipped
+    assertTrue(topDocs.totalHits < numDocs);
+
+    reader.close();
+    dir.close();
+  }
 }
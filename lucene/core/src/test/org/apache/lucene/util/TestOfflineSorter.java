@@ -25,11 +25,23 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.MockDirectoryWrapper;
 
 import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.LuceneTestCase;
 import org.apache.lucene.util.OfflineSorter;
 import org.apache.lucene.util.OfflineSorter.BufferSize;
+import org.apache.lucene.util.OfflineSorter.ByteSequencesReader;
 import org.apache.lucene.util.OfflineSorter.ByteSequencesWriter;
 import org.apache.lucene.util.OfflineSorter.SortInfo;
 
@@ -76,6 +88,105 @@ public class TestOfflineSorter extends LuceneTestCase {
     assertEquals(1, sortInfo.mergeRounds);
   }
 
+  public void testDirectory() throws Exception {
+    MockDirectoryWrapper dir = newMockDirectory();
+    dir.setEnableVirusScanner(false); // we check that temporary files are removed
+    SortInfo sortInfo = checkSort(new OfflineSorter(OfflineSorter.DEFAULT_COMPARATOR, BufferSize.megabytes(1), dir, "sort", TestUtil.nextInt(random(), 2, 10), null, 1), 
+        generateRandom((int)OfflineSorter.MB * 5));
+    assertTrue(sortInfo.tempMergeFiles > 0);
+    // all temporary files must have been removed
+    assertNoTempFiles(dir);
+    dir.close();
+  }
+
+  public void testThreads() throws Exception {
+    final int numThreads = TestUtil.nextInt(random(), 1, 4);
+    ExecutorService executor = new ThreadPoolExecutor(numThreads, numThreads, 0L, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<Runnable>(), new NamedThreadFactory("TestOfflineSorter"));
+    MockDirectoryWrapper dir = newMockDirectory();
+    dir.setEnableVirusScanner(false); // we check that temporary files are removed
+    try {
+      for (int iter = 0; iter < 3; iter++) {
+        checkSort(new OfflineSorter(OfflineSorter.DEFAULT_COMPARATOR, BufferSize.megabytes(1), dir, "sort" + iter, 
+            TestUtil.nextInt(random(), 2, 10), executor, TestUtil.nextInt(random(), 1, 4)), 
+            generateRandom(TestUtil.nextInt(random(), 0, (int)OfflineSorter.MB * 5)));
+        assertNoTempFiles(dir);
+      }
+    } finally {
+      TestUtil.shutdownExecutorService(executor);
+      dir.close();
+    }
+  }
+
+  public void testSortDirectoryFile() throws Exception {
+    MockDirectoryWrapper dir = newMockDirectory();
+    dir.setEnableVirusScanner(false); // we check that temporary files are removed
+    byte[][] data = generateRandom(TestUtil.nextInt(random(), 0, (int)OfflineSorter.MB * 3));
+    try (ByteSequencesWriter w = new ByteSequencesWriter(dir, "input")) {
+      for (byte[] datum : data) {
+        w.write(datum);
+      }
+    }
+    OfflineSorter sorter = new OfflineSorter(OfflineSorter.DEFAULT_COMPARATOR, BufferSize.megabytes(1), dir, "sort", 
+        TestUtil.nextInt(random(), 2, 10), null, 1);
+    String sorted = sorter.sort("input");
+    Arrays.sort(data, unsignedByteOrderComparator);
+    try (ByteSequencesReader r = new ByteSequencesReader(dir, sorted)) {
+      for (byte[] datum : data) {
+        assertArrayEquals(datum, r.read());
+      }
+      assertNull(r.read());
+    }
+    dir.deleteFile(sorted);
+    dir.deleteFile("input");
+    assertNoTempFiles(dir);
+    dir.close();
+  }
+
+  private static void assertNoTempFiles(Directory dir) throws IOException {
+    for (String file : dir.listAll()) {
+      assertFalse(file, file.startsWith("sort"));
+    }
+  }
+
+  public void testCorruptTempFile() throws Exception {
+    Directory dir = newDirectory();
+    ByteSequencesWriter w = new ByteSequencesWriter(dir, "temp");
+    byte[][] data = generateRandom(1024);
+    for (byte[] datum : data) {
+      w.write(datum);
+    }
+    w.close();
+
+    // flip a single bit of the (32-bit) checksum
+    try (IndexInput in = dir.openInput("temp", IOContext.DEFAULT);
+         IndexOutput out = dir.createOutput("corrupt", IOContext.DEFAULT)) {
+      final long flipped = in.length() - 1 - random().nextInt(4);
+      for (long i = 0; i < in.length(); i++) {
+        byte b = in.readByte();
+        if (i == flipped) {
+          b ^= 1 << random().nextInt(8);
+        }
+        out.writeByte(b);
+      }
+    }
+
+    try (ByteSequencesReader r = new ByteSequencesReader(dir, "temp")) {
+      for (byte[] datum : data) {
+        assertArrayEquals(datum, r.read());
+      }
+      assertNull(r.read());
+    }
+
+    try (ByteSequencesReader r = new ByteSequencesReader(dir, "corrupt")) {
+      while (r.read() != null) {}
+      fail("corruption was not detected");
+    } catch (CorruptIndexException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("checksum failed"));
+    }
+    dir.close();
+  }
+
   @Nightly
   public void testLargerRandom() throws Exception {
     // Sort 100MB worth of data with 15mb buffer.
@@ -160,4 +160,60 @@ public class TestCompiledAutomaton extends LuceneTestCase {
     CompiledAutomaton ca = new CompiledAutomaton(a, null, true, Integer.MAX_VALUE, false);
     assertEquals(CompiledAutomaton.AUTOMATON_TYPE.SINGLE, ca.type);
   }
+
+  private static int trigram(String s) {
+    assertEquals(3, s.length());
+    return (s.charAt(0) << 16) | (s.charAt(1) << 8) | s.charAt(2);
+  }
+
+  private static int[] requiredTrigrams(String regexp) {
+    CompiledAutomaton ca = new CompiledAutomaton(new RegExp(regexp).toAutomaton());
+    assertEquals(CompiledAutomaton.AUTOMATON_TYPE.NORMAL, ca.type);
+    return ca.getRequiredTrigrams();
+  }
+
+  public void testRequiredTrigrams() throws Exception {
+    assertArrayEquals(new int[] {trigram("err"), trigram("ror"), trigram("rro")}, requiredTrigrams(".*error.*"));
+    assertArrayEquals(new int[] {trigram("baz")}, requiredTrigrams("(foo|bar).*baz"));
+    assertArrayEquals(new int[] {trigram("abc")}, requiredTrigrams(".*abc.*|x*abc"));
+    assertArrayEquals(new int[0], requiredTrigrams(".*ab.*"));
+    assertArrayEquals(new int[0], requiredTrigrams(".*(foo|bar).*"));
+    assertArrayEquals(new int[0], requiredTrigrams("(abc)?x.*"));
+    // overlapping occurrences
+    assertArrayEquals(new int[] {trigram("aaa")}, requiredTrigrams(".*aaaa?.*"));
+  }
+
+  public void testRandomRequiredTrigrams() throws Exception {
+    int iters = atLeast(50);
+    for (int iter = 0; iter < iters; iter++) {
+      String regexp;
+      if (random().nextBoolean()) {
+        regexp = AutomatonTestUtil.randomRegexp(random());
+      } else {
+        regexp = ".*" + TestUtil.randomSimpleString(random(), 0, 6) + ".*" + TestUtil.randomSimpleString(random(), 0, 6);
+      }
+      CompiledAutomaton ca;
+      try {
+        ca = new CompiledAutomaton(new RegExp(regexp, RegExp.NONE).toAutomaton());
+      } catch (TooComplexToDeterminizeException e) {
+        continue;
+      }
+      if (ca.type != CompiledAutomaton.AUTOMATON_TYPE.NORMAL) {
+        continue;
+      }
+      int[] required = ca.getRequiredTrigrams();
+      assertSame(required, ca.getRequiredTrigrams());
+      AutomatonTestUtil.RandomAcceptedStrings strings = new AutomatonTestUtil.RandomAcceptedStrings(ca.automaton);
+      for (int i = 0; i < 20; i++) {
+        int[] s = strings.getRandomAcceptedString(random());
+        for (int trigram : required) {
+          boolean found = false;
+          for (int j = 0; j + 2 < s.length && found == false; j++) {
+            found = ((s[j] << 16) | (s[j+1] << 8) | s[j+2]) == trigram;
+          }
+          assertTrue("regexp=" + regexp + " trigram=" + Integer.toHexString(trigram), found);
+        }
+      }
+    }
+  }
 }
@@ -1642,4 +1642,82 @@ public class TestFSTs extends LuceneTestCase {
       // expected
     }
   }
+
+  public void testStreamingBuilder() throws Exception {
+    final int numTerms = atLeast(1000);
+    final Set<BytesRef> termsSet = new HashSet<>();
+    while (termsSet.size() < numTerms) {
+      termsSet.add(new BytesRef(TestUtil.randomSimpleString(random(), 1, 10)));
+    }
+    final List<BytesRef> terms = new ArrayList<>(termsSet);
+    Collections.sort(terms);
+    final long[] values = new long[terms.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = random().nextInt(100);
+    }
+
+    final PositiveIntOutputs outputs = PositiveIntOutputs.getSingleton();
+    final Builder<Long> heapBuilder = new Builder<>(FST.INPUT_TYPE.BYTE1, outputs);
+    // a hash that is large enough for all nodes gives the same FST as the unbounded hash:
+    final boolean minimal = random().nextBoolean();
+    final int maxSuffixHashSize = minimal ? Integer.MAX_VALUE : TestUtil.nextInt(random(), 1, 100);
+    final IndexOutput out = dir.createOutput("fst.bin", IOContext.DEFAULT);
+    final Builder<Long> streamingBuilder = new Builder<>(FST.INPUT_TYPE.BYTE1, 0, 0, true, true, Integer.MAX_VALUE,
+        outputs, true, TestUtil.nextInt(random(), 4, 15), maxSuffixHashSize, out);
+    final IntsRefBuilder scratch = new IntsRefBuilder();
+    for (int i = 0; i < terms.size(); i++) {
+      heapBuilder.add(Util.toIntsRef(terms.get(i), scratch), values[i]);
+      streamingBuilder.add(Util.toIntsRef(terms.get(i), scratch), values[i]);
+    }
+    final FST<Long> heapFST = heapBuilder.finish();
+    final FST<Long> streamedFST = streamingBuilder.finish();
+    out.close();
+    try {
+      streamedFST.getBytesReader();
+      fail("the bytes of a streamed FST cannot be read");
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    try (IndexOutput metaOut = dir.createOutput("fst.meta", IOContext.DEFAULT)) {
+      streamedFST.saveMetadata(metaOut);
+    }
+    try (IndexOutput heapOut = dir.createOutput("fst.heap", IOContext.DEFAULT)) {
+      heapFST.save(heapOut);
+    }
+
+    if (minimal) {
+      assertEquals(heapFST.nodeCount, streamedFST.nodeCount);
+      assertEquals(dir.fileLength("fst.heap"), dir.fileLength("fst.meta") + dir.fileLength("fst.bin"));
+    } else {
+      assertTrue(streamedFST.nodeCount >= heapFST.nodeCount);
+    }
+
+    try (IndexInput metaIn = dir.openInput("fst.meta", IOContext.DEFAULT);
+         IndexInput in = dir.openInput("fst.bin", IOContext.DEFAULT)) {
+      final FST<Long> fst = new FST<>(metaIn, in, outputs);
+      assertEquals(in.length(), in.getFilePointer());
+      assertFSTContents(fst, terms, values);
+    }
+
+    // an FST that has been saved into a single file can be read off-heap too
+    try (IndexInput in = dir.openInput("fst.heap", IOContext.DEFAULT)) {
+      final FST<Long> fst = new FST<>(in, in, outputs);
+      assertEquals(in.length(), in.getFilePointer());
+      assertFSTContents(fst, terms, values);
+    }
+  }
+
+  private static void assertFSTContents(FST<Long> fst, List<BytesRef> terms, long[] values) throws IOException {
+    for (int i = 0; i < terms.size(); i++) {
+      assertEquals(terms.get(i).utf8ToString(), Long.valueOf(values[i]), Util.get(fst, terms.get(i)));
+    }
+    final BytesRefFSTEnum<Long> fstEnum = new BytesRefFSTEnum<>(fst);
+    for (int i = 0; i < terms.size(); i++) {
+      final InputOutput<Long> next = fstEnum.next();
+      assertNotNull(next);
+      assertEquals(terms.get(i), next.input);
+      assertEquals(Long.valueOf(values[i]), next.output);
+    }
+    assertNull(fstEnum.next());
+  }
 }
@@ -0,0 +1,182 @@
+package org.apache.lucene.facet;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.lucene.facet.FacetsCollector.MatchingDocs;
+import org.apache.lucene.util.ThreadInterruptedException;
+
+/** Counts the hits of each segment in a separate task of
+ *  an {@link ExecutorService}, and then sums up the
+ *  per-task counts into a single per-ordinal array.
+ *
+ *  <p>Segments that have few hits compared to the number of
+ *  ordinals are counted into {@link SparseCounts}. Other
+ *  segments are counted into dense arrays that tasks hand
+ *  over to each other when they are done, so that no more
+ *  dense arrays are allocated than there are concurrent
+ *  tasks.
+ *
+ * @lucene.internal */
+public abstract class ConcurrentOrdinalCounter {
+
+  /** Sole constructor. */
+  protected ConcurrentOrdinalCounter() {
+  }
+
+  /** Add the counts of the given segment to {@code counts},
+   *  which is indexed by ordinal. */
+  protected abstract void countDense(MatchingDocs hits, int[] counts) throws IOException;
+
+  /** Add the counts of the given segment to {@code counts}. */
+  protected abstract void countSparse(MatchingDocs hits, SparseCounts counts) throws IOException;
+
+  /** Return whether the given segment should be counted
+   *  with {@link #countSparse}. The default implementation
+   *  returns true if the segment has less than one hit per
+   *  sixteen ordinals. */
+  protected boolean isSparse(MatchingDocs hits, int numOrds) throws IOException {
+    return hits.totalHits < (numOrds >>> 4);
+  }
+
+  /** Count all segments, using the given executor, and add
+   *  the result to {@code counts}. If {@code executor} is
+   *  null, or if there is a single segment, then counting
+   *  happens on the current thread. */
+  public final void count(List<MatchingDocs> matchingDocs, final int[] counts, ExecutorService executor) throws IOException {
+    if (executor == null || matchingDocs.size() <= 1) {
+      for (MatchingDocs hits : matchingDocs) {
+        countDense(hits, counts);
+      }
+      return;
+    }
+
+    // dense arrays that are not used by any task: the first
+    // task to count densely reuses the final counts
+    final Queue<int[]> denseCounts = new ConcurrentLinkedQueue<>();
+    denseCounts.add(counts);
+
+    final List<Future<SparseCounts>> futures = new ArrayList<>(matchingDocs.size());
+    for (final MatchingDocs hits : matchingDocs) {
+      if (hits.totalHits == 0) {
+        continue;
+      }
+      final boolean sparse = isSparse(hits, counts.length);
+      futures.add(executor.submit(new Callable<SparseCounts>() {
+        @Override
+        public SparseCounts call() throws IOException {
+          if (sparse) {
+            final SparseCounts segCounts = new SparseCounts(hits.totalHits);
+            countSparse(hits, segCounts);
+            return segCounts;
+          }
+          int[] segCounts = denseCounts.poll();
+          if (segCounts == null) {
+            segCounts = new int[counts.length];
+          }
+          try {
+            countDense(hits, segCounts);
+          } finally {
+            denseCounts.add(segCounts);
+          }
+          return null;
+        }
+      }));
+    }
+
+    final List<SparseCounts> sparseCounts = get(futures);
+
+    // all tasks are done, merge
+    for (int[] segCounts : denseCounts) {
+      if (segCounts != counts) {
+        for (int ord = 0; ord < counts.length; ++ord) {
+          counts[ord] += segCounts[ord];
+        }
+      }
+    }
+    for (SparseCounts segCounts : sparseCounts) {
+      segCounts.addTo(counts);
+    }
+  }
+
+  /** Count all segments with {@link #countSparse}, using the
+   *  given executor, and add the result to {@code counts}.
+   *  If {@code executor} is null, or if there is a single
+   *  segment, then counting happens on the current thread. */
+  public final void count(List<MatchingDocs> matchingDocs, SparseCounts counts, ExecutorService executor) throws IOException {
+    if (executor == null || matchingDocs.size() <= 1) {
+      for (MatchingDocs hits : matchingDocs) {
+        countSparse(hits, counts);
+      }
+      return;
+    }
+
+    final List<Future<SparseCounts>> futures = new ArrayList<>(matchingDocs.size());
+    for (final MatchingDocs hits : matchingDocs) {
+      if (hits.totalHits == 0) {
+        continue;
+      }
+      futures.add(executor.submit(new Callable<SparseCounts>() {
+        @Override
+        public SparseCounts call() throws IOException {
+          final SparseCounts segCounts = new SparseCounts(hits.totalHits);
+          countSparse(hits, segCounts);
+          return segCounts;
+        }
+      }));
+    }
+
+    for (SparseCounts segCounts : get(futures)) {
+      segCounts.addTo(counts);
+    }
+  }
+
+  private static List<SparseCounts> get(List<Future<SparseCounts>> futures) throws IOException {
+    final List<SparseCounts> sparseCounts = new ArrayList<>();
+    for (Future<SparseCounts> future : futures) {
+      try {
+        final SparseCounts segCounts = future.get();
+        if (segCounts != null) {
+          sparseCounts.add(segCounts);
+        }
+      } catch (InterruptedException e) {
+        throw new ThreadInterruptedException(e);
+      } catch (ExecutionException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+          throw (IOException) cause;
+        } else if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw new RuntimeException(cause);
+      }
+    }
+    return sparseCounts;
+  }
+}
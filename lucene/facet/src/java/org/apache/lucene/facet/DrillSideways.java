@@ -20,6 +20,7 @@ package org.apache.lucene.facet;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetCounts;
 import org.apache.lucene.facet.sortedset.SortedSetDocValuesFacetField;
@@ -73,6 +74,10 @@ public class DrillSideways {
   /** {@link FacetsConfig} passed to constructor. */
   protected final FacetsConfig config;
 
+  /** {@link ExecutorService} passed to constructor, used to
+   *  count segments concurrently; can be null. */
+  protected final ExecutorService executor;
+
   /** Create a new {@code DrillSideways} instance. */
   public DrillSideways(IndexSearcher searcher, FacetsConfig config, TaxonomyReader taxoReader) {
     this(searcher, config, taxoReader, null);
@@ -89,10 +94,20 @@ public class DrillSideways {
    *  SortedSetDocValuesFacetField} and others were indexed
    *  with {@link FacetField}. */
   public DrillSideways(IndexSearcher searcher, FacetsConfig config, TaxonomyReader taxoReader, SortedSetDocValuesReaderState state) {
+    this(searcher, config, taxoReader, state, null);
+  }
+
+  /** Create a new {@code DrillSideways} instance, where some
+   *  dimensions were indexed with {@link
+   *  SortedSetDocValuesFacetField} and others were indexed
+   *  with {@link FacetField}, and that counts the hits of
+   *  each segment concurrently with the given executor. */
+  public DrillSideways(IndexSearcher searcher, FacetsConfig config, TaxonomyReader taxoReader, SortedSetDocValuesReaderState state, ExecutorService executor) {
     this.searcher = searcher;
     this.config = config;
     this.taxoReader = taxoReader;
     this.state = state;
+    this.executor = executor;
   }
 
   /** Subclass can override to customize per-dim Facets
@@ -103,19 +118,19 @@ public class DrillSideways {
     Map<String,Facets> drillSidewaysFacets = new HashMap<>();
 
     if (taxoReader != null) {
-      drillDownFacets = new FastTaxonomyFacetCounts(taxoReader, config, drillDowns);
+      drillDownFacets = new FastTaxonomyFacetCounts(taxoReader, config, drillDowns, executor);
       if (drillSideways != null) {
         for(int i=0;i<drillSideways.length;i++) {
           drillSidewaysFacets.put(drillSidewaysDims[i],
-                                  new FastTaxonomyFacetCounts(taxoReader, config, drillSideways[i]));
+                                  new FastTaxonomyFacetCounts(taxoReader, config, drillSideways[i], executor));
         }
       }
     } else {
-      drillDownFacets = new SortedSetDocValuesFacetCounts(state, drillDowns);
+      drillDownFacets = new SortedSetDocValuesFacetCounts(state, drillDowns, executor);
       if (drillSideways != null) {
         for(int i=0;i<drillSideways.length;i++) {
           drillSidewaysFacets.put(drillSidewaysDims[i],
-                                  new SortedSetDocValuesFacetCounts(state, drillSideways[i]));
+                                  new SortedSetDocValuesFacetCounts(state, drillSideways[i], executor));
         }
       }
     }
@@ -0,0 +1,170 @@
+package org.apache.lucene.facet;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Arrays;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BitUtil;
+
+/** Per-ordinal counts, stored in an open-addressing hash
+ *  table so that memory usage is proportional to the number
+ *  of distinct ordinals that have been counted rather than
+ *  to the total number of ordinals.
+ *
+ * @lucene.internal */
+public final class SparseCounts {
+
+  private static final int EMPTY = -1;
+
+  private int[] keys;
+  private int[] values;
+  private int mask;
+  private int size;
+
+  /** Create an empty instance. */
+  public SparseCounts() {
+    this(8);
+  }
+
+  /** Create an empty instance that can hold
+   *  {@code expectedSize} ordinals without resizing. */
+  public SparseCounts(int expectedSize) {
+    if (expectedSize < 0) {
+      throw new IllegalArgumentException("expectedSize must be >= 0 (got: " + expectedSize + ")");
+    }
+    allocate(capacity(expectedSize));
+  }
+
+  private static int capacity(int expectedSize) {
+    // keep the load factor under 1/2
+    final long capacity = BitUtil.nextHighestPowerOfTwo(Math.max(4L, 2L * expectedSize));
+    if (capacity > ArrayUtil.MAX_ARRAY_LENGTH) {
+      throw new IllegalStateException("too many ordinals: " + expectedSize);
+    }
+    return (int) capacity;
+  }
+
+  private void allocate(int capacity) {
+    keys = new int[capacity];
+    Arrays.fill(keys, EMPTY);
+    values = new int[capacity];
+    mask = capacity - 1;
+  }
+
+  private int slot(int key) {
+    int h = key * 0x9E3779B9;
+    h ^= h >>> 16;
+    int slot = h & mask;
+    while (keys[slot] != EMPTY && keys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  /** Add one to the count of {@code ord}. */
+  public void increment(int ord) {
+    add(ord, 1);
+  }
+
+  /** Add {@code count} to the count of {@code ord}. */
+  public void add(int ord, int count) {
+    if (ord < 0) {
+      throw new IllegalArgumentException("ord must be >= 0 (got: " + ord + ")");
+    }
+    int slot = slot(ord);
+    if (keys[slot] == EMPTY) {
+      if (size + 1 > (mask + 1) >>> 1) {
+        rehash();
+        slot = slot(ord);
+      }
+      keys[slot] = ord;
+      size++;
+    }
+    values[slot] += count;
+  }
+
+  private void rehash() {
+    final int[] oldKeys = keys;
+    final int[] oldValues = values;
+    allocate(capacity(size + 1));
+    for (int i = 0; i < oldKeys.length; ++i) {
+      if (oldKeys[i] != EMPTY) {
+        final int slot = slot(oldKeys[i]);
+        keys[slot] = oldKeys[i];
+        values[slot] = oldValues[i];
+      }
+    }
+  }
+
+  /** Return the count of {@code ord}, or 0 if it has not
+   *  been counted. */
+  public int get(int ord) {
+    if (ord < 0) {
+      return 0;
+    }
+    final int slot = slot(ord);
+    return keys[slot] == EMPTY ? 0 : values[slot];
+  }
+
+  /** Return the number of distinct ordinals that have been
+   *  counted. */
+  public int size() {
+    return size;
+  }
+
+  /** Return the ordinals that have been counted, in no
+   *  particular order. */
+  public int[] ords() {
+    final int[] ords = new int[size];
+    int upto = 0;
+    for (int i = 0; i < keys.length; ++i) {
+      if (keys[i] != EMPTY) {
+        ords[upto++] = keys[i];
+      }
+    }
+    assert upto == size;
+    return ords;
+  }
+
+  /** Add all counts to the given array, which is indexed by
+   *  ordinal. */
+  public void addTo(int[] counts) {
+    for (int i = 0; i < keys.length; ++i) {
+      if (keys[i] != EMPTY) {
+        counts[keys[i]] += values[i];
+      }
+    }
+  }
+
+  /** Add all counts to another instance. */
+  public void addTo(SparseCounts counts) {
+    for (int i = 0; i < keys.length; ++i) {
+      if (keys[i] != EMPTY) {
+        counts.add(keys[i], values[i]);
+      }
+    }
+  }
+
+  /** Remove all counts. */
+  public void clear() {
+    Arrays.fill(keys, EMPTY);
+    Arrays.fill(values, 0);
+    size = 0;
+  }
+}
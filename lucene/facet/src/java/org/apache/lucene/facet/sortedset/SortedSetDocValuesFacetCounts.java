@@ -23,13 +23,16 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
+import org.apache.lucene.facet.ConcurrentOrdinalCounter;
 import org.apache.lucene.facet.FacetResult;
 import org.apache.lucene.facet.Facets;
 import org.apache.lucene.facet.FacetsCollector;
 import org.apache.lucene.facet.FacetsCollector.MatchingDocs;
 import org.apache.lucene.facet.FacetsConfig;
 import org.apache.lucene.facet.LabelAndValue;
+import org.apache.lucene.facet.SparseCounts;
 import org.apache.lucene.facet.TopOrdAndIntQueue;
 import org.apache.lucene.facet.sortedset.SortedSetDocValuesReaderState.OrdRange;
 import org.apache.lucene.index.LeafReader;
@@ -78,6 +81,23 @@ public class SortedSetDocValuesFacetCounts extends Facets {
     count(hits.getMatchingDocs());
   }
 
+  /** Sparse faceting: returns any dimension that had any
+   *  hits, topCount labels per dimension. Segments are
+   *  counted concurrently with the given executor, or on
+   *  the current thread if it is null. */
+  public SortedSetDocValuesFacetCounts(SortedSetDocValuesReaderState state, FacetsCollector hits, ExecutorService executor)
+      throws IOException {
+    this.state = state;
+    this.field = state.getField();
+    dv = state.getDocValues();
+    counts = new int[state.getSize()];
+    if (executor == null) {
+      count(hits.getMatchingDocs());
+    } else {
+      count(hits.getMatchingDocs(), executor);
+    }
+  }
+
   @Override
   public FacetResult getTopChildren(int topN, String dim, String... path) throws IOException {
     if (topN <= 0) {
@@ -147,38 +167,18 @@ public class SortedSetDocValuesFacetCounts extends Facets {
   private final void count(List<MatchingDocs> matchingDocs) throws IOException {
     //System.out.println("ssdv count");
 
-    MultiDocValues.OrdinalMap ordinalMap;
-
-    // TODO: is this right?  really, we need a way to
-    // verify that this ordinalMap "matches" the leaves in
-    // matchingDocs...
-    if (dv instanceof MultiSortedSetDocValues && matchingDocs.size() > 1) {
-      ordinalMap = ((MultiSortedSetDocValues) dv).mapping;
-    } else {
-      ordinalMap = null;
-    }
-    
-    IndexReader origReader = state.getOrigReader();
+    MultiDocValues.OrdinalMap ordinalMap = getOrdinalMap(matchingDocs);
 
     for(MatchingDocs hits : matchingDocs) {
 
       LeafReader reader = hits.context.reader();
       //System.out.println("  reader=" + reader);
-      // LUCENE-5090: make sure the provided reader context "matches"
-      // the top-level reader passed to the
-      // SortedSetDocValuesReaderState, else cryptic
-      // AIOOBE can happen:
-      if (ReaderUtil.getTopLevelContext(hits.context).reader() != origReader) {
-        throw new IllegalStateException("the SortedSetDocValuesReaderState provided to this class does not match the reader being searched; you must create a new SortedSetDocValuesReaderState every time you open a new IndexReader");
-      }
       
       SortedSetDocValues segValues = reader.getSortedSetDocValues(field);
       if (segValues == null) {
         continue;
       }
 
-      DocIdSetIterator docs = hits.bits.iterator();
-
       // TODO: yet another option is to count all segs
       // first, only in seg-ord space, and then do a
       // merge-sort-PQ in the end to only "resolve to
@@ -189,64 +189,150 @@ public class SortedSetDocValuesFacetCounts extends Facets {
       // temp ram req'ts (sum of number of ords across all
       // segs)
       if (ordinalMap != null) {
-        final int segOrd = hits.context.ord;
-        final LongValues ordMap = ordinalMap.getGlobalOrds(segOrd);
+        final LongValues ordMap = ordinalMap.getGlobalOrds(hits.context.ord);
 
         int numSegOrds = (int) segValues.getValueCount();
 
         if (hits.totalHits < numSegOrds/10) {
           //System.out.println("    remap as-we-go");
           // Remap every ord to global ord as we iterate:
+          DocIdSetIterator docs = hits.bits.iterator();
           int doc;
           while ((doc = docs.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
             //System.out.println("    doc=" + doc);
             segValues.setDocument(doc);
             int term = (int) segValues.nextOrd();
             while (term != SortedSetDocValues.NO_MORE_ORDS) {
-              //System.out.println("      segOrd=" + segOrd + " ord=" + term + " globalOrd=" + ordinalMap.getGlobalOrd(segOrd, term));
               counts[(int) ordMap.get(term)]++;
               term = (int) segValues.nextOrd();
             }
           }
-        } else {
-          //System.out.println("    count in seg ord first");
+          continue;
+        }
+      }
 
-          // First count in seg-ord space:
-          final int[] segCounts = new int[numSegOrds];
-          int doc;
-          while ((doc = docs.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
-            //System.out.println("    doc=" + doc);
-            segValues.setDocument(doc);
-            int term = (int) segValues.nextOrd();
-            while (term != SortedSetDocValues.NO_MORE_ORDS) {
-              //System.out.println("      ord=" + term);
-              segCounts[term]++;
-              term = (int) segValues.nextOrd();
-            }
-          }
+      countDense(hits, segValues, ordinalMap, counts);
+    }
+  }
 
-          // Then, migrate to global ords:
-          for(int ord=0;ord<numSegOrds;ord++) {
-            int count = segCounts[ord];
-            if (count != 0) {
-              //System.out.println("    migrate segOrd=" + segOrd + " ord=" + ord + " globalOrd=" + ordinalMap.getGlobalOrd(segOrd, ord));
-              counts[(int) ordMap.get(ord)] += count;
-            }
-          }
+  /** Tallies up the counts, counting segments concurrently
+   *  with the given executor. */
+  private final void count(List<MatchingDocs> matchingDocs, ExecutorService executor) throws IOException {
+    final MultiDocValues.OrdinalMap ordinalMap = getOrdinalMap(matchingDocs);
+
+    new ConcurrentOrdinalCounter() {
+
+      @Override
+      protected boolean isSparse(MatchingDocs hits, int numOrds) throws IOException {
+        if (ordinalMap == null) {
+          return false;
+        }
+        SortedSetDocValues segValues = hits.context.reader().getSortedSetDocValues(field);
+        return segValues != null && hits.totalHits < segValues.getValueCount()/10;
+      }
+
+      @Override
+      protected void countDense(MatchingDocs hits, int[] counts) throws IOException {
+        SortedSetDocValues segValues = hits.context.reader().getSortedSetDocValues(field);
+        if (segValues != null) {
+          SortedSetDocValuesFacetCounts.countDense(hits, segValues, ordinalMap, counts);
         }
-      } else {
-        // No ord mapping (e.g., single segment index):
-        // just aggregate directly into counts:
+      }
+
+      @Override
+      protected void countSparse(MatchingDocs hits, SparseCounts counts) throws IOException {
+        SortedSetDocValues segValues = hits.context.reader().getSortedSetDocValues(field);
+        if (segValues == null) {
+          return;
+        }
+        // Remap every ord to global ord as we iterate:
+        final LongValues ordMap = ordinalMap.getGlobalOrds(hits.context.ord);
+        DocIdSetIterator docs = hits.bits.iterator();
         int doc;
         while ((doc = docs.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
           segValues.setDocument(doc);
           int term = (int) segValues.nextOrd();
           while (term != SortedSetDocValues.NO_MORE_ORDS) {
-            counts[term]++;
+            counts.increment((int) ordMap.get(term));
             term = (int) segValues.nextOrd();
           }
         }
       }
+    }.count(matchingDocs, counts, executor);
+  }
+
+  /** Returns the mapping from segment to global ords, or
+   *  null if ords do not need to be remapped, after checking
+   *  that the hits come from the reader of the state. */
+  private MultiDocValues.OrdinalMap getOrdinalMap(List<MatchingDocs> matchingDocs) {
+    IndexReader origReader = state.getOrigReader();
+
+    for(MatchingDocs hits : matchingDocs) {
+      // LUCENE-5090: make sure the provided reader context "matches"
+      // the top-level reader passed to the
+      // SortedSetDocValuesReaderState, else cryptic
+      // AIOOBE can happen:
+      if (ReaderUtil.getTopLevelContext(hits.context).reader() != origReader) {
+        throw new IllegalStateException("the SortedSetDocValuesReaderState provided to this class does not match the reader being searched; you must create a new SortedSetDocValuesReaderState every time you open a new IndexReader");
+      }
+    }
+
+    // TODO: is this right?  really, we need a way to
+    // verify that this ordinalMap "matches" the leaves in
+    // matchingDocs...
+    if (dv instanceof MultiSortedSetDocValues && matchingDocs.size() > 1) {
+      return ((MultiSortedSetDocValues) dv).mapping;
+    } else {
+      return null;
+    }
+  }
+
+  /** Counts a segment into an array that is indexed by
+   *  global ord. */
+  private static void countDense(MatchingDocs hits, SortedSetDocValues segValues, MultiDocValues.OrdinalMap ordinalMap, int[] counts) throws IOException {
+    DocIdSetIterator docs = hits.bits.iterator();
+
+    if (ordinalMap != null) {
+      final LongValues ordMap = ordinalMap.getGlobalOrds(hits.context.ord);
+
+      int numSegOrds = (int) segValues.getValueCount();
+
+      //System.out.println("    count in seg ord first");
+
+      // First count in seg-ord space:
+      final int[] segCounts = new int[numSegOrds];
+      int doc;
+      while ((doc = docs.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+        //System.out.println("    doc=" + doc);
+        segValues.setDocument(doc);
+        int term = (int) segValues.nextOrd();
+        while (term != SortedSetDocValues.NO_MORE_ORDS) {
+          //System.out.println("      ord=" + term);
+          segCounts[term]++;
+          term = (int) segValues.nextOrd();
+        }
+      }
+
+      // Then, migrate to global ords:
+      for(int ord=0;ord<numSegOrds;ord++) {
+        int count = segCounts[ord];
+        if (count != 0) {
+          //System.out.println("    migrate segOrd=" + segOrd + " ord=" + ord + " globalOrd=" + ordinalMap.getGlobalOrd(segOrd, ord));
+          counts[(int) ordMap.get(ord)] += count;
+        }
+      }
+    } else {
+      // No ord mapping (e.g., single segment index):
+      // just aggregate directly into counts:
+      int doc;
+      while ((doc = docs.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+        segValues.setDocument(doc);
+        int term = (int) segValues.nextOrd();
+        while (term != SortedSetDocValues.NO_MORE_ORDS) {
+          counts[term]++;
+          term = (int) segValues.nextOrd();
+        }
+      }
     }
   }
 
@@ -19,16 +19,21 @@ package org.apache.lucene.facet.taxonomy;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
+import org.apache.lucene.facet.ConcurrentOrdinalCounter;
 import org.apache.lucene.facet.FacetsCollector;
 import org.apache.lucene.facet.FacetsCollector.MatchingDocs;
 import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.SparseCounts;
 import org.apache.lucene.index.BinaryDocValues;
 import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.util.BytesRef;
 
 /** Computes facets counts, assuming the default encoding
- *  into DocValues was used.
+ *  into DocValues was used.  Queries that match much fewer
+ *  documents than there are ordinals in the taxonomy are
+ *  counted into {@link #sparseValues}.
  *
  * @lucene.experimental */
 public class FastTaxonomyFacetCounts extends IntTaxonomyFacets {
@@ -45,40 +50,114 @@ public class FastTaxonomyFacetCounts extends IntTaxonomyFacets {
    *  FacetsConfig#setIndexFieldName} to change the index
    *  field name for certain dimensions. */
   public FastTaxonomyFacetCounts(String indexFieldName, TaxonomyReader taxoReader, FacetsConfig config, FacetsCollector fc) throws IOException {
-    super(indexFieldName, taxoReader, config);
+    super(indexFieldName, taxoReader, config, useSparseValues(taxoReader, fc));
     count(fc.getMatchingDocs());
   }
 
+  /** Create {@code FastTaxonomyFacetCounts}, which also
+   *  counts all facet labels, and count segments
+   *  concurrently with the given executor. */
+  public FastTaxonomyFacetCounts(TaxonomyReader taxoReader, FacetsConfig config, FacetsCollector fc, ExecutorService executor) throws IOException {
+    this(FacetsConfig.DEFAULT_INDEX_FIELD_NAME, taxoReader, config, fc, executor);
+  }
+
+  /** Create {@code FastTaxonomyFacetCounts}, using the
+   *  specified {@code indexFieldName} for ordinals, and
+   *  count segments concurrently with the given executor.
+   *  Segments that have few hits are counted into a sparse
+   *  hash table rather than an array of the size of the
+   *  taxonomy. If {@code executor} is null, then counting
+   *  happens on the current thread. */
+  public FastTaxonomyFacetCounts(String indexFieldName, TaxonomyReader taxoReader, FacetsConfig config, FacetsCollector fc, ExecutorService executor) throws IOException {
+    super(indexFieldName, taxoReader, config, useSparseValues(taxoReader, fc));
+    if (sparseValues != null) {
+      new Counter().count(fc.getMatchingDocs(), sparseValues, executor);
+    } else {
+      new Counter().count(fc.getMatchingDocs(), values, executor);
+    }
+    rollup();
+  }
+
   private final void count(List<MatchingDocs> matchingDocs) throws IOException {
     for(MatchingDocs hits : matchingDocs) {
-      BinaryDocValues dv = hits.context.reader().getBinaryDocValues(indexFieldName);
-      if (dv == null) { // this reader does not have DocValues for the requested category list
-        continue;
+      if (sparseValues != null) {
+        countSparse(hits, sparseValues);
+      } else {
+        countDense(hits, values);
+      }
+    }
+
+    rollup();
+  }
+
+  private void countDense(MatchingDocs hits, int[] values) throws IOException {
+    BinaryDocValues dv = hits.context.reader().getBinaryDocValues(indexFieldName);
+    if (dv == null) { // this reader does not have DocValues for the requested category list
+      return;
+    }
+
+    DocIdSetIterator docs = hits.bits.iterator();
+    
+    int doc;
+    while ((doc = docs.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+      final BytesRef bytesRef = dv.get(doc);
+      byte[] bytes = bytesRef.bytes;
+      int end = bytesRef.offset + bytesRef.length;
+      int ord = 0;
+      int offset = bytesRef.offset;
+      int prev = 0;
+      while (offset < end) {
+        byte b = bytes[offset++];
+        if (b >= 0) {
+          prev = ord = ((ord << 7) | b) + prev;
+          ++values[ord];
+          ord = 0;
+        } else {
+          ord = (ord << 7) | (b & 0x7F);
+        }
       }
+    }
+  }
+
+  private void countSparse(MatchingDocs hits, SparseCounts values) throws IOException {
+    BinaryDocValues dv = hits.context.reader().getBinaryDocValues(indexFieldName);
+    if (dv == null) {
+      return;
+    }
 
-      DocIdSetIterator docs = hits.bits.iterator();
-      
-      int doc;
-      while ((doc = docs.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
-        final BytesRef bytesRef = dv.get(doc);
-        byte[] bytes = bytesRef.bytes;
-        int end = bytesRef.offset + bytesRef.length;
-        int ord = 0;
-        int offset = bytesRef.offset;
-        int prev = 0;
-        while (offset < end) {
-          byte b = bytes[offset++];
-          if (b >= 0) {
-            prev = ord = ((ord << 7) | b) + prev;
-            ++values[ord];
-            ord = 0;
-          } else {
-            ord = (ord << 7) | (b & 0x7F);
-          }
+    DocIdSetIterator docs = hits.bits.iterator();
+
+    int doc;
+    while ((doc = docs.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+      final BytesRef bytesRef = dv.get(doc);
+      byte[] bytes = bytesRef.bytes;
+      int end = bytesRef.offset + bytesRef.length;
+      int ord = 0;
+      int offset = bytesRef.offset;
+      int prev = 0;
+      while (offset < end) {
+        byte b = bytes[offset++];
+        if (b >= 0) {
+          prev = ord = ((ord << 7) | b) + prev;
+          values.increment(ord);
+          ord = 0;
+        } else {
+          ord = (ord << 7) | (b & 0x7F);
         }
       }
     }
+  }
 
-    rollup();
+  private class Counter extends ConcurrentOrdinalCounter {
+
+    @Override
+    protected void countDense(MatchingDocs hits, int[] counts) throws IOException {
+      FastTaxonomyFacetCounts.this.countDense(hits, counts);
+    }
+
+    @Override
+    protected void countSparse(MatchingDocs hits, SparseCounts counts) throws IOException {
+      FastTaxonomyFacetCounts.this.countSparse(hits, counts);
+    }
   }
 }
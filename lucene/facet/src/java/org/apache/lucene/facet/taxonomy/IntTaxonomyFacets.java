@@ -18,12 +18,18 @@ package org.apache.lucene.facet.taxonomy;
  */
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.FacetsCollector.MatchingDocs;
 import org.apache.lucene.facet.FacetsConfig;
 import org.apache.lucene.facet.FacetsConfig.DimConfig;
 import org.apache.lucene.facet.LabelAndValue;
+import org.apache.lucene.facet.SparseCounts;
 import org.apache.lucene.facet.TopOrdAndIntQueue;
 
 /** Base class for all taxonomy-based facets that aggregate
@@ -31,17 +37,74 @@ import org.apache.lucene.facet.TopOrdAndIntQueue;
 
 public abstract class IntTaxonomyFacets extends TaxonomyFacets {
 
-  /** Per-ordinal value. */
+  /** Per-ordinal value, or null if values are stored in
+   *  {@link #sparseValues}. {@link FastTaxonomyFacetCounts}
+   *  and {@link TaxonomyFacetCounts} store values sparsely
+   *  when a query has few hits, so code that reads the
+   *  values of these classes should use {@link #getValue(int)}
+   *  rather than this array. */
   protected final int[] values;
 
-  /** Sole constructor. */
+  /** Per-ordinal value when only few ordinals are expected
+   *  to have a value, or null if values are stored in
+   *  {@link #values}. */
+  protected final SparseCounts sparseValues;
+
+  /** Maps an ordinal to its parent, only used with sparse
+   *  values. */
+  private final int[] parents;
+
+  /** Create an instance that stores values in an array of
+   *  the size of the taxonomy. */
   protected IntTaxonomyFacets(String indexFieldName, TaxonomyReader taxoReader, FacetsConfig config) throws IOException {
+    this(indexFieldName, taxoReader, config, false);
+  }
+
+  /** Create an instance that stores values in {@link
+   *  #sparseValues} if {@code sparse} is true, and in
+   *  {@link #values} otherwise. Sparse values make it
+   *  unnecessary to allocate and then scan an array of the
+   *  size of the taxonomy when few ordinals have a value. */
+  protected IntTaxonomyFacets(String indexFieldName, TaxonomyReader taxoReader, FacetsConfig config, boolean sparse) throws IOException {
     super(indexFieldName, taxoReader, config);
-    values = new int[taxoReader.getSize()];
+    if (sparse) {
+      values = null;
+      sparseValues = new SparseCounts();
+      parents = taxoReader.getParallelTaxonomyArrays().parents();
+    } else {
+      values = new int[taxoReader.getSize()];
+      sparseValues = null;
+      parents = null;
+    }
+  }
+
+  /** Returns true if hits should be counted into {@link
+   *  #sparseValues}, which is the case when there are much
+   *  fewer hits than ordinals in the taxonomy. */
+  protected static boolean useSparseValues(TaxonomyReader taxoReader, FacetsCollector fc) {
+    long totalHits = 0;
+    for (MatchingDocs hits : fc.getMatchingDocs()) {
+      totalHits += hits.totalHits;
+    }
+    return totalHits < (taxoReader.getSize() >>> 4);
+  }
+
+  /** Return the value of the given ordinal, whether values
+   *  are stored in {@link #values} or in {@link #sparseValues}. */
+  protected final int getValue(int ord) {
+    if (sparseValues != null) {
+      return sparseValues.get(ord);
+    } else {
+      return values[ord];
+    }
   }
   
   /** Rolls up any single-valued hierarchical dimensions. */
   protected void rollup() throws IOException {
+    if (sparseValues != null) {
+      rollupSparse();
+      return;
+    }
     // Rollup any necessary dims:
     for(Map.Entry<String,DimConfig> ent : config.getDimConfigs().entrySet()) {
       String dim = ent.getKey();
@@ -68,6 +131,45 @@ public abstract class IntTaxonomyFacets extends TaxonomyFacets {
     return sum;
   }
 
+  private void rollupSparse() throws IOException {
+    Set<Integer> dimRootOrds = new HashSet<>();
+    for(Map.Entry<String,DimConfig> ent : config.getDimConfigs().entrySet()) {
+      DimConfig ft = ent.getValue();
+      if (ft.hierarchical && ft.multiValued == false) {
+        int dimRootOrd = taxoReader.getOrdinal(new FacetLabel(ent.getKey()));
+        if (dimRootOrd > 0) {
+          dimRootOrds.add(dimRootOrd);
+        }
+      }
+    }
+    if (dimRootOrds.isEmpty()) {
+      return;
+    }
+
+    // Take a snapshot, since rolling up modifies the values:
+    int[] ords = sparseValues.ords();
+    int[] ordValues = new int[ords.length];
+    for(int i=0;i<ords.length;i++) {
+      ordValues[i] = sparseValues.get(ords[i]);
+    }
+
+    for(int i=0;i<ords.length;i++) {
+      int ord = ords[i];
+      int dimRootOrd = ord;
+      while (dimRootOrd > 0 && parents[dimRootOrd] != TaxonomyReader.ROOT_ORDINAL) {
+        dimRootOrd = parents[dimRootOrd];
+      }
+      if (dimRootOrd != ord && dimRootOrds.contains(dimRootOrd)) {
+        // Add the value to all ancestors up to the dimension:
+        int parent = ord;
+        do {
+          parent = parents[parent];
+          sparseValues.add(parent, ordValues[i]);
+        } while (parent != dimRootOrd);
+      }
+    }
+  }
+
   @Override
   public Number getSpecificValue(String dim, String... path) throws IOException {
     DimConfig dimConfig = verifyDim(dim);
@@ -84,7 +186,7 @@ public abstract class IntTaxonomyFacets extends TaxonomyFacets {
     if (ord < 0) {
       return -1;
     }
-    return values[ord];
+    return getValue(ord);
   }
 
   @Override
@@ -103,29 +205,58 @@ public abstract class IntTaxonomyFacets extends TaxonomyFacets {
     
     int bottomValue = 0;
 
-    int ord = children[dimOrd];
     int totValue = 0;
     int childCount = 0;
 
     TopOrdAndIntQueue.OrdAndValue reuse = null;
-    while(ord != TaxonomyReader.INVALID_ORDINAL) {
-      if (values[ord] > 0) {
-        totValue += values[ord];
-        childCount++;
-        if (values[ord] > bottomValue) {
-          if (reuse == null) {
-            reuse = new TopOrdAndIntQueue.OrdAndValue();
-          }
-          reuse.ord = ord;
-          reuse.value = values[ord];
-          reuse = q.insertWithOverflow(reuse);
-          if (q.size() == topN) {
-            bottomValue = q.top().value;
+    if (sparseValues != null) {
+      // Only visit the ordinals that have a value, from the
+      // youngest to the oldest like the children/siblings
+      // arrays do, so that ties are broken the same way:
+      int[] ords = sparseValues.ords();
+      Arrays.sort(ords);
+      for(int i=ords.length-1;i>=0;i--) {
+        int ord = ords[i];
+        if (parents[ord] == dimOrd) {
+          int value = sparseValues.get(ord);
+          if (value > 0) {
+            totValue += value;
+            childCount++;
+            if (value > bottomValue) {
+              if (reuse == null) {
+                reuse = new TopOrdAndIntQueue.OrdAndValue();
+              }
+              reuse.ord = ord;
+              reuse.value = value;
+              reuse = q.insertWithOverflow(reuse);
+              if (q.size() == topN) {
+                bottomValue = q.top().value;
+              }
+            }
           }
         }
       }
+    } else {
+      int ord = children[dimOrd];
+      while(ord != TaxonomyReader.INVALID_ORDINAL) {
+        if (values[ord] > 0) {
+          totValue += values[ord];
+          childCount++;
+          if (values[ord] > bottomValue) {
+            if (reuse == null) {
+              reuse = new TopOrdAndIntQueue.OrdAndValue();
+            }
+            reuse.ord = ord;
+            reuse.value = values[ord];
+            reuse = q.insertWithOverflow(reuse);
+            if (q.size() == topN) {
+              bottomValue = q.top().value;
+            }
+          }
+        }
 
-      ord = siblings[ord];
+        ord = siblings[ord];
+      }
     }
 
     if (totValue == 0) {
@@ -134,7 +265,7 @@ public abstract class IntTaxonomyFacets extends TaxonomyFacets {
 
     if (dimConfig.multiValued) {
       if (dimConfig.requireDimCount) {
-        totValue = values[dimOrd];
+        totValue = getValue(dimOrd);
       } else {
         // Our sum'd value is not correct, in general:
         totValue = -1;
@@ -30,6 +30,9 @@ import org.apache.lucene.util.IntsRef;
 /** Reads from any {@link OrdinalsReader}; use {@link
  *  FastTaxonomyFacetCounts} if you are using the
  *  default encoding from {@link BinaryDocValues}.
+ *  Queries that match much fewer documents than there are
+ *  ordinals in the taxonomy are counted into {@link
+ *  #sparseValues}.
  * 
  * @lucene.experimental */
 public class TaxonomyFacetCounts extends IntTaxonomyFacets {
@@ -40,7 +43,7 @@ public class TaxonomyFacetCounts extends IntTaxonomyFacets {
    *  {@link OrdinalsReader}; otherwise use {@link
    *  FastTaxonomyFacetCounts}. */
   public TaxonomyFacetCounts(OrdinalsReader ordinalsReader, TaxonomyReader taxoReader, FacetsConfig config, FacetsCollector fc) throws IOException {
-    super(ordinalsReader.getIndexFieldName(), taxoReader, config);
+    super(ordinalsReader.getIndexFieldName(), taxoReader, config, useSparseValues(taxoReader, fc));
     this.ordinalsReader = ordinalsReader;
     count(fc.getMatchingDocs());
   }
@@ -54,8 +57,14 @@ public class TaxonomyFacetCounts extends IntTaxonomyFacets {
       int doc;
       while ((doc = docs.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
         ords.get(doc, scratch);
-        for(int i=0;i<scratch.length;i++) {
-          values[scratch.ints[scratch.offset+i]]++;
+        if (sparseValues != null) {
+          for(int i=0;i<scratch.length;i++) {
+            sparseValues.increment(scratch.ints[scratch.offset+i]);
+          }
+        } else {
+          for(int i=0;i<scratch.length;i++) {
+            values[scratch.ints[scratch.offset+i]]++;
+          }
         }
       }
     }
@@ -26,6 +26,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.lucene.analysis.MockAnalyzer;
 import org.apache.lucene.document.Document;
@@ -67,6 +69,7 @@ import org.apache.lucene.util.FixedBitSet;
 import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.InPlaceMergeSorter;
 import org.apache.lucene.util.InfoStream;
+import org.apache.lucene.util.NamedThreadFactory;
 import org.apache.lucene.util.TestUtil;
 
 public class TestDrillSideways extends FacetTestCase {
@@ -1058,6 +1061,47 @@ public class TestDrillSideways extends FacetTestCase {
     }
   }
 
+  public void testConcurrentCounting() throws Exception {
+    Directory dir = newDirectory();
+    Directory taxoDir = newDirectory();
+    DirectoryTaxonomyWriter taxoWriter = new DirectoryTaxonomyWriter(taxoDir, IndexWriterConfig.OpenMode.CREATE);
+    RandomIndexWriter writer = new RandomIndexWriter(random(), dir);
+    FacetsConfig config = new FacetsConfig();
+
+    int numDocs = atLeast(200);
+    for(int i=0;i<numDocs;i++) {
+      Document doc = new Document();
+      doc.add(new FacetField("Author", "a" + random().nextInt(50)));
+      doc.add(new FacetField("Year", "y" + random().nextInt(10)));
+      writer.addDocument(config.build(taxoWriter, doc));
+      if (random().nextInt(20) == 0) {
+        writer.commit();
+      }
+    }
+
+    // NRT open
+    IndexSearcher searcher = newSearcher(writer.getReader());
+
+    // NRT open
+    TaxonomyReader taxoReader = new DirectoryTaxonomyReader(taxoWriter);
+
+    ExecutorService executor = Executors.newFixedThreadPool(TestUtil.nextInt(random(), 1, 4), new NamedThreadFactory("TestDrillSideways"));
+    try {
+      DrillDownQuery ddq = new DrillDownQuery(config);
+      ddq.add("Author", "a" + random().nextInt(50));
+      ddq.add("Year", "y" + random().nextInt(10));
+      DrillSidewaysResult expected = new DrillSideways(searcher, config, taxoReader).search(null, ddq, 10);
+      DrillSidewaysResult actual = new DrillSideways(searcher, config, taxoReader, null, executor).search(null, ddq, 10);
+      assertEquals(expected.hits.totalHits, actual.hits.totalHits);
+      assertEquals(expected.facets.getAllDims(100), actual.facets.getAllDims(100));
+    } finally {
+      TestUtil.shutdownExecutorService(executor);
+    }
+
+    writer.close();
+    IOUtils.close(searcher.getIndexReader(), taxoReader, taxoWriter, dir, taxoDir);
+  }
+
   public void testEmptyIndex() throws Exception {
     // LUCENE-5045: make sure DrillSideways works with an empty index
     Directory dir = newDirectory();
@@ -0,0 +1,67 @@
+package org.apache.lucene.facet;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.lucene.util.TestUtil;
+
+public class TestSparseCounts extends FacetTestCase {
+
+  public void testRandom() {
+    final int maxOrd = TestUtil.nextInt(random(), 1, 100000);
+    final SparseCounts counts = new SparseCounts(random().nextInt(100));
+    final Map<Integer,Integer> expected = new HashMap<>();
+    final int iters = atLeast(1000);
+    for(int i=0;i<iters;i++) {
+      final int ord = random().nextInt(maxOrd);
+      final int inc = TestUtil.nextInt(random(), 1, 10);
+      if (inc == 1) {
+        counts.increment(ord);
+      } else {
+        counts.add(ord, inc);
+      }
+      final Integer previous = expected.get(ord);
+      expected.put(ord, previous == null ? inc : previous + inc);
+    }
+
+    assertEquals(expected.size(), counts.size());
+    final int[] dense = new int[maxOrd];
+    counts.addTo(dense);
+    for(int ord=0;ord<maxOrd;ord++) {
+      final Integer count = expected.get(ord);
+      assertEquals(count == null ? 0 : count.intValue(), dense[ord]);
+      assertEquals(dense[ord], counts.get(ord));
+    }
+
+    final SparseCounts copy = new SparseCounts();
+    counts.addTo(copy);
+    counts.addTo(copy);
+    assertEquals(expected.size(), copy.size());
+    for(Map.Entry<Integer,Integer> ent : expected.entrySet()) {
+      assertEquals(2 * ent.getValue(), copy.get(ent.getKey()));
+    }
+
+    counts.clear();
+    assertEquals(0, counts.size());
+    for(int ord : expected.keySet()) {
+      assertEquals(0, counts.get(ord));
+    }
+  }
+}
@@ -21,6 +21,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
@@ -41,6 +43,7 @@ import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.NamedThreadFactory;
 import org.apache.lucene.util.TestUtil;
 
 public class TestSortedSetDocValuesFacets extends FacetTestCase {
@@ -266,6 +269,54 @@ public class TestSortedSetDocValuesFacets extends FacetTestCase {
   }
 
 
+  public void testConcurrentCounting() throws Exception {
+    Directory indexDir = newDirectory();
+
+    RandomIndexWriter w = new RandomIndexWriter(random(), indexDir);
+    FacetsConfig config = new FacetsConfig();
+    config.setMultiValued("tag", true);
+    int numDocs = atLeast(1000);
+    int numLabels = TestUtil.nextInt(random(), 1, 5000);
+    for(int i=0;i<numDocs;i++) {
+      Document doc = new Document();
+      // rare hits are likely counted sparsely, common hits densely
+      doc.add(newStringField("content", random().nextInt(20) == 0 ? "rare" : "common", Field.Store.NO));
+      int numTags = random().nextInt(3);
+      for(int j=0;j<numTags;j++) {
+        doc.add(new SortedSetDocValuesFacetField("tag", "t" + random().nextInt(numLabels)));
+      }
+      w.addDocument(config.build(doc));
+      if (random().nextInt(100) == 0) {
+        w.commit();
+      }
+    }
+
+    // NRT open
+    IndexSearcher searcher = newSearcher(w.getReader());
+
+    // Per-top-reader state:
+    SortedSetDocValuesReaderState state = new DefaultSortedSetDocValuesReaderState(searcher.getIndexReader());
+
+    ExecutorService executor = Executors.newFixedThreadPool(TestUtil.nextInt(random(), 1, 4), new NamedThreadFactory("TestSortedSetDocValuesFacets"));
+    try {
+      for(String token : new String[] {"rare", "common"}) {
+        FacetsCollector fc = new FacetsCollector();
+        searcher.search(new TermQuery(new Term("content", token)), fc);
+        Facets expected = new SortedSetDocValuesFacetCounts(state, fc);
+        Facets actual = new SortedSetDocValuesFacetCounts(state, fc, executor);
+        assertEquals(expected.getAllDims(10), actual.getAllDims(10));
+        for(int i=0;i<numLabels;i++) {
+          assertEquals(expected.getSpecificValue("tag", "t" + i), actual.getSpecificValue("tag", "t" + i));
+        }
+      }
+    } finally {
+      TestUtil.shutdownExecutorService(executor);
+    }
+
+    w.close();
+    IOUtils.close(searcher.getIndexReader(), indexDir);
+  }
+
   public void testRandom() throws Exception {
     String[] tokens = getRandomTokens(10);
     Directory indexDir = newDirectory();
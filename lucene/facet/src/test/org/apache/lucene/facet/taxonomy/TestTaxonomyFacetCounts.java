@@ -18,6 +18,7 @@ package org.apache.lucene.facet.taxonomy;
  */
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -25,6 +26,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.lucene.analysis.MockAnalyzer;
 import org.apache.lucene.document.Document;
@@ -46,6 +49,7 @@ import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
@@ -55,6 +59,8 @@ import org.apache.lucene.search.similarities.PerFieldSimilarityWrapper;
 import org.apache.lucene.search.similarities.Similarity;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.IntsRef;
+import org.apache.lucene.util.NamedThreadFactory;
 import org.apache.lucene.util.TestUtil;
 
 public class TestTaxonomyFacetCounts extends FacetTestCase {
@@ -684,6 +690,134 @@ public class TestTaxonomyFacetCounts extends FacetTestCase {
     IOUtils.close(indexReader, taxoReader, indexDir, taxoDir);
   }
 
+  /** Counts into an array of the size of the taxonomy,
+   *  whatever the number of hits. */
+  private static class DenseTaxonomyFacetCounts extends IntTaxonomyFacets {
+    DenseTaxonomyFacetCounts(TaxonomyReader taxoReader, FacetsConfig config, FacetsCollector fc) throws IOException {
+      super(FacetsConfig.DEFAULT_INDEX_FIELD_NAME, taxoReader, config, false);
+      OrdinalsReader ordinalsReader = new DocValuesOrdinalsReader();
+      IntsRef scratch = new IntsRef();
+      for(FacetsCollector.MatchingDocs hits : fc.getMatchingDocs()) {
+        OrdinalsReader.OrdinalsSegmentReader ords = ordinalsReader.getReader(hits.context);
+        DocIdSetIterator docs = hits.bits.iterator();
+        int doc;
+        while ((doc = docs.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+          ords.get(doc, scratch);
+          for(int i=0;i<scratch.length;i++) {
+            values[scratch.ints[scratch.offset+i]]++;
+          }
+        }
+      }
+      rollup();
+    }
+  }
+
+  public void testSparseValues() throws Exception {
+    Directory indexDir = newDirectory();
+    Directory taxoDir = newDirectory();
+
+    RandomIndexWriter w = new RandomIndexWriter(random(), indexDir);
+    DirectoryTaxonomyWriter tw = new DirectoryTaxonomyWriter(taxoDir);
+    FacetsConfig config = new FacetsConfig();
+    config.setHierarchical("path", true);
+    config.setMultiValued("tag", true);
+    config.setRequireDimCount("tag", true);
+    int numDocs = atLeast(2000);
+    for(int i=0;i<numDocs;i++) {
+      Document doc = new Document();
+      doc.add(newStringField("content", random().nextInt(100) == 0 ? "rare" : "common", Field.Store.NO));
+      doc.add(new FacetField("path", "p" + random().nextInt(5), "p" + random().nextInt(5), "p" + random().nextInt(100)));
+      int numTags = random().nextInt(3);
+      for(int j=0;j<numTags;j++) {
+        doc.add(new FacetField("tag", "t" + random().nextInt(numDocs)));
+      }
+      if (random().nextBoolean()) {
+        doc.add(new FacetField("author", "a" + random().nextInt(10)));
+      }
+      w.addDocument(config.build(tw, doc));
+    }
+
+    // NRT open
+    IndexSearcher searcher = newSearcher(w.getReader());
+
+    // NRT open
+    TaxonomyReader tr = new DirectoryTaxonomyReader(tw);
+
+    FacetsCollector fc = new FacetsCollector();
+    searcher.search(new TermQuery(new Term("content", "rare")), fc);
+    assumeTrue("too many hits to count sparsely", IntTaxonomyFacets.useSparseValues(tr, fc));
+
+    Facets expected = new DenseTaxonomyFacetCounts(tr, config, fc);
+    for(IntTaxonomyFacets actual : new IntTaxonomyFacets[] {
+        new FastTaxonomyFacetCounts(tr, config, fc),
+        new TaxonomyFacetCounts(new DocValuesOrdinalsReader(), tr, config, fc)}) {
+      assertNotNull(actual.sparseValues);
+      assertNull(actual.values);
+      assertEquals(expected.getAllDims(10), actual.getAllDims(10));
+      assertEquals(expected.getSpecificValue("tag"), actual.getSpecificValue("tag"));
+      for(int i=0;i<5;i++) {
+        assertEquals(expected.getSpecificValue("path", "p" + i), actual.getSpecificValue("path", "p" + i));
+        assertEquals(expected.getTopChildren(10, "path", "p" + i), actual.getTopChildren(10, "path", "p" + i));
+        for(int j=0;j<5;j++) {
+          assertEquals(expected.getTopChildren(10, "path", "p" + i, "p" + j), actual.getTopChildren(10, "path", "p" + i, "p" + j));
+        }
+      }
+    }
+
+    w.close();
+    IOUtils.close(tw, searcher.getIndexReader(), tr, indexDir, taxoDir);
+  }
+
+  public void testConcurrentCounting() throws Exception {
+    Directory indexDir = newDirectory();
+    Directory taxoDir = newDirectory();
+
+    RandomIndexWriter w = new RandomIndexWriter(random(), indexDir);
+    DirectoryTaxonomyWriter tw = new DirectoryTaxonomyWriter(taxoDir);
+    FacetsConfig config = new FacetsConfig();
+    config.setMultiValued("tag", true);
+    int numDocs = atLeast(1000);
+    int numLabels = TestUtil.nextInt(random(), 1, 5000);
+    for(int i=0;i<numDocs;i++) {
+      Document doc = new Document();
+      // rare hits are likely counted sparsely, common hits densely
+      doc.add(newStringField("content", random().nextInt(20) == 0 ? "rare" : "common", Field.Store.NO));
+      int numTags = random().nextInt(3);
+      for(int j=0;j<numTags;j++) {
+        doc.add(new FacetField("tag", "t" + random().nextInt(numLabels)));
+      }
+      w.addDocument(config.build(tw, doc));
+      if (random().nextInt(100) == 0) {
+        w.commit();
+      }
+    }
+
+    // NRT open
+    IndexSearcher searcher = newSearcher(w.getReader());
+
+    // NRT open
+    TaxonomyReader tr = new DirectoryTaxonomyReader(tw);
+
+    ExecutorService executor = Executors.newFixedThreadPool(TestUtil.nextInt(random(), 1, 4), new NamedThreadFactory("TestTaxonomyFacetCounts"));
+    try {
+      for(String token : new String[] {"rare", "common"}) {
+        FacetsCollector fc = new FacetsCollector();
+        searcher.search(new TermQuery(new Term("content", token)), fc);
+        Facets expected = new FastTaxonomyFacetCounts(tr, config, fc);
+        Facets actual = new FastTaxonomyFacetCounts(tr, config, fc, executor);
+        assertEquals(expected.getAllDims(10), actual.getAllDims(10));
+        for(int i=0;i<numLabels;i++) {
+          assertEquals(expected.getSpecificValue("tag", "t" + i), actual.getSpecificValue("tag", "t" + i));
+        }
+      }
+    } finally {
+      TestUtil.shutdownExecutorService(executor);
+    }
+
+    w.close();
+    IOUtils.close(tw, searcher.getIndexReader(), tr, indexDir, taxoDir);
+  }
+
   public void testRandom() throws Exception {
     String[] tokens = getRandomTokens(10);
     Directory indexDir = newDirectory();
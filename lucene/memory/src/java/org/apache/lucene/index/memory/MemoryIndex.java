@@ -18,9 +18,11 @@ package org.apache.lucene.index.memory;
  */
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.SortedMap;
@@ -194,6 +196,10 @@ public class MemoryIndex {
 
   /** info for each field: Map&lt;String fieldName, Info field&gt; */
   private final SortedMap<String,Info> fields = new TreeMap<>();
+
+  /** fields of the previous document whose term hashes can be reused, or
+   *  null if buffers are not recycled: Map&lt;String fieldName, Info field&gt; */
+  private final Map<String,Info> recycledFields;
   
   private final boolean storeOffsets;
   private final boolean storePayloads;
@@ -244,11 +250,20 @@ public class MemoryIndex {
   /**
    * Expert: This constructor accepts an upper limit for the number of bytes that should be reused if this instance is {@link #reset()}.
    * The payload storage, if used, is unaffected by maxReusuedBytes, however.
+   * <p>
+   * This is useful when a single instance is used to index a high rate of small
+   * documents, one after the other: if <code>maxReusedBytes</code> is positive then
+   * {@link #reset()} keeps the blocks of the internal memory pools as well as the
+   * term hashes of the fields of the last document, so that indexing the next
+   * document does not need to allocate them again.
    * @param storeOffsets <code>true</code> if offsets should be stored
    * @param storePayloads <code>true</code> if payloads should be stored
    * @param maxReusedBytes the number of bytes that should remain in the internal memory pools after {@link #reset()} is called
    */
-  MemoryIndex(boolean storeOffsets, boolean storePayloads, long maxReusedBytes) {
+  public MemoryIndex(boolean storeOffsets, boolean storePayloads, long maxReusedBytes) {
+    if (maxReusedBytes < 0) {
+      throw new IllegalArgumentException("maxReusedBytes must be >= 0 (got: " + maxReusedBytes + ")");
+    }
     this.storeOffsets = storeOffsets;
     this.storePayloads = storePayloads;
     this.bytesUsed = Counter.newCounter();
@@ -260,6 +275,7 @@ public class MemoryIndex {
     postingsWriter = new SliceWriter(intBlockPool);
     //TODO refactor BytesRefArray to allow us to apply maxReusedBytes option
     payloadsBytesRefs = storePayloads ? new BytesRefArray(bytesUsed) : null;
+    recycledFields = maxReusedBytes > 0 ? new HashMap<String,Info>() : null;
   }
   
   /**
@@ -445,8 +461,15 @@ public class MemoryIndex {
             this.storeOffsets
                 ? IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS : IndexOptions.DOCS_AND_FREQS_AND_POSITIONS,
             DocValuesType.NONE, -1, Collections.emptyMap());
-        sliceArray = new SliceByteStartArray(BytesRefHash.DEFAULT_CAPACITY);
-        terms = new BytesRefHash(byteBlockPool, BytesRefHash.DEFAULT_CAPACITY, sliceArray);
+        final Info recycled = recycledFields == null ? null : recycledFields.remove(fieldName);
+        if (recycled != null) {
+          // the term hash has been cleared on reset()
+          sliceArray = recycled.sliceArray;
+          terms = recycled.terms;
+        } else {
+          sliceArray = new SliceByteStartArray(BytesRefHash.DEFAULT_CAPACITY);
+          terms = new BytesRefHash(byteBlockPool, BytesRefHash.DEFAULT_CAPACITY, sliceArray);
+        }
       }
 
       TermToBytesRefAttribute termAtt = stream.getAttribute(TermToBytesRefAttribute.class);
@@ -1155,6 +1178,15 @@ public class MemoryIndex {
    * Resets the {@link MemoryIndex} to its initial state and recycles all internal buffers.
    */
   public void reset() {
+    if (recycledFields != null) {
+      // only keep the fields of the last document, which are likely to
+      // be the fields of the next one
+      recycledFields.clear();
+      for (Map.Entry<String,Info> entry : fields.entrySet()) {
+        entry.getValue().terms.clear(false); // the pool is reset below
+        recycledFields.put(entry.getKey(), entry.getValue());
+      }
+    }
     fields.clear();
     this.normSimilarity = IndexSearcher.getDefaultSimilarity();
     byteBlockPool.reset(false, false); // no need to 0-fill the buffers
@@ -1169,6 +1201,7 @@ public class MemoryIndex {
     int[] start; // the start offset in the IntBlockPool per term
     int[] end; // the end pointer in the IntBlockPool for the postings slice per term
     int[] freq; // the term frequency
+    private int[] ord; // the byte starts of the terms
     
     public SliceByteStartArray(int initSize) {
       super(initSize);
@@ -1176,7 +1209,7 @@ public class MemoryIndex {
     
     @Override
     public int[] init() {
-      final int[] ord = super.init();
+      final int[] ord = this.ord = super.init();
       start = new int[ArrayUtil.oversize(ord.length, RamUsageEstimator.NUM_BYTES_INT)];
       end = new int[ArrayUtil.oversize(ord.length, RamUsageEstimator.NUM_BYTES_INT)];
       freq = new int[ArrayUtil.oversize(ord.length, RamUsageEstimator.NUM_BYTES_INT)];
@@ -1188,7 +1221,7 @@ public class MemoryIndex {
 
     @Override
     public int[] grow() {
-      final int[] ord = super.grow();
+      final int[] ord = this.ord = super.grow();
       if (start.length < ord.length) {
         start = ArrayUtil.grow(start, ord.length);
         end = ArrayUtil.grow(end, ord.length);
@@ -1202,8 +1235,10 @@ public class MemoryIndex {
 
     @Override
     public int[] clear() {
-     start = end = null;
-     return super.clear();
+      // keep the arrays so that the hash can be reused: start, end and
+      // the byte starts are overwritten when a term is added, freq is not
+      Arrays.fill(freq, 0);
+      return ord;
     }
     
   }
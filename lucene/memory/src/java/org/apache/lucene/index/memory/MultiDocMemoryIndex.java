@@ -0,0 +1,1229 @@
+package org.apache.lucene.index.memory;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.TermToBytesRefAttribute;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.FieldInvertState;
+import org.apache.lucene.index.Fields;
+import org.apache.lucene.index.IndexDocument;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.OrdTermState;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.StorableField;
+import org.apache.lucene.index.StoredFieldVisitor;
+import org.apache.lucene.index.TermState;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.similarities.Similarity;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.ByteBlockPool;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefHash;
+import org.apache.lucene.util.BytesRefHash.DirectBytesStartArray;
+import org.apache.lucene.util.Counter;
+import org.apache.lucene.util.IntBlockPool;
+import org.apache.lucene.util.IntBlockPool.SliceReader;
+import org.apache.lucene.util.IntBlockPool.SliceWriter;
+import org.apache.lucene.util.IntroSorter;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.RecyclingByteBlockAllocator;
+import org.apache.lucene.util.RecyclingIntBlockAllocator;
+
+/**
+ * Main memory index over a small batch of documents, typically a few hundred.
+ * <p>
+ * This is the multi-document sibling of {@link MemoryIndex}: queries can be run
+ * against a whole batch of documents at once rather than against one
+ * {@link MemoryIndex} per document, which amortizes the per-query cost of
+ * rewriting and of creating weights over all documents of the batch. Documents
+ * are added with {@link #addDocument(IndexDocument, Analyzer)} and get
+ * consecutive doc ids, starting at 0.
+ * <p>
+ * Indexed fields are inverted with positions, and with offsets if this instance
+ * has been created with <code>storeOffsets=true</code>, regardless of the
+ * {@link IndexOptions} of the field. Doc values of all types are supported, with
+ * the same restrictions as {@link org.apache.lucene.index.IndexWriter}: a field
+ * must always have the same doc values type and numeric, binary and sorted doc
+ * values fields must have at most one value per document. Numeric fields such as
+ * {@link org.apache.lucene.document.LongField} are indexed as trie terms, so that
+ * numeric range queries can be run against them. Stored fields, term vectors and
+ * payloads are not supported.
+ * <p>
+ * A searcher that is created with {@link #createSearcher()} only sees the
+ * documents that have been added until then, and must not be used any more once
+ * other documents have been added. If adding a document fails with an exception,
+ * then the index must be {@link #reset()} before it is used again.
+ * <p>
+ * <b>Thread safety guarantees</b>
+ * <p>
+ * MultiDocMemoryIndex is not thread-safe for adds or queries. However, queries
+ * are thread-safe after {@link #freeze()} has been called.
+ *
+ * @lucene.experimental
+ */
+public class MultiDocMemoryIndex {
+
+  /** data of each field: Map&lt;String fieldName, FieldData field&gt; */
+  private final SortedMap<String,FieldData> fields = new TreeMap<>();
+
+  /** fields that have been seen in the document that is being added */
+  private final List<FieldData> docFields = new ArrayList<>();
+
+  private final boolean storeOffsets;
+
+  private final ByteBlockPool byteBlockPool;
+  private final IntBlockPool intBlockPool;
+  private final IntBlockPool.SliceWriter postingsWriter;
+
+  private int numDocs;
+
+  private boolean frozen = false;
+
+  private Similarity normSimilarity = IndexSearcher.getDefaultSimilarity();
+
+  /**
+   * Constructs an empty instance that will not store offsets.
+   */
+  public MultiDocMemoryIndex() {
+    this(false);
+  }
+
+  /**
+   * Constructs an empty instance that can optionally store the start and end
+   * character offset of each token term in the text.
+   *
+   * @param storeOffsets
+   *            whether or not to store the start and end character offset of
+   *            each token term in the text
+   */
+  public MultiDocMemoryIndex(boolean storeOffsets) {
+    this(storeOffsets, 0);
+  }
+
+  /**
+   * Expert: This constructor accepts an upper limit for the number of bytes that
+   * should be reused if this instance is {@link #reset()}.
+   * @param storeOffsets <code>true</code> if offsets should be stored
+   * @param maxReusedBytes the number of bytes that should remain in the internal memory pools after {@link #reset()} is called
+   */
+  public MultiDocMemoryIndex(boolean storeOffsets, long maxReusedBytes) {
+    if (maxReusedBytes < 0) {
+      throw new IllegalArgumentException("maxReusedBytes must be >= 0 (got: " + maxReusedBytes + ")");
+    }
+    this.storeOffsets = storeOffsets;
+    final Counter bytesUsed = Counter.newCounter();
+    final int maxBufferedByteBlocks = (int)((maxReusedBytes/2) / ByteBlockPool.BYTE_BLOCK_SIZE );
+    final int maxBufferedIntBlocks = (int) ((maxReusedBytes - (maxBufferedByteBlocks*ByteBlockPool.BYTE_BLOCK_SIZE))/(IntBlockPool.INT_BLOCK_SIZE * RamUsageEstimator.NUM_BYTES_INT));
+    byteBlockPool = new ByteBlockPool(new RecyclingByteBlockAllocator(ByteBlockPool.BYTE_BLOCK_SIZE, maxBufferedByteBlocks, bytesUsed));
+    intBlockPool = new IntBlockPool(new RecyclingIntBlockAllocator(IntBlockPool.INT_BLOCK_SIZE, maxBufferedIntBlocks, bytesUsed));
+    postingsWriter = new SliceWriter(intBlockPool);
+  }
+
+  /**
+   * Adds a document to this index, and returns its doc id.
+   *
+   * @param doc
+   *            the document to add
+   * @param analyzer
+   *            the analyzer to use to tokenize the tokenized fields of the document
+   * @return the doc id of the document
+   */
+  public int addDocument(IndexDocument doc, Analyzer analyzer) {
+    if (frozen)
+      throw new IllegalArgumentException("Cannot call addDocument() when MultiDocMemoryIndex is frozen");
+    if (doc == null)
+      throw new IllegalArgumentException("doc must not be null");
+    if (analyzer == null)
+      throw new IllegalArgumentException("analyzer must not be null");
+
+    final int docID = numDocs;
+    try {
+      for (IndexableField field : doc.indexableFields()) {
+        if (field.fieldType().indexOptions() != IndexOptions.NONE) {
+          getOrAddField(field.name(), docID).invert(field, analyzer);
+        }
+      }
+      // like IndexWriter, doc values come with the storable fields
+      for (StorableField field : doc.storableFields()) {
+        if (field.fieldType().docValuesType() != DocValuesType.NONE) {
+          getOrAddField(field.name(), docID).addDocValue(field);
+        }
+      }
+      for (FieldData data : docFields) {
+        data.finishDocument();
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    } finally {
+      docFields.clear();
+    }
+    return numDocs++;
+  }
+
+  /** Returns the data of the given field, and starts the given document on it
+   *  if this is the first time the field is seen in this document. */
+  private FieldData getOrAddField(String name, int docID) {
+    FieldData data = fields.get(name);
+    if (data == null) {
+      data = new FieldData(name, fields.size());
+      fields.put(name, data);
+    }
+    if (data.docID != docID) {
+      data.startDocument(docID);
+      docFields.add(data);
+    }
+    return data;
+  }
+
+  /**
+   * Adds the given documents to this index, in order.
+   *
+   * @param docs
+   *            the documents to add
+   * @param analyzer
+   *            the analyzer to use to tokenize the tokenized fields of the documents
+   * @see #addDocument(IndexDocument, Analyzer)
+   */
+  public void addDocuments(Iterable<? extends IndexDocument> docs, Analyzer analyzer) {
+    for (IndexDocument doc : docs) {
+      addDocument(doc, analyzer);
+    }
+  }
+
+  /**
+   * Returns the number of documents that have been added to this index.
+   */
+  public int numDocs() {
+    return numDocs;
+  }
+
+  /**
+   * Set the Similarity to be used for calculating field norms
+   */
+  public void setSimilarity(Similarity similarity) {
+    if (frozen)
+      throw new IllegalArgumentException("Cannot set Similarity when MultiDocMemoryIndex is frozen");
+    if (this.normSimilarity == similarity)
+      return;
+    this.normSimilarity = similarity;
+    //invalidate any cached norms that may exist
+    for (FieldData data : fields.values()) {
+      data.norms = null;
+    }
+  }
+
+  /**
+   * Creates and returns a searcher that can be used to execute arbitrary
+   * Lucene queries against the documents that have been added so far.
+   *
+   * @return a searcher
+   */
+  public IndexSearcher createSearcher() {
+    MultiDocMemoryIndexReader reader = new MultiDocMemoryIndexReader(numDocs);
+    IndexSearcher searcher = new IndexSearcher(reader);
+    searcher.setSimilarity(normSimilarity);
+    return searcher;
+  }
+
+  /**
+   * Prepares the MultiDocMemoryIndex for querying in a non-lazy way.
+   * <p>
+   * After calling this you can query the MultiDocMemoryIndex from multiple
+   * threads, but you cannot subsequently add new documents.
+   */
+  public void freeze() {
+    this.frozen = true;
+    for (FieldData data : fields.values()) {
+      data.prepare();
+    }
+  }
+
+  /**
+   * Resets the {@link MultiDocMemoryIndex} to its initial state and recycles all internal buffers.
+   */
+  public void reset() {
+    fields.clear();
+    numDocs = 0;
+    this.normSimilarity = IndexSearcher.getDefaultSimilarity();
+    byteBlockPool.reset(false, false); // no need to 0-fill the buffers
+    intBlockPool.reset(true, false); // here must must 0-fill since we use slices
+    this.frozen = false;
+  }
+
+  /** Returns the ids of the values of the given hash, sorted by value. */
+  private static int[] sortedIds(final BytesRefHash hash) {
+    final int[] ids = new int[hash.size()];
+    for (int i = 0; i < ids.length; ++i) {
+      ids[i] = i;
+    }
+    // unlike BytesRefHash.sort, this keeps the hash usable
+    new IntroSorter() {
+      final BytesRef pivot = new BytesRef();
+      final BytesRef scratch1 = new BytesRef();
+      final BytesRef scratch2 = new BytesRef();
+
+      @Override
+      protected void swap(int i, int j) {
+        final int tmp = ids[i];
+        ids[i] = ids[j];
+        ids[j] = tmp;
+      }
+
+      @Override
+      protected int compare(int i, int j) {
+        hash.get(ids[i], scratch1);
+        hash.get(ids[j], scratch2);
+        return scratch1.compareTo(scratch2);
+      }
+
+      @Override
+      protected void setPivot(int i) {
+        hash.get(ids[i], pivot);
+      }
+
+      @Override
+      protected int comparePivot(int j) {
+        hash.get(ids[j], scratch2);
+        return pivot.compareTo(scratch2);
+      }
+    }.sort(0, ids.length);
+    return ids;
+  }
+
+  /**
+   * Index data structure for a field; contains the postings of its terms in all
+   * documents, its per-document norm statistics and its doc values.
+   */
+  private final class FieldData {
+
+    private final String name;
+    private final int number;
+
+    /** the document that is being added, or the last document that had this field */
+    private int docID = -1;
+
+    // inverted index
+
+    private boolean indexed;
+    private boolean omitNorms;
+    private BytesRefHash terms;
+    private PostingsStartArray postings;
+    private long sumTotalTermFreq;
+    private long sumDocFreq;
+    private int docCount;
+
+    // invert state of the current document
+    private boolean invertedInDoc;
+    private int position;
+    private int offset;
+    private int length;
+    private int numOverlap;
+    private float boost;
+
+    // norm statistics per document
+    private int[] lengths = new int[0];
+    private int[] numOverlaps = new int[0];
+    private float[] boosts = new float[0];
+
+    // doc values: the values of document d are values[valueStart[d]:valueStart[d]+valueCount[d]],
+    // numeric values are stored as is while binary values are stored as ids in dvBytes
+
+    private DocValuesType docValuesType = DocValuesType.NONE;
+    private BytesRefHash dvBytes;
+    private int[] valueStart = new int[0];
+    private int[] valueCount = new int[0];
+    private long[] values = new long[0];
+    private int numValues;
+
+    // computed on demand, and invalidated when a document is added
+
+    /** ids of the terms sorted ascending by term text */
+    private int[] sortedTerms;
+    /** norms per document */
+    private long[] norms;
+    /** ids of the binary doc values sorted by value, and the reverse mapping */
+    private int[] ordToId, idToOrd;
+    /** sorted set ords, sorted within each document */
+    private long[] sortedSetOrds;
+
+    FieldData(String name, int number) {
+      this.name = name;
+      this.number = number;
+    }
+
+    void startDocument(int docID) {
+      this.docID = docID;
+      invertedInDoc = false;
+    }
+
+    void invert(IndexableField field, Analyzer analyzer) throws IOException {
+      if (terms == null) {
+        postings = new PostingsStartArray(BytesRefHash.DEFAULT_CAPACITY);
+        terms = new BytesRefHash(byteBlockPool, BytesRefHash.DEFAULT_CAPACITY, postings);
+      }
+      indexed = true;
+      omitNorms |= field.fieldType().omitNorms();
+      if (invertedInDoc == false) {
+        // first time we're seeing this field (indexed) in this document
+        invertedInDoc = true;
+        position = -1;
+        offset = 0;
+        length = 0;
+        numOverlap = 0;
+        boost = 1.0f;
+      }
+
+      try (TokenStream stream = field.tokenStream(analyzer, null)) {
+        TermToBytesRefAttribute termAtt = stream.getAttribute(TermToBytesRefAttribute.class);
+        PositionIncrementAttribute posIncrAttribute = stream.addAttribute(PositionIncrementAttribute.class);
+        OffsetAttribute offsetAtt = stream.addAttribute(OffsetAttribute.class);
+        BytesRef ref = termAtt.getBytesRef();
+        stream.reset();
+
+        while (stream.incrementToken()) {
+          termAtt.fillBytesRef();
+          final int posIncr = posIncrAttribute.getPositionIncrement();
+          if (posIncr == 0)
+            numOverlap++;
+          position += posIncr;
+          length++;
+          int id = terms.add(ref);
+          if (id < 0) {
+            id = (-id) - 1;
+            postingsWriter.reset(postings.end[id]);
+          } else {
+            postings.start[id] = postingsWriter.startNewSlice();
+            postings.lastDocID[id] = -1;
+          }
+          if (postings.lastDocID[id] != docID) {
+            postings.lastDocID[id] = docID;
+            postings.docFreq[id]++;
+            sumDocFreq++;
+          }
+          postings.totalTermFreq[id]++;
+          sumTotalTermFreq++;
+          postingsWriter.writeInt(docID);
+          postingsWriter.writeInt(position);
+          if (storeOffsets) {
+            postingsWriter.writeInt(offset + offsetAtt.startOffset());
+            postingsWriter.writeInt(offset + offsetAtt.endOffset());
+          }
+          postings.end[id] = postingsWriter.getCurrentOffset();
+        }
+        stream.end();
+
+        position += posIncrAttribute.getPositionIncrement();
+        offset += offsetAtt.endOffset();
+      }
+
+      if (field.fieldType().tokenized()) {
+        position += analyzer.getPositionIncrementGap(name);
+        offset += analyzer.getOffsetGap(name);
+      }
+      boost *= field.boost();
+    }
+
+    void addDocValue(StorableField field) {
+      final DocValuesType type = field.fieldType().docValuesType();
+      if (docValuesType == DocValuesType.NONE) {
+        docValuesType = type;
+      } else if (docValuesType != type) {
+        throw new IllegalArgumentException("cannot change DocValues type from " + docValuesType + " to " + type + " for field \"" + name + "\"");
+      }
+
+      if (docID >= valueCount.length) {
+        valueStart = ArrayUtil.grow(valueStart, docID + 1);
+        valueCount = ArrayUtil.grow(valueCount, docID + 1);
+      }
+      if (valueCount[docID] == 0) {
+        valueStart[docID] = numValues;
+      } else if (type == DocValuesType.NUMERIC || type == DocValuesType.BINARY || type == DocValuesType.SORTED) {
+        throw new IllegalArgumentException("DocValuesField \"" + name + "\" appears more than once in this document (only one value is allowed per field)");
+      }
+
+      final long value;
+      switch (type) {
+        case NUMERIC:
+        case SORTED_NUMERIC:
+          value = field.numericValue().longValue();
+          break;
+        case BINARY:
+        case SORTED:
+        case SORTED_SET:
+          if (dvBytes == null) {
+            dvBytes = new BytesRefHash(byteBlockPool);
+          }
+          int id = dvBytes.add(field.binaryValue());
+          if (id < 0) {
+            id = (-id) - 1;
+          }
+          value = id;
+          break;
+        default:
+          throw new AssertionError("unrecognized DocValues.Type: " + type);
+      }
+
+      values = ArrayUtil.grow(values, numValues + 1);
+      values[numValues++] = value;
+      valueCount[docID]++;
+    }
+
+    void finishDocument() {
+      if (invertedInDoc) {
+        if (length > 0) {
+          docCount++;
+        }
+        if (docID >= lengths.length) {
+          lengths = ArrayUtil.grow(lengths, docID + 1);
+          numOverlaps = ArrayUtil.grow(numOverlaps, docID + 1);
+          boosts = ArrayUtil.grow(boosts, docID + 1);
+        }
+        lengths[docID] = length;
+        numOverlaps[docID] = numOverlap;
+        boosts[docID] = boost;
+      }
+      if (docValuesType == DocValuesType.SORTED_NUMERIC && docID < valueCount.length) {
+        Arrays.sort(values, valueStart[docID], valueStart[docID] + valueCount[docID]);
+      }
+      sortedTerms = null;
+      norms = null;
+      ordToId = idToOrd = null;
+      sortedSetOrds = null;
+    }
+
+    /** Computes all data that is otherwise computed on demand. */
+    void prepare() {
+      if (terms != null) {
+        getSortedTerms();
+        if (hasNorms()) {
+          getNorms();
+        }
+      }
+      if (docValuesType == DocValuesType.SORTED || docValuesType == DocValuesType.SORTED_SET) {
+        getOrdToId();
+      }
+      if (docValuesType == DocValuesType.SORTED_SET) {
+        getSortedSetOrds();
+      }
+    }
+
+    boolean hasNorms() {
+      return indexed && omitNorms == false;
+    }
+
+    int[] getSortedTerms() {
+      if (sortedTerms == null) {
+        sortedTerms = sortedIds(terms);
+      }
+      return sortedTerms;
+    }
+
+    long[] getNorms() {
+      if (norms == null) {
+        final long[] norms = new long[lengths.length];
+        for (int doc = 0; doc < norms.length; ++doc) {
+          // like IndexWriter, documents without tokens have a norm of 0
+          if (lengths[doc] > 0) {
+            FieldInvertState invertState = new FieldInvertState(name, 0, lengths[doc], numOverlaps[doc], 0, boosts[doc]);
+            norms[doc] = normSimilarity.computeNorm(invertState);
+          }
+        }
+        this.norms = norms;
+      }
+      return norms;
+    }
+
+    int[] getOrdToId() {
+      if (ordToId == null) {
+        final int[] ordToId = sortedIds(dvBytes);
+        final int[] idToOrd = new int[ordToId.length];
+        for (int ord = 0; ord < ordToId.length; ++ord) {
+          idToOrd[ordToId[ord]] = ord;
+        }
+        this.idToOrd = idToOrd;
+        this.ordToId = ordToId;
+      }
+      return ordToId;
+    }
+
+    int[] getIdToOrd() {
+      getOrdToId();
+      return idToOrd;
+    }
+
+    long[] getSortedSetOrds() {
+      if (sortedSetOrds == null) {
+        final int[] idToOrd = getIdToOrd();
+        final long[] sortedSetOrds = new long[numValues];
+        for (int i = 0; i < numValues; ++i) {
+          sortedSetOrds[i] = idToOrd[(int) values[i]];
+        }
+        for (int doc = 0; doc < valueCount.length; ++doc) {
+          Arrays.sort(sortedSetOrds, valueStart[doc], valueStart[doc] + valueCount[doc]);
+        }
+        this.sortedSetOrds = sortedSetOrds;
+      }
+      return sortedSetOrds;
+    }
+
+    int valueCount(int docID) {
+      return docID < valueCount.length ? valueCount[docID] : 0;
+    }
+
+    FieldInfo fieldInfo() {
+      final IndexOptions indexOptions;
+      if (indexed == false) {
+        indexOptions = IndexOptions.NONE;
+      } else if (storeOffsets) {
+        indexOptions = IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS;
+      } else {
+        indexOptions = IndexOptions.DOCS_AND_FREQS_AND_POSITIONS;
+      }
+      return new FieldInfo(name, number, false, omitNorms, false, indexOptions, docValuesType, -1, Collections.<String,String>emptyMap());
+    }
+  }
+
+  ///////////////////////////////////////////////////////////////////////////////
+  // Nested classes:
+  ///////////////////////////////////////////////////////////////////////////////
+
+  /**
+   * Search support for Lucene framework integration; implements all methods
+   * required by the Lucene IndexReader contracts.
+   */
+  private final class MultiDocMemoryIndexReader extends LeafReader {
+
+    private final int maxDoc;
+
+    private MultiDocMemoryIndexReader(int maxDoc) {
+      super(); // avoid as much superclass baggage as possible
+      this.maxDoc = maxDoc;
+    }
+
+    @Override
+    public void addCoreClosedListener(CoreClosedListener listener) {
+      addCoreClosedListenerAsReaderClosedListener(this, listener);
+    }
+
+    @Override
+    public void removeCoreClosedListener(CoreClosedListener listener) {
+      removeCoreClosedListenerAsReaderClosedListener(this, listener);
+    }
+
+    @Override
+    public Bits getLiveDocs() {
+      return null;
+    }
+
+    @Override
+    public FieldInfos getFieldInfos() {
+      FieldInfo[] fieldInfos = new FieldInfo[fields.size()];
+      int i = 0;
+      for (FieldData data : fields.values()) {
+        fieldInfos[i++] = data.fieldInfo();
+      }
+      return new FieldInfos(fieldInfos);
+    }
+
+    private FieldData getDocValuesField(String field, DocValuesType type) {
+      final FieldData data = fields.get(field);
+      if (data == null || data.docValuesType != type) {
+        return null;
+      }
+      return data;
+    }
+
+    @Override
+    public NumericDocValues getNumericDocValues(String field) {
+      final FieldData data = getDocValuesField(field, DocValuesType.NUMERIC);
+      if (data == null) {
+        return null;
+      }
+      return new NumericDocValues() {
+        @Override
+        public long get(int docID) {
+          return data.valueCount(docID) == 0 ? 0 : data.values[data.valueStart[docID]];
+        }
+      };
+    }
+
+    @Override
+    public BinaryDocValues getBinaryDocValues(String field) {
+      final FieldData data = getDocValuesField(field, DocValuesType.BINARY);
+      if (data == null) {
+        return null;
+      }
+      return new BinaryDocValues() {
+        private final BytesRef scratch = new BytesRef();
+
+        @Override
+        public BytesRef get(int docID) {
+          if (data.valueCount(docID) == 0) {
+            return new BytesRef();
+          }
+          return data.dvBytes.get((int) data.values[data.valueStart[docID]], scratch);
+        }
+      };
+    }
+
+    @Override
+    public SortedDocValues getSortedDocValues(String field) {
+      final FieldData data = getDocValuesField(field, DocValuesType.SORTED);
+      if (data == null) {
+        return null;
+      }
+      final int[] ordToId = data.getOrdToId();
+      final int[] idToOrd = data.getIdToOrd();
+      return new SortedDocValues() {
+        private final BytesRef scratch = new BytesRef();
+
+        @Override
+        public int getOrd(int docID) {
+          return data.valueCount(docID) == 0 ? -1 : idToOrd[(int) data.values[data.valueStart[docID]]];
+        }
+
+        @Override
+        public BytesRef lookupOrd(int ord) {
+          return data.dvBytes.get(ordToId[ord], scratch);
+        }
+
+        @Override
+        public int getValueCount() {
+          return ordToId.length;
+        }
+      };
+    }
+
+    @Override
+    public SortedNumericDocValues getSortedNumericDocValues(String field) {
+      final FieldData data = getDocValuesField(field, DocValuesType.SORTED_NUMERIC);
+      if (data == null) {
+        return null;
+      }
+      return new SortedNumericDocValues() {
+        private int start;
+        private int count;
+
+        @Override
+        public void setDocument(int doc) {
+          count = data.valueCount(doc);
+          start = count == 0 ? 0 : data.valueStart[doc];
+        }
+
+        @Override
+        public long valueAt(int index) {
+          return data.values[start + index];
+        }
+
+        @Override
+        public int count() {
+          return count;
+        }
+      };
+    }
+
+    @Override
+    public SortedSetDocValues getSortedSetDocValues(String field) {
+      final FieldData data = getDocValuesField(field, DocValuesType.SORTED_SET);
+      if (data == null) {
+        return null;
+      }
+      final int[] ordToId = data.getOrdToId();
+      final long[] ords = data.getSortedSetOrds();
+      return new SortedSetDocValues() {
+        private final BytesRef scratch = new BytesRef();
+        private int upto;
+        private int end;
+
+        @Override
+        public long nextOrd() {
+          if (upto == end) {
+            return NO_MORE_ORDS;
+          }
+          final long ord = ords[upto++];
+          // skip duplicate values
+          while (upto < end && ords[upto] == ord) {
+            upto++;
+          }
+          return ord;
+        }
+
+        @Override
+        public void setDocument(int docID) {
+          final int count = data.valueCount(docID);
+          upto = count == 0 ? 0 : data.valueStart[docID];
+          end = upto + count;
+        }
+
+        @Override
+        public BytesRef lookupOrd(long ord) {
+          return data.dvBytes.get(ordToId[(int) ord], scratch);
+        }
+
+        @Override
+        public long getValueCount() {
+          return ordToId.length;
+        }
+      };
+    }
+
+    @Override
+    public Bits getDocsWithField(String field) {
+      final FieldData data = fields.get(field);
+      if (data == null || data.docValuesType == DocValuesType.NONE) {
+        return null;
+      }
+      return new Bits() {
+        @Override
+        public boolean get(int index) {
+          return data.valueCount(index) > 0;
+        }
+
+        @Override
+        public int length() {
+          return maxDoc;
+        }
+      };
+    }
+
+    @Override
+    public void checkIntegrity() throws IOException {
+      // no-op
+    }
+
+    private class MultiDocMemoryFields extends Fields {
+
+      private final List<String> fieldNames = new ArrayList<>();
+
+      MultiDocMemoryFields() {
+        for (FieldData data : fields.values()) {
+          if (data.terms != null && data.terms.size() > 0) {
+            fieldNames.add(data.name);
+          }
+        }
+      }
+
+      @Override
+      public Iterator<String> iterator() {
+        return Collections.unmodifiableList(fieldNames).iterator();
+      }
+
+      @Override
+      public Terms terms(final String field) {
+        final FieldData data = fields.get(field);
+        if (data == null || data.terms == null || data.terms.size() == 0)
+          return null;
+
+        return new Terms() {
+          @Override
+          public TermsEnum iterator() {
+            return new MultiDocMemoryTermsEnum(data);
+          }
+
+          @Override
+          public long size() {
+            return data.terms.size();
+          }
+
+          @Override
+          public long getSumTotalTermFreq() {
+            return data.sumTotalTermFreq;
+          }
+
+          @Override
+          public long getSumDocFreq() {
+            return data.sumDocFreq;
+          }
+
+          @Override
+          public int getDocCount() {
+            return data.docCount;
+          }
+
+          @Override
+          public boolean hasFreqs() {
+            return true;
+          }
+
+          @Override
+          public boolean hasOffsets() {
+            return storeOffsets;
+          }
+
+          @Override
+          public boolean hasPositions() {
+            return true;
+          }
+
+          @Override
+          public boolean hasPayloads() {
+            return false;
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return fieldNames.size();
+      }
+    }
+
+    @Override
+    public Fields fields() {
+      return new MultiDocMemoryFields();
+    }
+
+    private class MultiDocMemoryTermsEnum extends TermsEnum {
+      private final FieldData data;
+      private final int[] sortedTerms;
+      private final BytesRef br = new BytesRef();
+      int termUpto = -1;
+
+      public MultiDocMemoryTermsEnum(FieldData data) {
+        this.data = data;
+        this.sortedTerms = data.getSortedTerms();
+      }
+
+      private int binarySearch(BytesRef b) {
+        int low = 0;
+        int high = sortedTerms.length - 1;
+        while (low <= high) {
+          final int mid = (low + high) >>> 1;
+          data.terms.get(sortedTerms[mid], br);
+          final int cmp = br.compareTo(b);
+          if (cmp < 0) {
+            low = mid + 1;
+          } else if (cmp > 0) {
+            high = mid - 1;
+          } else {
+            return mid;
+          }
+        }
+        return -(low + 1);
+      }
+
+      @Override
+      public boolean seekExact(BytesRef text) {
+        termUpto = binarySearch(text);
+        return termUpto >= 0;
+      }
+
+      @Override
+      public SeekStatus seekCeil(BytesRef text) {
+        termUpto = binarySearch(text);
+        if (termUpto < 0) { // not found; choose successor
+          termUpto = -termUpto-1;
+          if (termUpto >= sortedTerms.length) {
+            return SeekStatus.END;
+          } else {
+            data.terms.get(sortedTerms[termUpto], br);
+            return SeekStatus.NOT_FOUND;
+          }
+        } else {
+          return SeekStatus.FOUND;
+        }
+      }
+
+      @Override
+      public void seekExact(long ord) {
+        assert ord < sortedTerms.length;
+        termUpto = (int) ord;
+        data.terms.get(sortedTerms[termUpto], br);
+      }
+
+      @Override
+      public BytesRef next() {
+        termUpto++;
+        if (termUpto >= sortedTerms.length) {
+          return null;
+        } else {
+          data.terms.get(sortedTerms[termUpto], br);
+          return br;
+        }
+      }
+
+      @Override
+      public BytesRef term() {
+        return br;
+      }
+
+      @Override
+      public long ord() {
+        return termUpto;
+      }
+
+      @Override
+      public int docFreq() {
+        return data.postings.docFreq[sortedTerms[termUpto]];
+      }
+
+      @Override
+      public long totalTermFreq() {
+        return data.postings.totalTermFreq[sortedTerms[termUpto]];
+      }
+
+      @Override
+      public PostingsEnum postings(Bits liveDocs, PostingsEnum reuse, int flags) {
+        if (reuse == null || !(reuse instanceof MultiDocMemoryPostingsEnum)) {
+          reuse = new MultiDocMemoryPostingsEnum();
+        }
+        final int id = sortedTerms[termUpto];
+        final PostingsStartArray postings = data.postings;
+        return ((MultiDocMemoryPostingsEnum) reuse).reset(liveDocs, postings.start[id], postings.end[id], postings.docFreq[id]);
+      }
+
+      @Override
+      public void seekExact(BytesRef term, TermState state) throws IOException {
+        assert state != null;
+        this.seekExact(((OrdTermState)state).ord);
+      }
+
+      @Override
+      public TermState termState() throws IOException {
+        OrdTermState ts = new OrdTermState();
+        ts.ord = termUpto;
+        return ts;
+      }
+    }
+
+    /**
+     * Postings are stored as one entry per occurrence: the doc id, the position
+     * and optionally the offsets. The positions of the current document are
+     * buffered so that its frequency is known before they are consumed.
+     */
+    private class MultiDocMemoryPostingsEnum extends PostingsEnum {
+
+      private final SliceReader sliceReader;
+      private Bits liveDocs;
+      private int docFreq;
+      private int doc = -1;
+      private int freq;
+      private int posUpto;
+      private int[] positions = new int[1];
+      private int[] startOffsets = new int[1];
+      private int[] endOffsets = new int[1];
+
+      // the next entry of the slice
+      private int nextDoc;
+      private int nextPosition;
+      private int nextStartOffset;
+      private int nextEndOffset;
+
+      public MultiDocMemoryPostingsEnum() {
+        this.sliceReader = new SliceReader(intBlockPool);
+      }
+
+      public PostingsEnum reset(Bits liveDocs, int start, int end, int docFreq) {
+        this.liveDocs = liveDocs;
+        this.sliceReader.reset(start, end);
+        this.docFreq = docFreq;
+        doc = -1;
+        freq = posUpto = 0;
+        readEntry();
+        return this;
+      }
+
+      private void readEntry() {
+        if (sliceReader.endOfSlice()) {
+          nextDoc = NO_MORE_DOCS;
+        } else {
+          nextDoc = sliceReader.readInt();
+          nextPosition = sliceReader.readInt();
+          if (storeOffsets) {
+            nextStartOffset = sliceReader.readInt();
+            nextEndOffset = sliceReader.readInt();
+          }
+        }
+      }
+
+      @Override
+      public int docID() {
+        return doc;
+      }
+
+      @Override
+      public int nextDoc() {
+        while (true) {
+          doc = nextDoc;
+          if (doc == NO_MORE_DOCS) {
+            return doc;
+          }
+          freq = posUpto = 0;
+          while (nextDoc == doc) {
+            if (freq == positions.length) {
+              positions = ArrayUtil.grow(positions, freq + 1);
+              startOffsets = ArrayUtil.grow(startOffsets, freq + 1);
+              endOffsets = ArrayUtil.grow(endOffsets, freq + 1);
+            }
+            positions[freq] = nextPosition;
+            startOffsets[freq] = nextStartOffset;
+            endOffsets[freq] = nextEndOffset;
+            freq++;
+            readEntry();
+          }
+          if (liveDocs == null || liveDocs.get(doc)) {
+            return doc;
+          }
+        }
+      }
+
+      @Override
+      public int advance(int target) throws IOException {
+        return slowAdvance(target);
+      }
+
+      @Override
+      public int freq() throws IOException {
+        return freq;
+      }
+
+      @Override
+      public int nextPosition() {
+        assert posUpto < freq;
+        return positions[posUpto++];
+      }
+
+      @Override
+      public int startOffset() {
+        return storeOffsets ? startOffsets[posUpto - 1] : -1;
+      }
+
+      @Override
+      public int endOffset() {
+        return storeOffsets ? endOffsets[posUpto - 1] : -1;
+      }
+
+      @Override
+      public BytesRef getPayload() {
+        return null;
+      }
+
+      @Override
+      public long cost() {
+        return docFreq;
+      }
+    }
+
+    @Override
+    public Fields getTermVectors(int docID) {
+      return null; // term vectors are not stored
+    }
+
+    @Override
+    public int numDocs() {
+      return maxDoc;
+    }
+
+    @Override
+    public int maxDoc() {
+      return maxDoc;
+    }
+
+    @Override
+    public void document(int docID, StoredFieldVisitor visitor) {
+      // no-op: there are no stored fields
+    }
+
+    @Override
+    protected void doClose() {
+    }
+
+    @Override
+    public NumericDocValues getNormValues(String field) {
+      final FieldData data = fields.get(field);
+      if (data == null || data.hasNorms() == false) {
+        return null;
+      }
+      final long[] norms = data.getNorms();
+      return new NumericDocValues() {
+        @Override
+        public long get(int docID) {
+          return docID < norms.length ? norms[docID] : 0;
+        }
+      };
+    }
+  }
+
+  private static final class PostingsStartArray extends DirectBytesStartArray {
+    int[] start; // the start offset in the IntBlockPool per term
+    int[] end; // the end pointer in the IntBlockPool for the postings slice per term
+    int[] docFreq; // the number of documents that contain the term
+    int[] totalTermFreq; // the number of occurrences of the term
+    int[] lastDocID; // the last document that contains the term
+
+    public PostingsStartArray(int initSize) {
+      super(initSize);
+    }
+
+    @Override
+    public int[] init() {
+      final int[] ord = super.init();
+      final int size = ArrayUtil.oversize(ord.length, RamUsageEstimator.NUM_BYTES_INT);
+      start = new int[size];
+      end = new int[size];
+      docFreq = new int[size];
+      totalTermFreq = new int[size];
+      lastDocID = new int[size];
+      return ord;
+    }
+
+    @Override
+    public int[] grow() {
+      final int[] ord = super.grow();
+      if (start.length < ord.length) {
+        start = ArrayUtil.grow(start, ord.length);
+        end = ArrayUtil.grow(end, ord.length);
+        docFreq = ArrayUtil.grow(docFreq, ord.length);
+        totalTermFreq = ArrayUtil.grow(totalTermFreq, ord.length);
+        lastDocID = ArrayUtil.grow(lastDocID, ord.length);
+      }
+      return ord;
+    }
+
+    @Override
+    public int[] clear() {
+      start = end = docFreq = totalTermFreq = lastDocID = null;
+      return super.clear();
+    }
+  }
+}
@@ -16,6 +16,6 @@
  */
 
 /**
- * High-performance single-document main memory Apache Lucene fulltext search index.
+ * High-performance main memory Apache Lucene fulltext search indexes, over a single document or a small batch of documents.
  */
 package org.apache.lucene.index.memory;
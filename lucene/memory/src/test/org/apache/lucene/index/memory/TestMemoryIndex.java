@@ -156,5 +156,28 @@ public class TestMemoryIndex extends LuceneTestCase {
     TestUtil.checkReader(reader);
   }
 
+  @Test
+  public void testReuseAfterReset() throws IOException {
+    MemoryIndex reused = new MemoryIndex(true, false, 1024 * 1024);
+    int iters = atLeast(20);
+    for (int i = 0; i < iters; i++) {
+      MemoryIndex fresh = new MemoryIndex(true, false);
+      int numFields = TestUtil.nextInt(random(), 1, 4);
+      for (int j = 0; j < numFields; j++) {
+        String field = "f" + random().nextInt(4);
+        StringBuilder text = new StringBuilder();
+        int numTokens = TestUtil.nextInt(random(), 1, 50);
+        for (int k = 0; k < numTokens; k++) {
+          text.append(' ').append(TestUtil.randomSimpleString(random(), 1, 3));
+        }
+        reused.addField(field, text.toString(), analyzer);
+        fresh.addField(field, text.toString(), analyzer);
+      }
+      // recycled term hashes must not leak terms or frequencies of the previous documents
+      assertEquals(fresh.toString(), reused.toString());
+      TestUtil.checkReader(reused.createSearcher().getIndexReader());
+      reused.reset();
+    }
+  }
 
 }
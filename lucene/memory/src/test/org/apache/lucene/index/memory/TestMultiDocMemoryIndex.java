@@ -0,0 +1,248 @@
+package org.apache.lucene.index.memory;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.MockTokenizer;
+import org.apache.lucene.document.BinaryDocValuesField;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.NumericRangeQuery;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
+
+public class TestMultiDocMemoryIndex extends LuceneTestCase {
+
+  private static final String[] WORDS = new String[] { "a", "b", "c", "d", "e", "f", "g", "h" };
+
+  // MockAnalyzer would randomly add payloads, which MultiDocMemoryIndex does not store
+  private static Analyzer newAnalyzer(final int positionIncrementGap) {
+    return new Analyzer() {
+      @Override
+      protected TokenStreamComponents createComponents(String fieldName) {
+        return new TokenStreamComponents(new MockTokenizer(MockTokenizer.WHITESPACE, false));
+      }
+
+      @Override
+      public int getPositionIncrementGap(String fieldName) {
+        return positionIncrementGap;
+      }
+    };
+  }
+
+  private static String randomText() {
+    StringBuilder text = new StringBuilder();
+    int numTokens = random().nextInt(10);
+    for (int i = 0; i < numTokens; i++) {
+      text.append(' ').append(WORDS[random().nextInt(WORDS.length)]);
+    }
+    return text.toString();
+  }
+
+  private static Document randomDocument(FieldType textType, FieldType keywordType, FieldType longType) {
+    Document doc = new Document();
+    int numBodies = random().nextInt(3);
+    for (int i = 0; i < numBodies; i++) {
+      Field body = new Field("body", randomText(), textType);
+      if (random().nextInt(5) == 0) {
+        body.setBoost(1 + random().nextInt(3));
+      }
+      doc.add(body);
+    }
+    if (random().nextBoolean()) {
+      doc.add(new Field("id", WORDS[random().nextInt(WORDS.length)], keywordType));
+    }
+    if (random().nextBoolean()) {
+      doc.add(new LongField("num", random().nextInt(1000), longType));
+    }
+    if (random().nextBoolean()) {
+      doc.add(new NumericDocValuesField("dv_num", random().nextLong()));
+    }
+    if (random().nextBoolean()) {
+      doc.add(new BinaryDocValuesField("dv_bin", new BytesRef(WORDS[random().nextInt(WORDS.length)])));
+    }
+    if (random().nextBoolean()) {
+      doc.add(new SortedDocValuesField("dv_sorted", new BytesRef(WORDS[random().nextInt(WORDS.length)])));
+    }
+    int numSetValues = random().nextInt(4);
+    for (int i = 0; i < numSetValues; i++) {
+      doc.add(new SortedSetDocValuesField("dv_set", new BytesRef(WORDS[random().nextInt(WORDS.length)])));
+    }
+    int numSortedNumericValues = random().nextInt(4);
+    for (int i = 0; i < numSortedNumericValues; i++) {
+      doc.add(new SortedNumericDocValuesField("dv_sorted_num", random().nextInt(10) - 5));
+    }
+    return doc;
+  }
+
+  public void testDuelWithIndexWriter() throws IOException {
+    final boolean storeOffsets = random().nextBoolean();
+    final IndexOptions indexOptions = storeOffsets
+        ? IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS : IndexOptions.DOCS_AND_FREQS_AND_POSITIONS;
+    FieldType textType = new FieldType(TextField.TYPE_NOT_STORED);
+    textType.setIndexOptions(indexOptions);
+    FieldType keywordType = new FieldType(textType);
+    keywordType.setTokenized(false);
+    keywordType.setOmitNorms(true);
+    FieldType longType = new FieldType(LongField.TYPE_NOT_STORED);
+    longType.setIndexOptions(indexOptions);
+
+    Analyzer analyzer = newAnalyzer(random().nextInt(5));
+    MultiDocMemoryIndex memory = new MultiDocMemoryIndex(storeOffsets, random().nextInt(5) * 1024 * 1024);
+    int iters = atLeast(3);
+    for (int iter = 0; iter < iters; iter++) { // check reuse
+      List<Document> docs = new ArrayList<>();
+      int numDocs = TestUtil.nextInt(random(), 1, 200);
+      for (int i = 0; i < numDocs; i++) {
+        docs.add(randomDocument(textType, keywordType, longType));
+      }
+
+      Directory dir = newDirectory();
+      IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(analyzer));
+      writer.addDocuments(docs);
+      writer.close();
+      DirectoryReader competitor = DirectoryReader.open(dir);
+      assertEquals(1, competitor.leaves().size());
+
+      memory.addDocuments(docs, analyzer);
+      if (random().nextBoolean()) {
+        memory.freeze();
+      }
+      assertEquals(numDocs, memory.numDocs());
+      IndexSearcher memorySearcher = memory.createSearcher();
+      LeafReader memoryReader = (LeafReader) memorySearcher.getIndexReader();
+      TestUtil.checkReader(memoryReader);
+      assertReaderEquals("iter=" + iter, competitor, memoryReader);
+
+      IndexSearcher competitorSearcher = new IndexSearcher(competitor);
+      for (int i = 0; i < 20; i++) {
+        assertSameHits(randomQuery(), competitorSearcher, memorySearcher);
+      }
+
+      competitor.close();
+      dir.close();
+      memory.reset();
+    }
+  }
+
+  private static Query randomQuery() {
+    switch (random().nextInt(4)) {
+      case 0:
+        return new TermQuery(new Term("body", WORDS[random().nextInt(WORDS.length)]));
+      case 1:
+        return new PhraseQuery(random().nextInt(3), "body", WORDS[random().nextInt(WORDS.length)], WORDS[random().nextInt(WORDS.length)]);
+      case 2:
+        int min = random().nextInt(1000);
+        return NumericRangeQuery.newLongRange("num", (long) min, (long) min + random().nextInt(500), random().nextBoolean(), random().nextBoolean());
+      default:
+        BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        builder.add(new TermQuery(new Term("body", WORDS[random().nextInt(WORDS.length)])), Occur.SHOULD);
+        builder.add(new TermQuery(new Term("id", WORDS[random().nextInt(WORDS.length)])), Occur.SHOULD);
+        return builder.build();
+    }
+  }
+
+  private static void assertSameHits(Query query, IndexSearcher expected, IndexSearcher actual) throws IOException {
+    final int numDocs = expected.getIndexReader().maxDoc();
+    TopDocs expectedDocs = expected.search(query, numDocs);
+    TopDocs actualDocs = actual.search(query, numDocs);
+    assertEquals(query.toString(), expectedDocs.totalHits, actualDocs.totalHits);
+    for (int i = 0; i < expectedDocs.scoreDocs.length; i++) {
+      assertEquals(query.toString(), expectedDocs.scoreDocs[i].doc, actualDocs.scoreDocs[i].doc);
+      assertEquals(query.toString(), expectedDocs.scoreDocs[i].score, actualDocs.scoreDocs[i].score, 0f);
+    }
+  }
+
+  public void testChangeDocValuesType() {
+    MultiDocMemoryIndex memory = new MultiDocMemoryIndex();
+    Document doc = new Document();
+    doc.add(new NumericDocValuesField("dv", 1));
+    memory.addDocument(doc, newAnalyzer(0));
+
+    Document doc2 = new Document();
+    doc2.add(new SortedDocValuesField("dv", new BytesRef("foo")));
+    try {
+      memory.addDocument(doc2, newAnalyzer(0));
+      fail("Expected an IllegalArgumentException when changing the doc values type of a field");
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("cannot change DocValues type"));
+    }
+  }
+
+  public void testSingleValuedDocValues() {
+    MultiDocMemoryIndex memory = new MultiDocMemoryIndex();
+    Document doc = new Document();
+    doc.add(new NumericDocValuesField("dv", 1));
+    doc.add(new NumericDocValuesField("dv", 2));
+    try {
+      memory.addDocument(doc, newAnalyzer(0));
+      fail("Expected an IllegalArgumentException when adding two values to a numeric doc values field");
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("appears more than once"));
+    }
+  }
+
+  public void testFreeze() throws IOException {
+    MultiDocMemoryIndex memory = new MultiDocMemoryIndex();
+    Document doc = new Document();
+    doc.add(new TextField("body", "some text", Field.Store.NO));
+    assertEquals(0, memory.addDocument(doc, newAnalyzer(0)));
+    assertEquals(1, memory.addDocument(doc, newAnalyzer(0)));
+    memory.freeze();
+    try {
+      memory.addDocument(doc, newAnalyzer(0));
+      fail("Expected an IllegalArgumentException when adding a document after calling freeze()");
+    } catch (IllegalArgumentException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("frozen"));
+    }
+    IndexReader reader = memory.createSearcher().getIndexReader();
+    assertEquals(2, reader.maxDoc());
+    assertEquals(2, reader.docFreq(new Term("body", "text")));
+
+    memory.reset();
+    assertEquals(0, memory.addDocument(doc, newAnalyzer(0)));
+    assertEquals(1, memory.createSearcher().getIndexReader().docFreq(new Term("body", "text")));
+  }
+}
@@ -43,6 +43,7 @@ import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.NumericDocValues;
 import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.StoredFieldVisitor;
 import org.apache.lucene.uninverting.FieldCache.CacheEntry;
 import org.apache.lucene.util.Bits;
 
@@ -299,6 +300,12 @@ public class UninvertingReader extends FilterLeafReader {
     return mapping.get(field);
   }
 
+  @Override
+  public void documents(int[] docIDs, StoredFieldVisitor[] visitors, int count) throws IOException {
+    // stored fields are not filtered, so they can be loaded in batches
+    in.documents(docIDs, visitors, count);
+  }
+
   @Override
   public Object getCoreCacheKey() {
     return in.getCoreCacheKey();
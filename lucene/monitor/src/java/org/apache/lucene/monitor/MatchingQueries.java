@@ -0,0 +1,84 @@
+package org.apache.lucene.monitor;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The result of matching a batch of documents against the queries of a
+ * {@link Monitor}.
+ * @lucene.experimental
+ */
+public final class MatchingQueries {
+
+  private final int batchSize;
+  private final int queryCount;
+  private final int candidateCount;
+  private final Map<String,int[]> matches;
+
+  MatchingQueries(int batchSize, int queryCount, int candidateCount, Map<String,int[]> matches) {
+    this.batchSize = batchSize;
+    this.queryCount = queryCount;
+    this.candidateCount = candidateCount;
+    this.matches = matches;
+  }
+
+  /** Return the number of documents that have been matched. */
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  /** Return the number of queries that were registered in the monitor when
+   *  the documents were matched. */
+  public int getQueryCount() {
+    return queryCount;
+  }
+
+  /** Return the number of queries that have been run against the documents,
+   *  ie. the queries that have been selected as candidates by the terms of the
+   *  documents. */
+  public int getCandidateCount() {
+    return candidateCount;
+  }
+
+  /** Return the ids of the queries that matched at least one document. */
+  public Set<String> getMatchingIds() {
+    return Collections.unmodifiableSet(matches.keySet());
+  }
+
+  /** Return whether the query with the given id matched at least one
+   *  document. */
+  public boolean matches(String id) {
+    return matches.containsKey(id);
+  }
+
+  /** Return the indices in the batch of the documents that the query with
+   *  the given id matched, in increasing order. */
+  public int[] getMatchingDocs(String id) {
+    final int[] docs = matches.get(id);
+    return docs == null ? new int[0] : docs.clone();
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "(batchSize=" + batchSize + ",queries=" + queryCount
+        + ",candidates=" + candidateCount + ",matches=" + matches.size() + ")";
+  }
+}
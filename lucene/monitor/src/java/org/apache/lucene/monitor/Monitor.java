@@ -0,0 +1,356 @@
+package org.apache.lucene.monitor;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.Fields;
+import org.apache.lucene.index.IndexDocument;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.index.memory.MemoryIndex;
+import org.apache.lucene.index.memory.MultiDocMemoryIndex;
+import org.apache.lucene.queries.TermsQuery;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.ThreadInterruptedException;
+
+/**
+ * Matches documents against a large set of registered queries.
+ * <p>
+ * Looping over all queries and running each of them against every incoming
+ * document has a cost that is linear in the number of queries. Instead, this
+ * class indexes every registered query by the terms that a
+ * {@link QueryTermExtractor} extracted from it: a document can only match a
+ * query if it contains one of these terms. Matching a batch of documents first
+ * runs a disjunction of all the terms of the documents against this index of
+ * queries in order to select candidate queries, and then only runs these
+ * candidates against the documents, optionally in parallel.
+ * <p>
+ * This class is thread-safe: queries can be registered and removed while
+ * documents are being matched.
+ * @lucene.experimental
+ */
+public class Monitor implements Closeable {
+
+  /** Field that holds the id of the query. */
+  static final String ID_FIELD = "__monitor_id";
+  /** Field that indexes queries from which no terms could be extracted. */
+  static final String ANY_FIELD = "__monitor_any";
+  private static final String ANY_TOKEN = "__any";
+
+  /** Number of candidate queries that are run in a single task when
+   *  candidates are verified in parallel. */
+  private static final int VERIFY_BATCH_SIZE = 64;
+
+  private final QueryTermExtractor extractor;
+  private final ExecutorService executor;
+  private final Directory directory;
+  private final IndexWriter writer;
+  private final SearcherManager searcherManager;
+  private final Map<String,MonitorQuery> queries = new ConcurrentHashMap<>();
+
+  /** Create a monitor that uses a default {@link QueryTermExtractor} and runs
+   *  candidate queries on the calling thread. */
+  public Monitor() throws IOException {
+    this(new QueryTermExtractor(), null);
+  }
+
+  /** Create a monitor that indexes queries by the terms that
+   *  {@code extractor} extracts from them, and that runs candidate queries
+   *  with {@code executor}, or on the calling thread if it is {@code null}. */
+  public Monitor(QueryTermExtractor extractor, ExecutorService executor) throws IOException {
+    this.extractor = extractor;
+    this.executor = executor;
+    this.directory = new RAMDirectory();
+    boolean success = false;
+    IndexWriter writer = null;
+    try {
+      // queries are indexed with pre-tokenized fields only
+      writer = new IndexWriter(directory, new IndexWriterConfig(null));
+      this.writer = writer;
+      this.searcherManager = new SearcherManager(writer, true, null);
+      success = true;
+    } finally {
+      if (success == false) {
+        IOUtils.closeWhileHandlingException(writer, directory);
+      }
+    }
+  }
+
+  /** Register the given queries, replacing registered queries that have the
+   *  same ids. */
+  public void register(MonitorQuery... queries) throws IOException {
+    register(Arrays.asList(queries));
+  }
+
+  /** Register the given queries, replacing registered queries that have the
+   *  same ids. */
+  public void register(Iterable<MonitorQuery> queries) throws IOException {
+    for (MonitorQuery query : queries) {
+      final Document doc = new Document();
+      doc.add(new StringField(ID_FIELD, query.getId(), Field.Store.NO));
+      doc.add(new SortedDocValuesField(ID_FIELD, new BytesRef(query.getId())));
+      final Set<Term> terms = extractor.extract(query.getQuery());
+      if (terms == null) {
+        doc.add(new StringField(ANY_FIELD, ANY_TOKEN, Field.Store.NO));
+      } else {
+        for (Term term : terms) {
+          if (term.field().equals(ID_FIELD) || term.field().equals(ANY_FIELD)) {
+            throw new IllegalArgumentException("query " + query.getId() + " uses reserved field " + term.field());
+          }
+          doc.add(new StringField(term.field(), term.bytes(), Field.Store.NO));
+        }
+      }
+      this.queries.put(query.getId(), query);
+      writer.updateDocument(new Term(ID_FIELD, query.getId()), doc);
+    }
+    searcherManager.maybeRefreshBlocking();
+  }
+
+  /** Remove the queries that have the given ids. */
+  public void delete(String... ids) throws IOException {
+    for (String id : ids) {
+      writer.deleteDocuments(new Term(ID_FIELD, id));
+      queries.remove(id);
+    }
+    searcherManager.maybeRefreshBlocking();
+  }
+
+  /** Return the registered query that has the given id, or {@code null} if
+   *  there is no such query. */
+  public MonitorQuery getQuery(String id) {
+    return queries.get(id);
+  }
+
+  /** Return the number of registered queries. */
+  public int getQueryCount() {
+    return queries.size();
+  }
+
+  /** Match a single document against the registered queries. The document
+   *  is indexed into a {@link MemoryIndex} using {@code analyzer}. */
+  public MatchingQueries match(IndexDocument doc, Analyzer analyzer) throws IOException {
+    final MemoryIndex index = new MemoryIndex(true);
+    for (IndexableField field : doc.indexableFields()) {
+      if (field.fieldType().indexOptions() != IndexOptions.NONE) {
+        index.addField(field.name(), field.tokenStream(analyzer, null), field.boost(),
+            analyzer.getPositionIncrementGap(field.name()), analyzer.getOffsetGap(field.name()));
+      }
+    }
+    index.freeze();
+    return match(index.createSearcher());
+  }
+
+  /** Match a batch of documents against the registered queries. The
+   *  documents are indexed into an in-memory index using {@code analyzer}, so
+   *  that each candidate query is only run once for the whole batch. */
+  public MatchingQueries matchBatch(Iterable<? extends IndexDocument> docs, Analyzer analyzer) throws IOException {
+    final MultiDocMemoryIndex index = new MultiDocMemoryIndex(true);
+    index.addDocuments(docs, analyzer);
+    index.freeze();
+    return match(index.createSearcher());
+  }
+
+  /** Match all documents that {@code docSearcher} can search against the
+   *  registered queries. */
+  public MatchingQueries match(IndexSearcher docSearcher) throws IOException {
+    final int queryCount = queries.size();
+    final List<String> candidates = findCandidates(docSearcher.getIndexReader());
+    final Map<String,int[]> matches = new HashMap<>();
+    if (executor == null || candidates.size() <= VERIFY_BATCH_SIZE) {
+      verify(docSearcher, candidates, matches);
+    } else {
+      final List<Future<Map<String,int[]>>> futures = new ArrayList<>();
+      for (int start = 0; start < candidates.size(); start += VERIFY_BATCH_SIZE) {
+        final List<String> batch = candidates.subList(start, Math.min(candidates.size(), start + VERIFY_BATCH_SIZE));
+        futures.add(executor.submit(new Callable<Map<String,int[]>>() {
+          @Override
+          public Map<String,int[]> call() throws IOException {
+            final Map<String,int[]> batchMatches = new HashMap<>();
+            verify(docSearcher, batch, batchMatches);
+            return batchMatches;
+          }
+        }));
+      }
+      for (Future<Map<String,int[]>> future : futures) {
+        try {
+          matches.putAll(future.get());
+        } catch (InterruptedException e) {
+          throw new ThreadInterruptedException(e);
+        } catch (ExecutionException e) {
+          final Throwable cause = e.getCause();
+          if (cause instanceof IOException) {
+            throw (IOException) cause;
+          } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+          } else if (cause instanceof Error) {
+            throw (Error) cause;
+          }
+          throw new RuntimeException(cause);
+        }
+      }
+    }
+    return new MatchingQueries(docSearcher.getIndexReader().maxDoc(), queryCount, candidates.size(), matches);
+  }
+
+  /** Return the ids of the queries that may match documents of the given
+   *  reader. */
+  private List<String> findCandidates(IndexReader docs) throws IOException {
+    final List<Term> terms = new ArrayList<>();
+    for (LeafReaderContext context : docs.leaves()) {
+      final Fields fields = context.reader().fields();
+      if (fields == null) {
+        continue;
+      }
+      for (String field : fields) {
+        if (field.equals(ID_FIELD) || field.equals(ANY_FIELD)) {
+          continue;
+        }
+        final Terms fieldTerms = fields.terms(field);
+        if (fieldTerms == null) {
+          continue;
+        }
+        final TermsEnum termsEnum = fieldTerms.iterator();
+        for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+          terms.add(new Term(field, BytesRef.deepCopyOf(term)));
+        }
+      }
+    }
+
+    final BooleanQuery.Builder presearch = new BooleanQuery.Builder();
+    presearch.setDisableCoord(true);
+    presearch.add(new TermQuery(new Term(ANY_FIELD, ANY_TOKEN)), Occur.SHOULD);
+    if (terms.isEmpty() == false) {
+      presearch.add(new TermsQuery(terms), Occur.SHOULD);
+    }
+
+    final List<String> candidates = new ArrayList<>();
+    final IndexSearcher searcher = searcherManager.acquire();
+    try {
+      searcher.search(presearch.build(), new SimpleCollector() {
+
+        private SortedDocValues ids;
+
+        @Override
+        protected void doSetNextReader(LeafReaderContext context) throws IOException {
+          ids = context.reader().getSortedDocValues(ID_FIELD);
+        }
+
+        @Override
+        public void collect(int doc) throws IOException {
+          candidates.add(ids.get(doc).utf8ToString());
+        }
+
+        @Override
+        public boolean needsScores() {
+          return false;
+        }
+      });
+    } finally {
+      searcherManager.release(searcher);
+    }
+    return candidates;
+  }
+
+  /** Run the given candidate queries against the documents, and record the
+   *  queries that matched. */
+  private void verify(IndexSearcher docSearcher, List<String> candidates, Map<String,int[]> matches) throws IOException {
+    for (String id : candidates) {
+      final MonitorQuery query = queries.get(id);
+      if (query == null) {
+        // deleted concurrently
+        continue;
+      }
+      final int[] docs = matchingDocs(docSearcher, query.getQuery());
+      if (docs.length > 0) {
+        matches.put(id, docs);
+      }
+    }
+  }
+
+  private static int[] matchingDocs(IndexSearcher docSearcher, Query query) throws IOException {
+    final DocCollector collector = new DocCollector();
+    docSearcher.search(query, collector);
+    return Arrays.copyOf(collector.docs, collector.numDocs);
+  }
+
+  /** Collects doc ids, in order. */
+  private static final class DocCollector extends SimpleCollector {
+
+    int[] docs = new int[1];
+    int numDocs;
+    private int docBase;
+
+    @Override
+    protected void doSetNextReader(LeafReaderContext context) throws IOException {
+      docBase = context.docBase;
+    }
+
+    @Override
+    public void collect(int doc) throws IOException {
+      docs = ArrayUtil.grow(docs, numDocs + 1);
+      docs[numDocs++] = docBase + doc;
+    }
+
+    @Override
+    public boolean needsScores() {
+      return false;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    IOUtils.close(searcherManager, writer, directory);
+  }
+}
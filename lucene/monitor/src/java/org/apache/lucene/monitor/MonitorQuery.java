@@ -0,0 +1,67 @@
+package org.apache.lucene.monitor;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Objects;
+
+import org.apache.lucene.search.Query;
+
+/**
+ * A query that is registered in a {@link Monitor}, identified by a unique id.
+ * @lucene.experimental
+ */
+public final class MonitorQuery {
+
+  private final String id;
+  private final Query query;
+
+  /** Sole constructor. */
+  public MonitorQuery(String id, Query query) {
+    this.id = Objects.requireNonNull(id, "id must not be null");
+    this.query = Objects.requireNonNull(query, "query must not be null");
+  }
+
+  /** Return the id of this query. */
+  public String getId() {
+    return id;
+  }
+
+  /** Return the wrapped query. */
+  public Query getQuery() {
+    return query;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == null || obj.getClass() != getClass()) {
+      return false;
+    }
+    final MonitorQuery that = (MonitorQuery) obj;
+    return id.equals(that.id) && query.equals(that.query);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * id.hashCode() + query.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return id + ":" + query;
+  }
+}
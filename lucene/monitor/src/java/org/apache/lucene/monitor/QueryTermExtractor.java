@@ -0,0 +1,174 @@
+package org.apache.lucene.monitor;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.DisjunctionMaxQuery;
+import org.apache.lucene.search.MultiPhraseQuery;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+
+/**
+ * Extracts from a query a set of terms such that every document that matches
+ * the query contains at least one of these terms.
+ * <p>
+ * When a query has several required clauses, only the terms of one of them
+ * are needed: the extractor picks the clause whose terms are expected to be
+ * the most selective, see {@link #isBetter}. Queries that it does not know
+ * about, such as multi-term or range queries, could match documents that
+ * contain any term; subclasses can override {@link #extract} in order to
+ * handle them.
+ * @lucene.experimental
+ */
+public class QueryTermExtractor {
+
+  /** Sole constructor. */
+  public QueryTermExtractor() {}
+
+  /**
+   * Return a set of terms such that any document that matches {@code query}
+   * contains at least one of them, or {@code null} if no such set could be
+   * found, meaning that the query could match documents that have any terms.
+   * An empty set means that the query matches no documents.
+   */
+  public Set<Term> extract(Query query) {
+    if (query instanceof TermQuery) {
+      return Collections.singleton(((TermQuery) query).getTerm());
+    } else if (query instanceof PhraseQuery) {
+      return extract((PhraseQuery) query);
+    } else if (query instanceof MultiPhraseQuery) {
+      return extract((MultiPhraseQuery) query);
+    } else if (query instanceof BooleanQuery) {
+      return extract((BooleanQuery) query);
+    } else if (query instanceof DisjunctionMaxQuery) {
+      return extractDisjunction(((DisjunctionMaxQuery) query).getDisjuncts());
+    } else if (query instanceof ConstantScoreQuery) {
+      return extract(((ConstantScoreQuery) query).getQuery());
+    }
+    return null;
+  }
+
+  private Set<Term> extract(PhraseQuery query) {
+    Term best = null;
+    for (Term term : query.getTerms()) {
+      if (best == null || term.bytes().length > best.bytes().length) {
+        best = term;
+      }
+    }
+    if (best == null) {
+      return Collections.emptySet();
+    }
+    return Collections.singleton(best);
+  }
+
+  private Set<Term> extract(MultiPhraseQuery query) {
+    Set<Term> best = null;
+    for (Term[] terms : query.getTermArrays()) {
+      final Set<Term> candidate = new HashSet<>();
+      Collections.addAll(candidate, terms);
+      if (best == null || isBetter(candidate, best)) {
+        best = candidate;
+      }
+    }
+    if (best == null) {
+      return Collections.emptySet();
+    }
+    return best;
+  }
+
+  private Set<Term> extract(BooleanQuery query) {
+    Set<Term> best = null;
+    boolean hasRequiredClauses = false;
+    for (BooleanClause clause : query.clauses()) {
+      if (clause.isRequired()) {
+        hasRequiredClauses = true;
+        final Set<Term> candidate = extract(clause.getQuery());
+        if (candidate != null && (best == null || isBetter(candidate, best))) {
+          best = candidate;
+        }
+      }
+    }
+    if (best != null) {
+      return best;
+    }
+    if (hasRequiredClauses && query.getMinimumNumberShouldMatch() == 0) {
+      // optional clauses do not need to match
+      return null;
+    }
+
+    final Set<Term> terms = new HashSet<>();
+    boolean hasOptionalClauses = false;
+    for (BooleanClause clause : query.clauses()) {
+      if (clause.getOccur() == BooleanClause.Occur.SHOULD) {
+        hasOptionalClauses = true;
+        final Set<Term> clauseTerms = extract(clause.getQuery());
+        if (clauseTerms == null) {
+          return null;
+        }
+        terms.addAll(clauseTerms);
+      }
+    }
+    if (hasOptionalClauses == false) {
+      // only prohibited clauses
+      return null;
+    }
+    return terms;
+  }
+
+  private Set<Term> extractDisjunction(List<Query> disjuncts) {
+    final Set<Term> terms = new HashSet<>();
+    for (Query disjunct : disjuncts) {
+      final Set<Term> disjunctTerms = extract(disjunct);
+      if (disjunctTerms == null) {
+        return null;
+      }
+      terms.addAll(disjunctTerms);
+    }
+    return terms;
+  }
+
+  /**
+   * Return whether {@code a} is expected to select fewer documents than
+   * {@code b}. The default implementation prefers sets that have fewer terms,
+   * and then sets whose shortest term is longer, since long terms tend to be
+   * rarer than short ones.
+   */
+  protected boolean isBetter(Set<Term> a, Set<Term> b) {
+    if (a.size() != b.size()) {
+      return a.size() < b.size();
+    }
+    return minLength(a) > minLength(b);
+  }
+
+  private static int minLength(Set<Term> terms) {
+    int minLength = Integer.MAX_VALUE;
+    for (Term term : terms) {
+      minLength = Math.min(minLength, term.bytes().length);
+    }
+    return minLength;
+  }
+}
@@ -0,0 +1,32 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Reverse search: matches documents against a large set of stored queries.
+ * <p>
+ * A {@link org.apache.lucene.monitor.Monitor} holds the registered
+ * {@link org.apache.lucene.monitor.MonitorQuery queries} and indexes each of
+ * them by terms that any matching document must contain, as computed by a
+ * {@link org.apache.lucene.monitor.QueryTermExtractor}. Incoming documents are
+ * indexed into a {@link org.apache.lucene.index.memory.MemoryIndex} (single
+ * documents) or a small in-memory index (batches of documents), and only the
+ * queries that are indexed by one of the terms of these documents are then
+ * run against them, so that the cost of matching a document mostly depends on
+ * the number of queries that could match it rather than on the total number of
+ * registered queries.
+ */
+package org.apache.lucene.monitor;
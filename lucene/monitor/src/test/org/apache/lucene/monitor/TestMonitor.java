@@ -0,0 +1,212 @@
+package org.apache.lucene.monitor;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.memory.MemoryIndex;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.NamedThreadFactory;
+import org.apache.lucene.util.TestUtil;
+
+public class TestMonitor extends LuceneTestCase {
+
+  private static Document doc(String body) {
+    Document doc = new Document();
+    doc.add(newTextField("body", body, Field.Store.NO));
+    return doc;
+  }
+
+  private static Query term(String text) {
+    return new TermQuery(new Term("body", text));
+  }
+
+  public void testBasic() throws IOException {
+    Analyzer analyzer = new MockAnalyzer(random());
+    try (Monitor monitor = new Monitor()) {
+      monitor.register(new MonitorQuery("1", term("quick")),
+          new MonitorQuery("2", new PhraseQuery("body", "brown", "fox")),
+          new MonitorQuery("3", new PhraseQuery("body", "fox", "brown")),
+          new MonitorQuery("4", term("lazy")),
+          new MonitorQuery("5", new PrefixQuery(new Term("body", "qu"))));
+      assertEquals(5, monitor.getQueryCount());
+
+      MatchingQueries matches = monitor.match(doc("the quick brown fox"), analyzer);
+      assertEquals(1, matches.getBatchSize());
+      assertEquals(5, matches.getQueryCount());
+      assertEquals(newSet("1", "2", "5"), matches.getMatchingIds());
+      // the lazy query is not even run
+      assertEquals(4, matches.getCandidateCount());
+      assertArrayEquals(new int[] {0}, matches.getMatchingDocs("1"));
+      assertArrayEquals(new int[0], matches.getMatchingDocs("4"));
+
+      // replace a query
+      monitor.register(new MonitorQuery("1", term("lazy")));
+      assertEquals(5, monitor.getQueryCount());
+      assertEquals(term("lazy"), monitor.getQuery("1").getQuery());
+      matches = monitor.match(doc("the quick brown fox"), analyzer);
+      assertEquals(newSet("2", "5"), matches.getMatchingIds());
+
+      monitor.delete("2", "5");
+      assertEquals(3, monitor.getQueryCount());
+      assertNull(monitor.getQuery("2"));
+      matches = monitor.match(doc("the quick brown fox"), analyzer);
+      assertEquals(0, matches.getMatchingIds().size());
+      assertEquals(1, matches.getCandidateCount());
+    }
+  }
+
+  public void testBatch() throws IOException {
+    Analyzer analyzer = new MockAnalyzer(random());
+    try (Monitor monitor = new Monitor()) {
+      monitor.register(new MonitorQuery("1", term("quick")),
+          new MonitorQuery("2", term("dog")),
+          new MonitorQuery("3", term("cat")));
+      List<Document> docs = new ArrayList<>();
+      docs.add(doc("the quick brown fox"));
+      docs.add(doc("the lazy dog"));
+      docs.add(doc("the quick dog"));
+      MatchingQueries matches = monitor.matchBatch(docs, analyzer);
+      assertEquals(3, matches.getBatchSize());
+      assertEquals(newSet("1", "2"), matches.getMatchingIds());
+      assertArrayEquals(new int[] {0, 2}, matches.getMatchingDocs("1"));
+      assertArrayEquals(new int[] {1, 2}, matches.getMatchingDocs("2"));
+      assertEquals(2, matches.getCandidateCount());
+    }
+  }
+
+  public void testReservedField() throws IOException {
+    try (Monitor monitor = new Monitor()) {
+      try {
+        monitor.register(new MonitorQuery("1", new TermQuery(new Term(Monitor.ID_FIELD, "1"))));
+        fail();
+      } catch (IllegalArgumentException expected) {
+        // ok
+      }
+    }
+  }
+
+  private static Set<String> newSet(String... values) {
+    Set<String> set = new HashSet<>();
+    for (String value : values) {
+      set.add(value);
+    }
+    return set;
+  }
+
+  private static String randomToken() {
+    return "t" + random().nextInt(50);
+  }
+
+  private static Query randomQuery() {
+    switch (random().nextInt(5)) {
+      case 0:
+        return term(randomToken());
+      case 1:
+        return new PhraseQuery("body", randomToken(), randomToken());
+      case 2:
+        return new PrefixQuery(new Term("body", "t" + random().nextInt(5)));
+      default:
+        BooleanQuery.Builder bq = new BooleanQuery.Builder();
+        final int numClauses = TestUtil.nextInt(random(), 1, 4);
+        for (int i = 0; i < numClauses; ++i) {
+          final Occur occur = Occur.values()[random().nextInt(Occur.values().length)];
+          bq.add(random().nextInt(5) == 0 ? randomQuery() : term(randomToken()), occur);
+        }
+        if (random().nextBoolean()) {
+          bq.setMinimumNumberShouldMatch(random().nextInt(3));
+        }
+        return bq.build();
+    }
+  }
+
+  public void testRandom() throws Exception {
+    Analyzer analyzer = new MockAnalyzer(random());
+    ExecutorService executor = random().nextBoolean()
+        ? null
+        : Executors.newFixedThreadPool(TestUtil.nextInt(random(), 1, 4), new NamedThreadFactory("TestMonitor"));
+    try (Monitor monitor = new Monitor(new QueryTermExtractor(), executor)) {
+      final List<MonitorQuery> queries = new ArrayList<>();
+      final int numQueries = atLeast(500);
+      for (int i = 0; i < numQueries; ++i) {
+        queries.add(new MonitorQuery(Integer.toString(i), randomQuery()));
+      }
+      monitor.register(queries);
+
+      final List<String> bodies = new ArrayList<>();
+      final List<Document> docs = new ArrayList<>();
+      final int numDocs = atLeast(20);
+      for (int i = 0; i < numDocs; ++i) {
+        StringBuilder body = new StringBuilder();
+        final int numTokens = TestUtil.nextInt(random(), 1, 10);
+        for (int j = 0; j < numTokens; ++j) {
+          body.append(randomToken()).append(' ');
+        }
+        bodies.add(body.toString());
+        docs.add(doc(body.toString()));
+      }
+
+      final MatchingQueries batchMatches = monitor.matchBatch(docs, analyzer);
+      for (int i = 0; i < numDocs; ++i) {
+        final MatchingQueries matches = monitor.match(docs.get(i), analyzer);
+        assertTrue(matches.getCandidateCount() <= numQueries);
+
+        // run every query against the document
+        MemoryIndex index = new MemoryIndex();
+        index.addField("body", bodies.get(i), analyzer);
+        // not MemoryIndex.search, which returns a score of 0 for filters
+        IndexSearcher searcher = index.createSearcher();
+        Set<String> expected = new HashSet<>();
+        for (MonitorQuery query : queries) {
+          if (searcher.search(query.getQuery(), 1).totalHits > 0) {
+            expected.add(query.getId());
+          }
+        }
+        assertEquals(expected, matches.getMatchingIds());
+
+        for (MonitorQuery query : queries) {
+          final boolean matchesInBatch = Arrays.binarySearch(batchMatches.getMatchingDocs(query.getId()), i) >= 0;
+          assertEquals(expected.contains(query.getId()), matchesInBatch);
+        }
+      }
+    } finally {
+      if (executor != null) {
+        TestUtil.shutdownExecutorService(executor);
+      }
+    }
+  }
+}
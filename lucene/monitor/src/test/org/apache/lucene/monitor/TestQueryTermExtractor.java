@@ -0,0 +1,126 @@
+package org.apache.lucene.monitor;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.DisjunctionMaxQuery;
+import org.apache.lucene.search.MultiPhraseQuery;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.LuceneTestCase;
+
+public class TestQueryTermExtractor extends LuceneTestCase {
+
+  private static final QueryTermExtractor EXTRACTOR = new QueryTermExtractor();
+
+  private static Set<Term> terms(Term... terms) {
+    final Set<Term> set = new HashSet<>();
+    Collections.addAll(set, terms);
+    return set;
+  }
+
+  private static Query term(String text) {
+    return new TermQuery(new Term("f", text));
+  }
+
+  public void testTermQuery() {
+    assertEquals(terms(new Term("f", "a")), EXTRACTOR.extract(term("a")));
+    assertEquals(terms(new Term("f", "a")), EXTRACTOR.extract(new ConstantScoreQuery(term("a"))));
+  }
+
+  public void testPhraseQuery() {
+    assertEquals(terms(new Term("f", "quick")), EXTRACTOR.extract(new PhraseQuery("f", "the", "quick", "fox")));
+    assertEquals(Collections.emptySet(), EXTRACTOR.extract(new PhraseQuery("f", new String[0])));
+
+    MultiPhraseQuery mpq = new MultiPhraseQuery();
+    mpq.add(new Term[] {new Term("f", "a"), new Term("f", "b")});
+    mpq.add(new Term("f", "c"));
+    assertEquals(terms(new Term("f", "c")), EXTRACTOR.extract(mpq));
+  }
+
+  public void testConjunction() {
+    BooleanQuery.Builder bq = new BooleanQuery.Builder();
+    bq.add(term("ab"), Occur.MUST);
+    bq.add(term("abcd"), Occur.FILTER);
+    bq.add(term("x"), Occur.SHOULD);
+    bq.add(term("y"), Occur.MUST_NOT);
+    // the longest term is expected to be the most selective
+    assertEquals(terms(new Term("f", "abcd")), EXTRACTOR.extract(bq.build()));
+
+    BooleanQuery.Builder disjunction = new BooleanQuery.Builder();
+    disjunction.add(term("abcdef"), Occur.SHOULD);
+    disjunction.add(term("ghijkl"), Occur.SHOULD);
+    bq = new BooleanQuery.Builder();
+    bq.add(disjunction.build(), Occur.MUST);
+    bq.add(term("ab"), Occur.MUST);
+    // a single term is preferred over several terms
+    assertEquals(terms(new Term("f", "ab")), EXTRACTOR.extract(bq.build()));
+
+    bq = new BooleanQuery.Builder();
+    bq.add(new PrefixQuery(new Term("f", "a")), Occur.MUST);
+    bq.add(term("b"), Occur.MUST);
+    assertEquals(terms(new Term("f", "b")), EXTRACTOR.extract(bq.build()));
+  }
+
+  public void testDisjunction() {
+    BooleanQuery.Builder bq = new BooleanQuery.Builder();
+    bq.add(term("a"), Occur.SHOULD);
+    bq.add(term("b"), Occur.SHOULD);
+    bq.add(term("c"), Occur.MUST_NOT);
+    assertEquals(terms(new Term("f", "a"), new Term("f", "b")), EXTRACTOR.extract(bq.build()));
+
+    DisjunctionMaxQuery dmq = new DisjunctionMaxQuery(0f);
+    dmq.add(term("a"));
+    dmq.add(new TermQuery(new Term("g", "a")));
+    assertEquals(terms(new Term("f", "a"), new Term("g", "a")), EXTRACTOR.extract(dmq));
+
+    // one clause could match any document
+    bq = new BooleanQuery.Builder();
+    bq.add(term("a"), Occur.SHOULD);
+    bq.add(new PrefixQuery(new Term("f", "b")), Occur.SHOULD);
+    assertNull(EXTRACTOR.extract(bq.build()));
+  }
+
+  public void testUnknownQueries() {
+    assertNull(EXTRACTOR.extract(new PrefixQuery(new Term("f", "a"))));
+
+    // optional clauses do not need to match
+    BooleanQuery.Builder bq = new BooleanQuery.Builder();
+    bq.add(new PrefixQuery(new Term("f", "a")), Occur.MUST);
+    bq.add(term("b"), Occur.SHOULD);
+    assertNull(EXTRACTOR.extract(bq.build()));
+
+    // unless minShouldMatch says otherwise
+    bq.setMinimumNumberShouldMatch(1);
+    assertEquals(terms(new Term("f", "b")), EXTRACTOR.extract(bq.build()));
+
+    // pure negations
+    bq = new BooleanQuery.Builder();
+    bq.add(term("a"), Occur.MUST_NOT);
+    assertNull(EXTRACTOR.extract(bq.build()));
+  }
+}
@@ -21,12 +21,14 @@ import java.io.IOException;
 import java.util.Objects;
 
 import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.DocValuesSkipper;
 import org.apache.lucene.index.DocValuesType;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedNumericDocValues;
 import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.Bits.MatchNoBits;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.ToStringUtils;
 
@@ -128,31 +130,51 @@ public final class DocValuesRangeQuery extends Query {
     if (lowerVal == null && upperVal == null) {
       throw new IllegalStateException("Both min and max values cannot be null, call rewrite first");
     }
-    return new RandomAccessWeight(DocValuesRangeQuery.this) {
-      
+    return new ConstantScoreWeight(DocValuesRangeQuery.this) {
+
       @Override
-      protected Bits getMatchingDocs(LeafReaderContext context) throws IOException {
+      public Scorer scorer(LeafReaderContext context, final Bits acceptDocs) throws IOException {
+        final Bits matchingDocs = getMatchingDocs(context);
+        if (matchingDocs == null || matchingDocs instanceof MatchNoBits) {
+          return null;
+        }
+        final DocIdSetIterator approximation;
         if (lowerVal instanceof Long || upperVal instanceof Long) {
-
-          final SortedNumericDocValues values = DocValues.getSortedNumeric(context.reader(), field);
-
-          final long min;
-          if (lowerVal == null) {
-            min = Long.MIN_VALUE;
-          } else if (includeLower) {
-            min = (long) lowerVal;
+          final DocValuesSkipper skipper = context.reader().getNumericDocValuesSkipper(field);
+          if (skipper == null) {
+            approximation = DocIdSetIterator.all(context.reader().maxDoc());
+          } else if (skipper.minValue() > maxLong() || skipper.maxValue() < minLong()) {
+            return null;
           } else {
-            min = 1 + (long) lowerVal;
+            approximation = new SkippingIterator(skipper, context.reader().maxDoc(), minLong(), maxLong());
           }
+        } else {
+          approximation = DocIdSetIterator.all(context.reader().maxDoc());
+        }
+        final TwoPhaseIterator twoPhase = new TwoPhaseIterator(approximation) {
 
-          final long max;
-          if (upperVal == null) {
-            max = Long.MAX_VALUE;
-          } else if (includeUpper) {
-            max = (long) upperVal;
-          } else {
-            max = -1 + (long) upperVal;
+          @Override
+          public boolean matches() throws IOException {
+            final int doc = approximation.docID();
+
+            if (acceptDocs != null && acceptDocs.get(doc) == false) {
+              return false;
+            }
+
+            return matchingDocs.get(doc);
           }
+        };
+
+        return new ConstantScoreScorer(this, score(), twoPhase);
+      }
+
+      private Bits getMatchingDocs(LeafReaderContext context) throws IOException {
+        if (lowerVal instanceof Long || upperVal instanceof Long) {
+
+          final SortedNumericDocValues values = DocValues.getSortedNumeric(context.reader(), field);
+
+          final long min = minLong();
+          final long max = maxLong();
 
           if (min > max) {
             return null;
@@ -243,4 +265,70 @@ public final class DocValuesRangeQuery extends Query {
     };
   }
 
+  private long minLong() {
+    if (lowerVal == null) {
+      return Long.MIN_VALUE;
+    } else if (includeLower) {
+      return (long) lowerVal;
+    } else {
+      return 1 + (long) lowerVal;
+    }
+  }
+
+  private long maxLong() {
+    if (upperVal == null) {
+      return Long.MAX_VALUE;
+    } else if (includeUpper) {
+      return (long) upperVal;
+    } else {
+      return -1 + (long) upperVal;
+    }
+  }
+
+  /** Iterates over all documents of the blocks of a {@link DocValuesSkipper}
+   *  that may have a value in the range. */
+  private static class SkippingIterator extends DocIdSetIterator {
+
+    private final DocValuesSkipper skipper;
+    private final int maxDoc;
+    private final long min, max;
+    private int doc = -1;
+    // last doc of the current matching block
+    private int upTo = -1;
+
+    SkippingIterator(DocValuesSkipper skipper, int maxDoc, long min, long max) {
+      this.skipper = skipper;
+      this.maxDoc = maxDoc;
+      this.min = min;
+      this.max = max;
+    }
+
+    @Override
+    public int docID() {
+      return doc;
+    }
+
+    @Override
+    public int nextDoc() throws IOException {
+      return advance(doc + 1);
+    }
+
+    @Override
+    public int advance(int target) throws IOException {
+      if (target > upTo) {
+        target = skipper.skipToCandidate(target, min, max);
+        if (target == NO_MORE_DOCS) {
+          return doc = NO_MORE_DOCS;
+        }
+        upTo = skipper.maxDocID(0);
+      }
+      return doc = target;
+    }
+
+    @Override
+    public long cost() {
+      return maxDoc;
+    }
+  }
+
 }
@@ -80,6 +80,45 @@ public class TestDocValuesRangeQuery extends LuceneTestCase {
     }
   }
 
+  public void testDuelNumericRangeQueryWithSkipIndex() throws IOException {
+    Directory dir = newDirectory();
+    RandomIndexWriter iw = new RandomIndexWriter(random(), dir);
+    final int numDocs = atLeast(10000);
+    long value = 0;
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      if (random().nextInt(10) != 0) {
+        // mostly time-ordered values, so that the skip index can skip blocks
+        value += random().nextInt(10) - 1;
+        doc.add(new NumericDocValuesField("dv", value));
+        doc.add(new LongField("idx", value, Store.NO));
+      }
+      iw.addDocument(doc);
+    }
+    if (random().nextBoolean()) {
+      iw.deleteDocuments(NumericRangeQuery.newLongRange("idx", 0L, 10L, true, true));
+    }
+    if (random().nextBoolean()) {
+      iw.forceMerge(1);
+    }
+    final IndexReader reader = iw.getReader();
+    final IndexSearcher searcher = newSearcher(reader);
+    iw.close();
+
+    for (int i = 0; i < 100; ++i) {
+      final Long min = random().nextInt(10) == 0 ? null : TestUtil.nextLong(random(), -100, value + 100);
+      final Long max = random().nextInt(10) == 0 ? null : (min == null ? 0 : min) + random().nextInt(1000);
+      final boolean minInclusive = random().nextBoolean();
+      final boolean maxInclusive = random().nextBoolean();
+      final Query q1 = NumericRangeQuery.newLongRange("idx", min, max, minInclusive, maxInclusive);
+      final Query q2 = DocValuesRangeQuery.newLongRange("dv", min, max, minInclusive, maxInclusive);
+      assertSameMatches(searcher, q1, q2, false);
+    }
+
+    reader.close();
+    dir.close();
+  }
+
   private static BytesRef toSortableBytes(Long l) {
     if (l == null) {
       return null;
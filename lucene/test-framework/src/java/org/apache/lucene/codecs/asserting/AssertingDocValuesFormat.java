@@ -28,6 +28,7 @@ import org.apache.lucene.index.AssertingLeafReader;
 import org.apache.lucene.index.AssertingLeafReader.AssertingRandomAccessOrds;
 import org.apache.lucene.index.AssertingLeafReader.AssertingSortedSetDocValues;
 import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.DocValuesSkipper;
 import org.apache.lucene.index.DocValuesType;
 import org.apache.lucene.index.FieldInfo;
 import org.apache.lucene.index.NumericDocValues;
@@ -270,6 +271,12 @@ public class AssertingDocValuesFormat extends DocValuesFormat {
       }
     }
     
+    @Override
+    public DocValuesSkipper getNumericSkipper(FieldInfo field) throws IOException {
+      assert field.getDocValuesType() == DocValuesType.NUMERIC;
+      return in.getNumericSkipper(field);
+    }
+
     @Override
     public Bits getDocsWithField(FieldInfo field) throws IOException {
       assert field.getDocValuesType() != DocValuesType.NONE;
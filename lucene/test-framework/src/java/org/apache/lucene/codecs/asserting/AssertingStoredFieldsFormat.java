@@ -156,5 +156,12 @@ public class AssertingStoredFieldsFormat extends StoredFieldsFormat {
       in.close();
       in.close(); // close again
     }
+
+    @Override
+    public long ramBytesUsed() {
+      long ramBytesUsed = in.ramBytesUsed();
+      assert ramBytesUsed >= 0;
+      return ramBytesUsed;
+    }
   }
 }
@@ -211,5 +211,11 @@ public class AssertingTermVectorsFormat extends TermVectorsFormat {
       in.close(); // close again
     }
 
+    @Override
+    public long ramBytesUsed() {
+      long ramBytesUsed = in.ramBytesUsed();
+      assert ramBytesUsed >= 0;
+      return ramBytesUsed;
+    }
   }
 }
@@ -86,6 +86,11 @@ class CrankyStoredFieldsFormat extends StoredFieldsFormat {
         throw new IOException("Fake IOException from StoredFieldsWriter.close()");
       }
     }
+
+    @Override
+    public long ramBytesUsed() {
+      return delegate.ramBytesUsed();
+    }
     
     // per doc/field methods: lower probability since they are invoked so many times.
 
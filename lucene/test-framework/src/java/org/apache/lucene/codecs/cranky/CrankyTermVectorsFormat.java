@@ -87,6 +87,11 @@ class CrankyTermVectorsFormat extends TermVectorsFormat {
       }
     }
 
+    @Override
+    public long ramBytesUsed() {
+      return delegate.ramBytesUsed();
+    }
+
     // per doc/field methods: lower probability since they are invoked so many times.
 
     @Override
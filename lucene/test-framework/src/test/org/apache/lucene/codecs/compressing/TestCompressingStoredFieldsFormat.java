@@ -274,6 +274,31 @@ public class TestCompressingStoredFieldsFormat extends BaseStoredFieldsFormatTes
     }
   }
   
+  public void testRamBytesUsedAccountsForBufferedDocs() throws IOException {
+    Directory dir = newDirectory();
+    IndexWriterConfig iwConf = newIndexWriterConfig(new MockAnalyzer(random()));
+    iwConf.setMaxBufferedDocs(IndexWriterConfig.DISABLE_AUTO_FLUSH);
+    iwConf.setRAMBufferSizeMB(64);
+    iwConf.setCodec(CompressingCodec.randomInstance(random(), 1 << 20, 128, false, 1024));
+    IndexWriter iw = new IndexWriter(dir, iwConf);
+
+    final long ramBytesUsed = iw.ramBytesUsed();
+    Document doc = new Document();
+    doc.add(new StoredField("f", new byte[1 << 19]));
+    iw.addDocument(doc);
+    // the document is buffered until the chunk is full
+    assertTrue(iw.ramBytesUsed() - ramBytesUsed >= 1 << 19);
+
+    doc = new Document();
+    doc.add(new StoredField("f", new byte[1 << 22]));
+    iw.addDocument(doc);
+    // the chunk has been written and its buffer is not retained
+    assertTrue(iw.ramBytesUsed() < 1 << 21);
+
+    iw.close();
+    dir.close();
+  }
+
   /**
    * writes some tiny segments with incomplete compressed blocks,
    * and ensures merge recompresses them.
@@ -0,0 +1,167 @@
+package org.apache.lucene.codecs.compressing;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DocumentStoredFieldVisitor;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.StoredDocument;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
+
+public class TestStoredFieldsChunkCache extends LuceneTestCase {
+
+  private Directory dir;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    dir = newDirectory();
+  }
+
+  private void index(Codec codec) throws IOException {
+    IndexWriterConfig iwc = newIndexWriterConfig(new MockAnalyzer(random()));
+    iwc.setCodec(codec);
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir, iwc);
+    final int numDocs = atLeast(500);
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      doc.add(new StringField("id", Integer.toString(i), Store.YES));
+      doc.add(new StoredField("body", TestUtil.randomSimpleString(random(), 0, 200)));
+      w.addDocument(doc);
+    }
+    w.forceMerge(TestUtil.nextInt(random(), 1, 3));
+    w.close();
+  }
+
+  /** Index with chunks that are never sliced, so that they can all be cached. */
+  private void indexWithSmallChunks() throws IOException {
+    index(CompressingCodec.randomInstance(random(), 1 << 14, TestUtil.nextInt(random(), 1, 128), false, TestUtil.nextInt(random(), 1, 1024)));
+  }
+
+  @Override
+  public void tearDown() throws Exception {
+    StoredFieldsChunkCache.setDefault(null);
+    dir.close();
+    super.tearDown();
+  }
+
+  private static void assertSameDocuments(LeafReader reader, int[] docIDs, int count) throws IOException {
+    final DocumentStoredFieldVisitor[] visitors = new DocumentStoredFieldVisitor[count];
+    for (int i = 0; i < count; ++i) {
+      visitors[i] = new DocumentStoredFieldVisitor();
+    }
+    reader.documents(docIDs, visitors, count);
+    for (int i = 0; i < count; ++i) {
+      final StoredDocument expected = reader.document(docIDs[i]);
+      final StoredDocument actual = visitors[i].getDocument();
+      assertEquals(expected.get("id"), actual.get("id"));
+      assertEquals(expected.get("body"), actual.get("body"));
+    }
+  }
+
+  private static int[] randomDocIDs(LeafReader reader, boolean sorted) {
+    final int[] docIDs = new int[TestUtil.nextInt(random(), 1, 2 * reader.maxDoc())];
+    for (int i = 0; i < docIDs.length; ++i) {
+      docIDs[i] = random().nextInt(reader.maxDoc());
+    }
+    if (sorted) {
+      Arrays.sort(docIDs);
+    }
+    return docIDs;
+  }
+
+  public void testBatchLoading() throws IOException {
+    index(CompressingCodec.randomInstance(random()));
+    if (random().nextBoolean()) {
+      StoredFieldsChunkCache.setDefault(new StoredFieldsChunkCache(TestUtil.nextInt(random(), 1, 1 << 20)));
+    }
+    try (DirectoryReader reader = DirectoryReader.open(dir)) {
+      for (LeafReaderContext context : reader.leaves()) {
+        final LeafReader leaf = context.reader();
+        final int[] docIDs = randomDocIDs(leaf, random().nextBoolean());
+        assertSameDocuments(leaf, docIDs, TestUtil.nextInt(random(), 0, docIDs.length));
+      }
+    }
+  }
+
+  public void testCacheHits() throws IOException {
+    indexWithSmallChunks();
+    final DirectoryReader expected = DirectoryReader.open(dir);
+    final StoredFieldsChunkCache cache = new StoredFieldsChunkCache(1L << 30);
+    StoredFieldsChunkCache.setDefault(cache);
+    try (DirectoryReader reader = DirectoryReader.open(dir)) {
+      for (int iter = 0; iter < 2; ++iter) {
+        for (int i = 0; i < reader.maxDoc(); ++i) {
+          assertEquals(expected.document(i).get("body"), reader.document(i).get("body"));
+        }
+      }
+      assertTrue(cache.size() > 0);
+      assertTrue(cache.getHitCount() > 0);
+      // the second iteration found every chunk in the cache
+      assertEquals(cache.size(), cache.getMissCount());
+      assertTrue(cache.ramBytesUsed() > 0);
+    }
+    // closing the reader invalidates its chunks
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.ramBytesUsed());
+    expected.close();
+  }
+
+  public void testMaxRamBytes() throws IOException {
+    indexWithSmallChunks();
+    final DirectoryReader expected = DirectoryReader.open(dir);
+    final long maxRamBytes = TestUtil.nextInt(random(), 1, 1 << 14);
+    final StoredFieldsChunkCache cache = new StoredFieldsChunkCache(maxRamBytes, TestUtil.nextInt(random(), 1, 4));
+    StoredFieldsChunkCache.setDefault(cache);
+    try (DirectoryReader reader = DirectoryReader.open(dir)) {
+      for (int i = 0; i < 1000; ++i) {
+        final int docID = random().nextInt(reader.maxDoc());
+        assertEquals(expected.document(docID).get("body"), reader.document(docID).get("body"));
+        assertTrue(cache.ramBytesUsed() <= maxRamBytes);
+      }
+    }
+    expected.close();
+  }
+
+  public void testOnlyNewSegmentsUseDefault() throws IOException {
+    indexWithSmallChunks();
+    try (DirectoryReader reader = DirectoryReader.open(dir)) {
+      final StoredFieldsChunkCache cache = new StoredFieldsChunkCache(1L << 30);
+      StoredFieldsChunkCache.setDefault(cache);
+      for (int i = 0; i < reader.maxDoc(); ++i) {
+        reader.document(i);
+      }
+      assertEquals(0, cache.size());
+      assertEquals(0, cache.getHitCount() + cache.getMissCount());
+    }
+  }
+}
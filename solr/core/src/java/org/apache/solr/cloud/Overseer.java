@@ -20,6 +20,7 @@ package org.apache.solr.cloud;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -61,6 +62,7 @@ import org.apache.solr.util.stats.Timer;
 import org.apache.solr.util.stats.TimerContext;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Op;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -105,7 +107,12 @@ public class Overseer implements Closeable {
 
     private boolean isClosed = false;
 
-    public ClusterStateUpdater(final ZkStateReader reader, final String myId, Stats zkStats) {
+    // maximum number of messages written at once, or 0 to write them as they are processed
+    private final int batchSize;
+
+    private final BatchSizer batchSizer;
+
+    public ClusterStateUpdater(final ZkStateReader reader, final String myId, Stats zkStats, int batchSize) {
       this.zkClient = reader.getZkClient();
       this.zkStats = zkStats;
       this.stateUpdateQueue = getInQueue(zkClient, zkStats);
@@ -115,6 +122,8 @@ public class Overseer implements Closeable {
       this.completedMap = getCompletedMap(zkClient);
       this.myId = myId;
       this.reader = reader;
+      this.batchSize = batchSize;
+      this.batchSizer = new BatchSizer(Math.max(1, batchSize));
     }
 
     public Stats getStateUpdateQueueStats() {
@@ -187,6 +196,26 @@ public class Overseer implements Closeable {
             }
           }
 
+          if (batchSize > 0) {
+            try {
+              clusterState = processBatches(clusterState, zkStateWriter);
+            } catch (KeeperException e) {
+              if (e.code() == KeeperException.Code.SESSIONEXPIRED) {
+                log.warn("Solr cannot talk to ZK, exiting Overseer main queue loop", e);
+                return;
+              }
+              log.error("Exception in Overseer main queue loop", e);
+              refreshClusterState = true; // it might have been a bad version error
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+              return;
+            } catch (Exception e) {
+              log.error("Exception in Overseer main queue loop", e);
+              refreshClusterState = true; // it might have been a bad version error
+            }
+            continue;
+          }
+
           DistributedQueue.QueueEvent head = null;
           try {
             head = stateUpdateQueue.peek(true);
@@ -264,13 +293,54 @@ public class Overseer implements Closeable {
       }
     }
 
-    private ClusterState processQueueItem(ZkNodeProps message, ClusterState clusterState, ZkStateWriter zkStateWriter, boolean enableBatching, ZkStateWriter.ZkWriteCallback callback) throws Exception {
+    /**
+     * Drains the state update queue in batches of up to {@link #batchSize} messages. The messages
+     * of a batch are applied to the in-memory cluster state, and then the updated collections are
+     * written and the messages removed from the queue in a single ZooKeeper multi-op. The work queue
+     * is not needed as a fallback: if the write fails, the messages are still in the state update queue
+     * and are applied again to a fresh cluster state. The number of messages per batch is chosen by
+     * {@link #batchSizer}, which shrinks batches that cannot be written.
+     */
+    private ClusterState processBatches(ClusterState clusterState, ZkStateWriter zkStateWriter) throws Exception {
+      List<DistributedQueue.QueueEvent> batch = stateUpdateQueue.peekTopN(batchSizer.size(), Collections.<String>emptySet(), Long.MAX_VALUE);
+      while (batch != null) {
+        List<Op> removals = new ArrayList<>(batch.size());
+        for (DistributedQueue.QueueEvent head : batch) {
+          final ZkNodeProps message = ZkNodeProps.load(head.getBytes());
+          log.debug("processMessage: queueSize: {}, message = {}", stateUpdateQueue.getStats().getQueueLength(), message);
+          ZkWriteCommand zkWriteCommand = processMessageWithStats(clusterState, message);
+          if (zkWriteCommand != null) {
+            clusterState = zkStateWriter.enqueueBatchUpdate(clusterState, zkWriteCommand);
+          }
+          removals.add(Op.delete(head.getId(), -1));
+        }
+        log.info("Writing a batch of {} state updates, queueSize: {}", batch.size(), stateUpdateQueue.getStats().getQueueLength());
+        try {
+          clusterState = zkStateWriter.writePendingUpdates(removals);
+        } catch (Exception e) {
+          long backoffMs = batchSizer.onFailure(e);
+          log.warn("Could not write a batch of {} state updates, the next batch has up to {} messages", batch.size(), batchSizer.size());
+          if (backoffMs > 0) {
+            Thread.sleep(backoffMs);
+          }
+          throw e;
+        }
+        batchSizer.onSuccess();
+
+        if (isClosed) break;
+        // if events come in the next 100ms batch them together
+        batch = stateUpdateQueue.peekTopN(batchSizer.size(), Collections.<String>emptySet(), 100L);
+      }
+      return clusterState;
+    }
+
+    private ZkWriteCommand processMessageWithStats(ClusterState clusterState, ZkNodeProps message) {
       final String operation = message.getStr(QUEUE_OPERATION);
-      ZkWriteCommand zkWriteCommand = null;
       final TimerContext timerContext = stats.time(operation);
       try {
-        zkWriteCommand = processMessage(clusterState, message, operation);
+        ZkWriteCommand zkWriteCommand = processMessage(clusterState, message, operation);
         stats.success(operation);
+        return zkWriteCommand;
       } catch (Exception e) {
         // generally there is nothing we can do - in most cases, we have
         // an issue that will fail again on retry or we cannot communicate with     a
@@ -279,9 +349,14 @@ public class Overseer implements Closeable {
         // track retries and put it back on the end of the queue
         log.error("Overseer could not process the current clusterstate state update message, skipping the message.", e);
         stats.error(operation);
+        return null;
       } finally {
         timerContext.stop();
       }
+    }
+
+    private ClusterState processQueueItem(ZkNodeProps message, ClusterState clusterState, ZkStateWriter zkStateWriter, boolean enableBatching, ZkStateWriter.ZkWriteCallback callback) throws Exception {
+      ZkWriteCommand zkWriteCommand = processMessageWithStats(clusterState, message);
       if (zkWriteCommand != null) {
         clusterState = zkStateWriter.enqueueUpdate(clusterState, zkWriteCommand, callback);
         if (!enableBatching)  {
@@ -438,6 +513,59 @@ public class Overseer implements Closeable {
       }
 
   }
+
+  /**
+   * Chooses the number of messages in the next batch of state updates. A batch that fails because of a
+   * concurrent modification is applied again to a fresh cluster state and can then succeed. Any other failure,
+   * such as a multi-op exceeding ZooKeeper's <code>jute.maxbuffer</code>, is likely to repeat with the same
+   * messages, so the batch size is halved after each one, down to single messages. After that, retries
+   * back off exponentially. The batch size doubles again once {@link #GROW_AFTER} batches in a row were written.
+   */
+  static class BatchSizer {
+    static final int GROW_AFTER = 10;
+    static final long MIN_BACKOFF_MS = 100;
+    static final long MAX_BACKOFF_MS = 5000;
+
+    private final int maxSize;
+    private int size;
+    private int successes;
+    private int failures;
+
+    BatchSizer(int maxSize) {
+      this.maxSize = maxSize;
+      this.size = maxSize;
+    }
+
+    /** The maximum number of messages in the next batch. */
+    int size() {
+      return size;
+    }
+
+    void onSuccess() {
+      failures = 0;
+      if (size < maxSize && ++successes >= GROW_AFTER) {
+        size = Math.min(maxSize, size * 2);
+        successes = 0;
+      }
+    }
+
+    /**
+     * Records a batch that could not be written, and returns the number of milliseconds to wait before
+     * the messages are retried.
+     */
+    long onFailure(Exception e) {
+      successes = 0;
+      if (e instanceof KeeperException.BadVersionException || e instanceof KeeperException.NodeExistsException) {
+        return 0; // another writer got there first, the retry uses its state
+      }
+      if (size > 1) {
+        size /= 2;
+        return 0;
+      }
+      return Math.min(MAX_BACKOFF_MS, MIN_BACKOFF_MS << Math.min(failures++, 6));
+    }
+  }
+
   // Class to encapsulate processing replica properties that have at most one replica hosting a property per slice.
   private class ExclusiveSliceProperty {
     private ClusterState clusterState;
@@ -812,7 +940,7 @@ public class Overseer implements Closeable {
     createOverseerNode(reader.getZkClient());
     //launch cluster state updater thread
     ThreadGroup tg = new ThreadGroup("Overseer state updater.");
-    updaterThread = new OverseerThread(tg, new ClusterStateUpdater(reader, id, stats), "OverseerStateUpdate-" + id);
+    updaterThread = new OverseerThread(tg, new ClusterStateUpdater(reader, id, stats, config == null ? 0 : config.getOverseerBatchSize()), "OverseerStateUpdate-" + id);
     updaterThread.setDaemon(true);
 
     ThreadGroup ccTg = new ThreadGroup("Overseer collection creation process.");
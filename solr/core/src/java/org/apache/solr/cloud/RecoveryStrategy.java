@@ -306,6 +306,10 @@ public class RecoveryStrategy extends Thread implements ClosableThread {
           // meantime.
           log.info("Looks like a previous replication recovery did not complete - skipping peer sync.");
           firstTime = false; // skip peersync
+        } else if (ulog.isReplayFailed()) {
+          // the index is missing updates that are in the log, so versions from the log can't be trusted
+          log.info("Replaying the tlog during startup did not complete - skipping peer sync.");
+          firstTime = false; // skip peersync
         }
       } catch (Exception e) {
         SolrException.log(log, "Error trying to get ulog starting operation.", e);
@@ -17,7 +17,9 @@ package org.apache.solr.cloud.overseer;
  * limitations under the License.
  */
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -29,6 +31,8 @@ import org.apache.solr.common.cloud.ZkStateReader;
 import org.apache.solr.util.stats.TimerContext;
 import org.apache.zookeeper.CreateMode;
 import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Op;
+import org.apache.zookeeper.OpResult;
 import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -73,6 +77,32 @@ public class ZkStateWriter {
       callback.onEnqueue();
     }
 
+    applyUpdate(prevState, cmd);
+
+    if (maybeFlushAfter(cmd)) {
+      ClusterState state = writePendingUpdates();
+      if (callback != null) {
+        callback.onWrite();
+      }
+      return state;
+    }
+
+    return clusterState;
+  }
+
+  /**
+   * Applies a ZkWriteCommand to the in-memory cluster state without ever flushing, so that the
+   * updates to any number of collections can be written at once by {@link #writePendingUpdates(List)}.
+   *
+   * @return the cluster state with the update applied
+   */
+  public ClusterState enqueueBatchUpdate(ClusterState prevState, ZkWriteCommand cmd) {
+    if (cmd == NO_OP) return prevState;
+    applyUpdate(prevState, cmd);
+    return clusterState;
+  }
+
+  private void applyUpdate(ClusterState prevState, ZkWriteCommand cmd) {
     if (cmd.collection == null) {
       isClusterStateModified = true;
       clusterState = prevState.copyWith(cmd.name, null);
@@ -85,16 +115,6 @@ public class ZkStateWriter {
       }
       clusterState = prevState.copyWith(cmd.name, cmd.collection);
     }
-
-    if (maybeFlushAfter(cmd)) {
-      ClusterState state = writePendingUpdates();
-      if (callback != null) {
-        callback.onWrite();
-      }
-      return state;
-    }
-
-    return clusterState;
   }
 
   /**
@@ -199,6 +219,90 @@ public class ZkStateWriter {
     return clusterState;
   }
 
+  /**
+   * Writes all pending updates together with the given operations in a single ZooKeeper multi-op,
+   * so that either all of them or none of them are applied. Every collection that was updated is
+   * written once, with a compare-and-set on the version of its state.json (or of clusterstate.json
+   * for stateFormat=1 collections), so a concurrent modification fails the whole write instead of
+   * being lost. On failure the pending updates are discarded: the caller is expected to re-read the
+   * cluster state and re-apply the commands.
+   *
+   * @param extraOps operations to apply atomically with the state updates, e.g. the removal of the
+   *                 queue items that produced them
+   */
+  public ClusterState writePendingUpdates(List<Op> extraOps) throws KeeperException, InterruptedException {
+    if (!hasPendingUpdates() && extraOps.isEmpty()) return clusterState;
+    TimerContext timerContext = stats.time("update_state");
+    boolean success = false;
+    try {
+      List<Op> ops = new ArrayList<>();
+      List<String> written = new ArrayList<>();
+      for (Map.Entry<String, DocCollection> entry : updates.entrySet()) {
+        String name = entry.getKey();
+        String path = ZkStateReader.getCollectionPath(name);
+        DocCollection c = entry.getValue();
+
+        if (c == null) {
+          // recursive deletes cannot be part of a multi-op, but removing a deleted collection twice is harmless
+          reader.getZkClient().clean("/collections/" + name);
+        } else if (c.getStateFormat() > 1) {
+          byte[] data = ZkStateReader.toJSON(singletonMap(c.getName(), c));
+          if (reader.getZkClient().exists(path, true)) {
+            assert c.getZNodeVersion() >= 0;
+            ops.add(Op.setData(path, data, c.getZNodeVersion()));
+          } else {
+            ops.add(Op.create(path, data, reader.getZkClient().getZkACLProvider().getACLsToAdd(path), CreateMode.PERSISTENT));
+            isClusterStateModified = true;
+          }
+          written.add(name);
+        } else if (c.getStateFormat() == 1) {
+          isClusterStateModified = true;
+        }
+      }
+
+      if (isClusterStateModified) {
+        assert clusterState.getZkClusterStateVersion() >= 0;
+        ops.add(Op.setData(ZkStateReader.CLUSTER_STATE, ZkStateReader.toJSON(clusterState), clusterState.getZkClusterStateVersion()));
+      }
+      ops.addAll(extraOps);
+
+      List<OpResult> results = reader.getZkClient().multi(ops, true);
+
+      for (int i = 0; i < written.size(); i++) {
+        String name = written.get(i);
+        DocCollection c = updates.get(name);
+        OpResult result = results.get(i);
+        int version = result instanceof OpResult.SetDataResult ? ((OpResult.SetDataResult) result).getStat().getVersion() : 0;
+        DocCollection newCollection = new DocCollection(name, c.getSlicesMap(), c.getProperties(), c.getRouter(), version, ZkStateReader.getCollectionPath(name));
+        clusterState = clusterState.copyWith(name, newCollection);
+      }
+
+      if (isClusterStateModified) {
+        lastUpdatedTime = System.nanoTime();
+        Stat stat = ((OpResult.SetDataResult) results.get(written.size())).getStat();
+        Set<String> collectionNames = clusterState.getCollections();
+        Map<String, DocCollection> collectionStates = new HashMap<>(collectionNames.size());
+        for (String c : collectionNames) {
+          collectionStates.put(c, clusterState.getCollection(c));
+        }
+        // use the reader's live nodes because our cluster state's live nodes may be stale
+        clusterState = new ClusterState(stat.getVersion(), reader.getClusterState().getLiveNodes(), collectionStates);
+      }
+      success = true;
+    } finally {
+      updates.clear();
+      isClusterStateModified = false;
+      timerContext.stop();
+      if (success) {
+        stats.success("update_state");
+      } else {
+        stats.error("update_state");
+      }
+    }
+
+    return clusterState;
+  }
+
   /**
    * @return time returned by System.nanoTime at which the main cluster state was last written to ZK or 0 if
    * never
@@ -90,6 +90,9 @@ public class CoreContainer {
 
   protected final Map<String, CoreLoadFailure> coreInitFailures = new ConcurrentHashMap<>();
 
+  // milliseconds it took to create each core
+  private final Map<String, Long> coreLoadTimes = new ConcurrentHashMap<>();
+
   protected CoreAdminHandler coreAdminHandler = null;
   protected CollectionsHandler collectionsHandler = null;
   private InfoHandler infoHandler;
@@ -381,6 +384,12 @@ public class CoreContainer {
 
       List<CoreDescriptor> cds = coresLocator.discover(this);
       checkForDuplicateCoreNames(cds);
+      // the executor runs the cores in the order they are submitted
+      if (isZooKeeperAware()) {
+        cds = CoreSorter.sort(cds, zkSys.getZkController().getClusterState(), zkSys.getZkController().getNodeName());
+      } else {
+        cds = CoreSorter.sort(cds, null, null);
+      }
 
 
       for (final CoreDescriptor cd : cds) {
@@ -664,6 +673,7 @@ public class CoreContainer {
     }
 
     SolrCore core = null;
+    long start = System.nanoTime();
     try {
       MDCLoggingContext.setCore(core);
       if (zkSys.getZkController() != null) {
@@ -682,6 +692,10 @@ public class CoreContainer {
 
       registerCore(dcore.getName(), core, publishState);
 
+      long loadTime = TimeUnit.MILLISECONDS.convert(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+      coreLoadTimes.put(dcore.getName(), loadTime);
+      log.info("Created SolrCore '{}' in {} ms", dcore.getName(), loadTime);
+
       return core;
     } catch (Exception e) {
       coreInitFailures.put(dcore.getName(), new CoreLoadFailure(dcore, e));
@@ -837,6 +851,7 @@ public class CoreContainer {
     boolean close = solrCores.isLoadedNotPendingClose(name);
     SolrCore core = solrCores.remove(name);
     coresLocator.delete(this, cd);
+    coreLoadTimes.remove(name);
 
     if (core == null) {
       // transient core
@@ -968,6 +983,15 @@ public class CoreContainer {
     solrCores.waitForLoadingCoreToFinish(name, timeoutMs);
   }
 
+  /**
+   * Returns the number of milliseconds it took to create the given core, including opening its
+   * index and first searcher but not warming it, or null if the core was not created by this
+   * container.
+   */
+  public Long getCoreLoadTime(String name) {
+    return coreLoadTimes.get(name);
+  }
+
   // ---------------- CoreContainer request handlers --------------
 
   protected <T> T createHandler(String handlerClass, Class<T> clazz) {
@@ -0,0 +1,132 @@
+package org.apache.solr.core;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.solr.cloud.CloudDescriptor;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.cloud.ClusterState;
+import org.apache.solr.common.cloud.Replica;
+import org.apache.solr.common.cloud.Slice;
+import org.apache.solr.common.cloud.ZkStateReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decides in which order the cores of a node are loaded on startup.
+ * <p>
+ * In SolrCloud mode, cores that were the leader of their shard come first,
+ * followed by the cores whose shard has the fewest active replicas on other
+ * live nodes, since nobody else can serve these shards until they are loaded.
+ * Within the same rank, and in standalone mode, the cores whose index or
+ * transaction log was most recently modified come first.
+ */
+final class CoreSorter {
+  private static final Logger log = LoggerFactory.getLogger(CoreSorter.class);
+
+  private CoreSorter() {}
+
+  /**
+   * Returns the given cores in the order in which they should be loaded.
+   *
+   * @param clusterState the cluster state, or null if not in SolrCloud mode
+   * @param nodeName the name of this node, or null if not in SolrCloud mode
+   */
+  static List<CoreDescriptor> sort(List<CoreDescriptor> cds, ClusterState clusterState, String nodeName) {
+    List<Rank> ranks = new ArrayList<>(cds.size());
+    for (CoreDescriptor cd : cds) {
+      ranks.add(new Rank(cd, clusterState, nodeName));
+    }
+    Collections.sort(ranks, new Comparator<Rank>() {
+      @Override
+      public int compare(Rank r1, Rank r2) {
+        if (r1.wasLeader != r2.wasLeader) {
+          return r1.wasLeader ? -1 : 1;
+        }
+        if (r1.otherReplicas != r2.otherReplicas) {
+          return Integer.compare(r1.otherReplicas, r2.otherReplicas);
+        }
+        return Long.compare(r2.lastModified, r1.lastModified);
+      }
+    });
+    List<CoreDescriptor> sorted = new ArrayList<>(cds.size());
+    for (Rank rank : ranks) {
+      sorted.add(rank.cd);
+    }
+    return sorted;
+  }
+
+  private static class Rank {
+    final CoreDescriptor cd;
+    boolean wasLeader;
+    int otherReplicas;
+    final long lastModified;
+
+    Rank(CoreDescriptor cd, ClusterState clusterState, String nodeName) {
+      this.cd = cd;
+      CloudDescriptor cloudDesc = cd.getCloudDescriptor();
+      if (clusterState != null && cloudDesc != null
+          && cloudDesc.getCollectionName() != null && cloudDesc.getShardId() != null) {
+        try {
+          Slice slice = clusterState.getSlice(cloudDesc.getCollectionName(), cloudDesc.getShardId());
+          if (slice != null) {
+            Replica leader = slice.getLeader();
+            wasLeader = leader != null && nodeName.equals(leader.getNodeName())
+                && cd.getName().equals(leader.getStr(ZkStateReader.CORE_NAME_PROP));
+            for (Replica replica : slice.getReplicas()) {
+              if (!nodeName.equals(replica.getNodeName()) && replica.getState() == Replica.State.ACTIVE
+                  && clusterState.liveNodesContain(replica.getNodeName())) {
+                otherReplicas++;
+              }
+            }
+          }
+        } catch (SolrException e) {
+          log.warn("Could not read the state of the shard of core " + cd.getName(), e);
+        }
+      }
+      this.lastModified = lastModified(cd);
+    }
+  }
+
+  /** Returns the last time the index or transaction log of the core was modified, or 0 if unknown. */
+  static long lastModified(CoreDescriptor cd) {
+    long lastModified = 0;
+    try {
+      Path dataDir = Paths.get(cd.getInstanceDir()).resolve(cd.getDataDir());
+      Path ulogDir = cd.getUlogDir() == null ? dataDir : Paths.get(cd.getInstanceDir()).resolve(cd.getUlogDir());
+      for (Path dir : new Path[] {dataDir.resolve("index"), ulogDir.resolve("tlog")}) {
+        if (Files.isDirectory(dir)) {
+          lastModified = Math.max(lastModified, Files.getLastModifiedTime(dir).toMillis());
+        }
+      }
+    } catch (IOException | InvalidPathException e) {
+      // e.g. not on the local file system
+      log.debug("Could not read the last modification time of core {}: {}", cd.getName(), e.getMessage());
+    }
+    return lastModified;
+  }
+}
@@ -443,6 +443,7 @@ class SolrCores {
   public void markCoreAsNotLoading(CoreDescriptor cd) {
     synchronized (modifyLock) {
       currentlyLoadingCores.remove(cd.getName());
+      modifyLock.notifyAll(); // wake up anyone waiting for the core
     }
   }
 
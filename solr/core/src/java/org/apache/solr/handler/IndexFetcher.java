@@ -37,11 +37,13 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
@@ -54,6 +56,7 @@ import java.util.zip.InflaterInputStream;
 import org.apache.commons.io.IOUtils;
 import org.apache.http.client.HttpClient;
 import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.index.IndexCommit;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.SegmentInfos;
@@ -61,6 +64,7 @@ import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.RateLimiter;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.HttpClientUtil;
 import org.apache.solr.client.solrj.impl.HttpSolrClient;
@@ -72,6 +76,7 @@ import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.util.ExecutorUtil;
 import org.apache.solr.common.util.FastInputStream;
 import org.apache.solr.common.util.NamedList;
+import org.apache.solr.core.Diagnostics;
 import org.apache.solr.core.DirectoryFactory;
 import org.apache.solr.core.DirectoryFactory.DirContext;
 import org.apache.solr.core.IndexDeletionPolicyWrapper;
@@ -104,11 +109,15 @@ import static org.apache.solr.handler.ReplicationHandler.COMPRESSION;
 import static org.apache.solr.handler.ReplicationHandler.CONF_FILES;
 import static org.apache.solr.handler.ReplicationHandler.CONF_FILE_SHORT;
 import static org.apache.solr.handler.ReplicationHandler.EXTERNAL;
+import static org.apache.solr.handler.ReplicationHandler.FETCH_RANGE_SIZE;
+import static org.apache.solr.handler.ReplicationHandler.FETCH_THREADS;
 import static org.apache.solr.handler.ReplicationHandler.FILE;
 import static org.apache.solr.handler.ReplicationHandler.FILE_STREAM;
 import static org.apache.solr.handler.ReplicationHandler.GENERATION;
 import static org.apache.solr.handler.ReplicationHandler.INTERNAL;
+import static org.apache.solr.handler.ReplicationHandler.LEN;
 import static org.apache.solr.handler.ReplicationHandler.MASTER_URL;
+import static org.apache.solr.handler.ReplicationHandler.MAX_FETCH_PER_SECOND;
 import static org.apache.solr.handler.ReplicationHandler.OFFSET;
 import static org.apache.solr.handler.ReplicationHandler.SIZE;
 import static org.apache.solr.handler.ReplicationHandler.TLOG_FILE;
@@ -162,6 +171,17 @@ public class IndexFetcher {
 
   private boolean useExternal = false;
 
+  /** number of files, or ranges of files, that are downloaded concurrently */
+  private final int fetchThreads;
+
+  /** files that are larger than this are downloaded in ranges of this size, 0 to never split files */
+  private final long fetchRangeSize;
+
+  /** shared by all concurrent downloads, null if downloads are not throttled */
+  private final RateLimiter fetchRateLimiter;
+
+  public static Diagnostics.Callable testing_fetchHook;  // called after each file, or range of a file, is downloaded. data=[this, name]
+
   private final HttpClient myHttpClient;
 
   private static HttpClient createHttpClient(SolrCore core, String connTimeout, String readTimeout, String httpBasicAuthUser, String httpBasicAuthPassword, boolean useCompression) {
@@ -196,6 +216,22 @@ public class IndexFetcher {
     String httpBasicAuthUser = (String) initArgs.get(HttpClientUtil.PROP_BASIC_AUTH_USER);
     String httpBasicAuthPassword = (String) initArgs.get(HttpClientUtil.PROP_BASIC_AUTH_PASS);
     myHttpClient = createHttpClient(solrCore, connTimeout, readTimeout, httpBasicAuthUser, httpBasicAuthPassword, useExternal);
+
+    Object threads = initArgs.get(FETCH_THREADS);
+    fetchThreads = threads == null ? 1 : Integer.parseInt(threads.toString());
+    if (fetchThreads < 1) {
+      throw new SolrException(SolrException.ErrorCode.SERVER_ERROR,
+              "'" + FETCH_THREADS + "' must be at least 1, got: " + fetchThreads);
+    }
+    Object rangeSize = initArgs.get(FETCH_RANGE_SIZE);
+    fetchRangeSize = rangeSize == null ? 0 : Long.parseLong(rangeSize.toString());
+    if (fetchRangeSize < 0) {
+      throw new SolrException(SolrException.ErrorCode.SERVER_ERROR,
+              "'" + FETCH_RANGE_SIZE + "' must be positive, or 0 to never split files, got: " + fetchRangeSize);
+    }
+    Object maxFetchMBPerSec = initArgs.get(MAX_FETCH_PER_SECOND);
+    fetchRateLimiter = maxFetchMBPerSec == null
+        ? null : new RateLimiter.SimpleRateLimiter(Double.parseDouble(maxFetchMBPerSec.toString()));
   }
 
   /**
@@ -370,7 +406,20 @@ public class IndexFetcher {
           || commit.getGeneration() >= latestGeneration || forceReplication;
 
       String timestamp = new SimpleDateFormat(SnapShooter.DATE_FMT, Locale.ROOT).format(new Date());
-      String tmpIdxDirName = "index." + timestamp;
+      String tmpIdxDirName;
+      // kept by the handler, because fetches with an explicit masterUrl each use a new IndexFetcher
+      String resumableTmpIdxDirName = replicationHandler.resumableTmpIdxDirName;
+      if (resumableTmpIdxDirName != null && replicationHandler.resumableGeneration == latestGeneration) {
+        tmpIdxDirName = resumableTmpIdxDirName;
+        LOG.info("Resuming download of generation " + latestGeneration + " into " + tmpIdxDirName);
+      } else {
+        if (resumableTmpIdxDirName != null) {
+          removeIndexDir(solrCore.getDataDir() + resumableTmpIdxDirName);
+        }
+        tmpIdxDirName = "index." + timestamp;
+      }
+      replicationHandler.resumableTmpIdxDirName = null;
+      replicationHandler.resumableGeneration = -1;
       tmpIndex = solrCore.getDataDir() + tmpIdxDirName;
 
       tmpIndexDir = solrCore.getDirectoryFactory().get(tmpIndex, DirContext.DEFAULT, solrCore.getSolrConfig().indexConfig.lockType);
@@ -430,7 +479,15 @@ public class IndexFetcher {
               + isFullCopyNeeded);
           successfulInstall = false;
 
-          downloadIndexFiles(isFullCopyNeeded, indexDir, tmpIndexDir, latestGeneration);
+          try {
+            downloadIndexFiles(isFullCopyNeeded, indexDir, tmpIndexDir, latestGeneration);
+          } catch (Exception e) {
+            // keep the files that have been downloaded so far for the next attempt
+            replicationHandler.resumableTmpIdxDirName = tmpIdxDirName;
+            replicationHandler.resumableGeneration = latestGeneration;
+            deleteTmpIdxDir = false;
+            throw e;
+          }
           if (tlogFilesToDownload != null) {
             downloadTlogFiles(timestamp, latestGeneration);
           }
@@ -576,6 +633,26 @@ public class IndexFetcher {
     }
   }
 
+  /** Removes an index directory that is not in use. */
+  private void removeIndexDir(String path) {
+    Directory dir = null;
+    try {
+      dir = solrCore.getDirectoryFactory().get(path, DirContext.DEFAULT, solrCore.getSolrConfig().indexConfig.lockType);
+      solrCore.getDirectoryFactory().doneWithDirectory(dir);
+      solrCore.getDirectoryFactory().remove(dir);
+    } catch (IOException e) {
+      SolrException.log(LOG, "Error removing directory " + path, e);
+    } finally {
+      if (dir != null) {
+        try {
+          solrCore.getDirectoryFactory().release(dir);
+        } catch (IOException e) {
+          SolrException.log(LOG, "Error releasing directory " + path, e);
+        }
+      }
+    }
+  }
+
   private boolean hasUnusedFiles(Directory indexDir, IndexCommit commit) throws IOException {
     String segmentsFileName = commit.getSegmentsFileName();
     SegmentInfos infos = SegmentInfos.readCommit(indexDir, segmentsFileName);
@@ -819,33 +896,226 @@ public class IndexFetcher {
 
   /**
    * Download the index files. If a new index is needed, download all the files.
+   * <p>
+   * Files are downloaded by up to <code>fetchThreads</code> threads. Files that are larger than
+   * <code>fetchRangeSize</code> are downloaded in ranges that are assembled and verified against the
+   * checksum of the master once all of them are downloaded. Files that are already in the temporary
+   * directory because a previous attempt to fetch the same generation failed, and files that are
+   * identical in the current index directory, are not downloaded again.
    *
    * @param downloadCompleteIndex is it a fresh index copy
    * @param tmpIndexDir              the directory to which files need to be downloadeed to
    * @param indexDir                 the indexDir to be merged to
    * @param latestGeneration         the version number
    */
-  private void downloadIndexFiles(boolean downloadCompleteIndex, Directory indexDir, Directory tmpIndexDir, long latestGeneration)
-      throws Exception {
+  private void downloadIndexFiles(boolean downloadCompleteIndex, Directory indexDir, final Directory tmpIndexDir,
+                                  final long latestGeneration) throws Exception {
     if (LOG.isDebugEnabled()) {
       LOG.debug("Download files to dir: " + Arrays.asList(indexDir.listAll()));
     }
-    for (Map<String,Object> file : filesToDownload) {
-      String filename = (String) file.get(NAME);
+    List<Callable<Void>> tasks = new ArrayList<>();
+    Map<Map<String,Object>,Integer> splitFiles = new LinkedHashMap<>();
+    for (final Map<String,Object> file : filesToDownload) {
+      final String filename = (String) file.get(NAME);
       long size = (Long) file.get(SIZE);
-      CompareResult compareResult = compareFile(indexDir, filename, size, (Long) file.get(CHECKSUM));
+      Long checksum = (Long) file.get(CHECKSUM);
+      CompareResult compareResult = compareFile(indexDir, filename, size, checksum);
       if (!compareResult.equal || downloadCompleteIndex
           || filesToAlwaysDownloadIfNoChecksums(filename, size, compareResult)) {
-        dirFileFetcher = new DirectoryFileFetcher(tmpIndexDir, file,
-            (String) file.get(NAME), FILE, latestGeneration);
-        currentFile = file;
-        dirFileFetcher.fetchFile();
-        filesDownloaded.add(new HashMap<>(file));
+        if (reuseFile(tmpIndexDir, filename, size, checksum)) {
+          LOG.info("Skipping download for " + filename + " because it was downloaded by a previous attempt");
+          syncFile(tmpIndexDir, filename);
+          filesDownloaded.add(new HashMap<>(file));
+        } else if (compareResult.equal && compareResult.checkSummed) {
+          // full copy of a file that we already have: copy it instead of fetching it again
+          LOG.info("Copying " + filename + " from the current index directory");
+          tmpIndexDir.copyFrom(indexDir, filename, filename, DirectoryFactory.IOCONTEXT_NO_CACHE);
+          syncFile(tmpIndexDir, filename);
+        } else if (fetchRangeSize > 0 && size > fetchRangeSize) {
+          int numParts = (int) ((size + fetchRangeSize - 1) / fetchRangeSize);
+          splitFiles.put(file, numParts);
+          for (int i = 0; i < numParts; i++) {
+            final String partName = partName(filename, i);
+            final long start = i * fetchRangeSize;
+            final long length = Math.min(fetchRangeSize, size - start);
+            if (reuseFile(tmpIndexDir, partName, length, null)) {
+              continue;
+            }
+            tasks.add(new Callable<Void>() {
+              @Override
+              public Void call() throws Exception {
+                checkAborted();
+                DirectoryFileFetcher fetcher = new DirectoryFileFetcher(tmpIndexDir, file, partName, FILE,
+                    latestGeneration, start, length, false);
+                dirFileFetcher = fetcher;
+                currentFile = file;
+                fetcher.fetchFile();
+                checkAborted();
+                if (testing_fetchHook != null) Diagnostics.call(testing_fetchHook, IndexFetcher.this, partName);
+                return null;
+              }
+            });
+          }
+        } else {
+          tasks.add(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+              checkAborted();
+              DirectoryFileFetcher fetcher = new DirectoryFileFetcher(tmpIndexDir, file, filename, FILE, latestGeneration);
+              dirFileFetcher = fetcher;
+              currentFile = file;
+              fetcher.fetchFile();
+              checkAborted();
+              filesDownloaded.add(new HashMap<>(file));
+              if (testing_fetchHook != null) Diagnostics.call(testing_fetchHook, IndexFetcher.this, filename);
+              return null;
+            }
+          });
+        }
       } else {
         LOG.info("Skipping download for " + file.get(NAME)
             + " because it already exists");
       }
     }
+
+    runFetchTasks(tasks);
+    checkAborted();
+
+    for (Map.Entry<Map<String,Object>,Integer> entry : splitFiles.entrySet()) {
+      assembleFile(tmpIndexDir, entry.getKey(), entry.getValue());
+      filesDownloaded.add(new HashMap<>(entry.getKey()));
+    }
+  }
+
+  /**
+   * Run the given download tasks, concurrently if <code>fetchThreads</code> is greater than 1. If a
+   * task fails, the ones that are still running are aborted and the failure is rethrown.
+   */
+  private void runFetchTasks(List<Callable<Void>> tasks) throws Exception {
+    if (fetchThreads == 1 || tasks.size() <= 1) {
+      for (Callable<Void> task : tasks) {
+        task.call();
+      }
+      return;
+    }
+    ExecutorService executor = ExecutorUtil.newMDCAwareFixedThreadPool(Math.min(fetchThreads, tasks.size()),
+        new DefaultSolrThreadFactory("indexFetcher"));
+    List<Future<Void>> futures = new ArrayList<>(tasks.size());
+    boolean success = false;
+    try {
+      for (Callable<Void> task : tasks) {
+        futures.add(executor.submit(task));
+      }
+      for (Future<Void> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          if (cause instanceof Exception) {
+            throw (Exception) cause;
+          } else if (cause instanceof Error) {
+            throw (Error) cause;
+          }
+          throw e;
+        }
+      }
+      success = true;
+    } finally {
+      if (!success) {
+        // the pending downloads are not started and the running ones stop at their next packet
+        stop = true;
+        for (Future<Void> future : futures) {
+          future.cancel(false);
+        }
+      }
+      ExecutorUtil.shutdownAndAwaitTermination(executor);
+    }
+  }
+
+  /**
+   * Throws if the fetch has been aborted. A {@link FileFetcher} that is aborted returns without an
+   * exception, and deletes what it downloaded of its file.
+   */
+  private void checkAborted() throws ReplicationHandlerException {
+    if (stop) {
+      throw new ReplicationHandlerException("User aborted replication");
+    }
+  }
+
+  private static String partName(String filename, int part) {
+    return filename + ".part" + part;
+  }
+
+  /**
+   * Concatenate the ranges of a file that has been downloaded in several parts, and verify the
+   * result against the length and checksum of the master.
+   */
+  private void assembleFile(Directory dir, Map<String,Object> file, int numParts) throws IOException {
+    String filename = (String) file.get(NAME);
+    if (slowFileExists(dir, filename)) {
+      dir.deleteFile(filename);
+    }
+    try (IndexOutput out = dir.createOutput(filename, DirectoryFactory.IOCONTEXT_NO_CACHE)) {
+      for (int i = 0; i < numParts; i++) {
+        try (IndexInput in = dir.openInput(partName(filename, i), IOContext.READONCE)) {
+          out.copyBytes(in, in.length());
+        }
+      }
+    }
+    for (int i = 0; i < numParts; i++) {
+      dir.deleteFile(partName(filename, i));
+    }
+    if (!verifyFile(dir, filename, (Long) file.get(SIZE), (Long) file.get(CHECKSUM))) {
+      dir.deleteFile(filename);
+      throw new SolrException(SolrException.ErrorCode.SERVER_ERROR,
+          "File " + filename + " does not match the master after assembling " + numParts + " ranges");
+    }
+    syncFile(dir, filename);
+  }
+
+  /**
+   * Returns true if <code>dir</code> already has a complete copy of the given file. A copy that
+   * does not have the expected length or checksum is deleted.
+   */
+  private static boolean reuseFile(Directory dir, String filename, long size, Long checksum) throws IOException {
+    if (!slowFileExists(dir, filename)) {
+      return false;
+    }
+    if (verifyFile(dir, filename, size, checksum)) {
+      return true;
+    }
+    LOG.warn("Deleting {} which does not match the master", filename);
+    dir.deleteFile(filename);
+    return false;
+  }
+
+  /**
+   * Returns true if the given file has the expected length and, if a checksum is given, if the
+   * checksum of its entire content matches it.
+   */
+  private static boolean verifyFile(Directory dir, String filename, long size, Long checksum) throws IOException {
+    try (IndexInput in = dir.openInput(filename, IOContext.READONCE)) {
+      if (in.length() != size) {
+        return false;
+      }
+      return checksum == null || CodecUtil.checksumEntireFile(in) == checksum;
+    } catch (CorruptIndexException e) {
+      LOG.warn("File {} is corrupt", filename, e);
+      return false;
+    }
+  }
+
+  private void syncFile(final Directory dir, final String filename) {
+    fsyncService.submit(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          dir.sync(Collections.singleton(filename));
+        } catch (IOException e) {
+          fsyncException = e;
+        }
+      }
+    });
   }
   
   private boolean filesToAlwaysDownloadIfNoChecksums(String filename,
@@ -1307,8 +1577,12 @@ public class IndexFetcher {
     private String solrParamOutput;
     private Long indexGen;
 
+    private long offset;
     private long size;
+    private boolean ranged;
+    private boolean sync;
     private long bytesDownloaded = 0;
+    private long bytesSincePause = 0;
     private byte[] buf = new byte[1024 * 1024];
     private Checksum checksum;
     private int errorCount = 0;
@@ -1316,9 +1590,21 @@ public class IndexFetcher {
 
     FileFetcher(FileInterface file, Map<String, Object> fileDetails, String saveAs,
                 String solrParamOutput, long latestGen) throws IOException {
+      this(file, fileDetails, saveAs, solrParamOutput, latestGen, 0, (Long) fileDetails.get(SIZE), true);
+    }
+
+    /**
+     * Fetch <code>length</code> bytes of the file, starting at <code>offset</code>, and only fsync
+     * them if <code>sync</code> is true.
+     */
+    FileFetcher(FileInterface file, Map<String, Object> fileDetails, String saveAs,
+                String solrParamOutput, long latestGen, long offset, long length, boolean sync) throws IOException {
       this.file = file;
       this.fileName = (String) fileDetails.get(NAME);
-      this.size = (Long) fileDetails.get(SIZE);
+      this.offset = offset;
+      this.size = length;
+      this.ranged = offset != 0 || length != (Long) fileDetails.get(SIZE);
+      this.sync = sync;
       this.solrParamOutput = solrParamOutput;
       this.saveAs = saveAs;
       indexGen = latestGen;
@@ -1353,16 +1639,18 @@ public class IndexFetcher {
       } finally {
         cleanup();
         //if cleanup succeeds . The file is downloaded fully. do an fsync
-        fsyncService.submit(new Runnable(){
-          @Override
-          public void run() {
-            try {
-              file.sync();
-            } catch (IOException e) {
-              fsyncException = e;
+        if (sync) {
+          fsyncService.submit(new Runnable(){
+            @Override
+            public void run() {
+              try {
+                file.sync();
+              } catch (IOException e) {
+                fsyncException = e;
+              }
             }
-          }
-        });
+          });
+        }
       }
     }
 
@@ -1372,7 +1660,7 @@ public class IndexFetcher {
       try {
         while (true) {
           if (stop) {
-            stop = false;
+            // stop is reset by cleanup, so that all concurrent fetches see it
             aborted = true;
             throw new ReplicationHandlerException("User aborted replication");
           }
@@ -1405,9 +1693,18 @@ public class IndexFetcher {
             }
           }
           //if everything is fine, write down the packet to the file
+          //(a master that does not support ranges sends the rest of the file)
+          packetSize = (int) Math.min(packetSize, size - bytesDownloaded);
           file.write(buf, packetSize);
           bytesDownloaded += packetSize;
           LOG.debug("Fetched and wrote {} bytes of file: {}", bytesDownloaded, fileName);
+          if (fetchRateLimiter != null) {
+            bytesSincePause += packetSize;
+            if (bytesSincePause >= fetchRateLimiter.getMinPauseCheckBytes()) {
+              fetchRateLimiter.pause(bytesSincePause);
+              bytesSincePause = 0;
+            }
+          }
           if (bytesDownloaded >= size)
             return 0;
           //errorCount is always set to zero after a successful packet
@@ -1501,8 +1798,11 @@ public class IndexFetcher {
       params.set(CommonParams.WT, FILE_STREAM);
       // This happen if there is a failure there is a retry. the offset=<sizedownloaded> ensures that
       // the server starts from the offset
-      if (bytesDownloaded > 0) {
-        params.set(OFFSET, Long.toString(bytesDownloaded));
+      if (offset + bytesDownloaded > 0) {
+        params.set(OFFSET, Long.toString(offset + bytesDownloaded));
+      }
+      if (ranged) {
+        params.set(LEN, Long.toString(size - bytesDownloaded));
       }
 
 
@@ -1561,6 +1861,11 @@ public class IndexFetcher {
                          String solrParamOutput, long latestGen) throws IOException {
       super(new DirectoryFile(tmpIndexDir, saveAs), fileDetails, saveAs, solrParamOutput, latestGen);
     }
+
+    DirectoryFileFetcher(Directory tmpIndexDir, Map<String, Object> fileDetails, String saveAs,
+                         String solrParamOutput, long latestGen, long offset, long length, boolean sync) throws IOException {
+      super(new DirectoryFile(tmpIndexDir, saveAs), fileDetails, saveAs, solrParamOutput, latestGen, offset, length, sync);
+    }
   }
 
   private class LocalFsFile implements FileInterface {
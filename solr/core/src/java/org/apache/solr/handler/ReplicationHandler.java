@@ -149,6 +149,12 @@ public class ReplicationHandler extends RequestHandlerBase implements SolrCoreAw
 
   private IndexFetcher pollingIndexFetcher;
 
+  // the temporary index directory of a failed fetch, and the generation it was fetching, so that
+  // the next fetch of the same generation does not download the same files again, see IndexFetcher
+  volatile String resumableTmpIdxDirName;
+
+  volatile long resumableGeneration = -1;
+
   private ReentrantLock indexFetchLock = new ReentrantLock();
 
   private ExecutorService restoreExecutor = ExecutorUtil.newMDCAwareSingleThreadExecutor(
@@ -1317,7 +1323,7 @@ public class ReplicationHandler extends RequestHandlerBase implements SolrCoreAw
     protected boolean useChecksum;
 
     protected long offset = -1;
-    protected int len = -1;
+    protected long len = -1;
 
     protected Checksum checksum;
 
@@ -1347,12 +1353,12 @@ public class ReplicationHandler extends RequestHandlerBase implements SolrCoreAw
 
     protected void initWrite() throws IOException {
       if (sOffset != null) offset = Long.parseLong(sOffset);
-      if (sLen != null) len = Integer.parseInt(sLen);
+      if (sLen != null) len = Long.parseLong(sLen);
       if (fileName == null && cfileName == null && tlogFileName == null) {
         // no filename do nothing
         writeNothingAndFlush();
       }
-      buf = new byte[(len == -1 || len > PACKET_SZ) ? PACKET_SZ : len];
+      buf = new byte[(len == -1 || len > PACKET_SZ) ? PACKET_SZ : (int) len];
 
       //reserve commit point till write is complete
       if(indexGen != null) {
@@ -1401,10 +1407,12 @@ public class ReplicationHandler extends RequestHandlerBase implements SolrCoreAw
 
         long filelen = dir.fileLength(fileName);
         long maxBytesBeforePause = 0;
+        offset = offset == -1 ? 0 : offset;
+        // if len is mentioned only send the bytes in [offset, offset+len)
+        final long end = len == -1 ? filelen : Math.min(filelen, offset + len);
 
         while (true) {
-          offset = offset == -1 ? 0 : offset;
-          int read = (int) Math.min(buf.length, filelen - offset);
+          int read = (int) Math.min(buf.length, end - offset);
           in.readBytes(buf, 0, read);
 
           fos.writeInt(read);
@@ -1423,7 +1431,7 @@ public class ReplicationHandler extends RequestHandlerBase implements SolrCoreAw
             rateLimiter.pause(maxBytesBeforePause);
             maxBytesBeforePause = 0;
           }
-          if (read != buf.length) {
+          if (read != buf.length || offset + read >= end) {
             writeNothingAndFlush();
             fos.close();
             break;
@@ -1622,6 +1630,12 @@ public class ReplicationHandler extends RequestHandlerBase implements SolrCoreAw
 
   public static final String MAX_WRITE_PER_SECOND = "maxWriteMBPerSec";
 
+  public static final String MAX_FETCH_PER_SECOND = "maxFetchMBPerSec";
+
+  public static final String FETCH_THREADS = "fetchThreads";
+
+  public static final String FETCH_RANGE_SIZE = "fetchRangeSize";
+
   public static final String CONF_FILE_SHORT = "cf";
 
   public static final String TLOG_FILE = "tlogFile";
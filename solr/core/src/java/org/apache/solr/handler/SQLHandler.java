@@ -35,6 +35,7 @@ import org.apache.solr.client.solrj.io.comp.ComparatorOrder;
 import org.apache.solr.client.solrj.io.comp.StreamComparator;
 import org.apache.solr.client.solrj.io.comp.MultiComp;
 import org.apache.solr.client.solrj.io.stream.CloudSolrStream;
+import org.apache.solr.client.solrj.io.stream.FacetStream;
 import org.apache.solr.client.solrj.io.stream.ParallelStream;
 import org.apache.solr.client.solrj.io.stream.RankStream;
 import org.apache.solr.client.solrj.io.stream.RollupStream;
@@ -58,6 +59,15 @@ import com.facebook.presto.sql.parser.SqlParser;
 
 public class SQLHandler extends RequestHandlerBase implements SolrCoreAware {
 
+  /** Request parameter that selects how GROUP BY queries are aggregated. */
+  public static final String AGGREGATION_MODE = "aggregationMode";
+
+  /** Aggregates with JSON facets on the shards. */
+  public static final String AGGREGATION_MODE_FACET = "facet";
+
+  /** Exports the matching documents and aggregates them with rollups, optionally on parallel workers. */
+  public static final String AGGREGATION_MODE_MAP_REDUCE = "map_reduce";
+
   private Map<String, TableSpec> tableMappings = new HashMap();
   private String defaultZkhost = null;
   private String defaultWorkerCollection = null;
@@ -91,8 +101,9 @@ public class SQLHandler extends RequestHandlerBase implements SolrCoreAware {
     int numWorkers = params.getInt("numWorkers", 1);
     String workerCollection = params.get("workerCollection", defaultWorkerCollection);
     String workerZkhost = params.get("workerZkhost",defaultZkhost);
+    String aggregationMode = params.get(AGGREGATION_MODE);
     StreamContext context = new StreamContext();
-    TupleStream tupleStream = SQLTupleStreamParser.parse(sql, tableMappings, numWorkers, workerCollection, workerZkhost);
+    TupleStream tupleStream = SQLTupleStreamParser.parse(sql, tableMappings, numWorkers, workerCollection, workerZkhost, aggregationMode);
     context.numWorkers = numWorkers;
     context.setSolrClientCache(StreamHandler.clientCache);
     tupleStream.setStreamContext(context);
@@ -113,7 +124,8 @@ public class SQLHandler extends RequestHandlerBase implements SolrCoreAware {
                                     Map<String, TableSpec> tableMap,
                                     int numWorkers,
                                     String workerCollection,
-                                    String workerZkhost) throws IOException {
+                                    String workerZkhost,
+                                    String aggregationMode) throws IOException {
       SqlParser parser = new SqlParser();
       Statement statement = parser.createStatement(sql);
 
@@ -124,7 +136,11 @@ public class SQLHandler extends RequestHandlerBase implements SolrCoreAware {
       TupleStream sqlStream = null;
 
       if(sqlVistor.groupByQuery) {
-        sqlStream = doGroupBy(sqlVistor, tableMap, numWorkers, workerCollection, workerZkhost);
+        if(useFacets(aggregationMode, numWorkers, sqlVistor.fields)) {
+          sqlStream = doGroupByWithFacets(sqlVistor, tableMap);
+        } else {
+          sqlStream = doGroupBy(sqlVistor, tableMap, numWorkers, workerCollection, workerZkhost);
+        }
       } else {
         sqlStream = doSelect(sqlVistor, tableMap, numWorkers, workerCollection, workerZkhost);
       }
@@ -133,6 +149,77 @@ public class SQLHandler extends RequestHandlerBase implements SolrCoreAware {
     }
   }
 
+  /*
+   * Facets move only the aggregates over the network, so they are used unless map_reduce is requested.
+   * Asking for more than one worker without naming a mode means the caller expects the buckets to be
+   * too many for a single node to hold, in which case the rollups are spread across the workers.
+   * Facets only estimate unique() across shards once a shard has more than 100 values in a bucket,
+   * so queries with unique() keep the exact map_reduce rollup unless facets are asked for.
+   */
+  private static boolean useFacets(String aggregationMode, int numWorkers, List<String> fields) throws IOException {
+    if(aggregationMode == null) {
+      return numWorkers <= 1 && !hasUniqueMetric(fields);
+    } else if(AGGREGATION_MODE_FACET.equals(aggregationMode)) {
+      return true;
+    } else if(AGGREGATION_MODE_MAP_REDUCE.equals(aggregationMode)) {
+      return false;
+    } else {
+      throw new IOException("Unknown "+AGGREGATION_MODE+": "+aggregationMode);
+    }
+  }
+
+  private static boolean hasUniqueMetric(List<String> fields) {
+    for(String field : fields) {
+      if(field.startsWith("unique(")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static TupleStream doGroupByWithFacets(SQLVisitor sqlVisitor,
+                                                 Map<String, TableSpec> tableMap) throws IOException {
+
+    Set<String> fieldSet = new HashSet();
+    Bucket[] buckets = getBuckets(sqlVisitor.groupBy, fieldSet);
+    Metric[] metrics = getMetrics(sqlVisitor.fields, fieldSet);
+
+    TableSpec tableSpec = tableMap.get(sqlVisitor.table);
+    String zkHost = tableSpec.zkHost;
+    String collection = tableSpec.collection;
+    Map<String, String> params = new HashMap();
+
+    params.put(CommonParams.Q, sqlVisitor.query);
+
+    String sortDirection = getSortDirection(sqlVisitor.sorts);
+    boolean bucketOrder = sqlVisitor.sorts == null || sqlVisitor.sorts.size() == 0 || sortsEqual(buckets, sortDirection, sqlVisitor.sorts);
+
+    // The first n tuples in bucket order only use the first n values of each bucket, so the limit
+    // can be pushed down to every level. Facet sorts on metrics are not exact across shards, so
+    // for those all buckets are fetched and ranked here.
+    int bucketSizeLimit = -1;
+    if(bucketOrder && sqlVisitor.havingExpression == null && sqlVisitor.limit > -1) {
+      bucketSizeLimit = sqlVisitor.limit;
+    }
+
+    boolean ascending = !bucketOrder || "asc".equals(sortDirection);
+    TupleStream tupleStream = new FacetStream(zkHost, collection, params, buckets, metrics, ascending, bucketSizeLimit);
+
+    if(sqlVisitor.havingExpression != null) {
+      tupleStream = new HavingStream(tupleStream, sqlVisitor.havingExpression);
+    }
+
+    if(!bucketOrder) {
+      int limit = sqlVisitor.limit == -1 ? 100 : sqlVisitor.limit;
+      Comparator<Tuple> comp = getComp(sqlVisitor.sorts);
+      tupleStream = new RankStream(tupleStream, limit, comp);
+    } else if(sqlVisitor.limit > -1) {
+      tupleStream = new LimitStream(tupleStream, sqlVisitor.limit);
+    }
+
+    return tupleStream;
+  }
+
   private static TupleStream doGroupBy(SQLVisitor sqlVisitor,
                                        Map<String, TableSpec> tableMap,
                                        int numWorkers,
@@ -381,6 +468,9 @@ public class SQLHandler extends RequestHandlerBase implements SolrCoreAware {
           fieldSet.add(column);
         } else if(function.equals("count")) {
           metrics.add(new CountMetric());
+        } else if(function.equals("unique")) {
+          metrics.add(new UniqueMetric(column));
+          fieldSet.add(column);
         }
       }
     }
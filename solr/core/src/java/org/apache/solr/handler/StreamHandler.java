@@ -24,15 +24,24 @@ import java.util.Map.Entry;
 
 import org.apache.solr.client.solrj.io.SolrClientCache;
 import org.apache.solr.client.solrj.io.stream.CloudSolrStream;
+import org.apache.solr.client.solrj.io.stream.HashJoinStream;
+import org.apache.solr.client.solrj.io.stream.InnerJoinStream;
+import org.apache.solr.client.solrj.io.stream.LeftOuterJoinStream;
 import org.apache.solr.client.solrj.io.stream.MergeStream;
 import org.apache.solr.client.solrj.io.stream.ParallelStream;
 import org.apache.solr.client.solrj.io.stream.RankStream;
 import org.apache.solr.client.solrj.io.stream.ReducerStream;
+import org.apache.solr.client.solrj.io.stream.RollupStream;
 import org.apache.solr.client.solrj.io.stream.StreamContext;
 import org.apache.solr.client.solrj.io.stream.TupleStream;
 import org.apache.solr.client.solrj.io.stream.UniqueStream;
 import org.apache.solr.client.solrj.io.stream.expr.Expressible;
 import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
+import org.apache.solr.client.solrj.io.stream.metrics.CountMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.MaxMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.MeanMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.MinMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.SumMetric;
 import org.apache.solr.common.params.SolrParams;
 import org.apache.solr.common.util.Base64;
 import org.apache.solr.common.util.NamedList;
@@ -76,7 +85,18 @@ public class StreamHandler extends RequestHandlerBase implements SolrCoreAware {
       .withStreamFunction("unique", UniqueStream.class)
       .withStreamFunction("top", RankStream.class)
       .withStreamFunction("group", ReducerStream.class)
-      .withStreamFunction("parallel", ParallelStream.class);
+      .withStreamFunction("parallel", ParallelStream.class)
+      .withStreamFunction("rollup", RollupStream.class)
+      .withStreamFunction("innerJoin", InnerJoinStream.class)
+      .withStreamFunction("leftOuterJoin", LeftOuterJoinStream.class)
+      .withStreamFunction("hashJoin", HashJoinStream.class)
+
+      // metrics
+      .withStreamFunction("count", CountMetric.class)
+      .withStreamFunction("sum", SumMetric.class)
+      .withStreamFunction("min", MinMetric.class)
+      .withStreamFunction("max", MaxMetric.class)
+      .withStreamFunction("avg", MeanMetric.class);
 
     
     // This pulls all the overrides and additions from the config
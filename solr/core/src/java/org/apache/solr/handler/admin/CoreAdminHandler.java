@@ -1166,6 +1166,8 @@ public class CoreAdminHandler extends RequestHandlerBase {
           info.add("schema", core.getSchemaResource());
           info.add("startTime", new Date(core.getStartTime()));
           info.add("uptime", System.currentTimeMillis() - core.getStartTime());
+          Long loadTime = cores.getCoreLoadTime(core.getName());
+          if (loadTime != null) info.add("loadTime", loadTime);
           if (isIndexInfoNeeded) {
             RefCounted<SolrIndexSearcher> searcher = core.getSearcher();
             try {
@@ -35,6 +35,7 @@ import java.util.Locale;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.lucene.LucenePackage;
+import org.apache.solr.cloud.ZkController;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.common.util.SimpleOrderedMap;
 import org.apache.solr.core.CoreContainer;
@@ -95,7 +96,9 @@ public class SystemInfoHandler extends RequestHandlerBase
     boolean solrCloudMode =  getCoreContainer(req, core).isZooKeeperAware();
     rsp.add( "mode", solrCloudMode ? "solrcloud" : "std");
     if (solrCloudMode) {
-      rsp.add("zkHost", getCoreContainer(req, core).getZkController().getZkServerAddress());
+      ZkController zkController = getCoreContainer(req, core).getZkController();
+      rsp.add("zkHost", zkController.getZkServerAddress());
+      rsp.add("lazyCollectionCache", zkController.getZkStateReader().getLazyCollectionCacheStats());
     }
     if (cc != null)
       rsp.add( "solr_home", cc.getSolrHome());
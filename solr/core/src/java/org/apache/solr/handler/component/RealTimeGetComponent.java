@@ -25,11 +25,17 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
 import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.index.StorableField;
 import org.apache.lucene.index.StoredDocument;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
 import org.apache.solr.client.solrj.SolrResponse;
@@ -56,12 +62,15 @@ import org.apache.solr.response.transform.TransformContext;
 import org.apache.solr.schema.FieldType;
 import org.apache.solr.schema.IndexSchema;
 import org.apache.solr.schema.SchemaField;
+import org.apache.solr.schema.TrieField;
 import org.apache.solr.search.ReturnFields;
 import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.search.SolrReturnFields;
 import org.apache.solr.update.DocumentBuilder;
 import org.apache.solr.update.PeerSync;
 import org.apache.solr.update.UpdateLog;
+import org.apache.solr.update.VersionInfo;
+import org.apache.solr.update.processor.AtomicUpdateDocumentMerger;
 import org.apache.solr.util.RefCounted;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -199,6 +208,14 @@ public class RealTimeGetComponent extends SearchComponent
        if (docid < 0) continue;
        StoredDocument luceneDocument = searcher.doc(docid, rsp.getReturnFields().getLuceneFieldNames());
        SolrDocument doc = toSolrDoc(luceneDocument,  core.getLatestSchema());
+       SchemaField versionField = core.getLatestSchema().getFieldOrNull(VersionInfo.VERSION_FIELD);
+       if (versionField != null && !versionField.stored() && rsp.getReturnFields().wantsField(VersionInfo.VERSION_FIELD)) {
+         // the version is only stored as doc values if documents can be updated in place
+         Object version = getDocValuesOnlyFields(searcher, docid, core.getLatestSchema()).get(VersionInfo.VERSION_FIELD);
+         if (version != null) {
+           doc.setField(VersionInfo.VERSION_FIELD, version);
+         }
+       }
        if( transformer != null ) {
          transformer.transform(doc, docid);
        }
@@ -258,6 +275,16 @@ public class RealTimeGetComponent extends SearchComponent
   }
 
   public static SolrInputDocument getInputDocument(SolrCore core, BytesRef idBytes) throws IOException {
+    return getInputDocument(core, idBytes, false);
+  }
+
+  /**
+   * Returns the latest version of the document with the given id, or null if it does not exist.
+   * If <code>withDocValuesOnlyFields</code> is true, a document read from the index also contains
+   * the values of its fields that are only stored as doc values and can be updated in place, see
+   * {@link AtomicUpdateDocumentMerger#isSupportedFieldForInPlaceUpdate}.
+   */
+  public static SolrInputDocument getInputDocument(SolrCore core, BytesRef idBytes, boolean withDocValuesOnlyFields) throws IOException {
     SolrInputDocument sid = null;
     RefCounted<SolrIndexSearcher> searcherHolder = null;
     try {
@@ -281,6 +308,13 @@ public class RealTimeGetComponent extends SearchComponent
         if (docid < 0) return null;
         StoredDocument luceneDocument = searcher.doc(docid);
         sid = toSolrInputDocument(luceneDocument, core.getLatestSchema());
+        if (withDocValuesOnlyFields) {
+          for (Map.Entry<String,Object> entry : getDocValuesOnlyFields(searcher, docid, core.getLatestSchema()).entrySet()) {
+            if (!sid.containsKey(entry.getKey())) {
+              sid.addField(entry.getKey(), entry.getValue());
+            }
+          }
+        }
       }
     } finally {
       if (searcherHolder != null) {
@@ -291,6 +325,44 @@ public class RealTimeGetComponent extends SearchComponent
     return sid;
   }
 
+  /**
+   * Returns the values of the given document for the fields that are only stored as doc values and
+   * can be updated in place.
+   */
+  private static Map<String,Object> getDocValuesOnlyFields(SolrIndexSearcher searcher, int docid, IndexSchema schema) throws IOException {
+    Map<String,Object> values = new HashMap<>();
+    List<LeafReaderContext> leaves = searcher.getTopReaderContext().leaves();
+    LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(docid, leaves));
+    LeafReader reader = leaf.reader();
+    int segDocid = docid - leaf.docBase;
+    for (FieldInfo fieldInfo : reader.getFieldInfos()) {
+      if (fieldInfo.getDocValuesType() != DocValuesType.NUMERIC) continue;
+      SchemaField sf = schema.getFieldOrNull(fieldInfo.name);
+      if (sf == null || !AtomicUpdateDocumentMerger.isSupportedFieldForInPlaceUpdate(sf)) continue;
+      Bits docsWithField = reader.getDocsWithField(fieldInfo.name);
+      if (docsWithField == null || !docsWithField.get(segDocid)) continue;
+      // decode the way TrieField encodes single valued doc values
+      long bits = reader.getNumericDocValues(fieldInfo.name).get(segDocid);
+      switch (((TrieField) sf.getType()).getType()) {
+        case INTEGER:
+          values.put(fieldInfo.name, (int) bits);
+          break;
+        case LONG:
+          values.put(fieldInfo.name, bits);
+          break;
+        case FLOAT:
+          values.put(fieldInfo.name, Float.intBitsToFloat((int) bits));
+          break;
+        case DOUBLE:
+          values.put(fieldInfo.name, Double.longBitsToDouble(bits));
+          break;
+        default:
+          throw new AssertionError();
+      }
+    }
+    return values;
+  }
+
   private static SolrInputDocument toSolrInputDocument(StoredDocument doc, IndexSchema schema) {
     SolrInputDocument out = new SolrInputDocument();
     for( StorableField f : doc.getFields() ) {
@@ -353,7 +425,13 @@ public class RealTimeGetComponent extends SearchComponent
       }
     }
 
-    return toSolrDoc(out, schema);
+    SolrDocument solrDoc = toSolrDoc(out, schema);
+    SchemaField versionField = schema.getFieldOrNull(VersionInfo.VERSION_FIELD);
+    if (versionField != null && !versionField.stored() && sdoc.containsKey(VersionInfo.VERSION_FIELD)) {
+      // the version is only stored as doc values if documents can be updated in place
+      solrDoc.setField(VersionInfo.VERSION_FIELD, sdoc.getFieldValue(VersionInfo.VERSION_FIELD));
+    }
+    return solrDoc;
   }
 
   @Override
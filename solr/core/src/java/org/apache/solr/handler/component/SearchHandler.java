@@ -24,6 +24,10 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.lucene.index.ExitableDirectoryReader;
 import org.apache.lucene.util.Version;
@@ -48,6 +52,7 @@ import org.apache.solr.util.RTimer;
 import org.apache.solr.util.SolrPluginUtils;
 import org.apache.solr.util.plugin.PluginInfoInitialized;
 import org.apache.solr.util.plugin.SolrCoreAware;
+import org.apache.solr.util.stats.LatencyHistogram;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -76,6 +81,11 @@ public class SearchHandler extends RequestHandlerBase implements SolrCoreAware ,
   private PluginInfo shfInfo;
   private SolrCore core;
 
+  // latencies of the phases of each component, keyed by component name
+  private final ConcurrentMap<String,ComponentTimes> componentTimes = new ConcurrentHashMap<>();
+  private final LatencyHistogram shardRequestTimes = new LatencyHistogram();
+  private final AtomicLong numSlowRequests = new AtomicLong();
+
   protected List<String> getDefaultComponents()
   {
     ArrayList<String> names = new ArrayList<>(6);
@@ -244,19 +254,28 @@ public class SearchHandler extends RequestHandlerBase implements SolrCoreAware ,
     final RTimer timer = rb.isDebug() ? req.getRequestTimer() : null;
 
     final ShardHandler shardHandler1 = getAndPrepShardHandler(req, rb); // creates a ShardHandler object only if it's needed
+
+    // nanos spent in each component, reported in the handler statistics
+    final long[] prepareNanos = new long[components.size()];
+    final long[] processNanos = new long[components.size()];
     
     if (timer == null) {
       // non-debugging prepare phase
-      for( SearchComponent c : components ) {
-        c.prepare(rb);
+      for (int i = 0; i < components.size(); i++) {
+        long start = System.nanoTime();
+        components.get(i).prepare(rb);
+        prepareNanos[i] = System.nanoTime() - start;
       }
     } else {
       // debugging prepare phase
       RTimer subt = timer.sub( "prepare" );
-      for( SearchComponent c : components ) {
+      for (int i = 0; i < components.size(); i++) {
+        SearchComponent c = components.get(i);
+        long start = System.nanoTime();
         rb.setTimer( subt.sub( c.getName() ) );
         c.prepare(rb);
         rb.getTimer().stop();
+        prepareNanos[i] = System.nanoTime() - start;
       }
       subt.stop();
     }
@@ -273,17 +292,22 @@ public class SearchHandler extends RequestHandlerBase implements SolrCoreAware ,
         // it makes sense to have two control loops
         if(!rb.isDebug()) {
           // Process
-          for( SearchComponent c : components ) {
-            c.process(rb);
+          for (int i = 0; i < components.size(); i++) {
+            long start = System.nanoTime();
+            components.get(i).process(rb);
+            processNanos[i] = System.nanoTime() - start;
           }
         }
         else {
           // Process
           RTimer subt = timer.sub( "process" );
-          for( SearchComponent c : components ) {
+          for (int i = 0; i < components.size(); i++) {
+            SearchComponent c = components.get(i);
+            long start = System.nanoTime();
             rb.setTimer( subt.sub( c.getName() ) );
             c.process(rb);
             rb.getTimer().stop();
+            processNanos[i] = System.nanoTime() - start;
           }
           subt.stop();
 
@@ -322,9 +346,11 @@ public class SearchHandler extends RequestHandlerBase implements SolrCoreAware ,
         nextStage = ResponseBuilder.STAGE_DONE;
 
         // call all components
-        for( SearchComponent c : components ) {
+        for (int i = 0; i < components.size(); i++) {
+          long start = System.nanoTime();
           // the next stage is the minimum of what all components report
-          nextStage = Math.min(nextStage, c.distributedProcess(rb));
+          nextStage = Math.min(nextStage, components.get(i).distributedProcess(rb));
+          processNanos[i] += System.nanoTime() - start;
         }
 
 
@@ -403,22 +429,32 @@ public class SearchHandler extends RequestHandlerBase implements SolrCoreAware ,
               }
             }
 
+            if (srsp.getSolrResponse() != null) {
+              shardRequestTimes.update(srsp.getSolrResponse().getElapsedTime(), TimeUnit.MILLISECONDS);
+            }
+
             rb.finished.add(srsp.getShardRequest());
 
             // let the components see the responses to the request
-            for(SearchComponent c : components) {
-              c.handleResponses(rb, srsp.getShardRequest());
+            for (int i = 0; i < components.size(); i++) {
+              long start = System.nanoTime();
+              components.get(i).handleResponses(rb, srsp.getShardRequest());
+              processNanos[i] += System.nanoTime() - start;
             }
           }
         }
 
-        for(SearchComponent c : components) {
-          c.finishStage(rb);
+        for (int i = 0; i < components.size(); i++) {
+          long start = System.nanoTime();
+          components.get(i).finishStage(rb);
+          processNanos[i] += System.nanoTime() - start;
         }
 
         // we are done when the next stage is MAX_VALUE
       } while (nextStage != Integer.MAX_VALUE);
     }
+
+    recordComponentTimes(rb, components, prepareNanos, processNanos);
     
     // SOLR-5550: still provide shards.info if requested even for a short circuited distrib request
     if(!rb.isDistrib && req.getParams().getBool(ShardParams.SHARDS_INFO, false) && rb.shortCircuitedURL != null) {  
@@ -452,8 +488,88 @@ public class SearchHandler extends RequestHandlerBase implements SolrCoreAware ,
     }
   }
 
+  /**
+   * Adds the time spent in each component to the handler statistics. If the request is slow
+   * according to <code>slowQueryThresholdMillis</code>, the times are also added to the
+   * logged response, so that the slow request log shows which components took the time.
+   */
+  private void recordComponentTimes(ResponseBuilder rb, List<SearchComponent> components,
+                                    long[] prepareNanos, long[] processNanos) {
+    int slowQueryThresholdMillis = rb.req.getCore().getSolrConfig().slowQueryThresholdMillis;
+    boolean slow = slowQueryThresholdMillis >= 0 && rb.req.getRequestTimer().getTime() >= slowQueryThresholdMillis;
+    StringBuilder trace = slow ? new StringBuilder() : null;
+    String processPhase = rb.isDistrib ? "distrib" : "process";
+
+    for (int i = 0; i < components.size(); i++) {
+      String name = components.get(i).getName();
+      ComponentTimes times = componentTimes.get(name);
+      if (times == null) {
+        ComponentTimes newTimes = new ComponentTimes();
+        times = componentTimes.putIfAbsent(name, newTimes);
+        if (times == null) {
+          times = newTimes;
+        }
+      }
+      times.prepare.update(prepareNanos[i], TimeUnit.NANOSECONDS);
+      (rb.isDistrib ? times.distrib : times.process).update(processNanos[i], TimeUnit.NANOSECONDS);
+
+      if (trace != null) {
+        if (trace.length() > 0) trace.append(',');
+        trace.append(name).append(".prepare=").append(TimeUnit.NANOSECONDS.toMillis(prepareNanos[i]));
+        trace.append(',').append(name).append('.').append(processPhase).append('=')
+            .append(TimeUnit.NANOSECONDS.toMillis(processNanos[i]));
+      }
+    }
+
+    if (trace != null) {
+      numSlowRequests.incrementAndGet();
+      rb.rsp.getToLog().add("componentTimes", trace.toString());
+    }
+  }
+
+  /** Latencies of the phases of a single component. */
+  private static class ComponentTimes {
+    final LatencyHistogram prepare = new LatencyHistogram();
+    // local process phase
+    final LatencyHistogram process = new LatencyHistogram();
+    // distributedProcess, handleResponses and finishStage of a distributed request
+    final LatencyHistogram distrib = new LatencyHistogram();
+  }
+
+  private static void addTimes(NamedList<Object> lst, String prefix, LatencyHistogram times) {
+    if (times.getCount() == 0) {
+      return;
+    }
+    lst.add(prefix + ".requests", times.getCount());
+    lst.add(prefix + ".totalTime", times.getSum());
+    lst.add(prefix + ".avgTime", times.getMean());
+    lst.add(prefix + ".medianTime", times.getPercentile(0.5));
+    lst.add(prefix + ".95thPcTime", times.getPercentile(0.95));
+    lst.add(prefix + ".99thPcTime", times.getPercentile(0.99));
+    lst.add(prefix + ".maxTime", times.getMax());
+  }
+
   //////////////////////// SolrInfoMBeans methods //////////////////////
 
+  @Override
+  public NamedList<Object> getStatistics() {
+    NamedList<Object> lst = super.getStatistics();
+    lst.add("slowRequests", numSlowRequests.get());
+    addTimes(lst, "shardRequest", shardRequestTimes);
+    List<SearchComponent> components = this.components;
+    if (components != null) {
+      for (SearchComponent c : components) {
+        ComponentTimes times = componentTimes.get(c.getName());
+        if (times != null) {
+          addTimes(lst, c.getName() + ".prepare", times.prepare);
+          addTimes(lst, c.getName() + ".process", times.process);
+          addTimes(lst, c.getName() + ".distrib", times.distrib);
+        }
+      }
+    }
+    return lst;
+  }
+
   @Override
   public String getDescription() {
     StringBuilder sb = new StringBuilder();
@@ -59,6 +59,8 @@ import org.apache.solr.search.SolrReturnFields;
  */
 public class DocsStreamer implements Iterator<SolrDocument> {
   public static final Set<Class> KNOWN_TYPES = new HashSet<>();
+  /** Maximum number of documents whose stored fields are loaded at once. */
+  static final int BATCH_SIZE = 1024;
   private final DocList docs;
 
   private SolrIndexSearcher searcher;
@@ -70,6 +72,12 @@ public class DocsStreamer implements Iterator<SolrDocument> {
   private TransformContext context;
   private int idx = -1;
 
+  // stored fields are loaded in batches, see SolrIndexSearcher#doc(int[], StoredDocument[], int, Set)
+  private DocIterator batchIterator;
+  private int[] batchIds;
+  private StoredDocument[] batchDocs;
+  private int batchStart, batchLength;
+
   public DocsStreamer(DocList docList, Query query, SolrQueryRequest req, ReturnFields returnFields) {
     this.docs = docList;
     this.schema = req.getSchema();
@@ -110,7 +118,7 @@ public class DocsStreamer implements Iterator<SolrDocument> {
       sdoc = new SolrDocument();
     } else {
       try {
-        StoredDocument doc = searcher.doc(id, fnames);
+        StoredDocument doc = nextStoredDocument(id);
         sdoc = getDoc(doc, schema);
       } catch (IOException e) {
         throw new SolrException(SolrException.ErrorCode.SERVER_ERROR, "Error reading document with docId " + id, e);
@@ -128,6 +136,28 @@ public class DocsStreamer implements Iterator<SolrDocument> {
 
   }
 
+  private StoredDocument nextStoredDocument(int id) throws IOException {
+    if (batchIterator == null) {
+      batchIterator = docs.iterator();
+      final int size = Math.min(BATCH_SIZE, docs.size());
+      batchIds = new int[size];
+      batchDocs = new StoredDocument[size];
+    }
+    if (idx - batchStart >= batchLength) {
+      batchStart = idx;
+      batchLength = Math.min(batchIds.length, docs.size() - idx);
+      for (int i = 0; i < batchLength; i++) {
+        batchIds[i] = batchIterator.nextDoc();
+      }
+      searcher.doc(batchIds, batchDocs, batchLength, fnames);
+    }
+    final int offset = idx - batchStart;
+    assert batchIds[offset] == id;
+    final StoredDocument doc = batchDocs[offset];
+    batchDocs[offset] = null; // no need to retain it
+    return doc;
+  }
+
   public static SolrDocument getDoc(StoredDocument doc, final IndexSchema schema) {
     SolrDocument out = new SolrDocument();
     for (StorableField f : doc.getFields()) {
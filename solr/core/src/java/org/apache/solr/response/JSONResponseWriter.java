@@ -28,6 +28,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.util.BytesRef;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.util.NamedList;
@@ -36,6 +37,7 @@ import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.schema.SchemaField;
 import org.apache.solr.search.ReturnFields;
 import org.apache.solr.search.SolrReturnFields;
+import org.apache.solr.util.FastUtf8Writer;
 
 /**
  *
@@ -498,6 +500,35 @@ class JSONWriter extends TextResponseWriter {
     }
   }
 
+  @Override
+  public void writeUtf8Str(String name, BytesRef utf8, boolean needsEscaping) throws IOException {
+    if (!(writer instanceof FastUtf8Writer) || (needsEscaping && needsEscaping(utf8))) {
+      super.writeUtf8Str(name, utf8, needsEscaping);
+      return;
+    }
+    writer.write('"');
+    ((FastUtf8Writer) writer).writeUtf8(utf8.bytes, utf8.offset, utf8.length);
+    writer.write('"');
+  }
+
+  /** Returns true if the UTF-8 encoded string contains any of the chars that {@link #writeStr} escapes */
+  private static boolean needsEscaping(BytesRef utf8) {
+    final byte[] bytes = utf8.bytes;
+    final int end = utf8.offset + utf8.length;
+    for (int i = utf8.offset; i < end; i++) {
+      final byte b = bytes[i];
+      if ((b >= 0 && b < 0x20) || b == '"' || b == '\\') {
+        return true;
+      }
+      // U+2028 and U+2029
+      if (b == (byte) 0xE2 && i + 2 < end && bytes[i + 1] == (byte) 0x80
+          && (bytes[i + 2] == (byte) 0xA8 || bytes[i + 2] == (byte) 0xA9)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
 
   @Override
   public void writeMap(String name, Map val, boolean excludeOuter, boolean isFirstVal) throws IOException {
@@ -561,11 +592,21 @@ class JSONWriter extends TextResponseWriter {
     writer.write(val);
   }
 
+  @Override
+  public void writeInt(String name, int val) throws IOException {
+    writer.writeLong(val);
+  }
+
   @Override
   public void writeLong(String name, String val) throws IOException {
     writer.write(val);
   }
 
+  @Override
+  public void writeLong(String name, long val) throws IOException {
+    writer.writeLong(val);
+  }
+
   @Override
   public void writeBool(String name, String val) throws IOException {
     writer.write(val);
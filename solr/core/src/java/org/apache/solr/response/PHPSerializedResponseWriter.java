@@ -33,6 +33,7 @@ import org.apache.solr.common.util.NamedList;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.schema.SchemaField;
 import org.apache.solr.search.ReturnFields;
+import org.apache.solr.util.FastUtf8Writer;
 
 
 /**
@@ -248,12 +249,24 @@ class PHPSerializedWriter extends JSONWriter {
   public void writeInt(String name, String val) throws IOException {
     writer.write("i:"+val+";");
   }
+
+  @Override
+  public void writeInt(String name, int val) throws IOException {
+    writeLong(name, val);
+  }
   
   @Override
   public void writeLong(String name, String val) throws IOException {
     writeInt(name,val);
   }
 
+  @Override
+  public void writeLong(String name, long val) throws IOException {
+    writer.write("i:");
+    writer.writeLong(val);
+    writer.write(';');
+  }
+
   @Override
   public void writeFloat(String name, String val) throws IOException {
     writeDouble(name,val);
@@ -277,4 +290,17 @@ class PHPSerializedWriter extends JSONWriter {
     writer.write(val);
     writer.write("\";");
   }
+
+  @Override
+  public void writeUtf8Str(String name, BytesRef utf8, boolean needsEscaping) throws IOException {
+    if (!(writer instanceof FastUtf8Writer)) {
+      writeStr(name, utf8.utf8ToString(), needsEscaping);
+      return;
+    }
+    writer.write("s:");
+    writer.writeLong(utf8.length);
+    writer.write(":\"");
+    ((FastUtf8Writer) writer).writeUtf8(utf8.bytes, utf8.offset, utf8.length);
+    writer.write("\";");
+  }
 }
@@ -20,6 +20,7 @@ package org.apache.solr.response;
 import java.io.Writer;
 import java.io.IOException;
 
+import org.apache.lucene.util.BytesRef;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.request.SolrQueryRequest;
 
@@ -116,6 +117,11 @@ class PythonWriter extends NaNFloatWriter {
     writer.write('\'');
   }
 
+  @Override
+  public void writeUtf8Str(String name, BytesRef utf8, boolean needsEscaping) throws IOException {
+    writeStr(name, utf8.utf8ToString(), needsEscaping);
+  }
+
   /*
   old version that always used unicode
   public void writeStr(String name, String val, boolean needsEscaping) throws IOException {
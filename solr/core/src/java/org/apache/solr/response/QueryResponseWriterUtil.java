@@ -26,6 +26,7 @@ import java.nio.charset.StandardCharsets;
 
 import org.apache.solr.common.util.ContentStreamBase;
 import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.util.FastUtf8Writer;
 import org.apache.solr.util.FastWriter;
 
 /**
@@ -56,9 +57,10 @@ public final class QueryResponseWriterUtil {
   }
   
   private static Writer buildWriter(OutputStream outputStream, String charset) throws UnsupportedEncodingException {
-    Writer writer = (charset == null) ? new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)
-        : new OutputStreamWriter(outputStream, charset);
-    
-    return new FastWriter(writer);
+    if (charset == null || StandardCharsets.UTF_8.name().equalsIgnoreCase(charset)) {
+      // encode directly, this also lets writers copy UTF-8 encoded values
+      return new FastUtf8Writer(outputStream);
+    }
+    return new FastWriter(new OutputStreamWriter(outputStream, charset));
   }
 }
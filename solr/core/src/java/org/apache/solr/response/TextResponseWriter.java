@@ -238,6 +238,14 @@ public abstract class TextResponseWriter {
   
   public abstract void writeStr(String name, String val, boolean needsEscaping) throws IOException;
 
+  /**
+   * Writes a string given by its UTF-8 bytes, e.g. the value of a {@link org.apache.solr.search.Utf8StoredField}.
+   * The default implementation decodes the bytes; writers that can copy them to their output override it.
+   */
+  public void writeUtf8Str(String name, BytesRef utf8, boolean needsEscaping) throws IOException {
+    writeStr(name, utf8.utf8ToString(), needsEscaping);
+  }
+
   public abstract void writeMap(String name, Map val, boolean excludeOuter, boolean isFirstVal) throws IOException;
 
   public void writeArray(String name, Object[] val) throws IOException {
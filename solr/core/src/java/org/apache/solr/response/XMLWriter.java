@@ -24,6 +24,7 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 
+import org.apache.lucene.util.BytesRef;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.params.CommonParams;
@@ -32,6 +33,7 @@ import org.apache.solr.common.util.XML;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.search.ReturnFields;
 import org.apache.solr.search.SolrReturnFields;
+import org.apache.solr.util.FastUtf8Writer;
 
 import static org.apache.solr.common.params.CommonParams.NAME;
 
@@ -304,16 +306,54 @@ public class XMLWriter extends TextResponseWriter {
     writePrim("str",name,val,escape);
   }
 
+  @Override
+  public void writeUtf8Str(String name, BytesRef utf8, boolean escape) throws IOException {
+    if (!(writer instanceof FastUtf8Writer) || utf8.length == 0 || (escape && needsEscaping(utf8))) {
+      super.writeUtf8Str(name, utf8, escape);
+      return;
+    }
+    startTag("str", name, false);
+    ((FastUtf8Writer) writer).writeUtf8(utf8.bytes, utf8.offset, utf8.length);
+    endTag("str");
+  }
+
+  /** Returns true if the UTF-8 encoded string contains any of the chars that {@link XML#escapeCharData} escapes */
+  private static boolean needsEscaping(BytesRef utf8) {
+    final byte[] bytes = utf8.bytes;
+    final int end = utf8.offset + utf8.length;
+    for (int i = utf8.offset; i < end; i++) {
+      final byte b = bytes[i];
+      if ((b >= 0 && b < 0x20) || b == '&' || b == '<' || b == '>') {
+        return true;
+      }
+    }
+    return false;
+  }
+
   @Override
   public void writeInt(String name, String val) throws IOException {
     writePrim("int",name,val,false);
   }
 
+  @Override
+  public void writeInt(String name, int val) throws IOException {
+    startTag("int", name, false);
+    writer.writeLong(val);
+    endTag("int");
+  }
+
   @Override
   public void writeLong(String name, String val) throws IOException {
     writePrim("long",name,val,false);
   }
 
+  @Override
+  public void writeLong(String name, long val) throws IOException {
+    startTag("long", name, false);
+    writer.writeLong(val);
+    endTag("long");
+  }
+
   @Override
   public void writeBool(String name, String val) throws IOException {
     writePrim("bool",name,val,false);
@@ -362,6 +402,10 @@ public class XMLWriter extends TextResponseWriter {
       writer.write(val,0,contentLen);
     }
 
+    endTag(tag);
+  }
+
+  private void endTag(String tag) throws IOException {
     writer.write('<');
     writer.write('/');
     writer.write(tag);
@@ -32,6 +32,7 @@ import org.apache.lucene.uninverting.UninvertingReader.Type;
 import org.apache.lucene.util.BytesRef;
 import org.apache.solr.response.TextResponseWriter;
 import org.apache.solr.search.QParser;
+import org.apache.solr.search.Utf8StoredField;
 
 public class StrField extends PrimitiveFieldType {
 
@@ -74,7 +75,11 @@ public class StrField extends PrimitiveFieldType {
 
   @Override
   public void write(TextResponseWriter writer, String name, StorableField f) throws IOException {
-    writer.writeStr(name, f.stringValue(), true);
+    if (f instanceof Utf8StoredField) {
+      writer.writeUtf8Str(name, ((Utf8StoredField) f).utf8Value(), true);
+    } else {
+      writer.writeStr(name, f.stringValue(), true);
+    }
   }
 
   @Override
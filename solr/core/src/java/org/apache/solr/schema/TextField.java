@@ -31,6 +31,7 @@ import org.apache.solr.common.SolrException;
 import org.apache.solr.response.TextResponseWriter;
 import org.apache.solr.search.QParser;
 import org.apache.solr.search.Sorting;
+import org.apache.solr.search.Utf8StoredField;
 
 import java.util.Map;
 import java.io.IOException;
@@ -113,7 +114,11 @@ public class TextField extends FieldType {
 
   @Override
   public void write(TextResponseWriter writer, String name, StorableField f) throws IOException {
-    writer.writeStr(name, f.stringValue(), true);
+    if (f instanceof Utf8StoredField) {
+      writer.writeUtf8Str(name, ((Utf8StoredField) f).utf8Value(), true);
+    } else {
+      writer.writeStr(name, f.stringValue(), true);
+    }
   }
 
   @Override
@@ -36,15 +36,14 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DocumentStoredFieldVisitor;
 import org.apache.lucene.document.DoubleField;
-import org.apache.lucene.document.Field;
 import org.apache.lucene.document.FieldType;
 import org.apache.lucene.document.FloatField;
 import org.apache.lucene.document.IntField;
 import org.apache.lucene.document.LazyDocument;
 import org.apache.lucene.document.LongField;
 import org.apache.lucene.document.StoredField;
-import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.ExitableDirectoryReader;
 import org.apache.lucene.index.FieldInfo;
@@ -54,6 +53,7 @@ import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.MultiPostingsEnum;
 import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.index.SlowCompositeReaderWrapper;
 import org.apache.lucene.index.StorableField;
 import org.apache.lucene.index.StoredDocument;
@@ -592,6 +592,14 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable,SolrIn
    *   - use LOAD_AND_BREAK if a single field is begin retrieved
    */
 
+  /** Loads all stored fields, keeping string values UTF-8 encoded, see {@link Utf8StoredField} */
+  static class Utf8DocumentStoredFieldVisitor extends DocumentStoredFieldVisitor {
+    @Override
+    public void stringField(FieldInfo fieldInfo, byte[] value) throws IOException {
+      getDocument().add(new Utf8StoredField(fieldInfo, value));
+    }
+  }
+
   /**
    * FieldSelector which loads the specified fields, and load all other
    * field lazily.
@@ -625,12 +633,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable,SolrIn
 
     @Override
     public void stringField(FieldInfo fieldInfo, byte[] bytes) throws IOException {
-      String value = new String(bytes, StandardCharsets.UTF_8);
-      final FieldType ft = new FieldType(TextField.TYPE_STORED);
-      ft.setStoreTermVectors(fieldInfo.hasVectors());
-      ft.setOmitNorms(fieldInfo.omitsNorms());
-      ft.setIndexOptions(fieldInfo.getIndexOptions());
-      doc.add(new Field(fieldInfo.name, value, ft));
+      doc.add(new Utf8StoredField(fieldInfo, bytes));
     }
 
     @Override
@@ -714,6 +717,9 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable,SolrIn
             } else {
               throw new AssertionError();
             }
+          } else if (f instanceof Utf8StoredField) {
+            BytesRef utf8 = ((Utf8StoredField) f).utf8Value();
+            visitor.stringField(info, Arrays.copyOfRange(utf8.bytes, utf8.offset, utf8.offset + utf8.length));
           } else {
             visitor.stringField(info, f.stringValue().getBytes(StandardCharsets.UTF_8));
           }
@@ -769,9 +775,64 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable,SolrIn
    * and reads them into an array of Documents.
    */
   public void readDocs(StoredDocument[] docs, DocList ids, Set<String> fields) throws IOException {
+    final int[] docIDs = new int[docs.length];
     DocIterator iter = ids.iterator();
     for (int i=0; i<docs.length; i++) {
-      docs[i] = doc(iter.nextDoc(), fields);
+      docIDs[i] = iter.nextDoc();
+    }
+    doc(docIDs, docs, docs.length, fields);
+  }
+
+  /**
+   * Retrieve the documents whose ids are the first <code>count</code> entries
+   * of <code>ids</code> into <code>docs</code>, in the same order. Fields are
+   * loaded like in {@link #doc(int, Set)}.
+   * <p>
+   * Documents that are not in the document cache are loaded segment by
+   * segment, in doc ID order, so that documents which are stored close to each
+   * other are only decompressed once.
+   */
+  public void doc(int[] ids, StoredDocument[] docs, int count, Set<String> fields) throws IOException {
+    // (docID, position) pairs of the documents to load, sorted by doc ID
+    final long[] toLoad = new long[count];
+    int numToLoad = 0;
+    for (int i = 0; i < count; i++) {
+      StoredDocument d = documentCache == null ? null : documentCache.get(ids[i]);
+      if (d != null) {
+        docs[i] = d;
+      } else {
+        toLoad[numToLoad++] = ((long) ids[i] << 32) | i;
+      }
+    }
+    Arrays.sort(toLoad, 0, numToLoad);
+
+    final boolean lazy = enableLazyFieldLoading && fields != null;
+    for (int start = 0; start < numToLoad; ) {
+      final LeafReaderContext leaf = leafContexts.get(ReaderUtil.subIndex((int) (toLoad[start] >>> 32), leafContexts));
+      final int maxDoc = leaf.docBase + leaf.reader().maxDoc();
+      int end = start + 1;
+      while (end < numToLoad && (int) (toLoad[end] >>> 32) < maxDoc) {
+        end++;
+      }
+
+      final int leafCount = end - start;
+      final int[] leafIds = new int[leafCount];
+      final StoredFieldVisitor[] visitors = new StoredFieldVisitor[leafCount];
+      for (int j = 0; j < leafCount; j++) {
+        final int id = (int) (toLoad[start + j] >>> 32);
+        leafIds[j] = id - leaf.docBase;
+        visitors[j] = lazy ? new SetNonLazyFieldSelector(fields, getIndexReader(), id) : new Utf8DocumentStoredFieldVisitor();
+      }
+      leaf.reader().documents(leafIds, visitors, leafCount);
+
+      for (int j = 0; j < leafCount; j++) {
+        final StoredDocument d = lazy ? ((SetNonLazyFieldSelector) visitors[j]).doc : ((DocumentStoredFieldVisitor) visitors[j]).getDocument();
+        docs[(int) toLoad[start + j]] = d;
+        if (documentCache != null) {
+          documentCache.put(leafIds[j] + leaf.docBase, d);
+        }
+      }
+      start = end;
     }
   }
 
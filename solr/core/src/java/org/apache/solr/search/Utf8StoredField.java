@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.nio.charset.StandardCharsets;
+
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * A stored string field read from the index, that keeps the UTF-8 encoded value and
+ * only decodes it when {@link #stringValue()} is called, so that response writers
+ * can copy the bytes to their output.
+ *
+ * @see org.apache.solr.response.TextResponseWriter#writeUtf8Str
+ */
+public class Utf8StoredField extends Field {
+  private final byte[] utf8;
+
+  public Utf8StoredField(FieldInfo fieldInfo, byte[] utf8) {
+    super(fieldInfo.name, fieldType(fieldInfo));
+    this.utf8 = utf8;
+  }
+
+  private static FieldType fieldType(FieldInfo fieldInfo) {
+    final FieldType ft = new FieldType(TextField.TYPE_STORED);
+    ft.setStoreTermVectors(fieldInfo.hasVectors());
+    ft.setOmitNorms(fieldInfo.omitsNorms());
+    ft.setIndexOptions(fieldInfo.getIndexOptions());
+    return ft;
+  }
+
+  /** Returns the UTF-8 encoded value; the bytes must not be modified */
+  public BytesRef utf8Value() {
+    return new BytesRef(utf8);
+  }
+
+  @Override
+  public String stringValue() {
+    // documents may be cached and shared, but decoding twice does no harm
+    String value = (String) fieldsData;
+    if (value == null) {
+      value = new String(utf8, StandardCharsets.UTF_8);
+      fieldsData = value;
+    }
+    return value;
+  }
+
+  @Override
+  public void setStringValue(String value) {
+    throw new IllegalArgumentException("cannot change the value of field <" + name + "> that was read from the index");
+  }
+
+  @Override
+  public String toString() {
+    stringValue();
+    return super.toString();
+  }
+}
@@ -130,6 +130,9 @@ public class HttpSolrCall {
     }
   }
 
+  // how long a request to a core that is still loading waits before it fails, 0 to fail immediately
+  static final long CORE_LOAD_WAIT_MS = Long.getLong("solr.coreLoadWaitMs", 0L);
+
   protected final SolrDispatchFilter solrDispatchFilter;
   protected final CoreContainer cores;
   protected final HttpServletRequest req;
@@ -248,7 +251,14 @@ public class HttpSolrCall {
         if (core != null) {
           path = path.substring(idx);
         } else if (cores.isCoreLoading(corename)) { // extra mem barriers, so don't look at this before trying to get core
-          throw new SolrException(ErrorCode.SERVICE_UNAVAILABLE, "SolrCore is loading");
+          if (CORE_LOAD_WAIT_MS > 0) {
+            cores.waitForLoadingCore(corename, CORE_LOAD_WAIT_MS);
+            core = cores.getCore(corename);
+          }
+          if (core == null) {
+            throw new SolrException(ErrorCode.SERVICE_UNAVAILABLE, "SolrCore is loading");
+          }
+          path = path.substring(idx);
         } else {
           // the core may have just finished loading
           core = cores.getCore(corename);
@@ -54,6 +54,17 @@ public class AddUpdateCommand extends UpdateCommand implements Iterable<IndexDoc
    public boolean isLastDocInBatch = false;
 
    public int pollQueueTime = 0;
+
+   /**
+    * If positive, the version of the document that this document replaces, and from which it only
+    * differs in fields that can be updated in place (see
+    * {@link org.apache.solr.update.processor.AtomicUpdateDocumentMerger#isSupportedFieldForInPlaceUpdate}).
+    * The update handler may then write these fields as doc values updates of the existing document
+    * instead of indexing the whole document again. Replicas and transaction log replay only apply
+    * such an update to this exact version, because indexing the whole document would drop the
+    * fields that are indexed but not stored.
+    */
+   public long prevVersion = -1;
    
    public AddUpdateCommand(SolrQueryRequest req) {
      super(req);
@@ -71,6 +82,12 @@ public class AddUpdateCommand extends UpdateCommand implements Iterable<IndexDoc
      updateTerm = null;
      isLastDocInBatch = false;
      version = 0;
+     prevVersion = -1;
+   }
+
+   /** Returns true if this document may be applied as doc values updates, see {@link #prevVersion} */
+   public boolean isInPlaceUpdate() {
+     return prevVersion > 0;
    }
 
    public SolrInputDocument getSolrInputDocument() {
@@ -18,11 +18,14 @@
 package org.apache.solr.update;
 
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
 import org.apache.lucene.index.CodecReader;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValuesType;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SlowCodecReaderWrapper;
+import org.apache.lucene.index.StorableField;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queries.function.ValueSource;
 import org.apache.lucene.search.BooleanClause;
@@ -32,6 +35,7 @@ import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TermQuery;
 import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrInputField;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.common.util.SimpleOrderedMap;
@@ -49,6 +53,8 @@ import org.apache.solr.search.QueryUtils;
 import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.search.SyntaxError;
 import org.apache.solr.search.function.ValueSourceRangeFilter;
+import org.apache.solr.update.processor.AtomicUpdateDocumentMerger;
+import org.apache.solr.update.processor.DistributedUpdateProcessor;
 import org.apache.solr.util.RefCounted;
 
 import java.io.IOException;
@@ -233,6 +239,8 @@ public class DirectUpdateHandler2 extends UpdateHandler implements SolrCoreState
 
             if (cmd.isBlock()) {
               writer.updateDocuments(updateTerm, cmd);
+            } else if (cmd.isInPlaceUpdate() && !del && updateInPlace(writer, idTerm, cmd)) {
+              // only the doc values of the updated document were written
             } else {
               Document luceneDocument = cmd.getLuceneDocument();
               // SolrCore.verbose("updateDocument",updateTerm,luceneDocument,writer);
@@ -260,6 +268,8 @@ public class DirectUpdateHandler2 extends UpdateHandler implements SolrCoreState
           
         } else {
           // allow duplicates
+          // the document is added again, never updated in place
+          cmd.prevVersion = -1;
           if (cmd.isBlock()) {
             writer.addDocuments(cmd);
           } else {
@@ -296,6 +306,45 @@ public class DirectUpdateHandler2 extends UpdateHandler implements SolrCoreState
     return rc;
   }
   
+  /**
+   * Writes the fields of the document that can be updated in place as doc values updates of the
+   * existing document, see {@link AddUpdateCommand#prevVersion}. Returns false if nothing was
+   * written because some of these fields do not exist in the index yet. The document is then
+   * indexed again, unless the leader or a transaction log already updated it in place.
+   */
+  private boolean updateInPlace(IndexWriter writer, Term idTerm, AddUpdateCommand cmd) throws IOException {
+    IndexSchema schema = cmd.getReq().getSchema();
+    List<Field> updates = new ArrayList<>();
+    for (SolrInputField sif : cmd.getSolrInputDocument()) {
+      SchemaField sf = schema.getFieldOrNull(sif.getName());
+      if (sf == null || !AtomicUpdateDocumentMerger.isSupportedFieldForInPlaceUpdate(sf)) {
+        continue;
+      }
+      for (StorableField field : sf.getType().createFields(sf, sif.getFirstValue(), sif.getBoost())) {
+        if (field.fieldType().docValuesType() == DocValuesType.NUMERIC) {
+          updates.add((Field) field);
+        }
+      }
+    }
+    try {
+      writer.updateDocValues(idTerm, updates.toArray(new Field[updates.size()]));
+    } catch (IllegalArgumentException e) {
+      // the fields must exist in the index before they can be updated
+      if ((cmd.getFlags() & (UpdateCommand.REPLAY | UpdateCommand.PEER_SYNC)) != 0
+          || cmd.getReq().getParams().get(DistributedUpdateProcessor.DISTRIB_INPLACE_PREVVERSION) != null) {
+        // indexing the document again would lose its indexed but not stored fields, which the
+        // in-place update kept elsewhere
+        throw new SolrException(SolrException.ErrorCode.SERVER_ERROR,
+            "Cannot update document " + cmd.getPrintableId() + " in place", e);
+      }
+      log.debug("Cannot update document {} in place: {}", cmd.getPrintableId(), e.getMessage());
+      // the document is indexed again, so it is logged and distributed as a complete document
+      cmd.prevVersion = -1;
+      return false;
+    }
+    return true;
+  }
+
   private void updateDeleteTrackers(DeleteUpdateCommand cmd) {
     if ((cmd.getFlags() & UpdateCommand.IGNORE_AUTOCOMMIT) == 0) {
       if (commitWithinSoftCommit) {
@@ -431,7 +480,6 @@ public class DirectUpdateHandler2 extends UpdateHandler implements SolrCoreState
   /** Add a document execute the deletes as atomically as possible */
   private void addAndDelete(AddUpdateCommand cmd, List<Query> dbqList)
       throws IOException {
-    Document luceneDocument = cmd.getLuceneDocument();
     Term idTerm = new Term(idField.getName(), cmd.getIndexedId());
     
     // see comment in deleteByQuery
@@ -439,7 +487,10 @@ public class DirectUpdateHandler2 extends UpdateHandler implements SolrCoreState
       RefCounted<IndexWriter> iw = solrCoreState.getIndexWriter(core);
       try {
         IndexWriter writer = iw.get();
-        writer.updateDocument(idTerm, luceneDocument);
+        // an in-place update is applied in place here too, before the newer deletes
+        if (!cmd.isInPlaceUpdate() || !updateInPlace(writer, idTerm, cmd)) {
+          writer.updateDocument(idTerm, cmd.getLuceneDocument());
+        }
         
         for (Query q : dbqList) {
           writer.deleteDocuments(new DeleteByQueryWrapper(q, core.getLatestSchema()));
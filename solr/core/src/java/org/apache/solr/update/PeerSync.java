@@ -503,6 +503,7 @@ public class PeerSync  {
             // cmd.setIndexedId(new BytesRef(idBytes));
             cmd.solrDoc = sdoc;
             cmd.setVersion(version);
+            cmd.prevVersion = UpdateLog.getPrevVersion(entry);
             cmd.setFlags(UpdateCommand.PEER_SYNC | UpdateCommand.IGNORE_AUTOCOMMIT);
             if (debug) {
               log.debug(msg() + "add " + cmd + " id " + sdoc.getField("id"));
@@ -106,8 +106,19 @@ public class UpdateLog implements PluginInfoInitialized {
   // be set to indicate that replaying the log would not bring us into sync (i.e. peersync should
   // fail if this flag is set on the last update in the tlog).
   public static final int FLAG_GAP = 0x10;
+  // Flag indicating that an add only updated the doc values of an existing version of the document, which
+  // is written right after the version of the add, see AddUpdateCommand#prevVersion and getPrevVersion
+  public static final int FLAG_INPLACE = 0x20;
   public static final int OPERATION_MASK = 0x0f;  // mask off flags to get the operation
 
+  /**
+   * Returns the {@link AddUpdateCommand#prevVersion} of an add read from a transaction log, or -1 if the
+   * add was not applied in place.
+   */
+  public static long getPrevVersion(List entry) {
+    return ((Integer) entry.get(0) & FLAG_INPLACE) != 0 ? (Long) entry.get(2) : -1;
+  }
+
   public static class RecoveryInfo {
     public long positionOfStart;
 
@@ -356,6 +367,15 @@ public class UpdateLog implements PluginInfoInitialized {
     return startingOperation;
   }
 
+  /**
+   * Returns true if the last replay of the logs or of the buffered updates stopped early, so that
+   * the index does not have the updates of the rest of the log.
+   */
+  public boolean isReplayFailed() {
+    RecoveryInfo info = recoveryInfo;
+    return info != null && info.failed;
+  }
+
   /* Takes over ownership of the log, keeping it until no longer needed
      and then decrementing its reference and dropping it.
    */
@@ -1379,6 +1399,7 @@ public class UpdateLog implements PluginInfoInitialized {
                 // cmd.setIndexedId(new BytesRef(idBytes));
                 cmd.solrDoc = sdoc;
                 cmd.setVersion(version);
+                cmd.prevVersion = getPrevVersion(entry);
                 cmd.setFlags(UpdateCommand.REPLAY | UpdateCommand.IGNORE_AUTOCOMMIT);
                 if (debug) log.debug("add " + cmd);
 
@@ -1463,7 +1484,7 @@ public class UpdateLog implements PluginInfoInitialized {
 
           // if the last operation we replayed had FLAG_GAP set, we want to use that again so we don't lose it
           // as the flag on the last operation.
-          translog.writeCommit(cmd, operationFlags | (operationAndFlags & ~OPERATION_MASK));
+          translog.writeCommit(cmd, operationFlags | (operationAndFlags & FLAG_GAP));
         }
 
         try {
@@ -21,13 +21,91 @@ package org.apache.solr.update;
 // TODO: store the highest possible in the index on a commit (but how to not block adds?)
 // TODO: could also store highest possible in the transaction log after a commit.
 // Or on a new index, just scan "version" for the max?
-/** @lucene.internal */
+/**
+ * Highest version seen for the ids that hash to this bucket. All methods must
+ * be called while synchronized on the bucket.
+ * <p>
+ * Besides the highest version of the whole bucket, the bucket remembers an
+ * upper bound of the version of the last few ids that were updated, keyed by a
+ * 64 bit hash of the id, so that reordering checks for these ids do not have
+ * to fall back to a version lookup just because another id of the bucket got
+ * a higher version.
+ *
+ * @lucene.internal */
 public class VersionBucket {
+  /** number of ids whose highest version is remembered */
+  static final int NUM_RECENT_IDS = 8;
+
   public long highest;
 
+  // parallel arrays of id hashes and their highest version, allocated on first use
+  private long[] recentIds;
+  private long[] recentVersions;
+  private int numRecent;
+  private int nextRecent;
+
   public void updateHighest(long val) {
     if (highest != 0) {
       highest = Math.max(highest, Math.abs(val));
     }
   }
+
+  /**
+   * Like {@link #updateHighest(long)}, and also records <code>val</code> as
+   * the highest version of the id with the given hash.
+   */
+  public void updateHighest(long idHash, long val) {
+    if (highest == 0) {
+      // versions are unknown until the bucket is seeded
+      return;
+    }
+    val = Math.abs(val);
+    int slot = recentSlot(idHash);
+    if (slot >= 0) {
+      recentVersions[slot] = Math.max(recentVersions[slot], val);
+    } else {
+      if (recentIds == null) {
+        recentIds = new long[NUM_RECENT_IDS];
+        recentVersions = new long[NUM_RECENT_IDS];
+      }
+      // the bucket's highest version bounds every version that was applied to this id before
+      slot = nextRecent;
+      nextRecent = (nextRecent + 1) % NUM_RECENT_IDS;
+      if (numRecent < NUM_RECENT_IDS) {
+        numRecent++;
+      }
+      recentIds[slot] = idHash;
+      recentVersions[slot] = Math.max(highest, val);
+    }
+    highest = Math.max(highest, val);
+  }
+
+  /**
+   * Returns an upper bound of the last version of the id with the given hash,
+   * which is never higher than {@link #highest}, or 0 if no version is known.
+   */
+  public long highest(long idHash) {
+    if (highest == 0) {
+      return 0;
+    }
+    int slot = recentSlot(idHash);
+    return slot >= 0 ? recentVersions[slot] : highest;
+  }
+
+  /** Sets the highest version of the bucket and forgets the versions of recent ids. */
+  public void seedHighest(long val) {
+    if (highest < val) {
+      highest = val;
+    }
+    numRecent = nextRecent = 0;
+  }
+
+  private int recentSlot(long idHash) {
+    for (int i = 0; i < numRecent; i++) {
+      if (recentIds[i] == idHash) {
+        return i;
+      }
+    }
+    return -1;
+  }
 }
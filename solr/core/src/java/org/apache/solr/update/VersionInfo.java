@@ -56,13 +56,15 @@ public class VersionInfo {
 
   /**
    * Gets and returns the {@link #VERSION_FIELD} from the specified 
-   * schema, after verifying that it is indexed, stored, and single-valued.  
+   * schema, after verifying that it is indexed or has docValues, is stored 
+   * or has docValues, and is single-valued.  A version field that only has 
+   * docValues allows documents to be updated in place.  
    * If any of these pre-conditions are not met, it throws a SolrException 
    * with a user suitable message indicating the problem.
    */
   public static SchemaField getAndCheckVersionField(IndexSchema schema) 
     throws SolrException {
-    final String errPrefix = VERSION_FIELD + " field must exist in schema, using indexed=\"true\" or docValues=\"true\", stored=\"true\" and multiValued=\"false\"";
+    final String errPrefix = VERSION_FIELD + " field must exist in schema, using indexed=\"true\" or docValues=\"true\", stored=\"true\" or docValues=\"true\" and multiValued=\"false\"";
     SchemaField sf = schema.getFieldOrNull(VERSION_FIELD);
 
     if (null == sf) {
@@ -75,10 +77,10 @@ public class VersionInfo {
         (SolrException.ErrorCode.SERVER_ERROR, 
          errPrefix + " (" + VERSION_FIELD + " must be either indexed or have docValues");
     }
-    if ( !sf.stored() ) {
+    if ( !sf.stored() && !sf.hasDocValues() ) {
       throw new SolrException
         (SolrException.ErrorCode.SERVER_ERROR, 
-         errPrefix + " (" + VERSION_FIELD + " is not stored");
+         errPrefix + " (" + VERSION_FIELD + " must be either stored or have docValues");
     }
     if ( sf.multiValued() ) {
       throw new SolrException
@@ -259,8 +261,7 @@ public class VersionInfo {
     for (int i=0; i<buckets.length; i++) {
       // should not happen, but in case other threads are calling updateHighest on the version bucket
       synchronized (buckets[i]) {
-        if (buckets[i].highest < highestVersion)
-          buckets[i].highest = highestVersion;
+        buckets[i].seedHighest(highestVersion);
       }
     }
   }
@@ -18,10 +18,12 @@ package org.apache.solr.update.processor;
  */
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -33,7 +35,9 @@ import org.apache.solr.common.SolrInputField;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.schema.IndexSchema;
 import org.apache.solr.schema.SchemaField;
+import org.apache.solr.schema.TrieField;
 import org.apache.solr.update.AddUpdateCommand;
+import org.apache.solr.update.VersionInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -66,6 +70,65 @@ public class AtomicUpdateDocumentMerger {
     
     return false;
   }
+
+  /**
+   * Returns true if the values of the given field can be updated in place, i.e. written as doc
+   * values updates of an existing document: it must be a single valued int, long, float or double
+   * field that is neither indexed nor stored, and only has doc values.
+   */
+  public static boolean isSupportedFieldForInPlaceUpdate(SchemaField sf) {
+    if (sf.indexed() || sf.stored() || !sf.hasDocValues() || sf.multiValued()
+        || !(sf.getType() instanceof TrieField)) {
+      return false;
+    }
+    switch (((TrieField) sf.getType()).getType()) {
+      case INTEGER:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Returns the fields updated by the atomic update in the given command if it can be applied in
+   * place, or an empty set otherwise. This requires that the update only sets or increments
+   * fields that are supported by {@link #isSupportedFieldForInPlaceUpdate(SchemaField)} and not
+   * involved in copy fields, and that the {@link VersionInfo#VERSION_FIELD} is supported too.
+   */
+  public Set<String> computeInPlaceUpdatableFields(AddUpdateCommand cmd) {
+    SchemaField versionField = schema.getFieldOrNull(VersionInfo.VERSION_FIELD);
+    if (versionField == null || !isSupportedFieldForInPlaceUpdate(versionField)) {
+      return Collections.emptySet();
+    }
+
+    Set<String> fields = new HashSet<>();
+    for (SolrInputField sif : cmd.getSolrInputDocument().values()) {
+      String name = sif.getName();
+      if (name.equals(idField.getName()) || name.equals(VersionInfo.VERSION_FIELD)) {
+        continue;
+      }
+      if (!(sif.getValue() instanceof Map)) {
+        return Collections.emptySet();
+      }
+      for (Entry<String,Object> entry : ((Map<String,Object>) sif.getValue()).entrySet()) {
+        // removing values cannot be written as a doc values update, and multiple values are invalid
+        if (!("set".equals(entry.getKey()) || "inc".equals(entry.getKey()))
+            || entry.getValue() == null || entry.getValue() instanceof Collection) {
+          return Collections.emptySet();
+        }
+      }
+      SchemaField sf = schema.getFieldOrNull(name);
+      if (sf == null || !isSupportedFieldForInPlaceUpdate(sf)
+          || schema.isCopyFieldTarget(sf) || !schema.getCopyFieldsList(name).isEmpty()) {
+        return Collections.emptySet();
+      }
+      fields.add(name);
+    }
+    return fields;
+  }
   
   /**
    * Merges the fromDoc into the toDoc using the atomic update syntax.
@@ -99,6 +99,10 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
   public static final String DISTRIB_FROM_COLLECTION = "distrib.from.collection";
   public static final String DISTRIB_FROM_PARENT = "distrib.from.parent";
   public static final String DISTRIB_FROM = "distrib.from";
+  /** Version of the document that an update from the leader replaces in place, see {@link AddUpdateCommand#prevVersion} */
+  public static final String DISTRIB_INPLACE_PREVVERSION = "distrib.inplace.prevversion";
+  /** How long a replica waits for the version that an in-place update from the leader replaces */
+  private static final long IN_PLACE_UPDATE_WAIT_MS = 5000;
   private static final String TEST_DISTRIB_SKIP_SERVERS = "test.distrib.skip.servers";
   public final static Logger log = LoggerFactory.getLogger(DistributedUpdateProcessor.class);
 
@@ -753,6 +757,10 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
       
       if (replicationTracker != null && minRf > 1)
         params.set(UpdateRequest.MIN_REPFACT, String.valueOf(minRf));
+
+      if (isLeader && cmd.isInPlaceUpdate()) {
+        params.set(DISTRIB_INPLACE_PREVVERSION, String.valueOf(cmd.prevVersion));
+      }
       
       cmdDistrib.distribAdd(cmd, nodes, params, false, replicationTracker);
     }
@@ -1009,8 +1017,29 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
     boolean leaderLogic = isLeader && !isReplayOrPeersync;
     boolean forwardedFromCollection = cmd.getReq().getParams().get(DISTRIB_FROM_COLLECTION) != null;
 
+    // Atomic updates fetch and merge the old document before the bucket is locked, so that
+    // updates of other ids in the bucket do not wait for it. The merged document is only
+    // used if the version of the id did not change in the meantime.
+    SolrInputDocument partialDoc = null;
+    Long mergedVersion = null;
+    if (leaderLogic && versionsStored && !forwardedFromCollection && AtomicUpdateDocumentMerger.isAtomicUpdate(cmd)) {
+      partialDoc = cmd.getSolrInputDocument();
+      mergedVersion = vinfo.lookupVersion(idBytes);
+      getUpdatedDocument(cmd, versionOnUpdate);
+    }
+
+    long idHash = idHash(idBytes);
     VersionBucket bucket = vinfo.bucket(bucketHash);
 
+    // An in-place update from the leader can only be applied to the version of the document it replaces.
+    // If it was reordered with the update that wrote that version, wait for that update before the
+    // version lock is taken: a delete-by-query waiting for the write lock would otherwise keep it out.
+    String inPlacePrevVersion = cmd.getReq().getParams().get(DISTRIB_INPLACE_PREVVERSION);
+    if (!leaderLogic && versionsStored && inPlacePrevVersion != null && !isReplayOrPeersync
+        && ulog.getState() == UpdateLog.State.ACTIVE) {
+      waitForPrevVersion(idBytes, Long.parseLong(inPlacePrevVersion), bucket);
+    }
+
     vinfo.lockForUpdate();
     try {
       synchronized (bucket) {
@@ -1027,7 +1056,7 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
 
         if (versionsStored) {
 
-          long bucketVersion = bucket.highest;
+          long bucketVersion = bucket.highest(idHash);
 
           if (leaderLogic) {
 
@@ -1039,7 +1068,16 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
               versionOnUpdate = 0;
             }
 
-            boolean updated = getUpdatedDocument(cmd, versionOnUpdate);
+            if (partialDoc == null) {
+              getUpdatedDocument(cmd, versionOnUpdate);
+            } else {
+              Long lastVersion = vinfo.lookupVersion(cmd.getIndexedId());
+              if (lastVersion == null ? mergedVersion != null : !lastVersion.equals(mergedVersion)) {
+                // the document was updated concurrently, merge again with its new version
+                cmd.solrDoc = partialDoc;
+                getUpdatedDocument(cmd, versionOnUpdate);
+              }
+            }
 
             // leaders can also be in buffering state during "migrate" API call, see SOLR-5308
             if (forwardedFromCollection && ulog.getState() != UpdateLog.State.ACTIVE
@@ -1066,11 +1104,16 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
             long version = vinfo.getNewClock();
             cmd.setVersion(version);
             cmd.getSolrInputDocument().setField(VersionInfo.VERSION_FIELD, version);
-            bucket.updateHighest(version);
+            bucket.updateHighest(idHash, version);
           } else {
             // The leader forwarded us this update.
             cmd.setVersion(versionOnUpdate);
 
+            if (inPlacePrevVersion != null) {
+              // the leader applied the update in place, and so will we (a replay gets this from the log)
+              cmd.prevVersion = Long.parseLong(inPlacePrevVersion);
+            }
+
             if (ulog.getState() != UpdateLog.State.ACTIVE && (cmd.getFlags() & UpdateCommand.REPLAY) == 0) {
               // we're not in an active state, and this update isn't from a replay, so buffer it.
               cmd.setFlags(cmd.getFlags() | UpdateCommand.BUFFERING);
@@ -1081,8 +1124,7 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
             // if we aren't the leader, then we need to check that updates were not re-ordered
             if (bucketVersion != 0 && bucketVersion < versionOnUpdate) {
               // we're OK... this update has a version higher than anything we've seen
-              // in this bucket so far, so we know that no reordering has yet occurred.
-              bucket.updateHighest(versionOnUpdate);
+              // for this id so far, so we know that no reordering has yet occurred.
             } else {
               // there have been updates higher than the current update.  we need to check
               // the specific version for this id.
@@ -1096,6 +1138,24 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
               // also need to re-apply newer deleteByQuery commands
               checkDeleteByQueries = true;
             }
+
+            if (cmd.isInPlaceUpdate()) {
+              // Indexing the complete document instead would drop the fields that are indexed but not stored,
+              // so the update can only be applied to the version the leader updated.
+              Long lastVersion = vinfo.lookupVersion(cmd.getIndexedId());
+              if (lastVersion != null && Math.abs(lastVersion) >= versionOnUpdate) {
+                log.debug("Dropping add update due to version {}", idBytes.utf8ToString());
+                return true;
+              }
+              if (lastVersion == null || lastVersion != cmd.prevVersion) {
+                // a replay or peersync must stop here, the updates after this one would be applied to the
+                // wrong document; a replay then fails, and so does the recovery that started it
+                throw new SolrException(isReplayOrPeersync ? ErrorCode.SERVICE_UNAVAILABLE : ErrorCode.SERVER_ERROR,
+                    "Cannot update " + cmd.getPrintableId() + " in place to version " + versionOnUpdate
+                    + ": the update replaces version " + cmd.prevVersion + " but the last version is " + lastVersion);
+              }
+            }
+            bucket.updateHighest(idHash, versionOnUpdate);
           }
         }
         
@@ -1108,6 +1168,9 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
 
         // TODO: possibly set checkDeleteByQueries as a flag on the command?
         doLocalAdd(cmd);
+
+        // in-place updates of this document may wait for this version
+        bucket.notifyAll();
         
         if (willDistrib) {
           cmd.solrDoc = clonedDoc;
@@ -1120,15 +1183,55 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
     return false;
   }
 
-  // TODO: may want to switch to using optimistic locking in the future for better concurrency
-  // that's why this code is here... need to retry in a loop closely around/in versionAdd
+  /**
+   * Waits up to {@link #IN_PLACE_UPDATE_WAIT_MS} until the document has the version that an in-place update
+   * replaces (see {@link AddUpdateCommand#prevVersion}) or a later one. This must be called without the
+   * version lock of {@link VersionInfo#lockForUpdate()}, so that the update that writes the version can get it.
+   * The caller checks the version again once it holds the lock.
+   */
+  private void waitForPrevVersion(BytesRef idBytes, long prevVersion, VersionBucket bucket) throws IOException {
+    long deadline = System.nanoTime() + TimeUnit.NANOSECONDS.convert(IN_PLACE_UPDATE_WAIT_MS, TimeUnit.MILLISECONDS);
+    synchronized (bucket) {
+      Long lastVersion = vinfo.lookupVersion(idBytes);
+      while (lastVersion == null || Math.abs(lastVersion) < prevVersion) {
+        long remaining = TimeUnit.MILLISECONDS.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        if (remaining <= 0) {
+          return;
+        }
+        try {
+          bucket.wait(remaining);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+        lastVersion = vinfo.lookupVersion(idBytes);
+      }
+    }
+  }
+
+  /**
+   * Hash of the id that identifies it within its {@link VersionBucket}. It must be based only
+   * on the uniqueKey, like the bucket hash.
+   */
+  private static long idHash(BytesRef idBytes) {
+    Hash.LongPair hash = new Hash.LongPair();
+    Hash.murmurhash3_x64_128(idBytes.bytes, idBytes.offset, idBytes.length, 0, hash);
+    return hash.val1;
+  }
+
+  // Atomic updates of the leader call this before the bucket is locked, and again with the
+  // bucket locked if the document was updated concurrently, see versionAdd
   boolean getUpdatedDocument(AddUpdateCommand cmd, long versionOnUpdate) throws IOException {
     if (!AtomicUpdateDocumentMerger.isAtomicUpdate(cmd)) return false;
 
     SolrInputDocument sdoc = cmd.getSolrInputDocument();
     BytesRef id = cmd.getIndexedId();
-    SolrInputDocument oldDoc = RealTimeGetComponent.getInputDocument(cmd.getReq().getCore(), id);
+    boolean inPlace = !docMerger.computeInPlaceUpdatableFields(cmd).isEmpty();
+    // include the fields that are only stored as doc values, so that they are kept if the whole
+    // document is indexed again, and so that the log contains the complete document otherwise
+    SolrInputDocument oldDoc = RealTimeGetComponent.getInputDocument(cmd.getReq().getCore(), id, true);
 
+    cmd.prevVersion = -1;
     if (oldDoc == null) {
       // create a new doc by default if an old one wasn't found
       if (versionOnUpdate <= 0) {
@@ -1138,6 +1241,10 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
         throw new SolrException(ErrorCode.CONFLICT, "Document not found for update.  id=" + cmd.getPrintableId());
       }
     } else {
+      Object oldVersion = oldDoc.getFieldValue(VERSION_FIELD);
+      if (inPlace && oldVersion != null) {
+        cmd.prevVersion = oldVersion instanceof Number ? ((Number) oldVersion).longValue() : Long.parseLong(oldVersion.toString());
+      }
       oldDoc.remove(VERSION_FIELD);
     }
     
@@ -1521,6 +1628,7 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
       throw new SolrException(ErrorCode.BAD_REQUEST, "missing _version_ on update from leader");
     }
 
+    long idHash = idHash(idBytes);
     VersionBucket bucket = vinfo.bucket(bucketHash);
 
     vinfo.lockForUpdate();
@@ -1528,7 +1636,7 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
 
       synchronized (bucket) {
         if (versionsStored) {
-          long bucketVersion = bucket.highest;
+          long bucketVersion = bucket.highest(idHash);
 
           if (leaderLogic) {
 
@@ -1562,7 +1670,7 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
 
             long version = vinfo.getNewClock();
             cmd.setVersion(-version);
-            bucket.updateHighest(version);
+            bucket.updateHighest(idHash, version);
           } else {
             cmd.setVersion(-versionOnUpdate);
 
@@ -1576,8 +1684,7 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
             // if we aren't the leader, then we need to check that updates were not re-ordered
             if (bucketVersion != 0 && bucketVersion < versionOnUpdate) {
               // we're OK... this update has a version higher than anything we've seen
-              // in this bucket so far, so we know that no reordering has yet occured.
-              bucket.updateHighest(versionOnUpdate);
+              // for this id so far, so we know that no reordering has yet occured.
             } else {
               // there have been updates higher than the current update.  we need to check
               // the specific version for this id.
@@ -1588,10 +1695,14 @@ public class DistributedUpdateProcessor extends UpdateRequestProcessor {
                 return true;
               }
             }
+            bucket.updateHighest(idHash, versionOnUpdate);
           }
         }
 
         doLocalDelete(cmd);
+
+        // in-place updates waiting for a version of this document will not get it
+        bucket.notifyAll();
         return false;
       }  // end synchronized (bucket)
 
@@ -0,0 +1,148 @@
+package org.apache.solr.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/** A {@link FastWriter} that encodes to UTF-8 itself and writes the bytes to an
+ *  {@link OutputStream}, instead of going through an OutputStreamWriter. Text that
+ *  is already UTF-8 encoded can be copied with {@link #writeUtf8}.
+ *  Unpaired surrogates are replaced with '?', like OutputStreamWriter does.
+ *  Internal Solr use only, subject to change.
+ */
+public class FastUtf8Writer extends FastWriter {
+  private static final int BYTES_BUFSIZE = 8192;
+  private final OutputStream out;
+  private final byte[] bytes = new byte[BYTES_BUFSIZE];
+  private int bytesPos;
+  // high surrogate that was the last char encoded, 0 if none
+  private char highSurrogate;
+
+  public FastUtf8Writer(OutputStream out) {
+    super(null);
+    this.out = out;
+  }
+
+  @Override
+  public void flush(char[] arr, int offset, int len) throws IOException {
+    final int end = offset + len;
+    for (int i = offset; i < end; i++) {
+      final char ch = arr[i];
+      if (ch < 0x80 && highSurrogate == 0 && bytesPos < bytes.length) { // fast path
+        bytes[bytesPos++] = (byte) ch;
+      } else {
+        encode(ch);
+      }
+    }
+  }
+
+  @Override
+  public void flush(String str, int offset, int len) throws IOException {
+    final int end = offset + len;
+    for (int i = offset; i < end; i++) {
+      final char ch = str.charAt(i);
+      if (ch < 0x80 && highSurrogate == 0 && bytesPos < bytes.length) { // fast path
+        bytes[bytesPos++] = (byte) ch;
+      } else {
+        encode(ch);
+      }
+    }
+  }
+
+  private void encode(char ch) throws IOException {
+    // at most 1 byte for an unpaired surrogate, and 4 bytes for the char
+    if (bytesPos + 5 > bytes.length) {
+      flushBytes();
+    }
+    if (highSurrogate != 0) {
+      final char high = highSurrogate;
+      highSurrogate = 0;
+      if (Character.isLowSurrogate(ch)) {
+        final int cp = Character.toCodePoint(high, ch);
+        bytes[bytesPos++] = (byte) (0xF0 | (cp >> 18));
+        bytes[bytesPos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+        bytes[bytesPos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+        bytes[bytesPos++] = (byte) (0x80 | (cp & 0x3F));
+        return;
+      }
+      bytes[bytesPos++] = '?';
+    }
+    if (ch < 0x80) {
+      bytes[bytesPos++] = (byte) ch;
+    } else if (ch < 0x800) {
+      bytes[bytesPos++] = (byte) (0xC0 | (ch >> 6));
+      bytes[bytesPos++] = (byte) (0x80 | (ch & 0x3F));
+    } else if (Character.isHighSurrogate(ch)) {
+      highSurrogate = ch;
+    } else if (Character.isLowSurrogate(ch)) {
+      bytes[bytesPos++] = '?';
+    } else {
+      bytes[bytesPos++] = (byte) (0xE0 | (ch >> 12));
+      bytes[bytesPos++] = (byte) (0x80 | ((ch >> 6) & 0x3F));
+      bytes[bytesPos++] = (byte) (0x80 | (ch & 0x3F));
+    }
+  }
+
+  /** Writes bytes that are already UTF-8 encoded */
+  public void writeUtf8(byte[] utf8, int offset, int len) throws IOException {
+    flushBuffer();
+    endSurrogate();
+    if (len > bytes.length - bytesPos) {
+      flushBytes();
+      if (len > bytes.length) {
+        out.write(utf8, offset, len);
+        return;
+      }
+    }
+    System.arraycopy(utf8, offset, bytes, bytesPos, len);
+    bytesPos += len;
+  }
+
+  // a high surrogate that is not followed by a low surrogate
+  private void endSurrogate() throws IOException {
+    if (highSurrogate != 0) {
+      highSurrogate = 0;
+      if (bytesPos >= bytes.length) {
+        flushBytes();
+      }
+      bytes[bytesPos++] = '?';
+    }
+  }
+
+  private void flushBytes() throws IOException {
+    out.write(bytes, 0, bytesPos);
+    bytesPos = 0;
+  }
+
+  @Override
+  public void flush() throws IOException {
+    // a pending high surrogate is kept, since the low surrogate may still follow
+    super.flush();
+    flushBytes();
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    flushBuffer();
+    endSurrogate();
+    flushBytes();
+    out.close();
+  }
+}
@@ -130,6 +130,37 @@ public class FastWriter extends Writer {
     }
   }
 
+  /** Writes the decimal representation of <code>val</code>, without creating a String if possible */
+  public void writeLong(long val) throws IOException {
+    // 20 chars are enough for any long
+    if (buf.length - pos < 20) {
+      flush(buf, 0, pos);
+      pos = 0;
+      if (buf.length < 20) {
+        write(Long.toString(val));
+        return;
+      }
+    }
+    if (val < 0) {
+      if (val == Long.MIN_VALUE) {
+        write(Long.toString(val));
+        return;
+      }
+      buf[pos++] = '-';
+      val = -val;
+    }
+    int len = 1;
+    for (long v = val; v >= 10; v /= 10) {
+      len++;
+    }
+    int end = pos + len;
+    for (int i = end - 1; i >= pos; i--) {
+      buf[i] = (char) ('0' + (val % 10));
+      val /= 10;
+    }
+    pos = end;
+  }
+
   @Override
   public void flush() throws IOException {
     flush(buf, 0, pos);
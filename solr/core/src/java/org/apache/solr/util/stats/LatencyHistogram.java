@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.util.stats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of durations, cheap enough to be updated on the hot path of every
+ * request.
+ * <p>
+ * Unlike {@link Histogram}, which keeps a sample of the recorded values, this histogram counts
+ * every value in one of a fixed set of buckets. Durations are recorded with a resolution of one
+ * microsecond; below 32 microseconds every value has its own bucket, above that each power of
+ * two is split into 16 buckets, so that percentiles are reported with a relative error of at
+ * most 1/16. Updating the histogram increments a single bucket and two striped counters, and
+ * never blocks.
+ * <p>
+ * The statistics are cumulative since the histogram was created and are reported in
+ * milliseconds.
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  // durations of 2^MAX_EXPONENT microseconds (about 12 days) and more share the last bucket
+  private static final int MAX_EXPONENT = 40;
+  private static final int NUM_BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Adds a recorded duration.
+   *
+   * @param duration the length of the duration
+   * @param unit     the scale unit of {@code duration}
+   */
+  public void update(long duration, TimeUnit unit) {
+    long micros = Math.max(0L, unit.toMicros(duration));
+    buckets.incrementAndGet(bucketIndex(micros));
+    count.increment();
+    sum.add(micros);
+    long current;
+    while (micros > (current = max.get())) {
+      if (max.compareAndSet(current, micros)) {
+        break;
+      }
+    }
+  }
+
+  /** Returns the number of durations recorded. */
+  public long getCount() {
+    return count.sum();
+  }
+
+  /** Returns the sum of all recorded durations, in milliseconds. */
+  public double getSum() {
+    return toMillis(sum.sum());
+  }
+
+  /** Returns the arithmetic mean of all recorded durations, in milliseconds. */
+  public double getMean() {
+    long n = count.sum();
+    return n == 0 ? 0.0 : toMillis(sum.sum()) / n;
+  }
+
+  /** Returns the longest recorded duration, in milliseconds. */
+  public double getMax() {
+    return toMillis(max.get());
+  }
+
+  /**
+   * Returns the duration below or at which the given fraction of all recorded durations lie, in
+   * milliseconds. The returned value is the upper bound of the bucket holding that duration,
+   * but never more than {@link #getMax()}.
+   *
+   * @param quantile a value in {@code [0..1]}
+   */
+  public double getPercentile(double quantile) {
+    if (quantile < 0.0 || quantile > 1.0) {
+      throw new IllegalArgumentException(quantile + " is not in [0..1]");
+    }
+    long[] counts = new long[NUM_BUCKETS];
+    long total = 0;
+    for (int i = 0; i < NUM_BUCKETS; i++) {
+      counts[i] = buckets.get(i);
+      total += counts[i];
+    }
+    if (total == 0) {
+      return 0.0;
+    }
+    long rank = Math.max(1L, (long) Math.ceil(quantile * total));
+    long seen = 0;
+    int i = 0;
+    for (; i < NUM_BUCKETS - 1; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        break;
+      }
+    }
+    long upper = i == NUM_BUCKETS - 1 ? Long.MAX_VALUE : lowerBound(i + 1) - 1;
+    return toMillis(Math.min(upper, max.get()));
+  }
+
+  static int bucketIndex(long micros) {
+    if (micros < 2 * SUB_BUCKETS) {
+      return (int) micros;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(micros);
+    if (exponent > MAX_EXPONENT) {
+      return NUM_BUCKETS - 1;
+    }
+    int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  static long lowerBound(int index) {
+    if (index < 2 * SUB_BUCKETS) {
+      return index;
+    }
+    int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+  }
+
+  private static double toMillis(long micros) {
+    return micros / 1000.0;
+  }
+}
@@ -35,6 +35,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.apache.lucene.util.LuceneTestCase.Slow;
+import org.apache.lucene.util.TestUtil;
 import org.apache.solr.SolrTestCaseJ4;
 import org.apache.solr.cloud.overseer.OverseerAction;
 import org.apache.solr.common.cloud.ClusterState;
@@ -225,6 +226,15 @@ public class OverseerTest extends SolrTestCaseJ4 {
 
   @Test
   public void testShardAssignment() throws Exception {
+    doTestShardAssignment(0);
+  }
+
+  @Test
+  public void testShardAssignmentBatched() throws Exception {
+    doTestShardAssignment(TestUtil.nextInt(random(), 1, 10));
+  }
+
+  private void doTestShardAssignment(int overseerBatchSize) throws Exception {
     String zkDir = createTempDir("zkData").toFile().getAbsolutePath();
 
     ZkTestServer server = new ZkTestServer(zkDir);
@@ -241,7 +251,8 @@ public class OverseerTest extends SolrTestCaseJ4 {
       zkClient = new SolrZkClient(server.getZkAddress(), TIMEOUT);
       ZkController.createClusterZkNodes(zkClient);
 
-      overseerClient = electNewOverseer(server.getZkAddress());
+      overseerClient = electNewOverseer(server.getZkAddress(),
+          new CloudConfig.CloudConfigBuilder("127.0.0.1", 8983, "").setOverseerBatchSize(overseerBatchSize).build());
 
       ZkStateReader reader = new ZkStateReader(zkClient);
       reader.createClusterStateWatchersAndUpdate();
@@ -278,6 +289,51 @@ public class OverseerTest extends SolrTestCaseJ4 {
     }
   }
 
+  @Test
+  public void testBatchSizerFailures() throws Exception {
+    Overseer.BatchSizer sizer = new Overseer.BatchSizer(100);
+    assertEquals(100, sizer.size());
+
+    // a concurrent modification is retried with the same batch size
+    assertEquals(0, sizer.onFailure(new KeeperException.BadVersionException("/collections/c1/state.json")));
+    assertEquals(0, sizer.onFailure(new KeeperException.NodeExistsException("/collections/c1/state.json")));
+    assertEquals(100, sizer.size());
+
+    // e.g. a multi-op over jute.maxbuffer: halve the batch down to single messages
+    int expected = 100;
+    while (expected > 1) {
+      assertEquals(0, sizer.onFailure(new KeeperException.ConnectionLossException()));
+      expected /= 2;
+      assertEquals(expected, sizer.size());
+    }
+
+    // single messages that still fail back off, up to a limit
+    long backoff = 0;
+    for (int i = 0; i < 20; i++) {
+      long next = sizer.onFailure(new KeeperException.ConnectionLossException());
+      assertTrue(next >= backoff);
+      assertTrue(next >= Overseer.BatchSizer.MIN_BACKOFF_MS);
+      assertTrue(next <= Overseer.BatchSizer.MAX_BACKOFF_MS);
+      backoff = next;
+      assertEquals(1, sizer.size());
+    }
+    assertEquals(Overseer.BatchSizer.MAX_BACKOFF_MS, backoff);
+
+    // once messages are written again, the backoff resets and batches grow back
+    sizer.onSuccess();
+    assertEquals(Overseer.BatchSizer.MIN_BACKOFF_MS, sizer.onFailure(new RuntimeException()));
+    for (int i = 1; i < Overseer.BatchSizer.GROW_AFTER; i++) {
+      sizer.onSuccess();
+    }
+    assertEquals(1, sizer.size());
+    sizer.onSuccess();
+    assertEquals(2, sizer.size());
+    for (int i = 0; i < 10 * Overseer.BatchSizer.GROW_AFTER; i++) {
+      sizer.onSuccess();
+    }
+    assertEquals(100, sizer.size());
+  }
+
   @Test
   public void testBadQueueItem() throws Exception {
     String zkDir = createTempDir("zkData").toFile().getAbsolutePath();
@@ -962,6 +1018,16 @@ public class OverseerTest extends SolrTestCaseJ4 {
   @Test
   @Ignore
   public void testPerformance() throws Exception {
+    doTestPerformance(0);
+  }
+
+  @Test
+  @Ignore
+  public void testPerformanceBatched() throws Exception {
+    doTestPerformance(500);
+  }
+
+  private void doTestPerformance(int overseerBatchSize) throws Exception {
     String zkDir = createTempDir("OverseerTest.testPerformance").toFile().getAbsolutePath();
 
     ZkTestServer server = new ZkTestServer(zkDir);
@@ -1032,7 +1098,8 @@ public class OverseerTest extends SolrTestCaseJ4 {
       Timer t = new Timer();
       TimerContext context = t.time();
       try {
-        overseerClient = electNewOverseer(server.getZkAddress());
+        overseerClient = electNewOverseer(server.getZkAddress(),
+            new CloudConfig.CloudConfigBuilder("127.0.0.1", 8983, "").setOverseerBatchSize(overseerBatchSize).build());
         assertTrue(overseers.size() > 0);
 
         while (true)  {
@@ -1047,7 +1114,7 @@ public class OverseerTest extends SolrTestCaseJ4 {
         context.stop();
       }
 
-      log.info("Overseer loop finished processing: ");
+      log.info("Overseer loop finished processing with overseerBatchSize={}: ", overseerBatchSize);
       printTimingStats(t);
 
       Overseer overseer = overseers.get(0);
@@ -1184,6 +1251,12 @@ public class OverseerTest extends SolrTestCaseJ4 {
   private SolrZkClient electNewOverseer(String address)
       throws InterruptedException, TimeoutException, IOException,
       KeeperException, ParserConfigurationException, SAXException {
+    return electNewOverseer(address, new CloudConfig.CloudConfigBuilder("127.0.0.1", 8983, "").build());
+  }
+
+  private SolrZkClient electNewOverseer(String address, CloudConfig cloudConfig)
+      throws InterruptedException, TimeoutException, IOException,
+      KeeperException, ParserConfigurationException, SAXException {
     SolrZkClient zkClient = new SolrZkClient(address, TIMEOUT);
     ZkStateReader reader = new ZkStateReader(zkClient);
     readers.add(reader);
@@ -1197,7 +1270,7 @@ public class OverseerTest extends SolrTestCaseJ4 {
     HttpShardHandlerFactory httpShardHandlerFactory = new HttpShardHandlerFactory();
     httpShardHandlerFactorys.add(httpShardHandlerFactory);
     Overseer overseer = new Overseer(httpShardHandlerFactory.getShardHandler(), updateShardHandler, "/admin/cores", reader, null,
-        new CloudConfig.CloudConfigBuilder("127.0.0.1", 8983, "").build());
+        cloudConfig);
     overseers.add(overseer);
     ElectionContext ec = new OverseerElectionContext(zkClient, overseer,
         address.replaceAll("/", "_"));
@@ -0,0 +1,127 @@
+package org.apache.solr.cloud.overseer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.util.IOUtils;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.cloud.AbstractZkTestCase;
+import org.apache.solr.cloud.OverseerTest;
+import org.apache.solr.cloud.ZkController;
+import org.apache.solr.cloud.ZkTestServer;
+import org.apache.solr.common.cloud.DocCollection;
+import org.apache.solr.common.cloud.DocRouter;
+import org.apache.solr.common.cloud.Replica;
+import org.apache.solr.common.cloud.Slice;
+import org.apache.solr.common.cloud.SolrZkClient;
+import org.apache.solr.common.cloud.ZkStateReader;
+
+public class ZkStateReaderTest extends SolrTestCaseJ4 {
+
+  public void testLazyCollectionCache() throws Exception {
+    String zkDir = createTempDir("testLazyCollectionCache").toFile().getAbsolutePath();
+
+    ZkTestServer server = new ZkTestServer(zkDir);
+
+    SolrZkClient zkClient = null;
+    ZkStateReader reader = null;
+
+    System.setProperty("solrcloud.lazyCollectionCacheSize", "1");
+    try {
+      server.run();
+      AbstractZkTestCase.tryCleanSolrZkNode(server.getZkHost());
+      AbstractZkTestCase.makeSolrZkNode(server.getZkHost());
+
+      zkClient = new SolrZkClient(server.getZkAddress(), OverseerTest.DEFAULT_CONNECTION_TIMEOUT);
+      ZkController.createClusterZkNodes(zkClient);
+
+      zkClient.makePath(ZkStateReader.getCollectionPath("c1"), stateJson("c1", 1), true);
+      zkClient.makePath(ZkStateReader.getCollectionPath("c2"), stateJson("c2", 1), true);
+
+      reader = new ZkStateReader(zkClient);
+      reader.createClusterStateWatchersAndUpdate();
+
+      // the first read goes to ZooKeeper, the next ones are served from the cache
+      assertEquals(1, numShards(reader, "c1"));
+      assertStats(reader, 0, 0, 1, 0);
+      assertEquals(1, numShards(reader, "c1"));
+      assertEquals(1, numShards(reader, "c1"));
+      assertStats(reader, 2, 0, 1, 0);
+
+      // a change fires the watch, and the next read fetches the new state
+      zkClient.setData(ZkStateReader.getCollectionPath("c1"), stateJson("c1", 2), true);
+      long timeout = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      while (numShards(reader, "c1") != 2) {
+        assertTrue("Timed out waiting for the new state of c1", System.nanoTime() < timeout);
+        Thread.sleep(50);
+      }
+      assertEquals(2, (long) reader.getLazyCollectionCacheStats().get("misses"));
+      assertEquals(0, (long) reader.getLazyCollectionCacheStats().get("conditionalHits"));
+
+      // reconnecting marks the cached states as stale, but unchanged ones are not read again
+      reader.createClusterStateWatchersAndUpdate();
+      long hits = reader.getLazyCollectionCacheStats().get("hits");
+      assertEquals(2, numShards(reader, "c1"));
+      assertStats(reader, hits, 1, 2, 0);
+
+      // the cache holds a single collection
+      assertEquals(1, numShards(reader, "c2"));
+      assertStats(reader, hits, 1, 3, 1);
+      assertEquals(2, numShards(reader, "c1"));
+      assertStats(reader, hits, 1, 4, 2);
+      assertEquals(1, (long) reader.getLazyCollectionCacheStats().get("size"));
+
+      // deleted collections are dropped
+      zkClient.clean(ZkStateReader.COLLECTIONS_ZKNODE + "/c1");
+      reader.updateClusterState(true);
+      assertNull(reader.getClusterState().getCollectionOrNull("c1"));
+      assertEquals(0, (long) reader.getLazyCollectionCacheStats().get("size"));
+
+    } finally {
+      System.clearProperty("solrcloud.lazyCollectionCacheSize");
+      IOUtils.close(reader, zkClient);
+      server.shutdown();
+    }
+  }
+
+  private static byte[] stateJson(String name, int numShards) {
+    Map<String, Slice> slices = new HashMap<>();
+    for (int i = 1; i <= numShards; i++) {
+      slices.put("shard" + i, new Slice("shard" + i, new HashMap<String, Replica>(), null));
+    }
+    DocCollection collection = new DocCollection(name, slices, new HashMap<String, Object>(),
+        DocRouter.DEFAULT, -1, ZkStateReader.getCollectionPath(name));
+    return ZkStateReader.toJSON(Collections.singletonMap(name, collection));
+  }
+
+  private static int numShards(ZkStateReader reader, String collection) {
+    return reader.getClusterState().getCollection(collection).getSlices().size();
+  }
+
+  private static void assertStats(ZkStateReader reader, long hits, long conditionalHits, long misses, long evictions) {
+    Map<String, Long> stats = reader.getLazyCollectionCacheStats();
+    assertEquals(stats.toString(), hits, (long) stats.get("hits"));
+    assertEquals(stats.toString(), conditionalHits, (long) stats.get("conditionalHits"));
+    assertEquals(stats.toString(), misses, (long) stats.get("misses"));
+    assertEquals(stats.toString(), evictions, (long) stats.get("evictions"));
+  }
+}
@@ -31,9 +31,14 @@ import org.apache.solr.common.cloud.Slice;
 import org.apache.solr.common.cloud.SolrZkClient;
 import org.apache.solr.common.cloud.ZkStateReader;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Op;
+
 public class ZkStateWriterTest extends SolrTestCaseJ4 {
 
   public void testZkStateWriterBatching() throws Exception {
@@ -119,6 +124,80 @@ public class ZkStateWriterTest extends SolrTestCaseJ4 {
     }
   }
 
+  public void testBatchedWrites() throws Exception {
+    String zkDir = createTempDir("testBatchedWrites").toFile().getAbsolutePath();
+
+    ZkTestServer server = new ZkTestServer(zkDir);
+
+    SolrZkClient zkClient = null;
+
+    try {
+      server.run();
+      AbstractZkTestCase.tryCleanSolrZkNode(server.getZkHost());
+      AbstractZkTestCase.makeSolrZkNode(server.getZkHost());
+
+      zkClient = new SolrZkClient(server.getZkAddress(), OverseerTest.DEFAULT_CONNECTION_TIMEOUT);
+      ZkController.createClusterZkNodes(zkClient);
+
+      ZkStateReader reader = new ZkStateReader(zkClient);
+      reader.createClusterStateWatchersAndUpdate();
+
+      ZkStateWriter writer = new ZkStateWriter(reader, new Overseer.Stats());
+
+      zkClient.makePath(ZkStateReader.COLLECTIONS_ZKNODE + "/c1", true);
+      zkClient.makePath(ZkStateReader.COLLECTIONS_ZKNODE + "/c2", true);
+      // stand-ins for the queue items that produced the updates
+      zkClient.makePath("/batch/item1", true);
+      zkClient.makePath("/batch/item2", true);
+      zkClient.makePath("/batch/item3", true);
+
+      // two collections with stateFormat = 2 and one with stateFormat = 1, written at once
+      ClusterState clusterState = reader.getClusterState();
+      clusterState = writer.enqueueBatchUpdate(clusterState, new ZkWriteCommand("c1",
+          new DocCollection("c1", new HashMap<String, Slice>(), new HashMap<String, Object>(), DocRouter.DEFAULT, 0, ZkStateReader.getCollectionPath("c1"))));
+      clusterState = writer.enqueueBatchUpdate(clusterState, new ZkWriteCommand("c2",
+          new DocCollection("c2", new HashMap<String, Slice>(), new HashMap<String, Object>(), DocRouter.DEFAULT, 0, ZkStateReader.getCollectionPath("c2"))));
+      clusterState = writer.enqueueBatchUpdate(clusterState, new ZkWriteCommand("c3",
+          new DocCollection("c3", new HashMap<String, Slice>(), new HashMap<String, Object>(), DocRouter.DEFAULT, 0, ZkStateReader.CLUSTER_STATE)));
+      assertTrue(writer.hasPendingUpdates());
+      assertNull(zkClient.exists(ZkStateReader.getCollectionPath("c1"), null, true));
+
+      clusterState = writer.writePendingUpdates(Arrays.asList(Op.delete("/batch/item1", -1), Op.delete("/batch/item2", -1)));
+      assertFalse(writer.hasPendingUpdates());
+
+      assertNotNull(zkClient.exists(ZkStateReader.getCollectionPath("c1"), null, true));
+      assertNotNull(zkClient.exists(ZkStateReader.getCollectionPath("c2"), null, true));
+      Map map = (Map) ZkStateReader.fromJSON(zkClient.getData(ZkStateReader.CLUSTER_STATE, null, null, true));
+      assertNotNull(map.get("c3"));
+      assertNull(map.get("c1"));
+      assertNull(zkClient.exists("/batch/item1", null, true));
+      assertNull(zkClient.exists("/batch/item2", null, true));
+
+      // a later batch compares and sets the version that was written
+      DocCollection c1 = clusterState.getCollection("c1");
+      assertEquals(0, c1.getZNodeVersion());
+      clusterState = writer.enqueueBatchUpdate(clusterState, new ZkWriteCommand("c1", c1));
+      clusterState = writer.writePendingUpdates(Collections.<Op>emptyList());
+      assertEquals(1, clusterState.getCollection("c1").getZNodeVersion());
+
+      // a stale version fails the whole batch, including the removal of its queue items
+      clusterState = writer.enqueueBatchUpdate(clusterState, new ZkWriteCommand("c1", c1));
+      try {
+        writer.writePendingUpdates(Arrays.asList(Op.delete("/batch/item3", -1)));
+        fail("Expected a BadVersionException for a stale state.json version");
+      } catch (KeeperException.BadVersionException e) {
+        // expected
+      }
+      assertFalse(writer.hasPendingUpdates());
+      assertNotNull(zkClient.exists("/batch/item3", null, true));
+      assertEquals(1, zkClient.exists(ZkStateReader.getCollectionPath("c1"), null, true).getVersion());
+
+    } finally {
+      IOUtils.close(zkClient);
+      server.shutdown();
+    }
+  }
+
   public void testSingleExternalCollection() throws Exception{
     String zkDir = createTempDir("testSingleExternalCollection").toFile().getAbsolutePath();
 
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.core;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.cloud.ClusterState;
+import org.apache.solr.common.cloud.DocCollection;
+import org.apache.solr.common.cloud.DocRouter;
+import org.apache.solr.common.cloud.Replica;
+import org.apache.solr.common.cloud.Slice;
+import org.apache.solr.common.cloud.ZkStateReader;
+import org.junit.Test;
+
+public class CoreSorterTest extends SolrTestCaseJ4 {
+
+  private static final String NODE = "node1:8983_solr";
+
+  private CoreContainer newContainer(Path home, final boolean zkAware) {
+    SolrResourceLoader loader = new SolrResourceLoader(home.toString());
+    return new CoreContainer(SolrXmlConfig.fromString(loader, "<solr/>")) {
+      @Override
+      public boolean isZooKeeperAware() {
+        return zkAware;
+      }
+    };
+  }
+
+  private static List<String> names(List<CoreDescriptor> cds) {
+    List<String> names = new ArrayList<>();
+    for (CoreDescriptor cd : cds) {
+      names.add(cd.getName());
+    }
+    return names;
+  }
+
+  @Test
+  public void testRecentlyModifiedFirst() throws Exception {
+    Path home = createTempDir();
+    CoreContainer cc = newContainer(home, false);
+    long now = System.currentTimeMillis();
+    List<CoreDescriptor> cds = new ArrayList<>();
+    String[] names = {"old", "new", "empty", "middle"};
+    long[] ages = {100000, 0, -1, 50000};
+    for (int i = 0; i < names.length; i++) {
+      cds.add(new CoreDescriptor(cc, names[i], names[i]));
+      if (ages[i] >= 0) {
+        Path index = Files.createDirectories(home.resolve(names[i]).resolve("data").resolve("index"));
+        Files.setLastModifiedTime(index, FileTime.fromMillis(now - ages[i]));
+      }
+    }
+    Collections.shuffle(cds, random());
+
+    assertEquals(Arrays.asList("new", "middle", "old", "empty"), names(CoreSorter.sort(cds, null, null)));
+  }
+
+  @Test
+  public void testLeadersAndUnservedShardsFirst() throws Exception {
+    CoreContainer cc = newContainer(createTempDir(), true);
+    String otherNode = "node2:8983_solr";
+    String deadNode = "node3:8983_solr";
+
+    Map<String, Slice> slices = new HashMap<>();
+    // shard1: this node was the leader, another replica is active
+    slices.put("shard1", slice("shard1",
+        replica("core_node1", "coll_shard1_replica1", NODE, true),
+        replica("core_node2", "coll_shard1_replica2", otherNode, false)));
+    // shard2: another replica is active
+    slices.put("shard2", slice("shard2",
+        replica("core_node3", "coll_shard2_replica1", NODE, false),
+        replica("core_node4", "coll_shard2_replica2", otherNode, true)));
+    // shard3: the other replica is on a node that is down
+    slices.put("shard3", slice("shard3",
+        replica("core_node5", "coll_shard3_replica1", NODE, false),
+        replica("core_node6", "coll_shard3_replica2", deadNode, true)));
+    DocCollection coll = new DocCollection("coll", slices, Collections.<String, Object>emptyMap(), DocRouter.DEFAULT);
+    ClusterState clusterState = new ClusterState(1, new HashSet<>(Arrays.asList(NODE, otherNode)),
+        Collections.singletonMap("coll", coll));
+
+    List<CoreDescriptor> cds = new ArrayList<>();
+    for (int shard = 1; shard <= 3; shard++) {
+      String name = "coll_shard" + shard + "_replica1";
+      cds.add(new CoreDescriptor(cc, name, name, CoreDescriptor.CORE_COLLECTION, "coll",
+          CoreDescriptor.CORE_SHARD, "shard" + shard));
+    }
+    // not part of any known collection
+    cds.add(new CoreDescriptor(cc, "other", "other", CoreDescriptor.CORE_COLLECTION, "unknown",
+        CoreDescriptor.CORE_SHARD, "shard1"));
+    Collections.shuffle(cds, random());
+
+    List<String> sorted = names(CoreSorter.sort(cds, clusterState, NODE));
+    assertEquals("coll_shard1_replica1", sorted.get(0));
+    // neither "other" nor shard3 are served by another node
+    assertEquals(new HashSet<>(Arrays.asList("coll_shard3_replica1", "other")), new HashSet<>(sorted.subList(1, 3)));
+    assertEquals("coll_shard2_replica1", sorted.get(3));
+  }
+
+  private static Slice slice(String name, Replica... replicas) {
+    Map<String, Replica> replicaMap = new HashMap<>();
+    for (Replica replica : replicas) {
+      replicaMap.put(replica.getName(), replica);
+    }
+    return new Slice(name, replicaMap, null);
+  }
+
+  private static Replica replica(String name, String core, String node, boolean leader) {
+    Map<String, Object> props = new HashMap<>();
+    props.put(ZkStateReader.CORE_NAME_PROP, core);
+    props.put(ZkStateReader.NODE_NAME_PROP, node);
+    props.put(ZkStateReader.STATE_PROP, Replica.State.ACTIVE.toString());
+    if (leader) {
+      props.put(Slice.LEADER, "true");
+    }
+    return new Replica(name, props);
+  }
+}
@@ -41,6 +41,7 @@ import org.apache.solr.common.util.NamedList;
 import org.apache.solr.common.util.SimpleOrderedMap;
 import org.apache.solr.core.CachingDirectoryFactory;
 import org.apache.solr.core.CoreContainer;
+import org.apache.solr.core.Diagnostics;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.core.StandardDirectoryFactory;
 import org.apache.solr.servlet.SolrDispatchFilter;
@@ -66,7 +67,9 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
@@ -699,6 +702,231 @@ public class TestReplicationHandler extends SolrTestCaseJ4 {
   }
   
   
+  @Test
+  public void doTestConcurrentRangeFetch() throws Exception {
+    //change solrconfig on slave
+    //this has no entry for pollinginterval
+    slave.copyConfigFile(CONF_DIR + "solrconfig-slave1.xml", "solrconfig.xml");
+    slaveJetty.stop();
+    slaveJetty = createJetty(slave);
+    slaveClient.close();
+    slaveClient = createNewSolrClient(slaveJetty.getLocalPort());
+
+    masterClient.deleteByQuery("*:*");
+    slaveClient.deleteByQuery("*:*");
+    slaveClient.commit();
+    nDocs--;
+    for (int i = 0; i < nDocs; i++)
+      index(masterClient, "id", i, "name", "name = " + i);
+    masterClient.commit();
+
+    NamedList masterQueryRsp = rQuery(nDocs, "*:*", masterClient);
+    SolrDocumentList masterQueryResult = (SolrDocumentList) masterQueryRsp.get("response");
+    assertEquals(nDocs, masterQueryResult.getNumFound());
+
+    // index fetch with several threads, splitting files into small ranges
+    String fetchUrl = buildUrl(slaveJetty.getLocalPort()) + "/" + DEFAULT_TEST_CORENAME
+        + "/replication?command=fetchindex&fetchThreads=" + TestUtil.nextInt(random(), 2, 4)
+        + "&fetchRangeSize=" + TestUtil.nextInt(random(), 100, 1000)
+        + "&maxFetchMBPerSec=100&masterUrl="
+        + buildUrl(masterJetty.getLocalPort()) + "/" + DEFAULT_TEST_CORENAME + "/replication";
+    URL url = new URL(fetchUrl);
+    InputStream stream = url.openStream();
+    stream.close();
+
+    //get docs from slave and check if number is equal to master
+    NamedList slaveQueryRsp = rQuery(nDocs, "*:*", slaveClient);
+    SolrDocumentList slaveQueryResult = (SolrDocumentList) slaveQueryRsp.get("response");
+    assertEquals(nDocs, slaveQueryResult.getNumFound());
+    //compare results
+    String cmp = BaseDistributedSearchTestCase.compare(masterQueryResult, slaveQueryResult, 0, null);
+    assertEquals(null, cmp);
+    assertVersions(masterClient, slaveClient);
+
+    // fetch again after more docs have been added, only the new files are downloaded
+    for (int i = nDocs; i < nDocs + 3; i++)
+      index(masterClient, "id", i, "name", "name = " + i);
+    masterClient.commit();
+    stream = url.openStream();
+    stream.close();
+
+    slaveQueryRsp = rQuery(nDocs + 3, "*:*", slaveClient);
+    slaveQueryResult = (SolrDocumentList) slaveQueryRsp.get("response");
+    assertEquals(nDocs + 3, slaveQueryResult.getNumFound());
+    masterQueryRsp = rQuery(nDocs + 3, "*:*", masterClient);
+    masterQueryResult = (SolrDocumentList) masterQueryRsp.get("response");
+    cmp = BaseDistributedSearchTestCase.compare(masterQueryResult, slaveQueryResult, 0, null);
+    assertEquals(null, cmp);
+    assertVersions(masterClient, slaveClient);
+
+    checkForSingleIndex(slaveJetty);
+  }
+
+  @Test
+  public void doTestResumeAbortedRangeFetch() throws Exception {
+    //change solrconfig on slave
+    //this has no entry for pollinginterval
+    slave.copyConfigFile(CONF_DIR + "solrconfig-slave1.xml", "solrconfig.xml");
+    slaveJetty.stop();
+    slaveJetty = createJetty(slave);
+    slaveClient.close();
+    slaveClient = createNewSolrClient(slaveJetty.getLocalPort());
+
+    masterClient.deleteByQuery("*:*");
+    slaveClient.deleteByQuery("*:*");
+    slaveClient.commit();
+    nDocs--;
+    for (int i = 0; i < nDocs; i++)
+      index(masterClient, "id", i, "name", "name = " + i);
+    masterClient.commit();
+
+    NamedList masterQueryRsp = rQuery(nDocs, "*:*", masterClient);
+    SolrDocumentList masterQueryResult = (SolrDocumentList) masterQueryRsp.get("response");
+    assertEquals(nDocs, masterQueryResult.getNumFound());
+
+    URL url = new URL(buildUrl(slaveJetty.getLocalPort()) + "/" + DEFAULT_TEST_CORENAME
+        + "/replication?command=fetchindex&wait=true&fetchThreads=" + TestUtil.nextInt(random(), 1, 3)
+        + "&fetchRangeSize=" + TestUtil.nextInt(random(), 100, 1000) + "&masterUrl="
+        + buildUrl(masterJetty.getLocalPort()) + "/" + DEFAULT_TEST_CORENAME + "/replication");
+    final Set<String> downloaded = Collections.synchronizedSet(new HashSet<String>());
+    final Set<String> downloadedAgain = Collections.synchronizedSet(new HashSet<String>());
+    final int abortAfter = TestUtil.nextInt(random(), 1, 3);
+    try {
+      // abort the fetch once a few files or ranges are complete
+      IndexFetcher.testing_fetchHook = new Diagnostics.Callable() {
+        @Override
+        public void call(Object... data) {
+          downloaded.add((String) data[1]);
+          if (downloaded.size() >= abortAfter) {
+            ((IndexFetcher) data[0]).abortFetch();
+          }
+        }
+      };
+      InputStream stream = url.openStream();
+      stream.close();
+
+      ReplicationHandler handler = getReplicationHandler(slaveJetty);
+      assertNotNull("the temporary index directory of the aborted fetch was not kept", handler.resumableTmpIdxDirName);
+      assertTrue(handler.resumableGeneration > 0);
+      assertTrue(downloaded.size() >= abortAfter);
+      assertEquals(0, numFound(query("*:*", slaveClient)));
+
+      // the next fetch of the same generation only downloads what is missing
+      IndexFetcher.testing_fetchHook = new Diagnostics.Callable() {
+        @Override
+        public void call(Object... data) {
+          downloadedAgain.add((String) data[1]);
+        }
+      };
+      stream = url.openStream();
+      stream.close();
+
+      assertNull(handler.resumableTmpIdxDirName);
+      assertFalse(downloadedAgain.isEmpty());
+      for (String name : downloaded) {
+        assertFalse(name + " was downloaded again", downloadedAgain.contains(name));
+      }
+    } finally {
+      IndexFetcher.testing_fetchHook = null;
+    }
+
+    NamedList slaveQueryRsp = rQuery(nDocs, "*:*", slaveClient);
+    SolrDocumentList slaveQueryResult = (SolrDocumentList) slaveQueryRsp.get("response");
+    assertEquals(nDocs, slaveQueryResult.getNumFound());
+    String cmp = BaseDistributedSearchTestCase.compare(masterQueryResult, slaveQueryResult, 0, null);
+    assertEquals(null, cmp);
+    assertVersions(masterClient, slaveClient);
+
+    checkForSingleIndex(slaveJetty);
+  }
+
+  @Test
+  public void doTestLocalCopyOnFullFetch() throws Exception {
+    //change solrconfig on slave
+    //this has no entry for pollinginterval
+    slave.copyConfigFile(CONF_DIR + "solrconfig-slave1.xml", "solrconfig.xml");
+    slaveJetty.stop();
+    slaveJetty = createJetty(slave);
+    slaveClient.close();
+    slaveClient = createNewSolrClient(slaveJetty.getLocalPort());
+
+    masterClient.deleteByQuery("*:*");
+    slaveClient.deleteByQuery("*:*");
+    slaveClient.commit();
+    nDocs--;
+    for (int i = 0; i < nDocs; i++)
+      index(masterClient, "id", i, "name", "name = " + i);
+    masterClient.commit();
+
+    URL url = new URL(buildUrl(slaveJetty.getLocalPort()) + "/" + DEFAULT_TEST_CORENAME
+        + "/replication?command=fetchindex&wait=true&fetchThreads=" + TestUtil.nextInt(random(), 1, 3)
+        + "&masterUrl=" + buildUrl(masterJetty.getLocalPort()) + "/" + DEFAULT_TEST_CORENAME + "/replication");
+    final Set<String> downloaded = Collections.synchronizedSet(new HashSet<String>());
+    final Set<String> downloadedAgain = Collections.synchronizedSet(new HashSet<String>());
+    String indexDir;
+    try {
+      IndexFetcher.testing_fetchHook = new Diagnostics.Callable() {
+        @Override
+        public void call(Object... data) {
+          downloaded.add((String) data[1]);
+        }
+      };
+      InputStream stream = url.openStream();
+      stream.close();
+      assertEquals(nDocs, numFound(rQuery(nDocs, "*:*", slaveClient)));
+      indexDir = getIndexDir(slaveJetty);
+
+      // a commit on the slave makes its generation as new as the master's, which needs a full copy;
+      // the segment that both of them have is copied from the current index instead of downloaded
+      index(slaveClient, "id", nDocs + 100, "name", "slave only");
+      slaveClient.commit();
+      index(masterClient, "id", nDocs, "name", "name = " + nDocs);
+      masterClient.commit();
+
+      IndexFetcher.testing_fetchHook = new Diagnostics.Callable() {
+        @Override
+        public void call(Object... data) {
+          downloadedAgain.add((String) data[1]);
+        }
+      };
+      stream = url.openStream();
+      stream.close();
+    } finally {
+      IndexFetcher.testing_fetchHook = null;
+    }
+
+    assertFalse("expected a full copy into a new index directory", indexDir.equals(getIndexDir(slaveJetty)));
+    assertFalse(downloadedAgain.isEmpty());
+    for (String name : downloaded) {
+      assertFalse(name + " was downloaded again", downloadedAgain.contains(name));
+    }
+
+    NamedList masterQueryRsp = rQuery(nDocs + 1, "*:*", masterClient);
+    SolrDocumentList masterQueryResult = (SolrDocumentList) masterQueryRsp.get("response");
+    NamedList slaveQueryRsp = rQuery(nDocs + 1, "*:*", slaveClient);
+    SolrDocumentList slaveQueryResult = (SolrDocumentList) slaveQueryRsp.get("response");
+    assertEquals(nDocs + 1, slaveQueryResult.getNumFound());
+    String cmp = BaseDistributedSearchTestCase.compare(masterQueryResult, slaveQueryResult, 0, null);
+    assertEquals(null, cmp);
+    assertVersions(masterClient, slaveClient);
+
+    checkForSingleIndex(slaveJetty);
+  }
+
+  private ReplicationHandler getReplicationHandler(JettySolrRunner jetty) {
+    CoreContainer cores = ((SolrDispatchFilter) jetty.getDispatchFilter().getFilter()).getCores();
+    try (SolrCore core = cores.getCore(DEFAULT_TEST_CORENAME)) {
+      return (ReplicationHandler) core.getRequestHandler("/replication");
+    }
+  }
+
+  private String getIndexDir(JettySolrRunner jetty) {
+    CoreContainer cores = ((SolrDispatchFilter) jetty.getDispatchFilter().getFilter()).getCores();
+    try (SolrCore core = cores.getCore(DEFAULT_TEST_CORENAME)) {
+      return core.getIndexDir();
+    }
+  }
+
   @Test 
   public void doTestStressReplication() throws Exception {
     // change solrconfig on slave
@@ -89,6 +89,8 @@ public class TestSQLHandler extends AbstractFullDistribZkTestBase {
     testPredicate();
     testBasicSelect();
     testBasicGrouping();
+    testAggregationModes();
+    testUniqueAcrossShards();
     testTimeSeriesGrouping();
     testParallelBasicGrouping();
     testParallelTimeSeriesGrouping();
@@ -441,6 +443,103 @@ public class TestSQLHandler extends AbstractFullDistribZkTestBase {
     }
   }
 
+  private void testAggregationModes() throws Exception {
+    try {
+
+      CloudJettyRunner jetty = this.cloudJettys.get(0);
+
+      del("*:*");
+
+      commit();
+
+      indexr("id", "1", "text", "XXXX XXXX", "str_s", "a", "field_i", "7");
+      indexr("id", "2", "text", "XXXX XXXX", "str_s", "b", "field_i", "8");
+      indexr("id", "3", "text", "XXXX XXXX", "str_s", "a", "field_i", "20");
+      indexr("id", "4", "text", "XXXX XXXX", "str_s", "b", "field_i", "8");
+      indexr("id", "5", "text", "XXXX XXXX", "str_s", "c", "field_i", "30");
+      indexr("id", "6", "text", "XXXX XXXX", "str_s", "c", "field_i", "40");
+      indexr("id", "7", "text", "XXXX XXXX", "str_s", "c", "field_i", "40");
+      indexr("id", "8", "text", "XXXX XXXX", "str_s", "c", "field_i", "60");
+      commit();
+
+      for(String aggregationMode : new String[] {SQLHandler.AGGREGATION_MODE_FACET, SQLHandler.AGGREGATION_MODE_MAP_REDUCE}) {
+        Map params = new HashMap();
+        params.put(CommonParams.QT, "/sql");
+        params.put(SQLHandler.AGGREGATION_MODE, aggregationMode);
+        params.put("sql", "select str_s, count(*), sum(field_i), unique(field_i) from mytable where text='XXXX' group by str_s order by str_s asc limit 2");
+
+        SolrStream solrStream = new SolrStream(jetty.url, params);
+        List<Tuple> tuples = getTuples(solrStream);
+
+        assert(tuples.size() == 2);
+
+        Tuple tuple = tuples.get(0);
+        assert(tuple.get("str_s").equals("a"));
+        assert(tuple.getDouble("count(*)") == 2);
+        assert(tuple.getDouble("sum(field_i)") == 27);
+        assert(tuple.getDouble("unique(field_i)") == 2);
+
+        tuple = tuples.get(1);
+        assert(tuple.get("str_s").equals("b"));
+        assert(tuple.getDouble("count(*)") == 2);
+        assert(tuple.getDouble("sum(field_i)") == 16);
+        assert(tuple.getDouble("unique(field_i)") == 1);
+
+        params = new HashMap();
+        params.put(CommonParams.QT, "/sql");
+        params.put(SQLHandler.AGGREGATION_MODE, aggregationMode);
+        params.put("sql", "select str_s, count(*), unique(field_i) from mytable where text='XXXX' group by str_s order by unique(field_i) desc limit 1");
+
+        solrStream = new SolrStream(jetty.url, params);
+        tuples = getTuples(solrStream);
+
+        assert(tuples.size() == 1);
+
+        tuple = tuples.get(0);
+        assert(tuple.get("str_s").equals("c"));
+        assert(tuple.getDouble("count(*)") == 4);
+        assert(tuple.getDouble("unique(field_i)") == 3);
+      }
+
+    } finally {
+      delete();
+    }
+  }
+
+  private void testUniqueAcrossShards() throws Exception {
+    try {
+
+      CloudJettyRunner jetty = this.cloudJettys.get(0);
+
+      del("*:*");
+
+      commit();
+
+      // both shards see more than 100 of the same 150 values, which JSON facets can only estimate
+      for(int i=0; i<600; i++) {
+        indexr("id", Integer.toString(i), "text", "XXXX XXXX", "str_s", "a", "field_i", Integer.toString(i % 150));
+      }
+      commit();
+
+      Map params = new HashMap();
+      params.put(CommonParams.QT, "/sql");
+      params.put("sql", "select str_s, count(*), unique(field_i) from mytable where text='XXXX' group by str_s");
+
+      SolrStream solrStream = new SolrStream(jetty.url, params);
+      List<Tuple> tuples = getTuples(solrStream);
+
+      assert(tuples.size() == 1);
+
+      Tuple tuple = tuples.get(0);
+      assert(tuple.get("str_s").equals("a"));
+      assert(tuple.getDouble("count(*)") == 600);
+      assert(tuple.getDouble("unique(field_i)") == 150);
+
+    } finally {
+      delete();
+    }
+  }
+
   private void testParallelBasicGrouping() throws Exception {
     try {
 
@@ -23,6 +23,8 @@ import java.util.List;
 import org.apache.solr.SolrTestCaseJ4;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.core.SolrCore;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.response.SolrQueryResponse;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
@@ -100,4 +102,45 @@ public class SearchHandlerTest extends SolrTestCaseJ4
     //Debug component is always last in this case
     assertEquals( core.getSearchComponent( DebugComponent.COMPONENT_NAME ), comps.get( comps.size()-1 ) );
   }
+
+  @Test
+  public void testComponentTimes() throws Exception
+  {
+    SolrCore core = h.getCore();
+
+    List<String> names = new ArrayList<>();
+    names.add( QueryComponent.COMPONENT_NAME );
+    names.add( FacetComponent.COMPONENT_NAME );
+
+    NamedList args = new NamedList();
+    args.add( SearchHandler.INIT_COMPONENTS, names );
+    SearchHandler handler = new SearchHandler();
+    handler.init( args );
+    handler.inform( core );
+
+    assertNull( handler.getStatistics().get( "query.process.requests" ) );
+
+    for (int i = 0; i < 3; i++) {
+      SolrQueryRequest req = req( "q", "*:*", "facet", "true", "facet.field", "id" );
+      try {
+        core.execute( handler, req, new SolrQueryResponse() );
+      } finally {
+        req.close();
+      }
+    }
+
+    NamedList stats = handler.getStatistics();
+    assertEquals( 3L, stats.get( "requests" ) );
+    for (String name : names) {
+      assertEquals( name, 3L, stats.get( name + ".prepare.requests" ) );
+      assertEquals( name, 3L, stats.get( name + ".process.requests" ) );
+      double median = (Double) stats.get( name + ".process.medianTime" );
+      double max = (Double) stats.get( name + ".process.maxTime" );
+      assertTrue( name, 0.0 <= median && median <= max );
+    }
+    // not a distributed request
+    assertNull( stats.get( "query.distrib.requests" ) );
+    assertNull( stats.get( "shardRequest.requests" ) );
+    assertNotNull( stats.get( "slowRequests" ) );
+  }
 }
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.response;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.request.SolrQueryRequest;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks that writing responses directly as UTF-8, which copies the UTF-8 bytes of stored
+ * fields where possible, gives the same output as writing them to a Writer.
+ */
+public class TestUtf8ResponseWriters extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    initCore("solrconfig.xml", "schema.xml");
+    String[] values = {
+        "plain",
+        "",
+        "with \"quotes\" and \\backslash",
+        "markup <b>&amp;</b>",
+        "control\tchars\n",
+        "non ascii: h\u00e9llo \u4e16\u754c \uD83D\uDE00",
+        "line \u2028 separator",
+        "typographic \u201cquotes\u201d"
+    };
+    for (int i = 0; i < values.length; i++) {
+      assertU(adoc("id", Integer.toString(i), "name_s", values[i], "text_t", values[i],
+          "num_i", Integer.toString(i - 4), "num_l", Long.toString(Long.MIN_VALUE + i)));
+    }
+    assertU(commit());
+  }
+
+  @Test
+  public void testSameOutput() throws Exception {
+    for (String wt : new String[] {"json", "xml", "python", "ruby", "php", "phps", "csv"}) {
+      for (String fl : new String[] {"*", "id,name_s,text_t,num_i,num_l"}) {
+        SolrQueryRequest req = req("q", "*:*", "sort", "id asc", "rows", "100", "wt", wt, "fl", fl);
+        try {
+          SolrQueryResponse rsp = h.queryAndResponse(null, req);
+          QueryResponseWriter writer = h.getCore().getQueryResponseWriter(req);
+
+          StringWriter expected = new StringWriter();
+          writer.write(expected, req, rsp);
+
+          ByteArrayOutputStream actual = new ByteArrayOutputStream();
+          QueryResponseWriterUtil.writeQueryResponse(actual, writer, req, rsp, "text/plain; charset=UTF-8");
+          assertEquals("wt=" + wt + ", fl=" + fl, expected.toString(), new String(actual.toByteArray(), StandardCharsets.UTF_8));
+        } finally {
+          req.close();
+        }
+      }
+    }
+  }
+}
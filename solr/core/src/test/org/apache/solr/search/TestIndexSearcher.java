@@ -17,8 +17,10 @@
 package org.apache.solr.search;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -30,6 +32,7 @@ import org.apache.lucene.index.IndexReaderContext;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.LogDocMergePolicy;
 import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.StoredDocument;
 import org.apache.lucene.queries.function.FunctionValues;
 import org.apache.lucene.queries.function.ValueSource;
 import org.apache.solr.SolrTestCaseJ4;
@@ -165,6 +168,38 @@ public class TestIndexSearcher extends SolrTestCaseJ4 {
   }
 
 
+  public void testBatchDocRetrieval() throws Exception {
+    int numDocs = atLeast(50);
+    for (int i = 0; i < numDocs; i++) {
+      assertU(adoc("id", Integer.toString(i), "v_t", "value " + i, "v_s1", "string" + i));
+      if (random().nextInt(10) == 0) {
+        assertU(commit());
+      }
+    }
+    assertU(commit());
+
+    SolrQueryRequest sr = req("q", "foo");
+    try {
+      SolrIndexSearcher searcher = sr.getSearcher();
+      int count = random().nextInt(2 * numDocs) + 1;
+      int[] ids = new int[count];
+      for (int i = 0; i < count; i++) {
+        ids[i] = random().nextInt(searcher.maxDoc());
+      }
+      Set<String> fields = random().nextBoolean() ? null : Collections.singleton("v_s1");
+      StoredDocument[] docs = new StoredDocument[count];
+      searcher.doc(ids, docs, count, fields);
+      for (int i = 0; i < count; i++) {
+        StoredDocument expected = searcher.getIndexReader().document(ids[i]);
+        assertEquals(expected.get("id"), docs[i].get("id"));
+        assertEquals(expected.get("v_s1"), docs[i].get("v_s1"));
+        assertEquals(expected.get("v_t"), docs[i].get("v_t"));
+      }
+    } finally {
+      sr.close();
+    }
+  }
+
   // make sure we don't leak searchers (SOLR-3391)
   public void testCloses() {
     assertU(adoc("id","1"));
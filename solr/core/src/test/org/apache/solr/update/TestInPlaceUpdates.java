@@ -0,0 +1,298 @@
+package org.apache.solr.update;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.update.processor.DistributedUpdateProcessor;
+import org.apache.solr.update.processor.DistributedUpdateProcessor.DistribPhase;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.apache.solr.update.processor.DistributingUpdateProcessorFactory.DISTRIB_UPDATE_PARAM;
+
+public class TestInPlaceUpdates extends SolrTestCaseJ4 {
+
+  private static String savedFactory;
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    // the index must survive a restart of the core to test log replay
+    savedFactory = System.getProperty("solr.DirectoryFactory");
+    System.setProperty("solr.directoryFactory", "org.apache.solr.core.MockFSDirectoryFactory");
+    initCore("solrconfig-tlog.xml", "schema-inplace-updates.xml");
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    if (savedFactory == null) {
+      System.clearProperty("solr.directoryFactory");
+    } else {
+      System.setProperty("solr.directoryFactory", savedFactory);
+    }
+  }
+
+  @Before
+  public void before() throws Exception {
+    clearIndex();
+    assertU(commit());
+  }
+
+  @Test
+  public void testUpdateInPlace() throws Exception {
+    long version1 = addAndGetVersion(sdoc("id", "1", "title", "first", "text", "hello world", "popularity", 10, "price", 1.5f), null);
+    addAndGetVersion(sdoc("id", "2", "title", "second", "popularity", 20), null);
+    assertU(commit());
+
+    long version2 = addAndGetVersion(sdoc("id", "1", "popularity", map("inc", 5), "price", map("set", 2.5f)), null);
+    assertTrue(version2 > version1);
+    assertJQ(req("qt", "/get", "id", "1", "fl", "id,title,_version_"),
+        "=={'doc':{'id':'1','title':'first','_version_':" + version2 + "}}");
+
+    // the second update merges with the first one, which is only in the log
+    long version3 = addAndGetVersion(sdoc("id", "1", "popularity", map("inc", 1)), null);
+    assertTrue(version3 > version2);
+    assertU(commit());
+
+    // the indexed but not stored text is still there, so the document was not indexed again
+    assertJQ(req("q", "text:hello", "fl", "id,title,pop:field(popularity),pr:field(price)"),
+        "/response/numFound==1",
+        "/response/docs/[0]=={'id':'1','title':'first','pop':16,'pr':2.5}");
+    assertJQ(req("q", "id:2", "fl", "id,pop:field(popularity)"),
+        "/response/docs/[0]=={'id':'2','pop':20}");
+
+    // updating a stored field indexes the whole document again, and keeps the doc values only fields
+    long version4 = addAndGetVersion(sdoc("id", "1", "title", map("set", "updated"), "popularity", map("inc", 1)), null);
+    assertU(commit());
+    assertJQ(req("q", "text:hello"), "/response/numFound==0");
+    assertJQ(req("q", "id:1", "fl", "id,title,pop:field(popularity),pr:field(price)"),
+        "/response/docs/[0]=={'id':'1','title':'updated','pop':17,'pr':2.5}");
+    assertJQ(req("qt", "/get", "id", "1", "fl", "id,_version_"),
+        "=={'doc':{'id':'1','_version_':" + version4 + "}}");
+  }
+
+  @Test
+  public void testNotInPlace() throws Exception {
+    addAndGetVersion(sdoc("id", "1", "text", "hello world", "popularity", 10, "stored_popularity", 10), null);
+    assertU(commit());
+
+    // stored fields cannot be updated in place
+    addAndGetVersion(sdoc("id", "1", "stored_popularity", map("inc", 1)), null);
+    assertU(commit());
+    assertJQ(req("q", "text:hello"), "/response/numFound==0");
+    assertJQ(req("q", "id:1", "fl", "id,stored_popularity,pop:field(popularity)"),
+        "/response/docs/[0]=={'id':'1','stored_popularity':11,'pop':10}");
+  }
+
+  @Test
+  public void testUpdateInPlaceFromLeader() throws Exception {
+    long version = addAndGetVersion(sdoc("id", "1", "title", "first", "text", "hello world", "popularity", 10), null);
+    assertU(commit());
+
+    // the leader sends the complete document, and the version it replaces
+    updateJ(jsonAdd(sdoc("id", "1", "title", "first", "popularity", 11, "_version_", version + 10)),
+        params(DISTRIB_UPDATE_PARAM, DistribPhase.FROMLEADER.toString(),
+            DistributedUpdateProcessor.DISTRIB_INPLACE_PREVVERSION, Long.toString(version)));
+    assertU(commit());
+    assertJQ(req("q", "text:hello", "fl", "id,title,pop:field(popularity)"),
+        "/response/numFound==1",
+        "/response/docs/[0]=={'id':'1','title':'first','pop':11}");
+
+    // if this replica has another version, indexing the complete document would lose the text
+    // that the leader kept, so the update fails and the leader has to put the replica into recovery
+    ignoreException("in place");
+    try {
+      updateJ(jsonAdd(sdoc("id", "1", "title", "first", "popularity", 12, "_version_", version + 20)),
+          params(DISTRIB_UPDATE_PARAM, DistribPhase.FROMLEADER.toString(),
+              DistributedUpdateProcessor.DISTRIB_INPLACE_PREVVERSION, Long.toString(version)));
+      fail("Expected the in-place update of another version to fail");
+    } catch (SolrException e) {
+      assertEquals(SolrException.ErrorCode.SERVER_ERROR.code, e.code());
+    } finally {
+      resetExceptionIgnores();
+    }
+    assertU(commit());
+    assertJQ(req("q", "text:hello", "fl", "id,title,pop:field(popularity)"),
+        "/response/numFound==1",
+        "/response/docs/[0]=={'id':'1','title':'first','pop':11}");
+  }
+
+  @Test
+  public void testReorderedUpdatesInPlaceFromLeader() throws Exception {
+    final long version = addAndGetVersion(sdoc("id", "1", "title", "first", "text", "hello world", "popularity", 10), null);
+    assertU(commit());
+
+    // the leader updated the document in place twice, and it still matches text:hello there:
+    // the second update reaches this replica first, and waits for the first one
+    final AtomicReference<Exception> error = new AtomicReference<>();
+    Thread second = new Thread() {
+      @Override
+      public void run() {
+        try {
+          updateJ(jsonAdd(sdoc("id", "1", "title", "first", "popularity", 12, "_version_", version + 20)),
+              params(DISTRIB_UPDATE_PARAM, DistribPhase.FROMLEADER.toString(),
+                  DistributedUpdateProcessor.DISTRIB_INPLACE_PREVVERSION, Long.toString(version + 10)));
+        } catch (Exception e) {
+          error.set(e);
+        }
+      }
+    };
+    second.start();
+    updateJ(jsonAdd(sdoc("id", "1", "title", "first", "popularity", 11, "_version_", version + 10)),
+        params(DISTRIB_UPDATE_PARAM, DistribPhase.FROMLEADER.toString(),
+            DistributedUpdateProcessor.DISTRIB_INPLACE_PREVVERSION, Long.toString(version)));
+    second.join();
+    assertNull(error.get());
+
+    // this replica answers like the leader
+    assertU(commit());
+    assertJQ(req("q", "text:hello", "fl", "id,title,pop:field(popularity)"),
+        "/response/numFound==1",
+        "/response/docs/[0]=={'id':'1','title':'first','pop':12}");
+    assertJQ(req("qt", "/get", "id", "1", "fl", "id,_version_"),
+        "=={'doc':{'id':'1','_version_':" + (version + 20) + "}}");
+  }
+
+  @Test
+  public void testReorderedDeleteByQueryInPlaceFromLeader() throws Exception {
+    long version = addAndGetVersion(sdoc("id", "1", "title", "first", "text", "hello world", "popularity", 10), null);
+    long version2 = addAndGetVersion(sdoc("id", "2", "title", "second", "popularity", 20), null);
+    assertU(commit());
+
+    // a newer delete by query reaches this replica before the in-place update
+    deleteByQueryAndGetVersion("id:2", params(DISTRIB_UPDATE_PARAM, DistribPhase.FROMLEADER.toString(),
+        "_version_", Long.toString(-(version2 + 15))));
+    updateJ(jsonAdd(sdoc("id", "1", "title", "first", "popularity", 11, "_version_", version2 + 10)),
+        params(DISTRIB_UPDATE_PARAM, DistribPhase.FROMLEADER.toString(),
+            DistributedUpdateProcessor.DISTRIB_INPLACE_PREVVERSION, Long.toString(version)));
+    assertU(commit());
+
+    // the document was still updated in place, and the delete applied after it
+    assertJQ(req("q", "text:hello", "fl", "id,title,pop:field(popularity)"),
+        "/response/numFound==1",
+        "/response/docs/[0]=={'id':'1','title':'first','pop':11}");
+    assertJQ(req("q", "id:2"), "/response/numFound==0");
+  }
+
+  @Test
+  public void testDeleteByQueryWhileWaitingInPlaceFromLeader() throws Exception {
+    final long version = addAndGetVersion(sdoc("id", "1", "title", "first", "text", "hello world", "popularity", 10), null);
+    addAndGetVersion(sdoc("id", "2", "title", "second", "popularity", 20), null);
+    assertU(commit());
+
+    // the second in-place update waits for the first one, and must not keep a delete by query out
+    final AtomicReference<Exception> error = new AtomicReference<>();
+    Thread second = new Thread() {
+      @Override
+      public void run() {
+        try {
+          updateJ(jsonAdd(sdoc("id", "1", "title", "first", "popularity", 12, "_version_", version + 20)),
+              params(DISTRIB_UPDATE_PARAM, DistribPhase.FROMLEADER.toString(),
+                  DistributedUpdateProcessor.DISTRIB_INPLACE_PREVVERSION, Long.toString(version + 10)));
+        } catch (Exception e) {
+          error.set(e);
+        }
+      }
+    };
+    second.start();
+    Thread.sleep(100);
+
+    long start = System.nanoTime();
+    deleteByQueryAndGetVersion("id:2", params(DISTRIB_UPDATE_PARAM, DistribPhase.FROMLEADER.toString(),
+        "_version_", Long.toString(-(version + 15))));
+    updateJ(jsonAdd(sdoc("id", "1", "title", "first", "popularity", 11, "_version_", version + 10)),
+        params(DISTRIB_UPDATE_PARAM, DistribPhase.FROMLEADER.toString(),
+            DistributedUpdateProcessor.DISTRIB_INPLACE_PREVVERSION, Long.toString(version)));
+    second.join();
+    assertNull(error.get());
+    assertTrue(TimeUnit.MILLISECONDS.convert(System.nanoTime() - start, TimeUnit.NANOSECONDS) < 5000);
+
+    assertU(commit());
+    assertJQ(req("q", "text:hello", "fl", "id,title,pop:field(popularity)"),
+        "/response/numFound==1",
+        "/response/docs/[0]=={'id':'1','title':'first','pop':12}");
+    assertJQ(req("q", "id:2"), "/response/numFound==0");
+  }
+
+  @Test
+  public void testReplayInPlaceMissingVersion() throws Exception {
+    long version = addAndGetVersion(sdoc("id", "1", "title", "first", "text", "hello world", "popularity", 10), null);
+    assertU(commit());
+
+    UpdateLog ulog = h.getCore().getUpdateHandler().getUpdateLog();
+    ulog.bufferUpdates();
+    // the update that writes version + 10 never reaches this replica
+    updateJ(jsonAdd(sdoc("id", "1", "title", "first", "popularity", 12, "_version_", version + 20)),
+        params(DISTRIB_UPDATE_PARAM, DistribPhase.FROMLEADER.toString(),
+            DistributedUpdateProcessor.DISTRIB_INPLACE_PREVVERSION, Long.toString(version + 10)));
+    updateJ(jsonAdd(sdoc("id", "2", "title", "second", "popularity", 20, "_version_", version + 30)),
+        params(DISTRIB_UPDATE_PARAM, DistribPhase.FROMLEADER.toString()));
+
+    // the replay stops at the update it cannot apply, so that recovery replicates the index instead
+    ignoreException("in place");
+    try {
+      UpdateLog.RecoveryInfo info = ulog.applyBufferedUpdates().get();
+      assertTrue(info.failed);
+      assertTrue(ulog.isReplayFailed());
+    } finally {
+      resetExceptionIgnores();
+    }
+    assertEquals(UpdateLog.State.ACTIVE, ulog.getState());
+
+    assertU(commit());
+    assertJQ(req("q", "text:hello", "fl", "id,title,pop:field(popularity)"),
+        "/response/numFound==1",
+        "/response/docs/[0]=={'id':'1','title':'first','pop':10}");
+    assertJQ(req("q", "id:2"), "/response/numFound==0");
+  }
+
+  @Test
+  public void testLogReplayInPlace() throws Exception {
+    addAndGetVersion(sdoc("id", "1", "title", "first", "text", "hello world", "popularity", 10), null);
+    assertU(commit());
+
+    final Semaphore logReplayFinish = new Semaphore(0);
+    DirectUpdateHandler2.commitOnClose = false;
+    UpdateLog.testing_logReplayFinishHook = new Runnable() {
+      @Override
+      public void run() {
+        logReplayFinish.release();
+      }
+    };
+    try {
+      addAndGetVersion(sdoc("id", "1", "popularity", map("inc", 5)), null);
+
+      // the uncommitted update is replayed from the log, in place as well
+      h.close();
+      createCore();
+      assertTrue(logReplayFinish.tryAcquire(30, TimeUnit.SECONDS));
+      assertJQ(req("q", "text:hello", "fl", "id,title,pop:field(popularity)"),
+          "/response/numFound==1",
+          "/response/docs/[0]=={'id':'1','title':'first','pop':15}");
+    } finally {
+      DirectUpdateHandler2.commitOnClose = true;
+      UpdateLog.testing_logReplayFinishHook = null;
+    }
+  }
+}
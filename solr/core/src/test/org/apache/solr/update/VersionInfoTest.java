@@ -48,6 +48,42 @@ public class VersionInfoTest extends SolrTestCaseJ4 {
     }
   }
 
+  @Test
+  public void testVersionBucketHighestPerId() {
+    VersionBucket bucket = new VersionBucket();
+    // nothing is known before the bucket is seeded
+    bucket.updateHighest(1L, 10L);
+    assertEquals(0L, bucket.highest(1L));
+
+    bucket.seedHighest(100L);
+    assertEquals(100L, bucket.highest(1L));
+
+    bucket.updateHighest(1L, 110L);
+    bucket.updateHighest(2L, -120L);
+    assertEquals(120L, bucket.highest);
+    assertEquals(110L, bucket.highest(1L));
+    assertEquals(120L, bucket.highest(2L));
+    // ids that were not updated since the bucket was seeded fall back to the bucket's highest version
+    assertEquals(120L, bucket.highest(3L));
+
+    // a new id starts from the bucket's highest version, not from its own
+    bucket.updateHighest(3L, 115L);
+    assertEquals(120L, bucket.highest(3L));
+
+    // forgotten ids fall back to the bucket's highest version
+    for (long id = 4; id < 4 + VersionBucket.NUM_RECENT_IDS; id++) {
+      bucket.updateHighest(id, 120L + id);
+    }
+    long highest = 120L + 3 + VersionBucket.NUM_RECENT_IDS;
+    assertEquals(highest, bucket.highest);
+    assertEquals(highest, bucket.highest(1L));
+    assertEquals(124L, bucket.highest(4L));
+
+    // seeding forgets all ids
+    bucket.seedHighest(highest);
+    assertEquals(highest, bucket.highest(4L));
+  }
+
   protected void testMaxVersionLogic(SolrQueryRequest req) throws Exception {
     UpdateHandler uhandler = req.getCore().getUpdateHandler();
     UpdateLog ulog = uhandler.getUpdateLog();
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
+
+public class TestFastUtf8Writer extends LuceneTestCase {
+
+  public void testRandomWrites() throws Exception {
+    for (int iter = 0; iter < 100; iter++) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      FastUtf8Writer writer = new FastUtf8Writer(out);
+      ByteArrayOutputStream expected = new ByteArrayOutputStream();
+      // chars written since the last writeUtf8 call
+      StringBuilder chars = new StringBuilder();
+
+      int numWrites = random().nextInt(50);
+      for (int i = 0; i < numWrites; i++) {
+        String s = random().nextBoolean() ? TestUtil.randomUnicodeString(random(), 20)
+            : TestUtil.randomRealisticUnicodeString(random(), random().nextInt(20000));
+        // also split surrogate pairs
+        int off = s.isEmpty() ? 0 : random().nextInt(s.length());
+        int len = s.length() - off;
+        switch (random().nextInt(5)) {
+          case 0:
+            writer.write(s, off, len);
+            chars.append(s, off, off + len);
+            break;
+          case 1:
+            writer.write(s.toCharArray(), off, len);
+            chars.append(s, off, off + len);
+            break;
+          case 2:
+            if (len > 0) {
+              writer.write(s.charAt(off));
+              chars.append(s.charAt(off));
+            }
+            break;
+          case 3:
+            byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+            expected.write(chars.toString().getBytes(StandardCharsets.UTF_8));
+            chars.setLength(0);
+            expected.write(utf8);
+            writer.writeUtf8(utf8, 0, utf8.length);
+            break;
+          default:
+            writer.flush();
+        }
+      }
+      writer.close();
+      expected.write(chars.toString().getBytes(StandardCharsets.UTF_8));
+
+      assertArrayEquals(expected.toByteArray(), out.toByteArray());
+    }
+  }
+
+  public void testWriteLong() throws Exception {
+    long[] values = new long[100];
+    values[0] = 0;
+    values[1] = Long.MIN_VALUE;
+    values[2] = Long.MAX_VALUE;
+    values[3] = Integer.MIN_VALUE;
+    for (int i = 4; i < values.length; i++) {
+      values[i] = random().nextBoolean() ? random().nextLong() : random().nextInt(2000) - 1000;
+    }
+
+    // buffers that are too small for some values have to fall back to writing strings
+    StringWriter sink = new StringWriter();
+    FastWriter writer = new FastWriter(sink, new char[TestUtil.nextInt(random(), 1, 40)], 0);
+    StringBuilder expected = new StringBuilder();
+    for (long value : values) {
+      writer.writeLong(value);
+      writer.write(' ');
+      expected.append(value).append(' ');
+    }
+    writer.flush();
+    assertEquals(expected.toString(), sink.toString());
+  }
+}
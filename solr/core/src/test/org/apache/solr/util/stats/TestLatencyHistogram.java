@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.util.stats;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.util.LuceneTestCase;
+
+public class TestLatencyHistogram extends LuceneTestCase {
+
+  public void testBuckets() {
+    long previous = -1;
+    for (long micros = 0; micros < 1 << 20; micros++) {
+      int index = LatencyHistogram.bucketIndex(micros);
+      assertTrue(LatencyHistogram.lowerBound(index) <= micros);
+      assertTrue(micros < LatencyHistogram.lowerBound(index + 1));
+      // relative error of at most 1/16
+      assertTrue(LatencyHistogram.lowerBound(index + 1) - LatencyHistogram.lowerBound(index) <= Math.max(1, micros / 16));
+      assertTrue(index == previous || index == previous + 1);
+      previous = index;
+    }
+    assertEquals(LatencyHistogram.bucketIndex(1L << 50), LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+  }
+
+  public void testEmpty() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0.0, histogram.getMean(), 0.0);
+    assertEquals(0.0, histogram.getMax(), 0.0);
+    assertEquals(0.0, histogram.getPercentile(0.99), 0.0);
+  }
+
+  public void testPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    int n = atLeast(1000);
+    long[] values = new long[n];
+    long sum = 0;
+    for (int i = 0; i < n; i++) {
+      values[i] = random().nextInt(10_000_000);
+      sum += values[i];
+      histogram.update(values[i], TimeUnit.MICROSECONDS);
+    }
+    Arrays.sort(values);
+
+    assertEquals(n, histogram.getCount());
+    assertEquals(sum / 1000.0, histogram.getSum(), 0.001);
+    assertEquals(sum / 1000.0 / n, histogram.getMean(), 0.001);
+    assertEquals(values[n - 1] / 1000.0, histogram.getMax(), 0.0);
+    assertEquals(values[n - 1] / 1000.0, histogram.getPercentile(1.0), 0.0);
+    for (double quantile : new double[] {0.0, 0.5, 0.75, 0.95, 0.99, 0.999}) {
+      long expected = values[Math.max(0, (int) Math.ceil(quantile * n) - 1)];
+      double actual = histogram.getPercentile(quantile) * 1000;
+      assertTrue(quantile + ": " + actual + " < " + expected, actual >= expected);
+      assertTrue(quantile + ": " + actual + " > " + expected, actual <= expected + expected / 16.0);
+    }
+  }
+
+  public void testConcurrentUpdates() throws Exception {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    final int updates = 10_000;
+    Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          for (int j = 0; j < updates; j++) {
+            histogram.update(j, TimeUnit.NANOSECONDS);
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(threads.length * updates, histogram.getCount());
+  }
+}
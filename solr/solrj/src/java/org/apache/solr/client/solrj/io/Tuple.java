@@ -113,6 +113,11 @@ public class Tuple implements Cloneable {
     this.fields.put("_METRICS_", metrics);
   }
 
+  /** Copies all fields of <code>other</code> into this tuple, overwriting the fields that both have. */
+  public void merge(Tuple other) {
+    this.fields.putAll(other.fields);
+  }
+
   public Tuple clone() {
     HashMap m = new HashMap();
     m.putAll(fields);
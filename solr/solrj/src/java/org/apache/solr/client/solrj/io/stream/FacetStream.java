@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.solr.client.solrj.impl.CloudSolrClient;
+import org.apache.solr.client.solrj.io.SolrClientCache;
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.stream.metrics.Bucket;
+import org.apache.solr.client.solrj.io.stream.metrics.CountMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.Metric;
+import org.apache.solr.client.solrj.request.QueryRequest;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.util.NamedList;
+
+/**
+ *  Computes metrics over buckets with a single JSON facet request, instead of streaming every
+ *  matching document. Each bucket becomes a nested terms facet and each metric a facet function,
+ *  so the aggregation happens on the shards and only the partial aggregates are merged by the
+ *  node that receives the request.
+ *
+ *  The tuples hold the bucket values and the metric values, keyed by {@link Bucket#toString()} and
+ *  {@link Metric#getName()} like the tuples of a {@link RollupStream}. They are emitted in index
+ *  order of the buckets, ascending or descending.
+ **/
+
+public class FacetStream extends TupleStream {
+
+  private static final long serialVersionUID = 1;
+
+  private String zkHost;
+  private String collection;
+  private Map<String, String> props;
+  private Bucket[] buckets;
+  private Metric[] metrics;
+  private boolean ascending;
+  private int bucketSizeLimit;
+
+  private transient SolrClientCache cache;
+  private transient CloudSolrClient cloudSolrClient;
+  private transient List<Tuple> tuples;
+  private transient int index;
+
+  /**
+   * @param props the query parameters of the request, e.g. q and fq
+   * @param bucketSizeLimit the maximum number of values returned for each bucket, or -1 for all values
+   */
+  public FacetStream(String zkHost,
+                     String collection,
+                     Map<String, String> props,
+                     Bucket[] buckets,
+                     Metric[] metrics,
+                     boolean ascending,
+                     int bucketSizeLimit) {
+    this.zkHost = zkHost;
+    this.collection = collection;
+    this.props = props;
+    this.buckets = buckets;
+    this.metrics = metrics;
+    this.ascending = ascending;
+    this.bucketSizeLimit = bucketSizeLimit;
+  }
+
+  public void setStreamContext(StreamContext context) {
+    cache = context.getSolrClientCache();
+  }
+
+  public List<TupleStream> children() {
+    return new ArrayList();
+  }
+
+  public void open() throws IOException {
+    if(cache != null) {
+      cloudSolrClient = cache.getCloudSolrClient(zkHost);
+    } else {
+      cloudSolrClient = new CloudSolrClient(zkHost);
+      cloudSolrClient.connect();
+    }
+
+    ModifiableSolrParams params = new ModifiableSolrParams();
+    for(Map.Entry<String, String> prop : props.entrySet()) {
+      params.set(prop.getKey(), prop.getValue());
+    }
+    params.set("json.facet", getJsonFacetString());
+    params.set("rows", "0");
+
+    try {
+      NamedList response = cloudSolrClient.request(new QueryRequest(params), collection);
+      tuples = new ArrayList();
+      index = 0;
+      NamedList facets = (NamedList)response.get("facets");
+      if(facets != null) {
+        fillTuples(0, facets, new Tuple(new HashMap()));
+      }
+    } catch (Exception e) {
+      throw new IOException(e);
+    }
+  }
+
+  public void close() throws IOException {
+    if(cache == null && cloudSolrClient != null) {
+      cloudSolrClient.close();
+    }
+  }
+
+  public Tuple read() throws IOException {
+    if(index < tuples.size()) {
+      return tuples.get(index++);
+    } else {
+      Map fields = new HashMap();
+      fields.put("EOF", true);
+      return new Tuple(fields);
+    }
+  }
+
+  String getJsonFacetString() {
+    StringBuilder buf = new StringBuilder();
+    appendJson(buf, 0);
+    return "{" + buf.toString() + "}";
+  }
+
+  private void appendJson(StringBuilder buf, int level) {
+    String bucket = buckets[level].toString();
+    buf.append('"').append(bucket).append("\":{");
+    buf.append("\"type\":\"terms\"");
+    buf.append(",\"field\":\"").append(bucket).append('"');
+    buf.append(",\"limit\":").append(bucketSizeLimit);
+    buf.append(",\"sort\":{\"index\":\"").append(ascending ? "asc" : "desc").append("\"}");
+
+    StringBuilder facets = new StringBuilder();
+    if(level < buckets.length - 1) {
+      appendJson(facets, level + 1);
+    } else {
+      for(int i=0; i<metrics.length; i++) {
+        if(metrics[i] instanceof CountMetric) {
+          continue; // every bucket has a count
+        }
+        if(facets.length() > 0) {
+          facets.append(',');
+        }
+        facets.append("\"facet_").append(i).append("\":\"").append(metrics[i].getName()).append('"');
+      }
+    }
+
+    if(facets.length() > 0) {
+      buf.append(",\"facet\":{").append(facets).append('}');
+    }
+    buf.append('}');
+  }
+
+  private void fillTuples(int level, NamedList facets, Tuple currentTuple) {
+    String bucketName = buckets[level].toString();
+    NamedList bucketFacet = (NamedList)facets.get(bucketName);
+    if(bucketFacet == null) {
+      return;
+    }
+
+    List<NamedList> bucketList = (List<NamedList>)bucketFacet.get("buckets");
+    for(NamedList bucket : bucketList) {
+      Tuple tuple = currentTuple.clone();
+      tuple.put(bucketName, bucket.get("val"));
+      if(level < buckets.length - 1) {
+        fillTuples(level + 1, bucket, tuple);
+      } else {
+        for(int i=0; i<metrics.length; i++) {
+          Object value = metrics[i] instanceof CountMetric ? bucket.get("count") : bucket.get("facet_" + i);
+          // buckets without any value for the column have no metric
+          if(value != null) {
+            tuple.put(metrics[i].getName(), ((Number)value).doubleValue());
+          }
+        }
+        tuples.add(tuple);
+      }
+    }
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.comp.HashKey;
+import org.apache.solr.client.solrj.io.stream.expr.Expressible;
+import org.apache.solr.client.solrj.io.stream.expr.StreamExpression;
+import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionNamedParameter;
+import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
+
+/**
+ *  Joins two streams without requiring them to be sorted. When the stream is opened, all tuples of
+ *  the hashed stream are read into a hash table keyed by their join fields. The tuples of the other
+ *  stream are then emitted, in the order of that stream, once for each hashed tuple that they join with:
+ *  <pre>
+ *  hashJoin(search(people, q=*:*, fl="personId,name", sort="name asc"),
+ *           hashed=search(pets, q=*:*, fl="ownerId,petName", sort="ownerId asc"),
+ *           on="personId=ownerId")
+ *  </pre>
+ *
+ *  The hashed stream must fit in memory. To join larger streams, wrap the join in a ParallelStream and
+ *  partition both streams on their join fields, so that each worker only hashes its own partition.
+ **/
+
+public class HashJoinStream extends JoinStream {
+
+  private static final long serialVersionUID = 1;
+
+  private transient Map<HashKey, List<Tuple>> hashedTuples;
+
+  // the current left tuple and the hashed tuples that it joins with
+  private transient Tuple currentLeft;
+  private transient List<Tuple> matches;
+  private transient int matchIndex;
+
+  public HashJoinStream(TupleStream stream, TupleStream hashedStream, String on) throws IOException {
+    init(stream, hashedStream, on);
+  }
+
+  public HashJoinStream(StreamExpression expression, StreamFactory factory) throws IOException {
+    // grab all parameters out
+    List<StreamExpression> streamExpressions = factory.getExpressionOperandsRepresentingTypes(expression, Expressible.class, TupleStream.class);
+    StreamExpressionNamedParameter hashedExpression = factory.getNamedOperand(expression, "hashed");
+    String on = getOn(expression, factory);
+
+    // validate expression contains only what we want.
+    if(expression.getParameters().size() != streamExpressions.size() + 2){
+      throw new IOException(String.format(Locale.ROOT,"Invalid expression %s - unknown operands found", expression));
+    }
+
+    if(1 != streamExpressions.size()){
+      throw new IOException(String.format(Locale.ROOT,"Invalid expression %s - expecting a single stream but found %d",expression, streamExpressions.size()));
+    }
+
+    if(null == hashedExpression || !(hashedExpression.getParameter() instanceof StreamExpression)){
+      throw new IOException(String.format(Locale.ROOT,"Invalid expression %s - expecting single 'hashed' parameter holding the stream to hash but didn't find one",expression));
+    }
+
+    init(factory.constructStream(streamExpressions.get(0)), factory.constructStream((StreamExpression)hashedExpression.getParameter()), on);
+  }
+
+  @Override
+  public StreamExpression toExpression(StreamFactory factory) throws IOException {
+    // function name
+    StreamExpression expression = new StreamExpression(factory.getFunctionName(this.getClass()));
+
+    // streams
+    expression.addParameter(leftStream.toExpression(factory));
+    expression.addParameter(new StreamExpressionNamedParameter("hashed", rightStream.toExpression(factory)));
+
+    // on
+    expression.addParameter(onToExpression());
+
+    return expression;
+  }
+
+  public void open() throws IOException {
+    super.open();
+
+    hashedTuples = new HashMap<HashKey, List<Tuple>>();
+    for(Tuple tuple = rightStream.read(); !tuple.EOF; tuple = rightStream.read()) {
+      if(hasNullKey(tuple, rightFields)) {
+        continue;
+      }
+      HashKey key = new HashKey(tuple, rightFields);
+      List<Tuple> tuples = hashedTuples.get(key);
+      if(tuples == null) {
+        tuples = new ArrayList<Tuple>(1);
+        hashedTuples.put(key, tuples);
+      }
+      tuples.add(tuple);
+    }
+
+    currentLeft = null;
+    matches = null;
+    matchIndex = 0;
+  }
+
+  public void close() throws IOException {
+    hashedTuples = null;
+    super.close();
+  }
+
+  public Tuple read() throws IOException {
+    while(true) {
+      if(currentLeft != null && matchIndex < matches.size()) {
+        return join(currentLeft, matches.get(matchIndex++));
+      }
+
+      currentLeft = null;
+      Tuple left = leftStream.read();
+      if(left.EOF) {
+        return left;
+      }
+
+      if(hasNullKey(left, leftFields)) {
+        continue;
+      }
+
+      matches = hashedTuples.get(new HashKey(left, leftFields));
+      if(matches != null) {
+        currentLeft = left;
+        matchIndex = 0;
+      }
+    }
+  }
+}
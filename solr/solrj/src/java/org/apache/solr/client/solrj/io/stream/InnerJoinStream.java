@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.stream.expr.Expressible;
+import org.apache.solr.client.solrj.io.stream.expr.StreamExpression;
+import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
+
+/**
+ *  Joins two streams that are both sorted in ascending order of their join fields, emitting one tuple
+ *  for each pair of a left tuple and a right tuple whose join fields are equal:
+ *  <pre>
+ *  innerJoin(search(people, q=*:*, fl="personId,name", sort="personId asc"),
+ *            search(pets, q=*:*, fl="ownerId,petName", sort="ownerId asc"),
+ *            on="personId=ownerId")
+ *  </pre>
+ *
+ *  Both streams are read once. Only the right tuples that have the same join fields as the current
+ *  left tuple are held in memory.
+ **/
+
+public class InnerJoinStream extends JoinStream {
+
+  private static final long serialVersionUID = 1;
+
+  // the current left tuple and the right tuples that it joins with
+  private transient Tuple currentLeft;
+  private transient List<Tuple> matches;
+  private transient int matchIndex;
+
+  public InnerJoinStream(TupleStream leftStream, TupleStream rightStream, String on) throws IOException {
+    init(leftStream, rightStream, on);
+  }
+
+  public InnerJoinStream(StreamExpression expression, StreamFactory factory) throws IOException {
+    // grab all parameters out
+    List<StreamExpression> streamExpressions = factory.getExpressionOperandsRepresentingTypes(expression, Expressible.class, TupleStream.class);
+    String on = getOn(expression, factory);
+
+    // validate expression contains only what we want.
+    if(expression.getParameters().size() != streamExpressions.size() + 1){
+      throw new IOException(String.format(Locale.ROOT,"Invalid expression %s - unknown operands found", expression));
+    }
+
+    if(2 != streamExpressions.size()){
+      throw new IOException(String.format(Locale.ROOT,"Invalid expression %s - expecting two streams but found %d",expression, streamExpressions.size()));
+    }
+
+    init(factory.constructStream(streamExpressions.get(0)), factory.constructStream(streamExpressions.get(1)), on);
+  }
+
+  @Override
+  public StreamExpression toExpression(StreamFactory factory) throws IOException {
+    // function name
+    StreamExpression expression = new StreamExpression(factory.getFunctionName(this.getClass()));
+
+    // streams
+    expression.addParameter(leftStream.toExpression(factory));
+    expression.addParameter(rightStream.toExpression(factory));
+
+    // on
+    expression.addParameter(onToExpression());
+
+    return expression;
+  }
+
+  /** Returns true if left tuples that do not join with any right tuple are emitted as is. */
+  protected boolean emitUnmatchedLeft() {
+    return false;
+  }
+
+  public void open() throws IOException {
+    super.open();
+    currentLeft = null;
+    matches = new ArrayList<Tuple>();
+    matchIndex = 0;
+  }
+
+  public Tuple read() throws IOException {
+    while(true) {
+      if(currentLeft != null && matchIndex < matches.size()) {
+        return join(currentLeft, matches.get(matchIndex++));
+      }
+
+      currentLeft = null;
+      Tuple left = leftStream.read();
+      if(left.EOF) {
+        return left;
+      }
+
+      if(hasNullKey(left, leftFields)) {
+        matches.clear();
+      } else if(matches.isEmpty() || leftRightComp.compare(left, matches.get(0)) != 0) {
+        // not the same join fields as the previous left tuple
+        readMatches(left);
+      }
+
+      if(matches.isEmpty()) {
+        if(emitUnmatchedLeft()) {
+          return left;
+        }
+      } else {
+        currentLeft = left;
+        matchIndex = 0;
+      }
+    }
+  }
+
+  /** Reads the right tuples whose join fields are equal to the join fields of <code>left</code>. */
+  private void readMatches(Tuple left) throws IOException {
+    matches.clear();
+    while(true) {
+      Tuple right = rightStream.read();
+      if(right.EOF) {
+        rightStream.pushBack(right);
+        return;
+      }
+
+      int c = leftRightComp.compare(left, right);
+      if(c < 0) {
+        // the right tuple is after the left tuple, keep it for the next left tuples
+        rightStream.pushBack(right);
+        return;
+      } else if(c == 0) {
+        matches.add(right);
+      }
+      // else the right tuple does not join with any left tuple
+    }
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.comp.ComparatorOrder;
+import org.apache.solr.client.solrj.io.comp.MultiComp;
+import org.apache.solr.client.solrj.io.comp.StreamComparator;
+import org.apache.solr.client.solrj.io.stream.expr.Expressible;
+import org.apache.solr.client.solrj.io.stream.expr.StreamExpression;
+import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionNamedParameter;
+import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionValue;
+import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
+
+/**
+ *  Base class for streams that join the tuples of a left and a right stream whose join fields are equal.
+ *  The join fields are given as a comma separated list of leftField=rightField pairs, or of single
+ *  field names when both streams use the same name, for example on="personId=ownerId,year".
+ *
+ *  The emitted tuples hold the fields of the left tuple and of the right tuple. When both tuples have
+ *  a field of the same name, the value of the right tuple is kept. Tuples that have no value for one of
+ *  the join fields do not join with any tuple.
+ **/
+
+public abstract class JoinStream extends TupleStream implements Expressible {
+
+  private static final long serialVersionUID = 1;
+
+  protected PushBackStream leftStream;
+  protected PushBackStream rightStream;
+  protected String[] leftFields;
+  protected String[] rightFields;
+
+  // compares the join fields of a left tuple to the join fields of a right tuple
+  protected Comparator<Tuple> leftRightComp;
+
+  protected JoinStream() {
+
+  }
+
+  protected void init(TupleStream leftStream, TupleStream rightStream, String on) throws IOException {
+    this.leftStream = new PushBackStream(leftStream);
+    this.rightStream = new PushBackStream(rightStream);
+
+    String[] parts = on.split(",");
+    this.leftFields = new String[parts.length];
+    this.rightFields = new String[parts.length];
+    Comparator<Tuple>[] comps = new Comparator[parts.length];
+    for(int i=0; i<parts.length; i++) {
+      String part = parts[i].trim();
+      int eq = part.indexOf('=');
+      leftFields[i] = (eq == -1 ? part : part.substring(0, eq)).trim();
+      rightFields[i] = (eq == -1 ? part : part.substring(eq + 1)).trim();
+      if(leftFields[i].length() == 0 || rightFields[i].length() == 0) {
+        throw new IOException(String.format(Locale.ROOT,"Invalid join fields '%s' - expecting a comma separated list of leftField=rightField",on));
+      }
+      comps[i] = new StreamComparator(leftFields[i], rightFields[i], ComparatorOrder.ASCENDING);
+    }
+    this.leftRightComp = comps.length == 1 ? comps[0] : new MultiComp(comps);
+  }
+
+  /** Returns the value of the 'on' parameter of a join expression. */
+  protected static String getOn(StreamExpression expression, StreamFactory factory) throws IOException {
+    StreamExpressionNamedParameter onExpression = factory.getNamedOperand(expression, "on");
+    if(null == onExpression || !(onExpression.getParameter() instanceof StreamExpressionValue)){
+      throw new IOException(String.format(Locale.ROOT,"Invalid expression %s - expecting single 'on' parameter listing fields to join on but didn't find one",expression));
+    }
+    return ((StreamExpressionValue)onExpression.getParameter()).getValue();
+  }
+
+  /** Returns the 'on' parameter of this join, in the format that {@link #init} parses. */
+  protected StreamExpressionNamedParameter onToExpression() {
+    StringBuilder sb = new StringBuilder();
+    for(int i=0; i<leftFields.length; i++) {
+      if(i > 0) {
+        sb.append(",");
+      }
+      sb.append(leftFields[i]);
+      if(!leftFields[i].equals(rightFields[i])) {
+        sb.append("=");
+        sb.append(rightFields[i]);
+      }
+    }
+    return new StreamExpressionNamedParameter("on", sb.toString());
+  }
+
+  /** Returns true if the tuple has no value for one of the given join fields. */
+  protected static boolean hasNullKey(Tuple tuple, String[] fields) {
+    for(String field : fields) {
+      if(tuple.get(field) == null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Returns a new tuple that holds the fields of both tuples. */
+  protected Tuple join(Tuple left, Tuple right) {
+    Tuple joined = left.clone();
+    joined.merge(right);
+    return joined;
+  }
+
+  public void setStreamContext(StreamContext context) {
+    this.leftStream.setStreamContext(context);
+    this.rightStream.setStreamContext(context);
+  }
+
+  public List<TupleStream> children() {
+    List<TupleStream> l =  new ArrayList<TupleStream>();
+    l.add(leftStream);
+    l.add(rightStream);
+    return l;
+  }
+
+  public void open() throws IOException {
+    leftStream.open();
+    rightStream.open();
+  }
+
+  public void close() throws IOException {
+    leftStream.close();
+    rightStream.close();
+  }
+
+  public int getCost() {
+    return 0;
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.IOException;
+
+import org.apache.solr.client.solrj.io.stream.expr.StreamExpression;
+import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
+
+/**
+ *  Joins two streams like {@link InnerJoinStream}, but also emits the left tuples that do not join
+ *  with any right tuple, with the fields of the left tuple only:
+ *  <pre>
+ *  leftOuterJoin(search(people, q=*:*, fl="personId,name", sort="personId asc"),
+ *                search(pets, q=*:*, fl="ownerId,petName", sort="ownerId asc"),
+ *                on="personId=ownerId")
+ *  </pre>
+ **/
+
+public class LeftOuterJoinStream extends InnerJoinStream {
+
+  private static final long serialVersionUID = 1;
+
+  public LeftOuterJoinStream(TupleStream leftStream, TupleStream rightStream, String on) throws IOException {
+    super(leftStream, rightStream, on);
+  }
+
+  public LeftOuterJoinStream(StreamExpression expression, StreamFactory factory) throws IOException {
+    super(expression, factory);
+  }
+
+  @Override
+  protected boolean emitUnmatchedLeft() {
+    return true;
+  }
+}
@@ -21,15 +21,35 @@ package org.apache.solr.client.solrj.io.stream;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.ArrayList;
 
 import org.apache.solr.client.solrj.io.Tuple;
 import org.apache.solr.client.solrj.io.comp.HashKey;
+import org.apache.solr.client.solrj.io.stream.expr.Expressible;
+import org.apache.solr.client.solrj.io.stream.expr.StreamExpression;
+import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionNamedParameter;
+import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionValue;
+import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
 import org.apache.solr.client.solrj.io.stream.metrics.Bucket;
 import org.apache.solr.client.solrj.io.stream.metrics.Metric;
 
-public class RollupStream extends TupleStream {
+/**
+ *  Computes metrics over the tuples of each bucket. The underlying stream must be sorted by
+ *  the bucket fields, so that the tuples of a bucket are read one after the other.
+ *
+ *  To roll up in parallel, wrap the rollup in a ParallelStream and partition the underlying
+ *  stream on the bucket fields, so that each worker rolls up whole buckets:
+ *  <pre>
+ *  parallel(collection1,
+ *           rollup(search(collection1, q=*:*, fl="a_s,a_i", sort="a_s asc", partitionKeys="a_s"),
+ *                  over="a_s", sum(a_i), count(*)),
+ *           workers="2", sort="a_s asc")
+ *  </pre>
+ **/
+
+public class RollupStream extends TupleStream implements Expressible {
 
   private static final long serialVersionUID = 1;
 
@@ -48,6 +68,71 @@ public class RollupStream extends TupleStream {
     this.metrics = metrics;
   }
 
+  public RollupStream(StreamExpression expression, StreamFactory factory) throws IOException {
+    // grab all parameters out
+    List<StreamExpression> streamExpressions = factory.getExpressionOperandsRepresentingTypes(expression, Expressible.class, TupleStream.class);
+    List<StreamExpression> metricExpressions = factory.getExpressionOperandsRepresentingTypes(expression, Expressible.class, Metric.class);
+    StreamExpressionNamedParameter overExpression = factory.getNamedOperand(expression, "over");
+
+    // validate expression contains only what we want.
+    if(expression.getParameters().size() != streamExpressions.size() + metricExpressions.size() + 1){
+      throw new IOException(String.format(Locale.ROOT,"Invalid expression %s - unknown operands found", expression));
+    }
+
+    if(1 != streamExpressions.size()){
+      throw new IOException(String.format(Locale.ROOT,"Invalid expression %s - expecting a single stream but found %d",expression, streamExpressions.size()));
+    }
+
+    if(null == overExpression || !(overExpression.getParameter() instanceof StreamExpressionValue)){
+      throw new IOException(String.format(Locale.ROOT,"Invalid expression %s - expecting single 'over' parameter listing fields to rollup by but didn't find one",expression));
+    }
+
+    String[] overFields = ((StreamExpressionValue)overExpression.getParameter()).getValue().split(",");
+    Bucket[] buckets = new Bucket[overFields.length];
+    for(int i=0; i<buckets.length; i++) {
+      buckets[i] = new Bucket(overFields[i].trim());
+    }
+
+    Metric[] metrics = new Metric[metricExpressions.size()];
+    for(int i=0; i<metrics.length; i++) {
+      metrics[i] = factory.constructMetric(metricExpressions.get(i));
+    }
+
+    this.tupleStream = new PushBackStream(factory.constructStream(streamExpressions.get(0)));
+    this.buckets = buckets;
+    this.metrics = metrics;
+  }
+
+  @Override
+  public StreamExpression toExpression(StreamFactory factory) throws IOException {
+    // function name
+    StreamExpression expression = new StreamExpression(factory.getFunctionName(this.getClass()));
+
+    // stream
+    expression.addParameter(tupleStream.toExpression(factory));
+
+    // over
+    StringBuilder overBuf = new StringBuilder();
+    for(int i=0; i<buckets.length; i++) {
+      if(i > 0) {
+        overBuf.append(",");
+      }
+      overBuf.append(buckets[i].toString());
+    }
+    expression.addParameter(new StreamExpressionNamedParameter("over", overBuf.toString()));
+
+    // metrics
+    for(Metric metric : metrics) {
+      if(metric instanceof Expressible) {
+        expression.addParameter(((Expressible)metric).toExpression(factory));
+      } else {
+        throw new IOException("This RollupStream contains a non-expressible metric - it cannot be converted to an expression");
+      }
+    }
+
+    return expression;
+  }
+
   public void setStreamContext(StreamContext context) {
     this.tupleStream.setStreamContext(context);
   }
@@ -71,7 +156,7 @@ public class RollupStream extends TupleStream {
     while(true) {
       Tuple tuple = tupleStream.read();
       if(tuple.EOF) {
-        if(!finished) {
+        if(!finished && currentMetrics != null) {
           Map map = new HashMap();
           for(Metric metric : currentMetrics) {
             map.put(metric.getName(), metric.getValue());
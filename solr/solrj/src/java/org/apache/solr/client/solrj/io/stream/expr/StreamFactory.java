@@ -18,6 +18,7 @@ import org.apache.solr.client.solrj.io.comp.MultiComp;
 import org.apache.solr.client.solrj.io.eq.Equalitor;
 import org.apache.solr.client.solrj.io.eq.MultiEqualitor;
 import org.apache.solr.client.solrj.io.stream.TupleStream;
+import org.apache.solr.client.solrj.io.stream.metrics.Metric;
 
 /*
  * Licensed to the Apache Software Foundation (ASF) under one or more
@@ -179,6 +180,22 @@ public class StreamFactory implements Serializable {
     throw new IOException(String.format(Locale.ROOT,"Invalid stream expression %s - function '%s' is unknown (not mapped to a valid TupleStream)", expression, expression.getFunctionName()));
   }
 
+  public Metric constructMetric(String expressionClause) throws IOException {
+    return constructMetric(StreamExpressionParser.parse(expressionClause));
+  }
+  public Metric constructMetric(StreamExpression expression) throws IOException{
+    String function = expression.getFunctionName();
+    if(streamFunctions.containsKey(function)){
+      Class clazz = streamFunctions.get(function);
+      if(Expressible.class.isAssignableFrom(clazz) && Metric.class.isAssignableFrom(clazz)){
+        Metric metric = (Metric)createInstance(streamFunctions.get(function), new Class[]{ StreamExpression.class, StreamFactory.class }, new Object[]{ expression, this});
+        return metric;
+      }
+    }
+    
+    throw new IOException(String.format(Locale.ROOT,"Invalid metric expression %s - function '%s' is unknown (not mapped to a valid Metric)", expression, expression.getFunctionName()));
+  }
+
   public Comparator<Tuple> constructComparator(String comparatorString, Class comparatorType) throws IOException {
     if(comparatorString.contains(",")){
       String[] parts = comparatorString.split(",");
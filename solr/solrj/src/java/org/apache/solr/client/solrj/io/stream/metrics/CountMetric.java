@@ -16,16 +16,39 @@ package org.apache.solr.client.solrj.io.stream.metrics;
  * limitations under the License.
  */
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.Locale;
 
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.stream.expr.Expressible;
+import org.apache.solr.client.solrj.io.stream.expr.StreamExpression;
+import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionParameter;
+import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
 
-public class CountMetric implements Metric, Serializable {
+public class CountMetric implements Metric, Expressible, Serializable {
 
   private static final long serialVersionUID = 1;
 
   private long count;
 
+  public CountMetric() {
+
+  }
+
+  public CountMetric(StreamExpression expression, StreamFactory factory) throws IOException {
+    // validate expression contains only what we want, count(*)
+    String columnName = factory.getValueOperand(expression, 0);
+    if(!"*".equals(columnName) || 1 != expression.getParameters().size()){
+      throw new IOException(String.format(Locale.ROOT,"Invalid expression %s - expecting count(*)", expression));
+    }
+  }
+
+  @Override
+  public StreamExpressionParameter toExpression(StreamFactory factory) throws IOException {
+    return new StreamExpression(factory.getFunctionName(this.getClass())).withParameter("*");
+  }
+
   public String getName() {
     return "count(*)";
   }
@@ -17,11 +17,17 @@ package org.apache.solr.client.solrj.io.stream.metrics;
  * limitations under the License.
  */
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.Locale;
 
 import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.stream.expr.Expressible;
+import org.apache.solr.client.solrj.io.stream.expr.StreamExpression;
+import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionParameter;
+import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
 
-public class SumMetric implements Metric, Serializable {
+public class SumMetric implements Metric, Expressible, Serializable {
 
   private static final long serialVersionUID = 1;
 
@@ -33,6 +39,26 @@ public class SumMetric implements Metric, Serializable {
     this.column = column;
   }
 
+  public SumMetric(StreamExpression expression, StreamFactory factory) throws IOException {
+    // grab all parameters out
+    String columnName = factory.getValueOperand(expression, 0);
+
+    // validate expression contains only what we want.
+    if(null == columnName){
+      throw new IOException(String.format(Locale.ROOT,"Invalid expression %s - expecting a column name as the single operand", expression));
+    }
+    if(1 != expression.getParameters().size()){
+      throw new IOException(String.format(Locale.ROOT,"Invalid expression %s - unknown operands found", expression));
+    }
+
+    this.column = columnName;
+  }
+
+  @Override
+  public StreamExpressionParameter toExpression(StreamFactory factory) throws IOException {
+    return new StreamExpression(factory.getFunctionName(this.getClass())).withParameter(column);
+  }
+
   public String getName() {
     return "sum("+column+")";
   }
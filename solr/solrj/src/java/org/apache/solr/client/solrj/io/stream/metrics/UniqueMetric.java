@@ -0,0 +1,86 @@
+package org.apache.solr.client.solrj.io.stream.metrics;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import org.apache.solr.client.solrj.io.Tuple;
+import org.apache.solr.client.solrj.io.stream.expr.Expressible;
+import org.apache.solr.client.solrj.io.stream.expr.StreamExpression;
+import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionParameter;
+import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
+
+/**
+ *  Counts the distinct values of a column. All values are held in memory, so this metric
+ *  is only suited to columns of moderate cardinality within each bucket.
+ **/
+
+public class UniqueMetric implements Metric, Expressible, Serializable {
+
+  private static final long serialVersionUID = 1;
+
+  private String column;
+  private Set<Object> values = new HashSet<Object>();
+
+  public UniqueMetric(String column) {
+    this.column = column;
+  }
+
+  public UniqueMetric(StreamExpression expression, StreamFactory factory) throws IOException {
+    // grab all parameters out
+    String columnName = factory.getValueOperand(expression, 0);
+
+    // validate expression contains only what we want.
+    if(null == columnName){
+      throw new IOException(String.format(Locale.ROOT,"Invalid expression %s - expecting a column name as the single operand", expression));
+    }
+    if(1 != expression.getParameters().size()){
+      throw new IOException(String.format(Locale.ROOT,"Invalid expression %s - unknown operands found", expression));
+    }
+
+    this.column = columnName;
+  }
+
+  @Override
+  public StreamExpressionParameter toExpression(StreamFactory factory) throws IOException {
+    return new StreamExpression(factory.getFunctionName(this.getClass())).withParameter(column);
+  }
+
+  public String getName() {
+    return "unique("+column+")";
+  }
+
+  public void update(Tuple tuple) {
+    Object o = tuple.get(column);
+    if(o != null) {
+      values.add(o);
+    }
+  }
+
+  public Metric newInstance() {
+    return new UniqueMetric(column);
+  }
+
+  public double getValue() {
+    return values.size();
+  }
+}
@@ -0,0 +1,223 @@
+package org.apache.solr.common.cloud;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrException.ErrorCode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.Watcher.Event.EventType;
+import org.apache.zookeeper.Watcher.Event.KeeperState;
+import org.apache.zookeeper.data.Stat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache for the state of collections (stateFormat=2) that are not watched by
+ * {@link ZkStateReader} because no local core belongs to them.
+ * <p>
+ * A watch on the collection's state.json is registered the first time the
+ * collection is read, and the cached state is served until that watch fires.
+ * The next read then checks the znode version with an <code>exists</code>
+ * call and only downloads the state again if the version changed. At most
+ * <code>maxSize</code> collections are cached; the least recently used ones
+ * are evicted and their watch is not registered again once it fires.
+ */
+class LazyCollectionCache {
+  private static Logger log = LoggerFactory.getLogger(LazyCollectionCache.class);
+
+  private final SolrZkClient zkClient;
+  private final Map<String, Entry> entries;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong conditionalHits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  LazyCollectionCache(SolrZkClient zkClient, final int maxSize) {
+    this.zkClient = zkClient;
+    this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        if (size() > maxSize) {
+          evictions.incrementAndGet();
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Returns the state of the given collection, reading it from ZooKeeper only
+   * if it is not cached or if its state.json changed since it was cached.
+   * Returns null if the collection does not exist.
+   */
+  DocCollection get(String coll) {
+    Entry entry;
+    synchronized (entries) {
+      entry = entries.get(coll);
+      if (entry == null) {
+        entry = new Entry(coll);
+        entries.put(coll, entry);
+      }
+    }
+    return entry.get();
+  }
+
+  /** Drops the given collection from the cache. */
+  void remove(String coll) {
+    synchronized (entries) {
+      entries.remove(coll);
+    }
+  }
+
+  /** Drops all collections that are not in <code>collections</code>. */
+  void retainAll(Collection<String> collections) {
+    synchronized (entries) {
+      entries.keySet().retainAll(collections);
+    }
+  }
+
+  /**
+   * Marks all cached states as stale, so that their version is checked on the
+   * next read. Must be called when watches may have been lost, e.g. after the
+   * ZooKeeper session expired.
+   */
+  void invalidateAll() {
+    synchronized (entries) {
+      for (Entry entry : entries.values()) {
+        entry.invalidate();
+      }
+    }
+  }
+
+  void clear() {
+    synchronized (entries) {
+      entries.clear();
+    }
+  }
+
+  /** Returns the cache statistics. */
+  Map<String, Long> getStats() {
+    Map<String, Long> stats = new LinkedHashMap<>();
+    synchronized (entries) {
+      stats.put("size", (long) entries.size());
+    }
+    stats.put("hits", hits.get());
+    stats.put("conditionalHits", conditionalHits.get());
+    stats.put("misses", misses.get());
+    stats.put("evictions", evictions.get());
+    return stats;
+  }
+
+  private class Entry implements Watcher {
+    private final String coll;
+    private final String path;
+    private DocCollection state;
+    // true until state was read and a watch is registered
+    private volatile boolean stale = true;
+
+    Entry(String coll) {
+      this.coll = coll;
+      this.path = ZkStateReader.getCollectionPath(coll);
+    }
+
+    void invalidate() {
+      stale = true;
+    }
+
+    @Override
+    public void process(WatchedEvent event) {
+      if (EventType.None.equals(event.getType())) {
+        // session events do not remove the watch, except if the session is gone
+        if (KeeperState.Expired.equals(event.getState())) {
+          stale = true;
+        }
+        return;
+      }
+      log.debug("Collection state change {} for lazily loaded collection {}", event, coll);
+      stale = true;
+    }
+
+    synchronized DocCollection get() {
+      if (!stale) {
+        hits.incrementAndGet();
+        return state;
+      }
+      // reset before reading, so that a change while reading is not missed
+      stale = false;
+      try {
+        if (state != null) {
+          Stat stat = zkClient.exists(path, this, true);
+          if (stat == null) {
+            return removed();
+          }
+          if (stat.getVersion() == state.getZNodeVersion()) {
+            conditionalHits.incrementAndGet();
+            return state;
+          }
+          // the watch is already registered by exists
+          state = read(null);
+        } else {
+          state = read(this);
+        }
+        return state == null ? removed() : state;
+      } catch (KeeperException.NoNodeException e) {
+        return removed();
+      } catch (KeeperException e) {
+        stale = true;
+        throw new SolrException(ErrorCode.BAD_REQUEST,
+            "Could not load collection from ZK:" + coll, e);
+      } catch (InterruptedException e) {
+        stale = true;
+        Thread.currentThread().interrupt();
+        throw new SolrException(ErrorCode.BAD_REQUEST,
+            "Could not load collection from ZK:" + coll, e);
+      }
+    }
+
+    private DocCollection read(Watcher watcher) throws KeeperException, InterruptedException {
+      misses.incrementAndGet();
+      Stat stat = new Stat();
+      byte[] data = zkClient.getData(path, watcher, stat, true);
+      ClusterState loaded = ClusterState.load(stat.getVersion(), data,
+          Collections.<String>emptySet(), path);
+      ClusterState.CollectionRef ref = loaded.getCollectionStates().get(coll);
+      return ref == null ? null : ref.get();
+    }
+
+    private DocCollection removed() {
+      state = null;
+      stale = true;
+      synchronized (entries) {
+        if (entries.get(coll) == this) {
+          entries.remove(coll);
+        }
+      }
+      return null;
+    }
+  }
+}
@@ -104,6 +104,7 @@ public class ZkStateReader implements Closeable {
   private static final long SOLRCLOUD_UPDATE_DELAY = Long.parseLong(System.getProperty("solrcloud.update.delay", "5000"));
   private static final int GET_LEADER_RETRY_INTERVAL_MS = 50;
   private static final int GET_LEADER_RETRY_DEFAULT_TIMEOUT = 4000;
+  private static final String LAZY_COLLECTION_CACHE_SIZE_PROP = "solrcloud.lazyCollectionCacheSize";
 
   public static final String LEADER_ELECT_ZKNODE = "leader_elect";
 
@@ -117,6 +118,9 @@ public class ZkStateReader implements Closeable {
    */
   private Map<String , DocCollection> watchedCollectionStates = new ConcurrentHashMap<String, DocCollection>();
 
+  /** States of the stateFormat=2 collections that are not in {@link #watchedCollections} */
+  private final LazyCollectionCache lazyCollections;
+
   private final ZkConfigManager configManager;
 
   public static final Set<String> KNOWN_CLUSTER_PROPS = unmodifiableSet(new HashSet<>(asList(
@@ -231,6 +235,7 @@ public class ZkStateReader implements Closeable {
     this.zkClient = zkClient;
     this.cmdExecutor = new ZkCmdExecutor(zkClient.getZkClientTimeout());
     this.configManager = new ZkConfigManager(zkClient);
+    this.lazyCollections = new LazyCollectionCache(zkClient, Integer.getInteger(LAZY_COLLECTION_CACHE_SIZE_PROP, 1000));
     this.closeClient = false;
   }
 
@@ -257,6 +262,7 @@ public class ZkStateReader implements Closeable {
         });
     this.cmdExecutor = new ZkCmdExecutor(zkClientTimeout);
     this.configManager = new ZkConfigManager(zkClient);
+    this.lazyCollections = new LazyCollectionCache(zkClient, Integer.getInteger(LAZY_COLLECTION_CACHE_SIZE_PROP, 1000));
     this.closeClient = true;
   }
 
@@ -447,6 +453,8 @@ public class ZkStateReader implements Closeable {
           }, true);
     }
     updateAliases();
+    // watches of lazily loaded collections may have been lost with the session
+    lazyCollections.invalidateAll();
     //on reconnect of SolrZkClient re-add watchers for the watched external collections
     synchronized (this) {
       for (String watchedCollection : watchedCollections) {
@@ -463,9 +471,12 @@ public class ZkStateReader implements Closeable {
     // first load all collections in /clusterstate.json (i.e. stateFormat=1)
     Map<String, ClusterState.CollectionRef> result = new LinkedHashMap<>(loadedData.getCollectionStates());
 
-    for (String s : getStateFormat2CollectionNames()) {
+    Set<String> stateFormat2CollectionNames = getStateFormat2CollectionNames();
+    lazyCollections.retainAll(stateFormat2CollectionNames);
+    for (String s : stateFormat2CollectionNames) {
       synchronized (this) {
         if (watchedCollections.contains(s)) {
+          lazyCollections.remove(s);
           DocCollection live = getCollectionLive(this, s);
           if (live != null) {
             watchedCollectionStates.put(s, live);
@@ -474,14 +485,15 @@ public class ZkStateReader implements Closeable {
           }
         } else {
           // if it is not collection, then just create a reference which can fetch
-          // the collection object just in time from ZK
+          // the collection object just in time from ZK, or from the lazy cache
+          // if it has not changed since it was last fetched
           // this is also cheap (lazy loaded) so we put it inside the synchronized
           // block although it is not required
           final String collName = s;
           result.put(s, new ClusterState.CollectionRef(null) {
             @Override
             public DocCollection get() {
-              return getCollectionLive(ZkStateReader.this, collName);
+              return lazyCollections.get(collName);
             }
 
             @Override
@@ -632,8 +644,21 @@ public class ZkStateReader implements Closeable {
     return this;
   }
 
+  /**
+   * Returns the hit, miss and eviction counts of the cache of lazily loaded
+   * collection states, i.e. the collections without a local core.
+   * Hits are reads served from the cache while its watch was in place.
+   * Conditional hits are reads after the watch fired that found the znode
+   * version unchanged, so the state was not downloaded again. Misses are
+   * reads that downloaded the state.
+   */
+  public Map<String, Long> getLazyCollectionCacheStats() {
+    return lazyCollections.getStats();
+  }
+
   public void close() {
     this.closed  = true;
+    lazyCollections.clear();
     if (closeClient) {
       zkClient.close();
     }
@@ -905,6 +930,7 @@ public class ZkStateReader implements Closeable {
       if (watchedCollections.contains(coll)) return;
       else {
         watchedCollections.add(coll);
+        lazyCollections.remove(coll);
       }
       addZkWatch(coll);
     }
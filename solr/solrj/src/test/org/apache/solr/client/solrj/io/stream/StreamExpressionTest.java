@@ -29,6 +29,8 @@ import org.apache.solr.client.solrj.io.Tuple;
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpression;
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionParser;
 import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
+import org.apache.solr.client.solrj.io.stream.metrics.CountMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.SumMetric;
 import org.apache.solr.cloud.AbstractFullDistribZkTestBase;
 import org.apache.solr.cloud.AbstractZkTestCase;
 import org.apache.solr.common.SolrInputDocument;
@@ -122,6 +124,11 @@ public class StreamExpressionTest extends AbstractFullDistribZkTestBase {
     testParallelReducerStream();
     testParallelRankStream();
     testParallelMergeStream();
+    testRollupStream();
+    testParallelRollupStream();
+    testInnerJoinStream();
+    testLeftOuterJoinStream();
+    testHashJoinStream();
   }
 
   private void testCloudSolrStream() throws Exception {
@@ -660,6 +667,184 @@ public class StreamExpressionTest extends AbstractFullDistribZkTestBase {
   }
 
 
+  private void testRollupStream() throws Exception {
+
+    indexr(id, "0", "a_s", "hello0", "a_i", "0", "a_f", "1");
+    indexr(id, "2", "a_s", "hello0", "a_i", "2", "a_f", "2");
+    indexr(id, "3", "a_s", "hello3", "a_i", "3", "a_f", "3");
+    indexr(id, "4", "a_s", "hello4", "a_i", "4", "a_f", "4");
+    indexr(id, "1", "a_s", "hello0", "a_i", "1", "a_f", "5");
+    indexr(id, "5", "a_s", "hello3", "a_i", "10", "a_f", "6");
+    indexr(id, "6", "a_s", "hello4", "a_i", "11", "a_f", "7");
+    indexr(id, "7", "a_s", "hello3", "a_i", "12", "a_f", "8");
+    indexr(id, "8", "a_s", "hello3", "a_i", "13", "a_f", "9");
+    indexr(id, "9", "a_s", "hello0", "a_i", "14", "a_f", "10");
+
+    commit();
+
+    StreamFactory factory = new StreamFactory()
+      .withCollectionZkHost("collection1", zkServer.getZkAddress())
+      .withStreamFunction("search", CloudSolrStream.class)
+      .withStreamFunction("rollup", RollupStream.class)
+      .withStreamFunction("sum", SumMetric.class)
+      .withStreamFunction("count", CountMetric.class);
+
+    TupleStream stream = factory.constructStream("rollup(search(collection1, q=*:*, fl=\"a_s,a_i\", sort=\"a_s asc\"), over=\"a_s\", sum(a_i), count(*))");
+    List<Tuple> tuples = getTuples(stream);
+
+    assert(tuples.size() == 3);
+    assertString(tuples.get(0), "a_s", "hello0");
+    assertDouble(tuples.get(0), "sum(a_i)", 17);
+    assertDouble(tuples.get(0), "count(*)", 4);
+    assertString(tuples.get(1), "a_s", "hello3");
+    assertDouble(tuples.get(1), "sum(a_i)", 38);
+    assertDouble(tuples.get(1), "count(*)", 4);
+    assertString(tuples.get(2), "a_s", "hello4");
+    assertDouble(tuples.get(2), "sum(a_i)", 15);
+    assertDouble(tuples.get(2), "count(*)", 2);
+
+    del("*:*");
+    commit();
+  }
+
+  private void testParallelRollupStream() throws Exception {
+
+    indexr(id, "0", "a_s", "hello0", "a_i", "0", "a_f", "1");
+    indexr(id, "2", "a_s", "hello0", "a_i", "2", "a_f", "2");
+    indexr(id, "3", "a_s", "hello3", "a_i", "3", "a_f", "3");
+    indexr(id, "4", "a_s", "hello4", "a_i", "4", "a_f", "4");
+    indexr(id, "1", "a_s", "hello0", "a_i", "1", "a_f", "5");
+    indexr(id, "5", "a_s", "hello3", "a_i", "10", "a_f", "6");
+    indexr(id, "6", "a_s", "hello4", "a_i", "11", "a_f", "7");
+    indexr(id, "7", "a_s", "hello3", "a_i", "12", "a_f", "8");
+    indexr(id, "8", "a_s", "hello3", "a_i", "13", "a_f", "9");
+    indexr(id, "9", "a_s", "hello0", "a_i", "14", "a_f", "10");
+
+    commit();
+
+    String zkHost = zkServer.getZkAddress();
+    StreamFactory factory = new StreamFactory()
+      .withCollectionZkHost("collection1", zkHost)
+      .withStreamFunction("search", CloudSolrStream.class)
+      .withStreamFunction("rollup", RollupStream.class)
+      .withStreamFunction("parallel", ParallelStream.class)
+      .withStreamFunction("sum", SumMetric.class)
+      .withStreamFunction("count", CountMetric.class);
+
+    TupleStream stream = factory.constructStream("parallel(collection1, rollup(search(collection1, q=*:*, fl=\"a_s,a_i\", sort=\"a_s desc\", partitionKeys=\"a_s\"), over=\"a_s\", sum(a_i), count(*)), workers=\"2\", zkHost=\""+zkHost+"\", sort=\"a_s desc\")");
+    List<Tuple> tuples = getTuples(stream);
+
+    assert(tuples.size() == 3);
+    assertString(tuples.get(0), "a_s", "hello4");
+    assertDouble(tuples.get(0), "sum(a_i)", 15);
+    assertDouble(tuples.get(0), "count(*)", 2);
+    assertString(tuples.get(1), "a_s", "hello3");
+    assertDouble(tuples.get(1), "sum(a_i)", 38);
+    assertDouble(tuples.get(1), "count(*)", 4);
+    assertString(tuples.get(2), "a_s", "hello0");
+    assertDouble(tuples.get(2), "sum(a_i)", 17);
+    assertDouble(tuples.get(2), "count(*)", 4);
+
+    del("*:*");
+    commit();
+  }
+
+  private void indexJoinDocs() throws Exception {
+    indexr(id, "1", "side_s", "left", "join_i", "1");
+    indexr(id, "2", "side_s", "left", "join_i", "2");
+    indexr(id, "3", "side_s", "left", "join_i", "3");
+    indexr(id, "4", "side_s", "left", "join_i", "2");
+    indexr(id, "5", "side_s", "left");
+    indexr(id, "10", "side_s", "right", "join_i", "2", "ident_s", "right1");
+    indexr(id, "11", "side_s", "right", "join_i", "2", "ident_s", "right2");
+    indexr(id, "12", "side_s", "right", "join_i", "4", "ident_s", "right3");
+    indexr(id, "13", "side_s", "right", "join_i", "1", "ident_s", "right4");
+
+    commit();
+  }
+
+  private void testInnerJoinStream() throws Exception {
+
+    indexJoinDocs();
+
+    StreamFactory factory = new StreamFactory()
+      .withCollectionZkHost("collection1", zkServer.getZkAddress())
+      .withStreamFunction("search", CloudSolrStream.class)
+      .withStreamFunction("innerJoin", InnerJoinStream.class);
+
+    TupleStream stream = factory.constructStream("innerJoin("
+        + "search(collection1, q=\"side_s:left AND join_i:[* TO *]\", fl=\"id,join_i\", sort=\"join_i asc, id asc\"),"
+        + "search(collection1, q=\"side_s:right\", fl=\"join_i,ident_s\", sort=\"join_i asc, ident_s asc\"),"
+        + "on=\"join_i\")");
+    List<Tuple> tuples = getTuples(stream);
+
+    assert(tuples.size() == 5);
+    assertOrder(tuples, 1, 2, 2, 4, 4);
+    assertString(tuples.get(0), "ident_s", "right4");
+    assertString(tuples.get(1), "ident_s", "right1");
+    assertString(tuples.get(2), "ident_s", "right2");
+    assertString(tuples.get(3), "ident_s", "right1");
+    assertString(tuples.get(4), "ident_s", "right2");
+
+    del("*:*");
+    commit();
+  }
+
+  private void testLeftOuterJoinStream() throws Exception {
+
+    indexJoinDocs();
+
+    StreamFactory factory = new StreamFactory()
+      .withCollectionZkHost("collection1", zkServer.getZkAddress())
+      .withStreamFunction("search", CloudSolrStream.class)
+      .withStreamFunction("leftOuterJoin", LeftOuterJoinStream.class);
+
+    TupleStream stream = factory.constructStream("leftOuterJoin("
+        + "search(collection1, q=\"side_s:left AND join_i:[* TO *]\", fl=\"id,join_i\", sort=\"join_i asc, id asc\"),"
+        + "search(collection1, q=\"side_s:right\", fl=\"join_i,ident_s\", sort=\"join_i asc, ident_s asc\"),"
+        + "on=\"join_i\")");
+    List<Tuple> tuples = getTuples(stream);
+
+    assert(tuples.size() == 6);
+    assertOrder(tuples, 1, 2, 2, 4, 4, 3);
+    assertString(tuples.get(0), "ident_s", "right4");
+    assertString(tuples.get(1), "ident_s", "right1");
+    assertString(tuples.get(2), "ident_s", "right2");
+    assertString(tuples.get(3), "ident_s", "right1");
+    assertString(tuples.get(4), "ident_s", "right2");
+    assertString(tuples.get(5), "ident_s", null);
+
+    del("*:*");
+    commit();
+  }
+
+  private void testHashJoinStream() throws Exception {
+
+    indexJoinDocs();
+
+    StreamFactory factory = new StreamFactory()
+      .withCollectionZkHost("collection1", zkServer.getZkAddress())
+      .withStreamFunction("search", CloudSolrStream.class)
+      .withStreamFunction("hashJoin", HashJoinStream.class);
+
+    TupleStream stream = factory.constructStream("hashJoin("
+        + "search(collection1, q=\"side_s:left\", fl=\"id,join_i\", sort=\"id asc\"),"
+        + "hashed=search(collection1, q=\"side_s:right\", fl=\"join_i,ident_s\", sort=\"ident_s asc\"),"
+        + "on=\"join_i\")");
+    List<Tuple> tuples = getTuples(stream);
+
+    assert(tuples.size() == 5);
+    assertOrder(tuples, 1, 2, 2, 4, 4);
+    assertString(tuples.get(0), "ident_s", "right4");
+    assertString(tuples.get(1), "ident_s", "right1");
+    assertString(tuples.get(2), "ident_s", "right2");
+    assertString(tuples.get(3), "ident_s", "right1");
+    assertString(tuples.get(4), "ident_s", "right2");
+
+    del("*:*");
+    commit();
+  }
+
   protected List<Tuple> getTuples(TupleStream tupleStream) throws IOException {
     tupleStream.open();
     List<Tuple> tuples = new ArrayList<Tuple>();
@@ -708,6 +893,15 @@ public class StreamExpressionTest extends AbstractFullDistribZkTestBase {
     return true;
   }
   
+  public boolean assertDouble(Tuple tuple, String fieldName, double d) throws Exception {
+    double dv = (double)tuple.get(fieldName);
+    if(dv != d) {
+      throw new Exception("Doubles not equal:"+d+" : "+dv);
+    }
+
+    return true;
+  }
+
   public boolean assertString(Tuple tuple, String fieldName, String expected) throws Exception {
     String actual = (String)tuple.get(fieldName);
     
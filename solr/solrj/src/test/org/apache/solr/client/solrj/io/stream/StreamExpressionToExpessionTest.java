@@ -26,6 +26,11 @@ import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionNamedParamete
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionParser;
 import org.apache.solr.client.solrj.io.stream.expr.StreamExpressionValue;
 import org.apache.solr.client.solrj.io.stream.expr.StreamFactory;
+import org.apache.solr.client.solrj.io.stream.metrics.CountMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.MaxMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.MeanMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.MinMetric;
+import org.apache.solr.client.solrj.io.stream.metrics.SumMetric;
 import org.junit.Test;
 
 /**
@@ -45,6 +50,15 @@ public class StreamExpressionToExpessionTest extends LuceneTestCase {
                     .withStreamFunction("unique", UniqueStream.class)
                     .withStreamFunction("top", RankStream.class)
                     .withStreamFunction("group", ReducerStream.class)
+                    .withStreamFunction("rollup", RollupStream.class)
+                    .withStreamFunction("innerJoin", InnerJoinStream.class)
+                    .withStreamFunction("leftOuterJoin", LeftOuterJoinStream.class)
+                    .withStreamFunction("hashJoin", HashJoinStream.class)
+                    .withStreamFunction("count", CountMetric.class)
+                    .withStreamFunction("sum", SumMetric.class)
+                    .withStreamFunction("min", MinMetric.class)
+                    .withStreamFunction("max", MaxMetric.class)
+                    .withStreamFunction("avg", MeanMetric.class)
                     ;
   }
   
@@ -134,4 +148,59 @@ public class StreamExpressionToExpessionTest extends LuceneTestCase {
     assertTrue(expressionString.contains("by=\"a_s desc\""));
   }
 
+  @Test
+  public void testRollupStream() throws Exception {
+
+    RollupStream stream;
+    String expressionString;
+
+    // Basic test
+    stream = new RollupStream(StreamExpressionParser.parse("rollup("
+                                                  + "search(collection1, q=*:*, fl=\"a_s,a_i,a_f\", sort=\"a_s asc\"),"
+                                                  + "over=\"a_s\","
+                                                  + "sum(a_i), min(a_i), max(a_f), avg(a_f), count(*))"), factory);
+    expressionString = stream.toExpression(factory).toString();
+    assertTrue(expressionString.contains("rollup(search(collection1"));
+    assertTrue(expressionString.contains("over=a_s"));
+    assertTrue(expressionString.contains("sum(a_i)"));
+    assertTrue(expressionString.contains("min(a_i)"));
+    assertTrue(expressionString.contains("max(a_f)"));
+    assertTrue(expressionString.contains("avg(a_f)"));
+    assertTrue(expressionString.contains("count(*)"));
+  }
+
+  @Test
+  public void testInnerJoinStream() throws Exception {
+
+    InnerJoinStream stream;
+    String expressionString;
+
+    // Basic test
+    stream = new InnerJoinStream(StreamExpressionParser.parse("innerJoin("
+                                                  + "search(collection1, q=\"side_s:left\", fl=\"id,join1_i,join2_s\", sort=\"join1_i asc, join2_s asc\"),"
+                                                  + "search(collection1, q=\"side_s:right\", fl=\"join1_i,join2_s,ident_s\", sort=\"join1_i asc, join2_s asc\"),"
+                                                  + "on=\"join1_i=join1_i, join2_s=join2_s\")"), factory);
+    expressionString = stream.toExpression(factory).toString();
+    assertTrue(expressionString.contains("innerJoin(search(collection1, q=\"side_s:left\""));
+    assertTrue(expressionString.contains("search(collection1, q=\"side_s:right\""));
+    assertTrue(expressionString.contains("on=\"join1_i,join2_s\""));
+  }
+
+  @Test
+  public void testHashJoinStream() throws Exception {
+
+    HashJoinStream stream;
+    String expressionString;
+
+    // Basic test
+    stream = new HashJoinStream(StreamExpressionParser.parse("hashJoin("
+                                                  + "search(collection1, q=\"side_s:left\", fl=\"id,join1_i\", sort=\"id asc\"),"
+                                                  + "hashed=search(collection1, q=\"side_s:right\", fl=\"join1_i,ident_s\", sort=\"ident_s asc\"),"
+                                                  + "on=\"join1_i=join1_i\")"), factory);
+    expressionString = stream.toExpression(factory).toString();
+    assertTrue(expressionString.contains("hashJoin(search(collection1, q=\"side_s:left\""));
+    assertTrue(expressionString.contains("hashed=search(collection1, q=\"side_s:right\""));
+    assertTrue(expressionString.contains("on=join1_i"));
+  }
+
 }